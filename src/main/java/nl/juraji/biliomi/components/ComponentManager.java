@@ -4,9 +4,9 @@ import com.google.common.eventbus.Subscribe;
 import nl.juraji.biliomi.model.internal.events.irc.channel.IrcChannelJoinedEvent;
 import nl.juraji.biliomi.model.internal.events.irc.user.messages.IrcChatMessageEvent;
 import nl.juraji.biliomi.components.interfaces.Component;
+import nl.juraji.biliomi.components.shared.pipeline.InboundMessagePipeline;
 import nl.juraji.biliomi.utility.cdi.annotations.qualifiers.NormalComponent;
 import nl.juraji.biliomi.utility.cdi.annotations.qualifiers.SystemComponent;
-import nl.juraji.biliomi.utility.commandrouters.routers.CommandRouter;
 import nl.juraji.biliomi.utility.events.interceptors.EventBusSubscriber;
 import org.apache.logging.log4j.Logger;
 
@@ -29,7 +29,7 @@ public class ComponentManager {
   private Logger logger;
 
   @Inject
-  private CommandRouter commandRouter;
+  private InboundMessagePipeline inboundMessagePipeline;
 
   @Inject
   @SystemComponent
@@ -58,6 +58,6 @@ public class ComponentManager {
 
   @Subscribe
   public void onIrcChatMessageEvent(IrcChatMessageEvent event) {
-    commandRouter.runCommand(event, false);
+    inboundMessagePipeline.process(event);
   }
 }
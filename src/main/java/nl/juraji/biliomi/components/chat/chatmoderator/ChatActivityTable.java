@@ -0,0 +1,268 @@
+package nl.juraji.biliomi.components.chat.chatmoderator;
+
+import java.util.Arrays;
+
+/**
+ * Created by Juraji on 21-10-2017.
+ * Biliomi v3
+ * <p>
+ * Tracks recent chat activity per user and channel-wide.
+ * For each user the time and content hash of the last USER_HISTORY messages are kept,
+ * channel-wide the last CHANNEL_HISTORY messages are kept.
+ * <p>
+ * All data lives in primitive arrays (an open addressing hash table keyed on a 64-bit username hash),
+ * so recording a message does not allocate. Users without activity within the max age are evicted
+ * in place during a periodic sweep, the table only reallocates when it needs to grow.
+ */
+final class ChatActivityTable {
+  static final int USER_HISTORY = 16;
+  private static final int CHANNEL_HISTORY = 512;
+  private static final int TIME_RESOLUTION_MILLIS = 10;
+  private static final int MIN_CAPACITY = 256;
+  private static final long EMPTY = 0L;
+
+  private final long maxAge;
+  private long baseTime;
+  private long lastSweep;
+
+  // User table, each slot owns USER_HISTORY entries in the times and hashes arrays
+  private int mask;
+  private int size;
+  private long[] keys;
+  private int[] counts;
+  private int[] times;
+  private int[] hashes;
+
+  // Channel ring buffer
+  private final int[] channelTimes = new int[CHANNEL_HISTORY];
+  private final int[] channelHashes = new int[CHANNEL_HISTORY];
+  private final long[] channelKeys = new long[CHANNEL_HISTORY];
+  private int channelCount;
+
+  /**
+   * @param maxAge The time in milliseconds after which activity is forgotten
+   * @param now    The current time in milliseconds
+   */
+  ChatActivityTable(long maxAge, long now) {
+    this.maxAge = maxAge;
+    this.baseTime = now;
+    this.lastSweep = now;
+    allocate(MIN_CAPACITY);
+  }
+
+  /**
+   * Record a message and write the resulting activity to the message features
+   *
+   * @param userKey         The key of the user, see userKey(String)
+   * @param features        The features of the message to record
+   * @param now             The current time in milliseconds
+   * @param floodWindow     The flood window in milliseconds
+   * @param duplicateWindow The duplicate window in milliseconds
+   */
+  synchronized void record(long userKey, MessageFeatures features, long now, long floodWindow, long duplicateWindow) {
+    if (now - lastSweep >= maxAge) {
+      sweep(now);
+    }
+
+    int time = toTime(now);
+    int floodStart = time - (int) (Math.min(floodWindow, maxAge) / TIME_RESOLUTION_MILLIS);
+    int duplicateStart = time - (int) (Math.min(duplicateWindow, maxAge) / TIME_RESOLUTION_MILLIS);
+    int hash = features.getContentHash();
+
+    // User activity
+    int slot = findOrInsert(userKey);
+    int offset = slot * USER_HISTORY;
+    int stored = Math.min(counts[slot], USER_HISTORY);
+    int messagesInWindow = 1;
+    boolean repeatedByUser = false;
+
+    for (int i = offset; i < offset + stored; i++) {
+      if (times[i] >= floodStart) {
+        ++messagesInWindow;
+      }
+      if (hashes[i] == hash && times[i] >= duplicateStart) {
+        repeatedByUser = true;
+      }
+    }
+
+    int entry = offset + (counts[slot] % USER_HISTORY);
+    times[entry] = time;
+    hashes[entry] = hash;
+    counts[slot] = (counts[slot] == Integer.MAX_VALUE ? USER_HISTORY : counts[slot] + 1);
+
+    // Channel activity
+    int channelStored = Math.min(channelCount, CHANNEL_HISTORY);
+    int channelRepeatCount = 0;
+
+    for (int i = 0; i < channelStored; i++) {
+      if (channelHashes[i] == hash && channelTimes[i] >= duplicateStart && channelKeys[i] != userKey) {
+        ++channelRepeatCount;
+      }
+    }
+
+    int channelEntry = channelCount % CHANNEL_HISTORY;
+    channelTimes[channelEntry] = time;
+    channelHashes[channelEntry] = hash;
+    channelKeys[channelEntry] = userKey;
+    channelCount = (channelCount == Integer.MAX_VALUE ? CHANNEL_HISTORY : channelCount + 1);
+
+    features.setActivity(messagesInWindow, repeatedByUser, channelRepeatCount);
+  }
+
+  /**
+   * @return The amount of users currently tracked
+   */
+  synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Evict all users without activity since now - maxAge
+   *
+   * @param now The current time in milliseconds
+   */
+  synchronized void sweep(long now) {
+    lastSweep = now;
+
+    // Times are stored relative to the base time, start over well before they overflow
+    if (now - baseTime > (long) Integer.MAX_VALUE * TIME_RESOLUTION_MILLIS / 2) {
+      baseTime = now;
+      allocate(keys.length);
+      Arrays.fill(channelKeys, EMPTY);
+      channelCount = 0;
+      return;
+    }
+
+    int expiry = toTime(now - maxAge);
+    int slot = 0;
+    while (slot < keys.length) {
+      if (keys[slot] != EMPTY && lastActivity(slot) < expiry) {
+        // Deleting shifts a following entry into this slot, so it is evaluated again
+        delete(slot);
+      } else {
+        ++slot;
+      }
+    }
+  }
+
+  /**
+   * Create a 64-bit FNV-1a hash of a username, case insensitive
+   *
+   * @param username The username to hash
+   * @return The key for the user, never 0
+   */
+  static long userKey(String username) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < username.length(); i++) {
+      hash ^= Character.toLowerCase(username.charAt(i));
+      hash *= 0x100000001b3L;
+    }
+    return (hash == EMPTY ? 1 : hash);
+  }
+
+  private int toTime(long millis) {
+    return (int) ((millis - baseTime) / TIME_RESOLUTION_MILLIS);
+  }
+
+  private int lastActivity(int slot) {
+    int count = counts[slot];
+    if (count == 0) {
+      return Integer.MIN_VALUE;
+    }
+    return times[slot * USER_HISTORY + ((count - 1) % USER_HISTORY)];
+  }
+
+  private int home(long key) {
+    return (int) (key ^ (key >>> 32)) & mask;
+  }
+
+  private int findOrInsert(long key) {
+    int slot = home(key);
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    // Not found, grow if needed, this changes slot positions
+    if (size + 1 > keys.length / 2) {
+      grow();
+      slot = home(key);
+      while (keys[slot] != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+    }
+
+    keys[slot] = key;
+    counts[slot] = 0;
+    ++size;
+    return slot;
+  }
+
+  /**
+   * Backward shift deletion for linear probing, keeps probe sequences intact without tombstones
+   */
+  private void delete(int slot) {
+    int free = slot;
+    int next = slot;
+
+    while (true) {
+      next = (next + 1) & mask;
+      if (keys[next] == EMPTY) {
+        break;
+      }
+
+      int home = home(keys[next]);
+      boolean inPlace = (free <= next) ? (free < home && home <= next) : (free < home || home <= next);
+      if (!inPlace) {
+        move(next, free);
+        free = next;
+      }
+    }
+
+    keys[free] = EMPTY;
+    counts[free] = 0;
+    --size;
+  }
+
+  private void move(int from, int to) {
+    keys[to] = keys[from];
+    counts[to] = counts[from];
+    System.arraycopy(times, from * USER_HISTORY, times, to * USER_HISTORY, USER_HISTORY);
+    System.arraycopy(hashes, from * USER_HISTORY, hashes, to * USER_HISTORY, USER_HISTORY);
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    int[] oldCounts = counts;
+    int[] oldTimes = times;
+    int[] oldHashes = hashes;
+
+    allocate(oldKeys.length * 2);
+
+    for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+      if (oldKeys[oldSlot] != EMPTY) {
+        int slot = home(oldKeys[oldSlot]);
+        while (keys[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = oldKeys[oldSlot];
+        counts[slot] = oldCounts[oldSlot];
+        System.arraycopy(oldTimes, oldSlot * USER_HISTORY, times, slot * USER_HISTORY, USER_HISTORY);
+        System.arraycopy(oldHashes, oldSlot * USER_HISTORY, hashes, slot * USER_HISTORY, USER_HISTORY);
+        ++size;
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    mask = capacity - 1;
+    size = 0;
+    keys = new long[capacity];
+    counts = new int[capacity];
+    times = new int[capacity * USER_HISTORY];
+    hashes = new int[capacity * USER_HISTORY];
+  }
+}
@@ -1,9 +1,11 @@
 package nl.juraji.biliomi.components.chat.chatmoderator;
 
+import nl.juraji.biliomi.components.chat.chatmoderator.rules.ModerationRuleEngine;
 import nl.juraji.biliomi.model.chat.settings.ChatModeratorSettings;
 import nl.juraji.biliomi.model.chat.ModerationAction;
 import nl.juraji.biliomi.model.core.User;
 import nl.juraji.biliomi.model.core.UserGroup;
+import nl.juraji.biliomi.model.internal.events.bot.ConsoleInputEvent;
 import nl.juraji.biliomi.components.interfaces.Component;
 import nl.juraji.biliomi.components.interfaces.enums.OnOff;
 import nl.juraji.biliomi.components.system.settings.SettingsService;
@@ -12,10 +14,12 @@ import nl.juraji.biliomi.components.system.users.UserGroupService;
 import nl.juraji.biliomi.utility.calculate.EnumUtils;
 import nl.juraji.biliomi.utility.calculate.MathUtils;
 import nl.juraji.biliomi.utility.calculate.Numbers;
+import nl.juraji.biliomi.utility.commandrouters.annotations.CliCommandRoute;
 import nl.juraji.biliomi.utility.commandrouters.annotations.CommandRoute;
 import nl.juraji.biliomi.utility.commandrouters.annotations.SubCommandRoute;
 import nl.juraji.biliomi.utility.commandrouters.types.Arguments;
 import nl.juraji.biliomi.utility.cdi.annotations.qualifiers.NormalComponent;
+import nl.juraji.biliomi.utility.types.MutableString;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -44,6 +48,12 @@ public class ChatModeratorComponent extends Component {
   @Inject
   private ChatModeratorWorkerService moderatorWorker;
 
+  @Inject
+  private ModerationRuleEngine ruleEngine;
+
+  @Inject
+  private ChatModeratorFloodService floodService;
+
   @Inject
   private SettingsService settingsService;
   private ChatModeratorSettings settings;
@@ -258,7 +268,7 @@ public class ChatModeratorComponent extends Component {
 
   /**
    * Manage automated chat moderator settings
-   * Usage: !chatmoderator [linksallowed|linkpermittime|capsallowed|capstrigger|capsratio|repititionallowed|repititiontrigger] [more...]
+   * Usage: !chatmoderator [linksallowed|linkpermittime|capsallowed|capstrigger|capsratio|repititionallowed|repititiontrigger|emotesallowed|emotetrigger|symbolsallowed|symboltrigger|symbolratio|longmessagesallowed|lengthtrigger|duplicatesallowed|duplicatetrigger|floodallowed|floodtrigger|floodwindow] [more...]
    */
   @CommandRoute(command = "chatmoderator", systemCommand = true)
   public boolean chatmoderatorCommand(User user, Arguments arguments) {
@@ -414,6 +424,265 @@ public class ChatModeratorComponent extends Component {
     return true;
   }
 
+  /**
+   * Toggle allowing emote spam
+   * Usage: !chatmoderator emotesallowed [on|off]
+   */
+  @SubCommandRoute(parentCommand = "chatmoderator", command = "emotesallowed")
+  public boolean chatmoderatorCommandEmotesAllowed(User user, Arguments arguments) {
+    OnOff onOff = EnumUtils.toEnum(arguments.get(0), OnOff.class);
+
+    if (onOff == null) {
+      chat.whisper(user, l10n.get("ChatCommand.chatmoderator.emotesAllowed.usage"));
+      return false;
+    }
+
+    settings.setEmoteSpamAllowed(OnOff.ON.equals(onOff));
+    settingsService.save(settings);
+
+    chat.whisper(user, l10n.get("ChatCommand.chatmoderator.emotesAllowed.saved")
+        .add("state", l10n.getAllowedDisallowed(settings.isEmoteSpamAllowed())));
+    return true;
+  }
+
+  /**
+   * Set the amount of emotes a message should contain before triggering moderation
+   * Usage: !chatmoderator emotetrigger [amount of emotes]
+   */
+  @SubCommandRoute(parentCommand = "chatmoderator", command = "emotetrigger")
+  public boolean chatmoderatorCommandEmoteTrigger(User user, Arguments arguments) {
+    Integer count = Numbers.asNumber(arguments.get(0)).toInteger();
+
+    if (count == null) {
+      chat.whisper(user, l10n.get("ChatCommand.chatmoderator.emoteTrigger.usage"));
+      return false;
+    }
+
+    settings.setEmoteTrigger(count);
+    settingsService.save(settings);
+
+    chat.whisper(user, l10n.get("ChatCommand.chatmoderator.emoteTrigger.saved")
+        .add("count", count));
+    return true;
+  }
+
+  /**
+   * Toggle allowing symbol spam
+   * Usage: !chatmoderator symbolsallowed [on|off]
+   */
+  @SubCommandRoute(parentCommand = "chatmoderator", command = "symbolsallowed")
+  public boolean chatmoderatorCommandSymbolsAllowed(User user, Arguments arguments) {
+    OnOff onOff = EnumUtils.toEnum(arguments.get(0), OnOff.class);
+
+    if (onOff == null) {
+      chat.whisper(user, l10n.get("ChatCommand.chatmoderator.symbolsAllowed.usage"));
+      return false;
+    }
+
+    settings.setSymbolSpamAllowed(OnOff.ON.equals(onOff));
+    settingsService.save(settings);
+
+    chat.whisper(user, l10n.get("ChatCommand.chatmoderator.symbolsAllowed.saved")
+        .add("state", l10n.getAllowedDisallowed(settings.isSymbolSpamAllowed())));
+    return true;
+  }
+
+  /**
+   * Set the amount of symbols a message should contain before triggering moderation
+   * Usage: !chatmoderator symboltrigger [amount of symbols]
+   */
+  @SubCommandRoute(parentCommand = "chatmoderator", command = "symboltrigger")
+  public boolean chatmoderatorCommandSymbolTrigger(User user, Arguments arguments) {
+    Integer count = Numbers.asNumber(arguments.get(0)).toInteger();
+
+    if (count == null) {
+      chat.whisper(user, l10n.get("ChatCommand.chatmoderator.symbolTrigger.usage"));
+      return false;
+    }
+
+    settings.setSymbolTrigger(count);
+    settingsService.save(settings);
+
+    chat.whisper(user, l10n.get("ChatCommand.chatmoderator.symbolTrigger.saved")
+        .add("count", count));
+    return true;
+  }
+
+  /**
+   * Set the ratio (percentage) of symbols a message should contain before triggering moderation
+   * Usage: !chatmoderator symbolratio [ratio 0-100]
+   */
+  @SubCommandRoute(parentCommand = "chatmoderator", command = "symbolratio")
+  public boolean chatmoderatorCommandSymbolRatio(User user, Arguments arguments) {
+    Integer percentage = Numbers.asNumber(arguments.get(0)).toInteger();
+
+    if (percentage == null || percentage < 0 || percentage > 100) {
+      chat.whisper(user, l10n.get("ChatCommand.chatmoderator.symbolRatio.usage"));
+      return false;
+    }
+
+    double ratio = percentage / 100.0;
+    settings.setSymbolTriggerRatio(ratio);
+    settingsService.save(settings);
+
+    chat.whisper(user, l10n.get("ChatCommand.chatmoderator.symbolRatio.saved")
+        .add("percentage", MathUtils.doubleToPercentage(ratio)));
+    return true;
+  }
+
+  /**
+   * Toggle allowing long messages
+   * Usage: !chatmoderator longmessagesallowed [on|off]
+   */
+  @SubCommandRoute(parentCommand = "chatmoderator", command = "longmessagesallowed")
+  public boolean chatmoderatorCommandLongMessagesAllowed(User user, Arguments arguments) {
+    OnOff onOff = EnumUtils.toEnum(arguments.get(0), OnOff.class);
+
+    if (onOff == null) {
+      chat.whisper(user, l10n.get("ChatCommand.chatmoderator.longMessagesAllowed.usage"));
+      return false;
+    }
+
+    settings.setLongMessagesAllowed(OnOff.ON.equals(onOff));
+    settingsService.save(settings);
+
+    chat.whisper(user, l10n.get("ChatCommand.chatmoderator.longMessagesAllowed.saved")
+        .add("state", l10n.getAllowedDisallowed(settings.isLongMessagesAllowed())));
+    return true;
+  }
+
+  /**
+   * Set the maximum length of a message before triggering moderation
+   * Usage: !chatmoderator lengthtrigger [amount of characters]
+   */
+  @SubCommandRoute(parentCommand = "chatmoderator", command = "lengthtrigger")
+  public boolean chatmoderatorCommandLengthTrigger(User user, Arguments arguments) {
+    Integer count = Numbers.asNumber(arguments.get(0)).toInteger();
+
+    if (count == null) {
+      chat.whisper(user, l10n.get("ChatCommand.chatmoderator.lengthTrigger.usage"));
+      return false;
+    }
+
+    settings.setMessageLengthTrigger(count);
+    settingsService.save(settings);
+
+    chat.whisper(user, l10n.get("ChatCommand.chatmoderator.lengthTrigger.saved")
+        .add("count", count));
+    return true;
+  }
+
+  /**
+   * Toggle allowing users to repeat their previous message
+   * Usage: !chatmoderator duplicatesallowed [on|off]
+   */
+  @SubCommandRoute(parentCommand = "chatmoderator", command = "duplicatesallowed")
+  public boolean chatmoderatorCommandDuplicatesAllowed(User user, Arguments arguments) {
+    OnOff onOff = EnumUtils.toEnum(arguments.get(0), OnOff.class);
+
+    if (onOff == null) {
+      chat.whisper(user, l10n.get("ChatCommand.chatmoderator.duplicatesAllowed.usage"));
+      return false;
+    }
+
+    settings.setDuplicateMessagesAllowed(OnOff.ON.equals(onOff));
+    settingsService.save(settings);
+
+    chat.whisper(user, l10n.get("ChatCommand.chatmoderator.duplicatesAllowed.saved")
+        .add("state", l10n.getAllowedDisallowed(settings.isDuplicateMessagesAllowed())));
+    return true;
+  }
+
+  /**
+   * Set the minimum length of a message before duplicates trigger moderation
+   * Usage: !chatmoderator duplicatetrigger [amount of characters]
+   */
+  @SubCommandRoute(parentCommand = "chatmoderator", command = "duplicatetrigger")
+  public boolean chatmoderatorCommandDuplicateTrigger(User user, Arguments arguments) {
+    Integer count = Numbers.asNumber(arguments.get(0)).toInteger();
+
+    if (count == null) {
+      chat.whisper(user, l10n.get("ChatCommand.chatmoderator.duplicateTrigger.usage"));
+      return false;
+    }
+
+    settings.setDuplicateMessageTrigger(count);
+    settingsService.save(settings);
+
+    chat.whisper(user, l10n.get("ChatCommand.chatmoderator.duplicateTrigger.saved")
+        .add("count", count));
+    return true;
+  }
+
+  /**
+   * Toggle allowing users to flood the chat
+   * Usage: !chatmoderator floodallowed [on|off]
+   */
+  @SubCommandRoute(parentCommand = "chatmoderator", command = "floodallowed")
+  public boolean chatmoderatorCommandFloodAllowed(User user, Arguments arguments) {
+    OnOff onOff = EnumUtils.toEnum(arguments.get(0), OnOff.class);
+
+    if (onOff == null) {
+      chat.whisper(user, l10n.get("ChatCommand.chatmoderator.floodAllowed.usage"));
+      return false;
+    }
+
+    settings.setFloodAllowed(OnOff.ON.equals(onOff));
+    settingsService.save(settings);
+
+    chat.whisper(user, l10n.get("ChatCommand.chatmoderator.floodAllowed.saved")
+        .add("state", l10n.getAllowedDisallowed(settings.isFloodAllowed())));
+    return true;
+  }
+
+  /**
+   * Set the amount of messages a user may post within the flood window
+   * Usage: !chatmoderator floodtrigger [amount of messages]
+   */
+  @SubCommandRoute(parentCommand = "chatmoderator", command = "floodtrigger")
+  public boolean chatmoderatorCommandFloodTrigger(User user, Arguments arguments) {
+    Integer count = Numbers.asNumber(arguments.get(0)).toInteger();
+
+    // The flood service only remembers a limited amount of messages per user
+    if (count == null || count < 0 || count >= ChatModeratorFloodService.MAX_FLOOD_TRIGGER) {
+      chat.whisper(user, l10n.get("ChatCommand.chatmoderator.floodTrigger.usage")
+          .add("max", ChatModeratorFloodService.MAX_FLOOD_TRIGGER - 1));
+      return false;
+    }
+
+    settings.setFloodTrigger(count);
+    settingsService.save(settings);
+
+    chat.whisper(user, l10n.get("ChatCommand.chatmoderator.floodTrigger.saved")
+        .add("count", count)
+        .add("time", timeFormatter.timeQuantity(settings.getFloodWindow())));
+    return true;
+  }
+
+  /**
+   * Set the time window in which messages are counted towards flooding
+   * Usage: !chatmoderator floodwindow [time in seconds]
+   */
+  @SubCommandRoute(parentCommand = "chatmoderator", command = "floodwindow")
+  public boolean chatmoderatorCommandFloodWindow(User user, Arguments arguments) {
+    Long seconds = Numbers.asNumber(arguments.get(0)).toLong();
+    long maxSeconds = TimeUnit.MILLISECONDS.toSeconds(ChatModeratorFloodService.MAX_WINDOW);
+
+    if (seconds == null || seconds < 1 || seconds > maxSeconds) {
+      chat.whisper(user, l10n.get("ChatCommand.chatmoderator.floodWindow.usage")
+          .add("max", maxSeconds));
+      return false;
+    }
+
+    long timeInMillis = TimeUnit.MILLISECONDS.convert(seconds, TimeUnit.SECONDS);
+    settings.setFloodWindow(timeInMillis);
+    settingsService.save(settings);
+
+    chat.whisper(user, l10n.get("ChatCommand.chatmoderator.floodWindow.saved")
+        .add("time", timeFormatter.timeQuantity(timeInMillis)));
+    return true;
+  }
+
   /**
    * Exempt users within a group
    * Uses the same groupweight logic as the command router
@@ -479,4 +748,25 @@ public class ChatModeratorComponent extends Component {
         .add("thirdstrike", EnumUtils.pretty(strike1)));
     return true;
   }
+
+  /**
+   * Print the evaluation statistics of each moderation rule
+   * Usage: /moderationstats
+   */
+  @CliCommandRoute(command = "moderationstats", description = "Show moderation rule statistics")
+  public boolean moderationStatsCommand(ConsoleInputEvent event) {
+    MutableString output = new MutableString("Moderation rule statistics (in order of evaluation):").appendNewLine();
+
+    ruleEngine.getStatistics().forEach(statistics -> output.appendSpace(2)
+        .append(statistics.getRuleName())
+        .append(": evaluations: ").append(statistics.getEvaluations())
+        .append(", hits: ").append(statistics.getHits())
+        .append(", average: ").append(String.format("%.2f", statistics.getAverageMicros())).append("us")
+        .appendNewLine());
+
+    output.append("Evaluations over budget: ").append(ruleEngine.getOverBudgetCount()).appendNewLine();
+    output.append("Users with recent activity: ").append(floodService.getActiveUserCount());
+    logger.info(output.toString());
+    return true;
+  }
 }
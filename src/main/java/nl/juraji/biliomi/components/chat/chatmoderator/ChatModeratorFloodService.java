@@ -0,0 +1,58 @@
+package nl.juraji.biliomi.components.chat.chatmoderator;
+
+import nl.juraji.biliomi.utility.types.Restartable;
+
+import javax.enterprise.inject.Default;
+import javax.inject.Singleton;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Juraji on 21-10-2017.
+ * Biliomi v3
+ */
+@Default
+@Singleton
+public class ChatModeratorFloodService implements Restartable {
+  public static final long MAX_WINDOW = TimeUnit.MINUTES.toMillis(1);
+  public static final long DUPLICATE_WINDOW = MAX_WINDOW;
+  public static final int MAX_FLOOD_TRIGGER = ChatActivityTable.USER_HISTORY + 1;
+  private volatile ChatActivityTable activityTable;
+
+  @Override
+  public void start() {
+    if (activityTable == null) {
+      activityTable = new ChatActivityTable(MAX_WINDOW, System.currentTimeMillis());
+    }
+  }
+
+  @Override
+  public void stop() {
+    activityTable = null;
+  }
+
+  /**
+   * Record a message sent by a user
+   * The resulting flood and duplicate counts are set on the message features
+   * Messages received while the service is stopped are not recorded
+   *
+   * @param username    The user that sent the message
+   * @param features    The features of the message
+   * @param floodWindow The time window in milliseconds in which messages are counted towards flooding
+   */
+  public void record(String username, MessageFeatures features, long floodWindow) {
+    ChatActivityTable activityTable = this.activityTable;
+    if (activityTable == null) {
+      return;
+    }
+
+    activityTable.record(ChatActivityTable.userKey(username), features, System.currentTimeMillis(), floodWindow, DUPLICATE_WINDOW);
+  }
+
+  /**
+   * @return The amount of users with recent chat activity
+   */
+  public int getActiveUserCount() {
+    ChatActivityTable activityTable = this.activityTable;
+    return (activityTable == null ? 0 : activityTable.size());
+  }
+}
@@ -1,17 +1,17 @@
 package nl.juraji.biliomi.components.chat.chatmoderator;
 
-import com.google.common.eventbus.Subscribe;
+import nl.juraji.biliomi.io.api.twitch.irc.utils.Tags;
 import nl.juraji.biliomi.model.chat.ModerationAction;
 import nl.juraji.biliomi.model.chat.ModerationReason;
 import nl.juraji.biliomi.model.chat.settings.ChatModeratorSettings;
 import nl.juraji.biliomi.model.core.User;
-import nl.juraji.biliomi.model.internal.events.irc.user.messages.IrcChatMessageEvent;
+import nl.juraji.biliomi.components.chat.chatmoderator.rules.ModerationRuleEngine;
 import nl.juraji.biliomi.components.system.settings.SettingsService;
 import nl.juraji.biliomi.components.shared.ChatService;
+import nl.juraji.biliomi.components.shared.pipeline.InboundChatMessage;
+import nl.juraji.biliomi.components.shared.pipeline.InboundMessageStage;
 import nl.juraji.biliomi.components.system.users.UsersService;
-import nl.juraji.biliomi.utility.calculate.PatternUtils;
 import nl.juraji.biliomi.utility.cdi.annotations.modifiers.L10nData;
-import nl.juraji.biliomi.utility.events.interceptors.EventBusSubscriber;
 import nl.juraji.biliomi.utility.types.Init;
 import nl.juraji.biliomi.utility.types.collections.L10nMap;
 
@@ -19,18 +19,17 @@ import javax.annotation.PreDestroy;
 import javax.enterprise.inject.Default;
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.util.List;
-
-import static nl.juraji.biliomi.model.chat.ModerationReason.*;
 
 /**
  * Created by Juraji on 13-5-2017.
  * Biliomi v3
+ * <p>
+ * The moderation stage of the InboundMessagePipeline.
+ * Messages that violate a moderation rule are vetoed, so they do not reach command routing.
  */
 @Default
 @Singleton
-@EventBusSubscriber
-public class ChatModeratorWorkerService implements Init {
+public class ChatModeratorWorkerService implements Init, InboundMessageStage {
   private static final String L10N_MODERATION_ACTION_PREFIX = "Moderation.action.";
   private static final String L10N_MODERATION_WARN_MESSAGE_PREFIX = "Moderation.warn.";
   private static final String L10N_MODERATION_ACTION_MESSAGE_PREFIX = "Moderation.messageFor.";
@@ -54,6 +53,12 @@ public class ChatModeratorWorkerService implements Init {
   @Inject
   private ChatModeratorTallyService tallyService;
 
+  @Inject
+  private ChatModeratorFloodService floodService;
+
+  @Inject
+  private ModerationRuleEngine ruleEngine;
+
   @Inject
   private SettingsService settingsService;
   private ChatModeratorSettings settings;
@@ -66,79 +71,44 @@ public class ChatModeratorWorkerService implements Init {
 
     linkPermitService.start();
     tallyService.start();
+    floodService.start();
   }
 
   @PreDestroy
   private void destroy() {
     linkPermitService.stop();
     tallyService.stop();
+    floodService.stop();
   }
 
-  @Subscribe
-  public void onIrcChatMessageEvent(IrcChatMessageEvent event) {
-    String username = event.getUsername();
-    User user = usersService.getUser(username);
+  @Override
+  public boolean process(InboundChatMessage message) {
+    // Messages may arrive before the component is initialized, moderation is not active yet
+    if (settings == null) {
+      return true;
+    }
 
     // Proceed if user not is exempted
-    if (!userExemptedByTypeOrGroup(user)) {
-      // Run all moderations
-      // As opposed to v1 behaviour, each violation now counts as a seperate strike
-
-      StrikeExecutor strikeExecutor = new StrikeExecutor(event);
-
-      moderateLink(strikeExecutor);
-      moderateCaps(strikeExecutor);
-      moderateRepeatedCharacters(strikeExecutor);
-
-      strikeExecutor.execute();
+    if (userExemptedByTypeOrGroup(message.getUser())) {
+      return true;
     }
-  }
 
-  private void moderateLink(StrikeExecutor strikeExecutor) {
-    // Moderate links if links are not allowed and the message contains links
-    if (!settings.isLinksAllowed()) {
-      List<String> links = PatternUtils.getLinks(strikeExecutor.getMessage());
-
-      // Proceed if links are found
-      // Proceed if User does not have a permit
-      // Proceed if one or more links are not whitelisted
-      if (!links.isEmpty() && !linkPermitService.usePermit(strikeExecutor.getUsername()) && !allWhitelisted(links)) {
-        strikeExecutor.addStrike(POSTED_LINK);
-      }
-    }
-  }
+    // Rules are evaluated cheapest first, the first violated rule counts as a strike
+    // Every message is recorded, so rates are known regardless of which rule triggers
+    String username = message.getUsername();
+    String emotesTag = (message.getTags() == null ? null : message.getTags().get(Tags.TAG_EMOTES));
+    MessageFeatures features = new MessageFeatures(message.getMessage(), emotesTag);
+    floodService.record(username, features, settings.getFloodWindow());
+    ModerationReason reason = ruleEngine.evaluate(username, features, settings);
 
-  private void moderateCaps(StrikeExecutor strikeExecutor) {
-    // Moderate excessive caps usage if not allowed
-    if (!settings.isExcessiveCapsAllowed()) {
-      double trigger = settings.getCapsTrigger();
-      long length = strikeExecutor.getMessage().length();
-
-      // Proceed if the caps usage count exceeds the trigger count
-      if (length >= trigger) {
-        long count = strikeExecutor.getMessage().chars().filter(Character::isUpperCase).count();
-        double triggerRatio = settings.getCapsTriggerRatio();
-        double capsRatio = (double) count / (double) length;
-
-        // Strike if the caps usage ratio exceeds the trigger ratio
-        if (capsRatio > triggerRatio) {
-          strikeExecutor.addStrike(EXCESSIVE_CAPS);
-        }
-      }
+    if (reason == null) {
+      return true;
     }
-  }
-
-  private void moderateRepeatedCharacters(StrikeExecutor strikeExecutor) {
-    // Moderate excessive repeated characters if not allowed
-    if (!settings.isRepeatedCharactersAllowed()) {
-      int trigger = settings.getRepeatedCharacterTrigger();
-      int longestSequence = PatternUtils.getLongestRepeatedCharacterSequence(strikeExecutor.getMessage());
 
-      // Strike if the longest sequence of characters exceeds the trigger
-      if (longestSequence >= trigger) {
-        strikeExecutor.addStrike(REPEATED_CHARACTERS);
-      }
-    }
+    StrikeExecutor strikeExecutor = new StrikeExecutor(message);
+    strikeExecutor.addStrike(reason);
+    strikeExecutor.execute();
+    return false;
   }
 
   private boolean userExemptedByTypeOrGroup(User user) {
@@ -157,50 +127,32 @@ public class ChatModeratorWorkerService implements Init {
 
   }
 
-  private boolean allWhitelisted(List<String> links) {
-    List<String> linkWhitelist = settings.getLinkWhitelist();
-
-    // Return false if the whitelist is empty
-    if (linkWhitelist.isEmpty()) {
-      return false;
-    }
-
-    // Check each link against whitelist (found link starts with whitelistedlink)
-    // Return True if ALL links atleast start with a whitelisted link
-    return links.stream()
-        .filter(link -> linkWhitelist.stream().anyMatch(link::startsWith))
-        .count() == links.size();
-  }
-
   private class StrikeExecutor {
-    private final IrcChatMessageEvent event;
+    private final InboundChatMessage message;
+    private final User user;
     private ModerationAction action;
     private ModerationReason reason;
 
-    private StrikeExecutor(IrcChatMessageEvent event) {
-      this.event = event;
-    }
-
-    public String getUsername() {
-      return event.getUsername();
-    }
+    private StrikeExecutor(InboundChatMessage message) {
+      this.message = message;
 
-    public String getMessage() {
-      return event.getMessage();
+      // Resolve the user once and share it with the rest of the pipeline
+      if (message.getUser() == null) {
+        message.setUser(usersService.getUser(message.getUsername(), true));
+      }
+      this.user = message.getUser();
     }
 
     public void addStrike(ModerationReason reason) {
-      User user = usersService.getUser(event.getUsername(), true);
       int strike = tallyService.tally(user.getUsername());
 
       this.reason = reason;
       this.action = getStrikeAction(strike);
-      recordService.recordModeration(user, reason, action, event.getMessage());
+      recordService.recordModeration(user, reason, action, message.getMessage());
     }
 
     public void execute() {
       if (action != null) {
-        User user = usersService.getUser(event.getUsername(), true);
         int strike = tallyService.getCurrent(user.getUsername());
 
         executeAction(action, user);
@@ -0,0 +1,232 @@
+package nl.juraji.biliomi.components.chat.chatmoderator;
+
+import nl.juraji.biliomi.utility.calculate.PatternUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Created by Juraji on 19-10-2017.
+ * Biliomi v3
+ * <p>
+ * Precomputed features of a chat message, used by moderation.
+ * All character based features are collected in a single pass over the message,
+ * so adding moderation checks does not add passes over the message.
+ */
+public final class MessageFeatures {
+  private final String message;
+  private final int length;
+  private final int capsCount;
+  private final int symbolCount;
+  private final int nonWhitespaceCount;
+  private final int longestRepeatedSequence;
+  private final int emoteCount;
+  private final boolean linkCandidate;
+  private final int contentHash;
+  private List<String> links;
+
+  // Set by the ChatModeratorFloodService when the message is recorded
+  private int messagesInWindow;
+  private boolean repeatedByUser;
+  private int channelRepeatCount;
+
+  /**
+   * Extract the features of a message
+   *
+   * @param message   The message to evaluate
+   * @param emotesTag The "emotes" tag of the message, may be null
+   */
+  public MessageFeatures(String message, String emotesTag) {
+    this.message = (message == null ? "" : message);
+    this.length = this.message.length();
+
+    int caps = 0;
+    int symbols = 0;
+    int nonWhitespace = 0;
+    int longestSequence = 0;
+    int sequence = 1;
+    int previous = -1;
+    int previousLinkChar = -1;
+    int hash = 0;
+    boolean candidate = false;
+
+    for (int i = 0; i < length; i++) {
+      char c = this.message.charAt(i);
+      boolean letterOrDigit = Character.isLetterOrDigit(c);
+
+      if (Character.isUpperCase(c)) {
+        ++caps;
+      }
+
+      if (!Character.isWhitespace(c)) {
+        ++nonWhitespace;
+        hash = 31 * hash + Character.toLowerCase(c);
+        if (!letterOrDigit) {
+          ++symbols;
+        }
+      }
+
+      // Links need a dot, or one of the obfuscated forms "()", "--", "(dot)", "[at]", etc.
+      // Quotes are ignored, like PatternUtils.getLinks() strips them before matching
+      if (!candidate && c != '\'' && c != '"') {
+        candidate = c == '.'
+            || (c == ')' && previousLinkChar == '(')
+            || (c == '-' && previousLinkChar == '-')
+            || ((c == ')' || c == ']' || c == '}' || c == '>') && previousLinkChar == 't');
+        previousLinkChar = c;
+      }
+
+      // Repeated characters, spaces are ignored and any sequence of symbols counts as a repitition
+      if (c != ' ') {
+        if (c == previous || (!letterOrDigit && !Character.isLetterOrDigit(previous))) {
+          ++sequence;
+        } else if (sequence > 1) {
+          longestSequence = Math.max(longestSequence, sequence);
+          sequence = 1;
+        }
+        previous = c;
+      }
+    }
+
+    // One final readout of the sequence for the last chain in the message
+    if (sequence > 1) {
+      longestSequence = Math.max(longestSequence, sequence);
+    }
+
+    this.capsCount = caps;
+    this.symbolCount = symbols;
+    this.nonWhitespaceCount = nonWhitespace;
+    this.longestRepeatedSequence = longestSequence;
+    this.linkCandidate = candidate;
+    this.contentHash = hash;
+    this.emoteCount = countEmotes(emotesTag);
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * @return The length of the message, in characters
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * @return The amount of upper case characters in the message
+   */
+  public int getCapsCount() {
+    return capsCount;
+  }
+
+  /**
+   * @return The ratio of upper case characters in the message, relative to the message length
+   */
+  public double getCapsRatio() {
+    return (length == 0 ? 0 : (double) capsCount / (double) length);
+  }
+
+  /**
+   * @return The amount of characters that are neither letter, digit or whitespace
+   */
+  public int getSymbolCount() {
+    return symbolCount;
+  }
+
+  /**
+   * @return The ratio of symbols in the message, relative to the amount of non-whitespace characters
+   */
+  public double getSymbolRatio() {
+    return (nonWhitespaceCount == 0 ? 0 : (double) symbolCount / (double) nonWhitespaceCount);
+  }
+
+  /**
+   * @return The length of the longest sequence of repeating characters
+   * @see PatternUtils#getLongestRepeatedCharacterSequence(String)
+   */
+  public int getLongestRepeatedSequence() {
+    return longestRepeatedSequence;
+  }
+
+  /**
+   * @return The amount of emotes used in the message, according to the "emotes" tag
+   */
+  public int getEmoteCount() {
+    return emoteCount;
+  }
+
+  /**
+   * @return True if the message might contain links, this is a cheap check, use getLinks() to verify
+   */
+  public boolean hasLinkCandidates() {
+    return linkCandidate;
+  }
+
+  /**
+   * Get the links within the message
+   * The message is only scanned if it contains link candidates and the result is cached
+   *
+   * @return A List of links, or empty if none are found
+   */
+  public List<String> getLinks() {
+    if (links == null) {
+      links = (linkCandidate ? PatternUtils.getLinks(message) : Collections.emptyList());
+    }
+    return links;
+  }
+
+  /**
+   * @return A hash of the message content, ignoring case and whitespace
+   */
+  public int getContentHash() {
+    return contentHash;
+  }
+
+  /**
+   * @return The amount of messages the sender posted within the flood window, including this message
+   */
+  public int getMessagesInWindow() {
+    return messagesInWindow;
+  }
+
+  /**
+   * @return True if the sender posted the same message within the duplicate window
+   */
+  public boolean isRepeatedByUser() {
+    return repeatedByUser;
+  }
+
+  /**
+   * @return The amount of times other users posted the same message within the duplicate window
+   */
+  public int getChannelRepeatCount() {
+    return channelRepeatCount;
+  }
+
+  void setActivity(int messagesInWindow, boolean repeatedByUser, int channelRepeatCount) {
+    this.messagesInWindow = messagesInWindow;
+    this.repeatedByUser = repeatedByUser;
+    this.channelRepeatCount = channelRepeatCount;
+  }
+
+  /**
+   * The emotes tag is formatted as "[emote id]:[start]-[end],[start]-[end]/[emote id]:[start]-[end]"
+   * Each range is an occurrence of an emote within the message
+   */
+  private static int countEmotes(String emotesTag) {
+    if (emotesTag == null || emotesTag.isEmpty()) {
+      return 0;
+    }
+
+    int count = 1;
+    for (int i = 0; i < emotesTag.length(); i++) {
+      char c = emotesTag.charAt(i);
+      if (c == ',' || c == '/') {
+        ++count;
+      }
+    }
+
+    return count;
+  }
+}
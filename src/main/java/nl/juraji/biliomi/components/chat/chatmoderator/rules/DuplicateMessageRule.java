@@ -0,0 +1,43 @@
+package nl.juraji.biliomi.components.chat.chatmoderator.rules;
+
+import nl.juraji.biliomi.components.chat.chatmoderator.MessageFeatures;
+import nl.juraji.biliomi.model.chat.ModerationReason;
+import nl.juraji.biliomi.model.chat.settings.ChatModeratorSettings;
+
+import javax.enterprise.inject.Default;
+import javax.inject.Singleton;
+
+/**
+ * Created by Juraji on 20-10-2017.
+ * Biliomi v3
+ * <p>
+ * R9K-style moderation: Users may not repeat their own recent messages,
+ * nor post a message that several other users recently posted (copy-paste spam),
+ * if the message is at least the trigger length.
+ * Recent messages are tracked by the ChatModeratorFloodService.
+ */
+@Default
+@Singleton
+public class DuplicateMessageRule implements ModerationRule {
+  public static final int CHANNEL_REPEAT_TRIGGER = 3;
+
+  @Override
+  public int getCost() {
+    return 6;
+  }
+
+  @Override
+  public ModerationReason getReason() {
+    return ModerationReason.DUPLICATE_MESSAGE;
+  }
+
+  @Override
+  public boolean isViolatedBy(String username, MessageFeatures features, ChatModeratorSettings settings) {
+    // A trigger of 0 disables this rule
+    int trigger = settings.getDuplicateMessageTrigger();
+    return !settings.isDuplicateMessagesAllowed()
+        && trigger > 0
+        && features.getLength() >= trigger
+        && (features.isRepeatedByUser() || features.getChannelRepeatCount() >= CHANNEL_REPEAT_TRIGGER);
+  }
+}
@@ -0,0 +1,35 @@
+package nl.juraji.biliomi.components.chat.chatmoderator.rules;
+
+import nl.juraji.biliomi.components.chat.chatmoderator.MessageFeatures;
+import nl.juraji.biliomi.model.chat.ModerationReason;
+import nl.juraji.biliomi.model.chat.settings.ChatModeratorSettings;
+
+import javax.enterprise.inject.Default;
+import javax.inject.Singleton;
+
+/**
+ * Created by Juraji on 20-10-2017.
+ * Biliomi v3
+ */
+@Default
+@Singleton
+public class ExcessiveCapsRule implements ModerationRule {
+
+  @Override
+  public int getCost() {
+    return 2;
+  }
+
+  @Override
+  public ModerationReason getReason() {
+    return ModerationReason.EXCESSIVE_CAPS;
+  }
+
+  @Override
+  public boolean isViolatedBy(String username, MessageFeatures features, ChatModeratorSettings settings) {
+    // Strike if the message is at least the trigger length and the caps usage ratio exceeds the trigger ratio
+    return !settings.isExcessiveCapsAllowed()
+        && features.getLength() >= settings.getCapsTrigger()
+        && features.getCapsRatio() > settings.getCapsTriggerRatio();
+  }
+}
@@ -0,0 +1,37 @@
+package nl.juraji.biliomi.components.chat.chatmoderator.rules;
+
+import nl.juraji.biliomi.components.chat.chatmoderator.MessageFeatures;
+import nl.juraji.biliomi.model.chat.ModerationReason;
+import nl.juraji.biliomi.model.chat.settings.ChatModeratorSettings;
+
+import javax.enterprise.inject.Default;
+import javax.inject.Singleton;
+
+/**
+ * Created by Juraji on 21-10-2017.
+ * Biliomi v3
+ * <p>
+ * Users may not post more than the trigger amount of messages within the flood window.
+ * Message rates are tracked by the ChatModeratorFloodService.
+ */
+@Default
+@Singleton
+public class FloodRule implements ModerationRule {
+
+  @Override
+  public int getCost() {
+    return 0;
+  }
+
+  @Override
+  public ModerationReason getReason() {
+    return ModerationReason.FLOOD;
+  }
+
+  @Override
+  public boolean isViolatedBy(String username, MessageFeatures features, ChatModeratorSettings settings) {
+    // A trigger of 0 disables this rule
+    int trigger = settings.getFloodTrigger();
+    return !settings.isFloodAllowed() && trigger > 0 && features.getMessagesInWindow() > trigger;
+  }
+}
@@ -0,0 +1,34 @@
+package nl.juraji.biliomi.components.chat.chatmoderator.rules;
+
+import nl.juraji.biliomi.components.chat.chatmoderator.MessageFeatures;
+import nl.juraji.biliomi.model.chat.ModerationReason;
+import nl.juraji.biliomi.model.chat.settings.ChatModeratorSettings;
+
+import javax.enterprise.inject.Default;
+import javax.inject.Singleton;
+
+/**
+ * Created by Juraji on 20-10-2017.
+ * Biliomi v3
+ */
+@Default
+@Singleton
+public class MessageLengthRule implements ModerationRule {
+
+  @Override
+  public int getCost() {
+    return 1;
+  }
+
+  @Override
+  public ModerationReason getReason() {
+    return ModerationReason.MESSAGE_LENGTH;
+  }
+
+  @Override
+  public boolean isViolatedBy(String username, MessageFeatures features, ChatModeratorSettings settings) {
+    // A trigger of 0 disables this rule
+    int trigger = settings.getMessageLengthTrigger();
+    return !settings.isLongMessagesAllowed() && trigger > 0 && features.getLength() > trigger;
+  }
+}
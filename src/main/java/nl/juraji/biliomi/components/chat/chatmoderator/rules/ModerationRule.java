@@ -0,0 +1,37 @@
+package nl.juraji.biliomi.components.chat.chatmoderator.rules;
+
+import nl.juraji.biliomi.components.chat.chatmoderator.MessageFeatures;
+import nl.juraji.biliomi.model.chat.ModerationReason;
+import nl.juraji.biliomi.model.chat.settings.ChatModeratorSettings;
+
+/**
+ * Created by Juraji on 20-10-2017.
+ * Biliomi v3
+ * <p>
+ * A single moderation check, registered as bean and picked up by the ModerationRuleEngine
+ */
+public interface ModerationRule {
+
+  /**
+   * The relative cost of evaluating this rule
+   * Rules are evaluated from cheapest to most expensive, the first violation ends evaluation
+   *
+   * @return The cost of this rule
+   */
+  int getCost();
+
+  /**
+   * @return The reason to record when this rule is violated
+   */
+  ModerationReason getReason();
+
+  /**
+   * Evaluate this rule against a message
+   *
+   * @param username The username of the sender
+   * @param features The precomputed message features
+   * @param settings The current moderator settings
+   * @return True if the message violates this rule, else False
+   */
+  boolean isViolatedBy(String username, MessageFeatures features, ChatModeratorSettings settings);
+}
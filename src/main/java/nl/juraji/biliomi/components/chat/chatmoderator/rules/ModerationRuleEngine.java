@@ -0,0 +1,110 @@
+package nl.juraji.biliomi.components.chat.chatmoderator.rules;
+
+import nl.juraji.biliomi.components.chat.chatmoderator.MessageFeatures;
+import nl.juraji.biliomi.model.chat.ModerationReason;
+import nl.juraji.biliomi.model.chat.settings.ChatModeratorSettings;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.inject.Default;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * Created by Juraji on 20-10-2017.
+ * Biliomi v3
+ * <p>
+ * Evaluates all registered ModerationRule beans, cheapest first.
+ * Evaluation stops at the first violated rule, so expensive rules only run for messages passing the cheap ones.
+ */
+@Default
+@Singleton
+public class ModerationRuleEngine {
+  public static final long LATENCY_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final LongAdder overBudgetCount = new LongAdder();
+  private List<RuleEntry> rules = Collections.emptyList();
+
+  @Inject
+  private Instance<ModerationRule> ruleInstances;
+
+  @PostConstruct
+  private void initModerationRuleEngine() {
+    registerRules(ruleInstances);
+  }
+
+  /**
+   * Evaluate a message against all rules
+   *
+   * @param username The username of the sender
+   * @param features The precomputed message features
+   * @param settings The current moderator settings
+   * @return The reason of the first violated rule or null if no rule is violated
+   */
+  public ModerationReason evaluate(String username, MessageFeatures features, ChatModeratorSettings settings) {
+    long evaluationStart = System.nanoTime();
+    ModerationReason reason = null;
+
+    for (RuleEntry entry : rules) {
+      long ruleStart = System.nanoTime();
+      boolean violated = entry.rule.isViolatedBy(username, features, settings);
+      entry.statistics.record(System.nanoTime() - ruleStart, violated);
+
+      if (violated) {
+        reason = entry.rule.getReason();
+        break;
+      }
+    }
+
+    if (System.nanoTime() - evaluationStart > LATENCY_BUDGET_NANOS) {
+      overBudgetCount.increment();
+    }
+
+    return reason;
+  }
+
+  /**
+   * @return The statistics for each rule, in order of evaluation
+   */
+  public List<ModerationRuleStatistics> getStatistics() {
+    return rules.stream()
+        .map(entry -> entry.statistics)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * @return The amount of evaluations that exceeded LATENCY_BUDGET_NANOS
+   */
+  public long getOverBudgetCount() {
+    return overBudgetCount.sum();
+  }
+
+  public void resetStatistics() {
+    rules.forEach(entry -> entry.statistics.reset());
+    overBudgetCount.reset();
+  }
+
+  void registerRules(Iterable<? extends ModerationRule> moderationRules) {
+    rules = StreamSupport.stream(moderationRules.spliterator(), false)
+        .sorted(Comparator.comparingInt(ModerationRule::getCost))
+        .map(RuleEntry::new)
+        .collect(Collectors.toList());
+  }
+
+  private static final class RuleEntry {
+    private final ModerationRule rule;
+    private final ModerationRuleStatistics statistics;
+
+    private RuleEntry(ModerationRule rule) {
+      this.rule = rule;
+      this.statistics = new ModerationRuleStatistics(rule);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package nl.juraji.biliomi.components.chat.chatmoderator.rules;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Created by Juraji on 20-10-2017.
+ * Biliomi v3
+ * <p>
+ * Evaluation and hit counts of a single moderation rule
+ */
+public final class ModerationRuleStatistics {
+  private final String ruleName;
+  private final int cost;
+  private final LongAdder evaluations = new LongAdder();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder nanosSpent = new LongAdder();
+
+  public ModerationRuleStatistics(ModerationRule rule) {
+    this.ruleName = rule.getClass().getSimpleName();
+    this.cost = rule.getCost();
+  }
+
+  public void record(long nanos, boolean hit) {
+    evaluations.increment();
+    nanosSpent.add(nanos);
+    if (hit) {
+      hits.increment();
+    }
+  }
+
+  public String getRuleName() {
+    return ruleName;
+  }
+
+  public int getCost() {
+    return cost;
+  }
+
+  public long getEvaluations() {
+    return evaluations.sum();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getNanosSpent() {
+    return nanosSpent.sum();
+  }
+
+  /**
+   * @return The average time spent per evaluation in microseconds
+   */
+  public double getAverageMicros() {
+    long count = getEvaluations();
+    if (count == 0) {
+      return 0;
+    }
+    return (double) getNanosSpent() / (double) count / (double) TimeUnit.MICROSECONDS.toNanos(1);
+  }
+
+  public void reset() {
+    evaluations.reset();
+    hits.reset();
+    nanosSpent.reset();
+  }
+}
@@ -0,0 +1,64 @@
+package nl.juraji.biliomi.components.chat.chatmoderator.rules;
+
+import nl.juraji.biliomi.components.chat.chatmoderator.ChatModeratorLinkPermitService;
+import nl.juraji.biliomi.components.chat.chatmoderator.MessageFeatures;
+import nl.juraji.biliomi.model.chat.ModerationReason;
+import nl.juraji.biliomi.model.chat.settings.ChatModeratorSettings;
+
+import javax.enterprise.inject.Default;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.List;
+
+/**
+ * Created by Juraji on 20-10-2017.
+ * Biliomi v3
+ */
+@Default
+@Singleton
+public class PostedLinkRule implements ModerationRule {
+
+  @Inject
+  private ChatModeratorLinkPermitService linkPermitService;
+
+  @Override
+  public int getCost() {
+    // Runs last, since it uses regular expressions and consumes link permits
+    return 50;
+  }
+
+  @Override
+  public ModerationReason getReason() {
+    return ModerationReason.POSTED_LINK;
+  }
+
+  @Override
+  public boolean isViolatedBy(String username, MessageFeatures features, ChatModeratorSettings settings) {
+    // The link pattern is only evaluated when the message contains link candidates
+    if (settings.isLinksAllowed() || !features.hasLinkCandidates()) {
+      return false;
+    }
+
+    List<String> links = features.getLinks();
+
+    // Strike if links are found
+    // and the user does not have a permit
+    // and one or more links are not whitelisted
+    return !links.isEmpty() && !linkPermitService.usePermit(username) && !allWhitelisted(links, settings);
+  }
+
+  private boolean allWhitelisted(List<String> links, ChatModeratorSettings settings) {
+    List<String> linkWhitelist = settings.getLinkWhitelist();
+
+    // Return false if the whitelist is empty
+    if (linkWhitelist.isEmpty()) {
+      return false;
+    }
+
+    // Check each link against whitelist (found link starts with whitelistedlink)
+    // Return True if ALL links atleast start with a whitelisted link
+    return links.stream()
+        .filter(link -> linkWhitelist.stream().anyMatch(link::startsWith))
+        .count() == links.size();
+  }
+}
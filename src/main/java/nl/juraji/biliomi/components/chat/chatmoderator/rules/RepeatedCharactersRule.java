@@ -0,0 +1,34 @@
+package nl.juraji.biliomi.components.chat.chatmoderator.rules;
+
+import nl.juraji.biliomi.components.chat.chatmoderator.MessageFeatures;
+import nl.juraji.biliomi.model.chat.ModerationReason;
+import nl.juraji.biliomi.model.chat.settings.ChatModeratorSettings;
+
+import javax.enterprise.inject.Default;
+import javax.inject.Singleton;
+
+/**
+ * Created by Juraji on 20-10-2017.
+ * Biliomi v3
+ */
+@Default
+@Singleton
+public class RepeatedCharactersRule implements ModerationRule {
+
+  @Override
+  public int getCost() {
+    return 5;
+  }
+
+  @Override
+  public ModerationReason getReason() {
+    return ModerationReason.REPEATED_CHARACTERS;
+  }
+
+  @Override
+  public boolean isViolatedBy(String username, MessageFeatures features, ChatModeratorSettings settings) {
+    // Strike if the longest sequence of characters exceeds the trigger
+    return !settings.isRepeatedCharactersAllowed()
+        && features.getLongestRepeatedSequence() >= settings.getRepeatedCharacterTrigger();
+  }
+}
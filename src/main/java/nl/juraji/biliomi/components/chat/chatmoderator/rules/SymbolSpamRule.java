@@ -0,0 +1,37 @@
+package nl.juraji.biliomi.components.chat.chatmoderator.rules;
+
+import nl.juraji.biliomi.components.chat.chatmoderator.MessageFeatures;
+import nl.juraji.biliomi.model.chat.ModerationReason;
+import nl.juraji.biliomi.model.chat.settings.ChatModeratorSettings;
+
+import javax.enterprise.inject.Default;
+import javax.inject.Singleton;
+
+/**
+ * Created by Juraji on 20-10-2017.
+ * Biliomi v3
+ */
+@Default
+@Singleton
+public class SymbolSpamRule implements ModerationRule {
+
+  @Override
+  public int getCost() {
+    return 3;
+  }
+
+  @Override
+  public ModerationReason getReason() {
+    return ModerationReason.SYMBOL_SPAM;
+  }
+
+  @Override
+  public boolean isViolatedBy(String username, MessageFeatures features, ChatModeratorSettings settings) {
+    // A trigger of 0 disables this rule
+    int trigger = settings.getSymbolTrigger();
+    return !settings.isSymbolSpamAllowed()
+        && trigger > 0
+        && features.getSymbolCount() >= trigger
+        && features.getSymbolRatio() > settings.getSymbolTriggerRatio();
+  }
+}
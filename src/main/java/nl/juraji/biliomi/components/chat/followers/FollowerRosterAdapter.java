@@ -0,0 +1,98 @@
+package nl.juraji.biliomi.components.chat.followers;
+
+import nl.juraji.biliomi.components.shared.rostersync.RosterAdapter;
+import nl.juraji.biliomi.components.shared.rostersync.RosterPage;
+import nl.juraji.biliomi.components.system.users.UsersService;
+import nl.juraji.biliomi.io.api.twitch.v5.TwitchApi;
+import nl.juraji.biliomi.io.api.twitch.v5.model.TwitchFollower;
+import nl.juraji.biliomi.io.api.twitch.v5.model.TwitchUser;
+import nl.juraji.biliomi.io.api.twitch.v5.model.wrappers.TwitchFollows;
+import nl.juraji.biliomi.utility.types.collections.LongHashSet;
+import org.joda.time.DateTime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * The followers of the channel as a roster, paged by cursor, newest first
+ * Followers are streamed out of each page while it is received, so the page body is never held as a whole
+ */
+class FollowerRosterAdapter implements RosterAdapter<TwitchFollower> {
+  private final TwitchApi twitchApi;
+  private final UsersService usersService;
+  private final long channelId;
+  private final Consumer<TwitchFollower> newFollowerConsumer;
+
+  private DateTime newestFollowDate;
+
+  FollowerRosterAdapter(TwitchApi twitchApi, UsersService usersService, long channelId, Consumer<TwitchFollower> newFollowerConsumer) {
+    this.twitchApi = twitchApi;
+    this.usersService = usersService;
+    this.channelId = channelId;
+    this.newFollowerConsumer = newFollowerConsumer;
+  }
+
+  @Override
+  public String getName() {
+    return "followers";
+  }
+
+  @Override
+  public boolean isCursorPaged() {
+    return true;
+  }
+
+  @Override
+  public LongHashSet getLocalMemberIds() {
+    return usersService.getFollowerTwitchIds();
+  }
+
+  @Override
+  public CompletableFuture<RosterPage<TwitchFollower>> fetchPage(int limit, int offset, long cursor) {
+    // Streamed requests are only retried before any follower was consumed, so the list never holds duplicates
+    List<TwitchFollower> members = new ArrayList<>(limit);
+
+    return twitchApi.getChannelFollowersByCursorAsync(channelId, limit, cursor, members::add)
+        .thenApply(response -> {
+          if (!response.isOK()) {
+            throw new CompletionException(new Exception("Retrieving followers failed, Status: "
+                + response.getStatus() + ", Message: " + response.getRawData()));
+          }
+
+          if (cursor == 0 && !members.isEmpty()) {
+            newestFollowDate = new DateTime(members.get(0).getCreatedAt());
+          }
+
+          TwitchFollows follows = response.getData();
+          return new RosterPage<>(members, follows.getTotal(), follows.getCursor());
+        });
+  }
+
+  @Override
+  public TwitchUser getUser(TwitchFollower member) {
+    return member.getUser();
+  }
+
+  @Override
+  public void onMemberAdded(TwitchFollower member) {
+    newFollowerConsumer.accept(member);
+  }
+
+  @Override
+  public int removeMembers(LongHashSet twitchIds) {
+    return usersService.removeFollowers(twitchIds);
+  }
+
+  /**
+   * @return The date of the newest follow, from the first page, or null if the channel has no followers
+   */
+  DateTime getNewestFollowDate() {
+    return newestFollowDate;
+  }
+}
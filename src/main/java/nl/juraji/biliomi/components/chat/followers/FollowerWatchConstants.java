@@ -17,4 +17,8 @@ public class FollowerWatchConstants {
   static final TimeUnit INCR_UPDATE_INTERVAL_TU = TimeUnit.SECONDS;
   public static final TimeUnit FULL_UPDATE_INIT_WAIT_TU = TimeUnit.SECONDS;
   static final TimeUnit FULL_UPDATE_INTERVAL_TU = TimeUnit.HOURS;
+
+  // Follower sync
+  static final int SYNC_PAGE_SIZE = 100;
+  static final int INCR_UPDATE_MAX_PAGES = 10;
 }
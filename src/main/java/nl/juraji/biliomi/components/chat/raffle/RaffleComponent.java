@@ -95,7 +95,7 @@ public class RaffleComponent extends Component {
     command.setUserGroup(userGroupService.getDefaultGroup());
     commandService.save(command);
 
-    commandRouterRegistry.put(keyword, this, raffleKeywordCommandRunnerMethod);
+    commandRouterRegistry.put(command, this, raffleKeywordCommandRunnerMethod);
 
     chat.say(l10n.get("ChatCommand.raffle.start.startedAnnouncement")
         .add("username", user::getDisplayName)
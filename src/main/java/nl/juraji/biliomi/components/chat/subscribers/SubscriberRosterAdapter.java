@@ -0,0 +1,88 @@
+package nl.juraji.biliomi.components.chat.subscribers;
+
+import nl.juraji.biliomi.components.shared.rostersync.RosterAdapter;
+import nl.juraji.biliomi.components.shared.rostersync.RosterPage;
+import nl.juraji.biliomi.components.system.users.UsersService;
+import nl.juraji.biliomi.io.api.twitch.v5.TwitchApi;
+import nl.juraji.biliomi.io.api.twitch.v5.model.TwitchSubscription;
+import nl.juraji.biliomi.io.api.twitch.v5.model.TwitchUser;
+import nl.juraji.biliomi.io.api.twitch.v5.model.wrappers.TwitchSubscriptions;
+import nl.juraji.biliomi.utility.exceptions.UnavailableException;
+import nl.juraji.biliomi.utility.types.collections.LongHashSet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * The subscribers of the channel as a roster, paged by offset
+ * Subscriptions are streamed out of each page while it is received, so the page body is never held as a whole
+ */
+class SubscriberRosterAdapter implements RosterAdapter<TwitchSubscription> {
+  private final TwitchApi twitchApi;
+  private final UsersService usersService;
+  private final long channelId;
+  private final Consumer<TwitchSubscription> newSubscriberConsumer;
+
+  SubscriberRosterAdapter(TwitchApi twitchApi, UsersService usersService, long channelId, Consumer<TwitchSubscription> newSubscriberConsumer) {
+    this.twitchApi = twitchApi;
+    this.usersService = usersService;
+    this.channelId = channelId;
+    this.newSubscriberConsumer = newSubscriberConsumer;
+  }
+
+  @Override
+  public String getName() {
+    return "subscribers";
+  }
+
+  @Override
+  public boolean isCursorPaged() {
+    return false;
+  }
+
+  @Override
+  public LongHashSet getLocalMemberIds() {
+    return usersService.getSubscriberTwitchIds();
+  }
+
+  @Override
+  public CompletableFuture<RosterPage<TwitchSubscription>> fetchPage(int limit, int offset, long cursor) {
+    // Streamed requests are only retried before any subscription was consumed, so the list never holds duplicates
+    List<TwitchSubscription> members = new ArrayList<>(limit);
+
+    return twitchApi.getChannelSubscriptionsAsync(channelId, limit, offset, members::add)
+        .thenApply(response -> {
+          if (response.getStatus() == 422) {
+            // The channel has no subscription program
+            throw new CompletionException(new UnavailableException());
+          } else if (!response.isOK()) {
+            throw new CompletionException(new Exception("Retrieving subscribers failed, Status: "
+                + response.getStatus() + ", Message: " + response.getRawData()));
+          }
+
+          TwitchSubscriptions subscriptions = response.getData();
+          return new RosterPage<>(members, subscriptions.getTotal(), 0);
+        });
+  }
+
+  @Override
+  public TwitchUser getUser(TwitchSubscription member) {
+    return member.getUser();
+  }
+
+  @Override
+  public void onMemberAdded(TwitchSubscription member) {
+    newSubscriberConsumer.accept(member);
+  }
+
+  @Override
+  public int removeMembers(LongHashSet twitchIds) {
+    return usersService.removeSubscribers(twitchIds);
+  }
+}
@@ -24,7 +24,7 @@ public abstract class TimerService implements Restartable {
   @Override
   public void start() {
     if (timerExecutor == null) {
-      timerExecutor = ThreadPools.newScheduledExecutorService(WeldUtils.getAbsoluteClass(this).getSimpleName());
+      timerExecutor = ThreadPools.newScheduledExecutorService(getTimerPoolSize(), WeldUtils.getAbsoluteClass(this).getSimpleName());
     }
   }
 
@@ -44,6 +44,15 @@ public abstract class TimerService implements Restartable {
     }
   }
 
+  /**
+   * Override to allow scheduled tasks to run alongside each other
+   *
+   * @return The amount of threads for the timer, defaults to 1
+   */
+  protected int getTimerPoolSize() {
+    return 1;
+  }
+
   protected void scheduleAtFixedRate(Runnable command, long period, TimeUnit unit) {
     scheduleAtFixedRate(command, period, period, unit);
   }
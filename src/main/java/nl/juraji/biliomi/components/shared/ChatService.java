@@ -5,7 +5,6 @@ import nl.juraji.biliomi.io.api.twitch.irc.IrcSession;
 import nl.juraji.biliomi.model.core.User;
 import nl.juraji.biliomi.model.core.UserDao;
 import nl.juraji.biliomi.model.core.settings.SystemSettings;
-import nl.juraji.biliomi.model.internal.events.irc.user.messages.IrcChatMessageEvent;
 import nl.juraji.biliomi.model.internal.events.irc.user.messages.IrcPrivateMessageEvent;
 import nl.juraji.biliomi.model.internal.events.irc.user.messages.IrcSystemMessageEvent;
 import nl.juraji.biliomi.model.internal.events.irc.user.state.IrcUserJoinedEvent;
@@ -13,6 +12,9 @@ import nl.juraji.biliomi.model.internal.events.irc.user.state.IrcUserLeftEvent;
 import nl.juraji.biliomi.model.internal.events.irc.user.state.IrcUserModeEvent;
 import nl.juraji.biliomi.components.system.settings.SettingsService;
 import nl.juraji.biliomi.components.system.users.UsersService;
+import nl.juraji.biliomi.components.shared.chatjournal.ChatJournal;
+import nl.juraji.biliomi.components.shared.chatjournal.ChatJournalEventType;
+import nl.juraji.biliomi.components.shared.pipeline.InboundChatMessage;
 import nl.juraji.biliomi.utility.events.interceptors.EventBusSubscriber;
 import nl.juraji.biliomi.utility.types.Templater;
 import nl.juraji.biliomi.utility.types.collections.FastList;
@@ -22,6 +24,7 @@ import javax.annotation.PostConstruct;
 import javax.enterprise.inject.Default;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -62,15 +65,20 @@ public class ChatService {
   @Inject
   private SettingsService settingsService;
 
+  @Inject
+  private ChatJournal chatJournal;
+
   @Subscribe
   public void onIrcUserJoinedEvent(IrcUserJoinedEvent event) {
     logger.info("[JOIN] {}", event.getUsername());
+    chatJournal.append(ChatJournalEventType.JOIN, event.getUsername(), null, event.getTags());
     viewers.add(event.getUsername());
   }
 
   @Subscribe
   public void onIrcUserLeftEvent(IrcUserLeftEvent event) {
     logger.info("[PART] {}", event.getUsername());
+    chatJournal.append(ChatJournalEventType.PART, event.getUsername(), null, event.getTags());
     viewers.remove(event.getUsername());
   }
 
@@ -85,19 +93,26 @@ public class ChatService {
     }
   }
 
-  @Subscribe
-  public void onIrcChatMessageEvent(IrcChatMessageEvent event) {
-    logger.info("[MSG] [CHAT] {}: {}", event.getUsername(), event.getMessage());
-  }
-
   @Subscribe
   public void onIrcPrivateMessageEvent(IrcPrivateMessageEvent event) {
     logger.info("[MSG] [PM] {}: {}", event.getUsername(), event.getMessage());
+    chatJournal.append(ChatJournalEventType.PRIVATE_MESSAGE, event.getUsername(), event.getMessage(), event.getTags());
   }
 
   @Subscribe
   public void onIrcSystemMessageEvent(IrcSystemMessageEvent event) {
     logger.info("[MSG] [SYS] {}: {}", event.getUsername(), event.getMessage());
+    chatJournal.append(ChatJournalEventType.SYSTEM_MESSAGE, event.getUsername(), event.getMessage(), event.getTags());
+  }
+
+  /**
+   * Log a chat message and write it to the chat journal, this is the final stage of the InboundMessagePipeline
+   *
+   * @param message The processed message
+   */
+  public void logChatMessage(InboundChatMessage message) {
+    logger.info("[MSG] [CHAT] {}: {}", message.getUsername(), message.getMessage());
+    chatJournal.append(ChatJournalEventType.CHAT_MESSAGE, message.getUsername(), message.getMessage(), message.getTags());
   }
 
   public List<String> getViewers() {
@@ -113,9 +128,11 @@ public class ChatService {
   public void say(String message) {
     if (systemSettings.isMuted()) {
       logger.info("[SAY MUTED] {}", message);
+      chatJournal.append(ChatJournalEventType.SAY_MUTED, null, message, Collections.emptyMap());
     } else {
       session.getChatClient().say(message);
       logger.info("[SAY] {}", message);
+      chatJournal.append(ChatJournalEventType.SAY, null, message, Collections.emptyMap());
     }
   }
 
@@ -126,6 +143,7 @@ public class ChatService {
   public void whisper(String username, String message) {
     if (systemSettings.isMuted()) {
       logger.info("[@{} MUTED] {}", username, message);
+      chatJournal.append(ChatJournalEventType.WHISPER_MUTED, username, message, Collections.emptyMap());
     } else {
       if (systemSettings.isEnableWhispers()) {
         session.getChatClient().whisper(username, message);
@@ -138,6 +156,7 @@ public class ChatService {
       }
 
       logger.info("[@{}] {}", username, message);
+      chatJournal.append(ChatJournalEventType.WHISPER, username, message, Collections.emptyMap());
     }
   }
 
@@ -0,0 +1,142 @@
+package nl.juraji.biliomi.components.shared.chatjournal;
+
+import nl.juraji.biliomi.utility.factories.concurrent.ThreadPools;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.logging.log4j.Logger;
+import org.joda.time.LocalDate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.inject.Default;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * A binary journal of the inbound and outbound chat events, in "logs/journal".
+ * Unlike the chat log, events keep their date, user id and IRC tags.
+ * <p>
+ * The journal has a segment per day, closed segments are compressed.
+ * Failing to write an event is logged, so chat is never interrupted by the journal.
+ */
+@Default
+@Singleton
+public class ChatJournal {
+  private static final String TAG_USER_ID = "user-id";
+
+  private final File journalDir = new File(System.getProperty("user.dir") + "/logs/journal");
+  private ExecutorService compressExecutor;
+  private SegmentedJournal journal;
+
+  @Inject
+  private Logger logger;
+
+  @PostConstruct
+  private void initChatJournal() {
+    compressExecutor = ThreadPools.newSingleThreadExecutor("ChatJournal");
+
+    try {
+      journal = new SegmentedJournal(journalDir, this::runCompression);
+    } catch (IOException e) {
+      logger.error("Failed opening the chat journal, chat events are not journaled", e);
+    }
+  }
+
+  @PreDestroy
+  private void destroyChatJournal() {
+    // Running compressions are finished, pending compressions are resumed on the next start
+    compressExecutor.shutdownNow();
+
+    if (journal != null) {
+      try {
+        journal.close();
+      } catch (IOException e) {
+        logger.error("Failed closing the chat journal", e);
+      }
+    }
+  }
+
+  /**
+   * Append an event that happened just now
+   *
+   * @param type     The type of event
+   * @param username The username of the user, or null for events without a user
+   * @param message  The message, or null for events without a message
+   * @param tags     The IRC tags of the event, the user id is taken from the "user-id" tag
+   */
+  public void append(ChatJournalEventType type, String username, String message, Map<String, String> tags) {
+    long userId = (tags == null ? ChatJournalEvent.UNKNOWN_USER_ID : NumberUtils.toLong(tags.get(TAG_USER_ID), ChatJournalEvent.UNKNOWN_USER_ID));
+    append(new ChatJournalEvent(type, System.currentTimeMillis(), userId, username, message, tags));
+  }
+
+  /**
+   * Append an event
+   *
+   * @param event The event
+   */
+  public void append(ChatJournalEvent event) {
+    if (journal == null) {
+      return;
+    }
+
+    try {
+      journal.append(event);
+    } catch (IOException e) {
+      logger.error("Failed writing to the chat journal", e);
+    }
+  }
+
+  /**
+   * @return The dates that have a segment, newest first
+   */
+  public List<LocalDate> getDates() {
+    return (journal == null ? Collections.emptyList() : journal.getDates());
+  }
+
+  /**
+   * @param date The date of the segment
+   * @return The amount of events in the segment, 0 if there is no such segment
+   * @throws IOException When the journal is unavailable or the segment could not be read
+   */
+  public long getEventCount(LocalDate date) throws IOException {
+    return getJournal().getEventCount(date);
+  }
+
+  /**
+   * Read the events of a day, events appended after opening the reader are not read
+   *
+   * @param date      The date of the segment
+   * @param fromEvent The index of the first event to read
+   * @return A reader positioned at the event, or null if there is no segment for the date
+   * @throws IOException When the journal is unavailable or the segment could not be read
+   */
+  public ChatJournalReader openReader(LocalDate date, long fromEvent) throws IOException {
+    return getJournal().openReader(date, fromEvent);
+  }
+
+  private SegmentedJournal getJournal() throws IOException {
+    if (journal == null) {
+      throw new IOException("The chat journal is unavailable");
+    }
+    return journal;
+  }
+
+  private void runCompression(Runnable compression) {
+    compressExecutor.execute(() -> {
+      try {
+        compression.run();
+      } catch (UncheckedIOException e) {
+        logger.error("Failed compressing the chat journal", e);
+      }
+    });
+  }
+}
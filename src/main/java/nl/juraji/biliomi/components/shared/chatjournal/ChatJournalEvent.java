@@ -0,0 +1,166 @@
+package nl.juraji.biliomi.components.shared.chatjournal;
+
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * An inbound or outbound chat event in the chat journal.
+ * <p>
+ * Events are written as: the type id, the timestamp, the user id, the username, the message and the tags.
+ * Strings are written as a varint of the length in UTF-8 bytes plus one, followed by the bytes, so null is written as 0.
+ */
+public final class ChatJournalEvent {
+  public static final long UNKNOWN_USER_ID = -1;
+  private static final DateTimeFormatter LINE_TIME_FORMAT = DateTimeFormat.forPattern("HH:mm:ss.SSS");
+
+  private final ChatJournalEventType type;
+  private final long timestamp;
+  private final long userId;
+  private final String username;
+  private final String message;
+  private final Map<String, String> tags;
+
+  /**
+   * @param type      The type of event
+   * @param timestamp The time of the event in milliseconds since the epoch
+   * @param userId    The Twitch id of the user, or UNKNOWN_USER_ID
+   * @param username  The username of the user, or null for events without a user
+   * @param message   The message, or null for events without a message
+   * @param tags      The IRC tags of the event
+   */
+  public ChatJournalEvent(ChatJournalEventType type, long timestamp, long userId, String username, String message, Map<String, String> tags) {
+    this.type = type;
+    this.timestamp = timestamp;
+    this.userId = userId;
+    this.username = username;
+    this.message = message;
+    this.tags = (tags == null || tags.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(new LinkedHashMap<>(tags)));
+  }
+
+  public ChatJournalEventType getType() {
+    return type;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public long getUserId() {
+    return userId;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public Map<String, String> getTags() {
+    return tags;
+  }
+
+  /**
+   * @return The event as it was written to the chat log, like "12:34:56.789 [MSG] [CHAT] user: message"
+   */
+  public String toLogLine() {
+    return LINE_TIME_FORMAT.print(new DateTime(timestamp)) + " " + type.formatLine(username, message);
+  }
+
+  byte[] toBytes() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeByte(type.getId());
+      output.writeLong(timestamp);
+      output.writeLong(userId);
+      writeString(output, username);
+      writeString(output, message);
+      writeVarInt(output, tags.size());
+      for (Map.Entry<String, String> tag : tags.entrySet()) {
+        writeString(output, tag.getKey());
+        writeString(output, tag.getValue());
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  static ChatJournalEvent fromBytes(byte[] bytes) throws IOException {
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+    byte typeId = input.readByte();
+    ChatJournalEventType type = ChatJournalEventType.fromId(typeId);
+    if (type == null) {
+      throw new IOException("Unknown chat journal event type " + typeId);
+    }
+
+    long timestamp = input.readLong();
+    long userId = input.readLong();
+    String username = readString(input);
+    String message = readString(input);
+
+    int tagCount = readVarInt(input);
+    Map<String, String> tags = new LinkedHashMap<>(tagCount * 2);
+    for (int i = 0; i < tagCount; i++) {
+      tags.put(readString(input), readString(input));
+    }
+
+    return new ChatJournalEvent(type, timestamp, userId, username, message, tags);
+  }
+
+  private static void writeString(DataOutput output, String value) throws IOException {
+    if (value == null) {
+      writeVarInt(output, 0);
+    } else {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(output, bytes.length + 1);
+      output.write(bytes);
+    }
+  }
+
+  private static String readString(DataInput input) throws IOException {
+    int length = readVarInt(input);
+    if (length == 0) {
+      return null;
+    }
+
+    byte[] bytes = new byte[length - 1];
+    input.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeVarInt(DataOutput output, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      output.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    output.writeByte(value);
+  }
+
+  private static int readVarInt(DataInput input) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      byte b = input.readByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint in chat journal event");
+  }
+}
@@ -0,0 +1,54 @@
+package nl.juraji.biliomi.components.shared.chatjournal;
+
+import java.util.function.BiFunction;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * The types of chat events in the chat journal.
+ * The ids are written to the journal, so they should never change.
+ */
+public enum ChatJournalEventType {
+  JOIN(1, (username, message) -> "[JOIN] " + username),
+  PART(2, (username, message) -> "[PART] " + username),
+  PRIVATE_MESSAGE(3, (username, message) -> "[MSG] [PM] " + username + ": " + message),
+  SYSTEM_MESSAGE(4, (username, message) -> "[MSG] [SYS] " + username + ": " + message),
+  CHAT_MESSAGE(5, (username, message) -> "[MSG] [CHAT] " + username + ": " + message),
+  SAY(6, (username, message) -> "[SAY] " + message),
+  SAY_MUTED(7, (username, message) -> "[SAY MUTED] " + message),
+  WHISPER(8, (username, message) -> "[@" + username + "] " + message),
+  WHISPER_MUTED(9, (username, message) -> "[@" + username + " MUTED] " + message);
+
+  private final byte id;
+  private final BiFunction<String, String, String> lineFormat;
+
+  ChatJournalEventType(int id, BiFunction<String, String, String> lineFormat) {
+    this.id = (byte) id;
+    this.lineFormat = lineFormat;
+  }
+
+  public byte getId() {
+    return id;
+  }
+
+  /**
+   * @return The event as written to the chat log, without the time
+   */
+  String formatLine(String username, String message) {
+    return lineFormat.apply(username, message);
+  }
+
+  /**
+   * @param id The id of a type
+   * @return The type with the id, or null if there is no such type
+   */
+  static ChatJournalEventType fromId(byte id) {
+    for (ChatJournalEventType type : values()) {
+      if (type.id == id) {
+        return type;
+      }
+    }
+    return null;
+  }
+}
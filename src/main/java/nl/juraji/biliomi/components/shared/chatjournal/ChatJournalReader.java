@@ -0,0 +1,79 @@
+package nl.juraji.biliomi.components.shared.chatjournal;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Reads the events of a chat journal segment in the order they were written.
+ * Each event is preceded by its length, a length of 0 or the end of the content ends the segment.
+ */
+public final class ChatJournalReader implements Closeable {
+  private final DataInputStream input;
+  private boolean ended;
+
+  ChatJournalReader(DataInputStream input) {
+    this.input = input;
+  }
+
+  /**
+   * @return The next event, or null if there are no more events
+   * @throws IOException When the segment could not be read
+   */
+  public ChatJournalEvent next() throws IOException {
+    int length = nextLength();
+    if (length == 0) {
+      return null;
+    }
+
+    byte[] payload = new byte[length];
+    input.readFully(payload);
+    return ChatJournalEvent.fromBytes(payload);
+  }
+
+  /**
+   * Skip events without reading them
+   *
+   * @param count The amount of events to skip
+   */
+  void skip(long count) throws IOException {
+    for (long i = 0; i < count; i++) {
+      int length = nextLength();
+      if (length == 0) {
+        return;
+      }
+      IOUtils.skipFully(input, length);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    input.close();
+  }
+
+  private int nextLength() throws IOException {
+    if (ended) {
+      return 0;
+    }
+
+    int length;
+    try {
+      length = input.readInt();
+    } catch (EOFException e) {
+      length = 0;
+    }
+
+    if (length <= 0) {
+      ended = true;
+      return 0;
+    }
+
+    return length;
+  }
+}
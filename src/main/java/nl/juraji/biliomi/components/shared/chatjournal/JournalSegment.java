@@ -0,0 +1,177 @@
+package nl.juraji.biliomi.components.shared.chatjournal;
+
+import org.joda.time.LocalDate;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * The segment of the chat journal that is being written to, memory mapped.
+ * The file is mapped in chunks beyond the written events, the unwritten part is zero, which ends the segment for readers.
+ * <p>
+ * An event is written before its length, so a length is only visible once the event is complete.
+ * When a segment is reopened, the events are scanned up to the first length of 0 and everything after them is zeroed,
+ * so the bytes of an event that was not completed are never read as the length of a later event.
+ * <p>
+ * Not thread safe, the journal synchronizes access.
+ */
+final class JournalSegment implements Closeable {
+  static final int MAGIC = 0x42434a31;
+  static final int HEADER_BYTES = Integer.BYTES;
+  private static final int MAP_CHUNK_BYTES = 1024 * 1024;
+
+  private final File file;
+  private final LocalDate date;
+  private final FileChannel channel;
+  private MappedByteBuffer buffer;
+  private int position;
+  private int[] offsets = new int[1024];
+  private int eventCount;
+
+  JournalSegment(File file, LocalDate date) throws IOException {
+    this.file = file;
+    this.date = date;
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+    try {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Chat journal segment " + file + " is too large");
+      }
+
+      map(Math.max((int) size, MAP_CHUNK_BYTES));
+
+      if (size < HEADER_BYTES) {
+        buffer.putInt(0, MAGIC);
+        position = HEADER_BYTES;
+      } else if (buffer.getInt(0) != MAGIC) {
+        throw new IOException(file + " is not a chat journal segment");
+      } else {
+        recover();
+      }
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  File getFile() {
+    return file;
+  }
+
+  LocalDate getDate() {
+    return date;
+  }
+
+  int getEventCount() {
+    return eventCount;
+  }
+
+  void append(ChatJournalEvent event) throws IOException {
+    byte[] payload = event.toBytes();
+    long required = (long) position + Integer.BYTES + payload.length + Integer.BYTES;
+    if (required > Integer.MAX_VALUE) {
+      throw new IOException("Chat journal segment " + file + " is full");
+    }
+
+    if (required > buffer.capacity()) {
+      map((int) Math.min(Integer.MAX_VALUE, Math.max(required, (long) buffer.capacity() + MAP_CHUNK_BYTES)));
+    }
+
+    ByteBuffer target = buffer.duplicate();
+    target.position(position + Integer.BYTES);
+    target.put(payload);
+    buffer.putInt(position, payload.length);
+
+    if (eventCount == offsets.length) {
+      offsets = Arrays.copyOf(offsets, eventCount * 2);
+    }
+    offsets[eventCount++] = position;
+    position += Integer.BYTES + payload.length;
+  }
+
+  /**
+   * Read the events that are written at this time, later events are not visible to the reader
+   *
+   * @param fromEvent The index of the first event to read
+   */
+  ChatJournalReader openReader(long fromEvent) {
+    ByteBuffer content = buffer.duplicate();
+    content.limit(position);
+    content.position(fromEvent < eventCount ? offsets[(int) fromEvent] : position);
+    return new ChatJournalReader(new DataInputStream(new ByteBufferInputStream(content)));
+  }
+
+  /**
+   * Write the mapped content to the file and close it.
+   * The file is not truncated to the written events, since mapped files can not be truncated on all platforms.
+   */
+  @Override
+  public void close() throws IOException {
+    buffer.force();
+    channel.close();
+  }
+
+  private void map(int size) throws IOException {
+    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+  }
+
+  private void recover() {
+    position = HEADER_BYTES;
+
+    while (position + Integer.BYTES <= buffer.capacity()) {
+      int length = buffer.getInt(position);
+      if (length <= 0 || (long) position + Integer.BYTES + length > buffer.capacity()) {
+        break;
+      }
+
+      if (eventCount == offsets.length) {
+        offsets = Arrays.copyOf(offsets, eventCount * 2);
+      }
+      offsets[eventCount++] = position;
+      position += Integer.BYTES + length;
+    }
+
+    ByteBuffer unwritten = buffer.duplicate();
+    unwritten.position(position);
+    byte[] zeros = new byte[8192];
+    while (unwritten.hasRemaining()) {
+      unwritten.put(zeros, 0, Math.min(zeros.length, unwritten.remaining()));
+    }
+  }
+
+  private static final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer content;
+
+    private ByteBufferInputStream(ByteBuffer content) {
+      this.content = content;
+    }
+
+    @Override
+    public int read() {
+      return (content.hasRemaining() ? content.get() & 0xFF : -1);
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (!content.hasRemaining()) {
+        return -1;
+      }
+
+      int read = Math.min(length, content.remaining());
+      content.get(bytes, offset, read);
+      return read;
+    }
+  }
+}
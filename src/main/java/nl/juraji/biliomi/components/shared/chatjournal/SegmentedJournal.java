@@ -0,0 +1,303 @@
+package nl.juraji.biliomi.components.shared.chatjournal;
+
+import org.apache.commons.io.IOUtils;
+import org.joda.time.LocalDate;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * An append-only journal of chat events, split in a segment per day.
+ * <p>
+ * Events are appended to the segment of the day of their timestamp, "chat-yyyy-MM-dd.journal".
+ * When the day changes, the segment is closed and compressed in the background to "chat-yyyy-MM-dd.journal.gz",
+ * which starts with the amount of events in the segment, followed by the events.
+ * <p>
+ * On opening, the newest uncompressed segment is continued and any other uncompressed segments are compressed,
+ * so segments that were left by a crash end up compressed as well.
+ */
+final class SegmentedJournal implements Closeable {
+  private static final Pattern SEGMENT_NAME_PATTERN = Pattern.compile("^chat-(\\d{4}-\\d{2}-\\d{2})\\.journal(\\.gz)?$");
+  private static final String SEGMENT_EXTENSION = ".journal";
+  private static final String COMPRESSED_EXTENSION = ".gz";
+  private static final String TEMP_EXTENSION = ".tmp";
+  private static final int BUFFER_SIZE = 65536;
+
+  private final File journalDir;
+  private final Executor compressExecutor;
+  private JournalSegment activeSegment;
+
+  /**
+   * @param journalDir       The directory of the segments
+   * @param compressExecutor Runs the compression of closed segments,
+   *                         failures are thrown as UncheckedIOException
+   */
+  SegmentedJournal(File journalDir, Executor compressExecutor) throws IOException {
+    this.journalDir = journalDir;
+    this.compressExecutor = compressExecutor;
+
+    if (!journalDir.exists() && !journalDir.mkdirs()) {
+      throw new IOException("Could not create directory " + journalDir);
+    }
+
+    File[] tempFiles = journalDir.listFiles((dir, name) -> name.endsWith(TEMP_EXTENSION));
+    if (tempFiles != null) {
+      for (File tempFile : tempFiles) {
+        Files.deleteIfExists(tempFile.toPath());
+      }
+    }
+
+    List<LocalDate> uncompressedDates = new ArrayList<>();
+    for (LocalDate date : getDates()) {
+      if (getSegmentFile(date).exists()) {
+        uncompressedDates.add(date);
+      }
+    }
+
+    // Dates are sorted newest first
+    for (int i = 0; i < uncompressedDates.size(); i++) {
+      LocalDate date = uncompressedDates.get(i);
+      if (i == 0 && !getCompressedSegmentFile(date).exists()) {
+        activeSegment = new JournalSegment(getSegmentFile(date), date);
+      } else {
+        compressInBackground(getSegmentFile(date));
+      }
+    }
+  }
+
+  /**
+   * Append an event to the segment of its day.
+   * Events with a timestamp before the day of the current segment are appended to the current segment.
+   */
+  synchronized void append(ChatJournalEvent event) throws IOException {
+    LocalDate date = new LocalDate(event.getTimestamp());
+
+    if (activeSegment == null) {
+      activeSegment = new JournalSegment(getSegmentFile(date), date);
+    } else if (date.isAfter(activeSegment.getDate())) {
+      File closedSegmentFile = activeSegment.getFile();
+      activeSegment.close();
+      activeSegment = null;
+      compressInBackground(closedSegmentFile);
+      activeSegment = new JournalSegment(getSegmentFile(date), date);
+    }
+
+    activeSegment.append(event);
+  }
+
+  /**
+   * @return The dates of all segments, newest first
+   */
+  synchronized List<LocalDate> getDates() {
+    TreeSet<LocalDate> dates = new TreeSet<>(Collections.reverseOrder());
+    String[] names = journalDir.list();
+
+    if (names != null) {
+      for (String name : names) {
+        Matcher matcher = SEGMENT_NAME_PATTERN.matcher(name);
+        if (matcher.matches()) {
+          dates.add(LocalDate.parse(matcher.group(1)));
+        }
+      }
+    }
+
+    if (activeSegment != null) {
+      dates.add(activeSegment.getDate());
+    }
+
+    return new ArrayList<>(dates);
+  }
+
+  /**
+   * @return The amount of events in the segment of a date, 0 if there is no such segment
+   */
+  synchronized long getEventCount(LocalDate date) throws IOException {
+    if (activeSegment != null && activeSegment.getDate().equals(date)) {
+      return activeSegment.getEventCount();
+    }
+
+    File compressedFile = getCompressedSegmentFile(date);
+    if (compressedFile.exists()) {
+      try (DataInputStream input = openCompressedSegment(compressedFile)) {
+        return input.readLong();
+      }
+    }
+
+    File segmentFile = getSegmentFile(date);
+    if (segmentFile.exists()) {
+      return countEvents(segmentFile);
+    }
+
+    return 0;
+  }
+
+  /**
+   * @param date      The date of the segment
+   * @param fromEvent The index of the first event to read
+   * @return A reader of the segment positioned at the event, or null if there is no such segment
+   */
+  synchronized ChatJournalReader openReader(LocalDate date, long fromEvent) throws IOException {
+    if (activeSegment != null && activeSegment.getDate().equals(date)) {
+      return activeSegment.openReader(fromEvent);
+    }
+
+    DataInputStream input;
+    File compressedFile = getCompressedSegmentFile(date);
+    File segmentFile = getSegmentFile(date);
+
+    if (compressedFile.exists()) {
+      input = openCompressedSegment(compressedFile);
+      input.readLong();
+    } else if (segmentFile.exists()) {
+      input = openSegment(segmentFile);
+    } else {
+      return null;
+    }
+
+    ChatJournalReader reader = new ChatJournalReader(input);
+    try {
+      reader.skip(fromEvent);
+    } catch (IOException e) {
+      reader.close();
+      throw e;
+    }
+
+    return reader;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (activeSegment != null) {
+      activeSegment.close();
+      activeSegment = null;
+    }
+  }
+
+  private void compressInBackground(File segmentFile) {
+    compressExecutor.execute(() -> {
+      try {
+        compress(segmentFile);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed compressing chat journal segment " + segmentFile, e);
+      }
+    });
+  }
+
+  /**
+   * Write a closed segment to a compressed segment, the closed segment is removed afterwards
+   */
+  private void compress(File segmentFile) throws IOException {
+    File compressedFile = new File(journalDir, segmentFile.getName() + COMPRESSED_EXTENSION);
+
+    if (!compressedFile.exists()) {
+      File tempFile = new File(journalDir, compressedFile.getName() + TEMP_EXTENSION);
+      long eventCount = countEvents(segmentFile);
+
+      try (DataInputStream input = openSegment(segmentFile);
+           DataOutputStream output = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE))) {
+        output.writeInt(JournalSegment.MAGIC);
+        output.writeLong(eventCount);
+
+        byte[] payload = new byte[256];
+        for (long i = 0; i < eventCount; i++) {
+          int length = input.readInt();
+          if (payload.length < length) {
+            payload = new byte[length];
+          }
+          input.readFully(payload, 0, length);
+          output.writeInt(length);
+          output.write(payload, 0, length);
+        }
+      }
+
+      synchronized (this) {
+        Files.move(tempFile.toPath(), compressedFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      }
+    }
+
+    synchronized (this) {
+      // Deleting fails on some platforms while the segment is still mapped, it is retried on exit and when the journal is opened again
+      if (!segmentFile.delete()) {
+        segmentFile.deleteOnExit();
+      }
+    }
+  }
+
+  /**
+   * @return The amount of complete events in an uncompressed segment
+   */
+  private static long countEvents(File segmentFile) throws IOException {
+    try (DataInputStream input = openSegment(segmentFile)) {
+      long fileLength = segmentFile.length();
+      long position = JournalSegment.HEADER_BYTES;
+      long eventCount = 0;
+
+      while (position + Integer.BYTES <= fileLength) {
+        int length = input.readInt();
+        if (length <= 0 || position + Integer.BYTES + length > fileLength) {
+          break;
+        }
+
+        IOUtils.skipFully(input, length);
+        position += Integer.BYTES + length;
+        eventCount++;
+      }
+
+      return eventCount;
+    }
+  }
+
+  private static DataInputStream openSegment(File segmentFile) throws IOException {
+    return openChecked(new FileInputStream(segmentFile), segmentFile);
+  }
+
+  /**
+   * @return The content of the compressed segment, positioned at the event count
+   */
+  private static DataInputStream openCompressedSegment(File compressedFile) throws IOException {
+    return openChecked(new GZIPInputStream(new FileInputStream(compressedFile), BUFFER_SIZE), compressedFile);
+  }
+
+  private static DataInputStream openChecked(InputStream content, File file) throws IOException {
+    DataInputStream input = new DataInputStream(new BufferedInputStream(content, BUFFER_SIZE));
+    try {
+      if (input.readInt() != JournalSegment.MAGIC) {
+        throw new IOException(file + " is not a chat journal segment");
+      }
+    } catch (IOException e) {
+      input.close();
+      throw e;
+    }
+    return input;
+  }
+
+  private File getSegmentFile(LocalDate date) {
+    return new File(journalDir, "chat-" + date + SEGMENT_EXTENSION);
+  }
+
+  private File getCompressedSegmentFile(LocalDate date) {
+    return new File(journalDir, "chat-" + date + SEGMENT_EXTENSION + COMPRESSED_EXTENSION);
+  }
+}
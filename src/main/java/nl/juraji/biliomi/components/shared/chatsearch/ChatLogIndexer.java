@@ -0,0 +1,232 @@
+package nl.juraji.biliomi.components.shared.chatsearch;
+
+import nl.juraji.biliomi.model.internal.rest.ChatSearchResult;
+import nl.juraji.biliomi.model.internal.rest.ChatSearchSource;
+import nl.juraji.biliomi.utility.calculate.ChecksumUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Adds the lines of the chat logs to a search index.
+ * The live chat log is read from where the previous update stopped, archived logs are read once.
+ * <p>
+ * When the live log was rotated since the previous update, the lines that were written after the previous update
+ * are read from the archive it was rotated into. Archives are matched to the rotated log by a checksum of the first line.
+ * <p>
+ * Lines only contain a time, the date is taken from the archive name or the creation date of the live log,
+ * and moves to the next day whenever the time of a line is before the time of the previous line.
+ */
+final class ChatLogIndexer {
+  private static final Pattern LINE_PATTERN = Pattern.compile("^(\\d{2}):(\\d{2}):(\\d{2})\\.(\\d{3}) (.*)$");
+  private static final Pattern USERNAME_PATTERN = Pattern.compile("^(?:\\[MSG\\] \\[[A-Z]+\\] ([^:\\s]+):|\\[(?:JOIN|PART)\\] (\\S+)$|\\[@([^\\]\\s]+)(?: MUTED)?\\])");
+  private static final Pattern ARCHIVE_DATE_PATTERN = Pattern.compile("(\\d{4}-\\d{2}-\\d{2})");
+
+  private static final String STATE_OFFSET = "chatlog.offset";
+  private static final String STATE_CHECKSUM = "chatlog.checksum";
+  private static final String STATE_DATE = "chatlog.date";
+  private static final String STATE_TIME = "chatlog.time";
+  private static final String STATE_ARCHIVES = "chatlog.archives";
+
+  private final File logFile;
+  private final File archiveDir;
+  private final SearchIndex index;
+  private final Properties state;
+
+  ChatLogIndexer(File logFile, File archiveDir, SearchIndex index, Properties state) {
+    this.logFile = logFile;
+    this.archiveDir = archiveDir;
+    this.index = index;
+    this.state = state;
+  }
+
+  /**
+   * Index new lines of the live log and new archives, the state is updated accordingly
+   */
+  void update() throws IOException {
+    String indexedChecksum = state.getProperty(STATE_CHECKSUM);
+    String liveChecksum = (logFile.exists() ? getFirstLineChecksum(new FileInputStream(logFile)) : null);
+    boolean liveLogRotated = (indexedChecksum != null && !indexedChecksum.equals(liveChecksum));
+    boolean rotatedArchivePending = liveLogRotated;
+
+    Set<String> indexedArchives = new TreeSet<>(Arrays.asList(StringUtils.split(state.getProperty(STATE_ARCHIVES, ""), ',')));
+    String[] archives = archiveDir.list((dir, name) -> name.endsWith(".log.gz"));
+
+    if (archives != null) {
+      Arrays.sort(archives);
+
+      for (String archiveName : archives) {
+        if (indexedArchives.contains(archiveName)) {
+          continue;
+        }
+
+        File archive = new File(archiveDir, archiveName);
+        LineClock clock;
+        long offset;
+
+        if (rotatedArchivePending && indexedChecksum.equals(getFirstLineChecksum(new GZIPInputStream(new FileInputStream(archive))))) {
+          // The live log that was partially indexed
+          clock = new LineClock(LocalDate.parse(state.getProperty(STATE_DATE)), Integer.parseInt(state.getProperty(STATE_TIME, "-1")));
+          offset = Long.parseLong(state.getProperty(STATE_OFFSET, "0"));
+          rotatedArchivePending = false;
+        } else {
+          clock = new LineClock(getArchiveDate(archive), -1);
+          offset = 0;
+        }
+
+        try (InputStream content = new GZIPInputStream(new FileInputStream(archive), 65536)) {
+          IOUtils.skipFully(content, offset);
+          indexLines(content, offset, clock);
+        }
+
+        indexedArchives.add(archiveName);
+      }
+
+      state.setProperty(STATE_ARCHIVES, String.join(",", indexedArchives));
+    }
+
+    if (liveLogRotated) {
+      state.remove(STATE_OFFSET);
+      state.remove(STATE_CHECKSUM);
+      state.remove(STATE_DATE);
+      state.remove(STATE_TIME);
+    }
+
+    if (logFile.exists()) {
+      updateLiveLog(liveChecksum);
+    }
+  }
+
+  private void updateLiveLog(String liveChecksum) throws IOException {
+    long offset = Long.parseLong(state.getProperty(STATE_OFFSET, "0"));
+    if (offset > logFile.length()) {
+      offset = 0;
+    }
+
+    LineClock clock = (state.containsKey(STATE_DATE)
+        ? new LineClock(LocalDate.parse(state.getProperty(STATE_DATE)), Integer.parseInt(state.getProperty(STATE_TIME, "-1")))
+        : new LineClock(getCreationDate(logFile), -1));
+
+    try (FileInputStream content = new FileInputStream(logFile)) {
+      content.getChannel().position(offset);
+      offset = indexLines(content, offset, clock);
+    }
+
+    state.setProperty(STATE_OFFSET, String.valueOf(offset));
+    state.setProperty(STATE_DATE, clock.date.toString());
+    state.setProperty(STATE_TIME, String.valueOf(clock.lastMillisOfDay));
+    if (liveChecksum != null) {
+      state.setProperty(STATE_CHECKSUM, liveChecksum);
+    }
+  }
+
+  /**
+   * Index the complete lines in the content
+   *
+   * @return The offset after the last complete line
+   */
+  private long indexLines(InputStream content, long offset, LineClock clock) throws IOException {
+    byte[] buffer = new byte[65536];
+    ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+    long position = offset;
+    int read;
+
+    while ((read = content.read(buffer)) != -1) {
+      int lineStart = 0;
+      for (int i = 0; i < read; i++) {
+        if (buffer[i] == '\n') {
+          line.write(buffer, lineStart, i - lineStart);
+          position += line.size() + 1;
+          indexLine(StringUtils.removeEnd(line.toString(StandardCharsets.UTF_8.name()), "\r"), clock);
+          line.reset();
+          lineStart = i + 1;
+        }
+      }
+      line.write(buffer, lineStart, read - lineStart);
+    }
+
+    return position;
+  }
+
+  private void indexLine(String line, LineClock clock) throws IOException {
+    Matcher matcher = LINE_PATTERN.matcher(line);
+    if (!matcher.matches()) {
+      return;
+    }
+
+    LocalTime time = new LocalTime(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)),
+        Integer.parseInt(matcher.group(3)), Integer.parseInt(matcher.group(4)));
+    int millisOfDay = time.getMillisOfDay();
+    if (millisOfDay < clock.lastMillisOfDay) {
+      clock.date = clock.date.plusDays(1);
+    }
+    clock.lastMillisOfDay = millisOfDay;
+
+    String text = matcher.group(5);
+    String username = null;
+    Matcher usernameMatcher = USERNAME_PATTERN.matcher(text);
+    if (usernameMatcher.find()) {
+      for (int group = 1; group <= usernameMatcher.groupCount() && username == null; group++) {
+        username = usernameMatcher.group(group);
+      }
+    }
+
+    ChatSearchResult document = new ChatSearchResult();
+    document.setSource(ChatSearchSource.CHAT);
+    document.setDate(clock.date.toDateTimeAtStartOfDay().plusMillis(millisOfDay));
+    document.setUsername(username);
+    document.setText(text);
+    index.add(document);
+  }
+
+  /**
+   * @return The hex checksum of the first complete line, or null if there is no complete line
+   */
+  private static String getFirstLineChecksum(InputStream content) throws IOException {
+    try (InputStream input = content) {
+      Long checksum = ChecksumUtils.getFirstLineChecksum(input);
+      return (checksum == null ? null : Long.toHexString(checksum));
+    }
+  }
+
+  private static LocalDate getArchiveDate(File archive) throws IOException {
+    Matcher matcher = ARCHIVE_DATE_PATTERN.matcher(archive.getName());
+    return (matcher.find() ? LocalDate.parse(matcher.group(1)) : getCreationDate(archive));
+  }
+
+  private static LocalDate getCreationDate(File file) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    return new LocalDate(attributes.creationTime().toMillis());
+  }
+
+  private static final class LineClock {
+    private LocalDate date;
+    private int lastMillisOfDay;
+
+    private LineClock(LocalDate date, int lastMillisOfDay) {
+      this.date = date;
+      this.lastMillisOfDay = lastMillisOfDay;
+    }
+  }
+}
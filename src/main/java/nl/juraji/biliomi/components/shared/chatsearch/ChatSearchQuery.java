@@ -0,0 +1,87 @@
+package nl.juraji.biliomi.components.shared.chatsearch;
+
+import nl.juraji.biliomi.model.internal.rest.ChatSearchSource;
+import org.joda.time.DateTime;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * A search for chat lines and commands, all set criteria must match
+ */
+public class ChatSearchQuery {
+  public static final int DEFAULT_LIMIT = 50;
+
+  private String terms;
+  private String username;
+  private DateTime from;
+  private DateTime to;
+  private ChatSearchSource source;
+  private int limit = DEFAULT_LIMIT;
+
+  public String getTerms() {
+    return terms;
+  }
+
+  /**
+   * @param terms Words that should all occur in the line or command
+   */
+  public void setTerms(String terms) {
+    this.terms = terms;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  /**
+   * @param username The user that wrote the line or ran the command
+   */
+  public void setUsername(String username) {
+    this.username = username;
+  }
+
+  public DateTime getFrom() {
+    return from;
+  }
+
+  /**
+   * @param from The minimum date, inclusive
+   */
+  public void setFrom(DateTime from) {
+    this.from = from;
+  }
+
+  public DateTime getTo() {
+    return to;
+  }
+
+  /**
+   * @param to The maximum date, exclusive
+   */
+  public void setTo(DateTime to) {
+    this.to = to;
+  }
+
+  public ChatSearchSource getSource() {
+    return source;
+  }
+
+  /**
+   * @param source Only search chat lines or commands
+   */
+  public void setSource(ChatSearchSource source) {
+    this.source = source;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * @param limit The maximum amount of results, the newest results are returned
+   */
+  public void setLimit(int limit) {
+    this.limit = limit;
+  }
+}
@@ -0,0 +1,185 @@
+package nl.juraji.biliomi.components.shared.chatsearch;
+
+import nl.juraji.biliomi.model.core.CommandHistoryRecord;
+import nl.juraji.biliomi.model.core.CommandHistoryRecordDao;
+import nl.juraji.biliomi.model.internal.rest.ChatSearchResult;
+import nl.juraji.biliomi.model.internal.rest.ChatSearchSource;
+import nl.juraji.biliomi.utility.factories.concurrent.ThreadPools;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.inject.Default;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Full text search over the chat logs and the command history.
+ * The index is kept in "logs/index/search" and is brought up to date every UPDATE_INTERVAL_SECONDS
+ * and before each search, so only lines written since the previous update need to be indexed.
+ * <p>
+ * The progress of indexing each source is kept in "sources.properties", which is written after the index is committed.
+ */
+@Default
+@Singleton
+public class ChatSearchService {
+  private static final long UPDATE_INTERVAL_SECONDS = 30;
+  private static final int COMMAND_BATCH_SIZE = 500;
+  private static final String STATE_COMMANDS_LAST_ID = "commands.lastId";
+
+  private final File loggingDir = new File(System.getProperty("user.dir") + "/logs");
+  private final File indexDir = new File(loggingDir, "index/search");
+  private final File stateFile = new File(indexDir, "sources.properties");
+  private final Properties state = new Properties();
+
+  private SearchIndex index;
+  private ChatLogIndexer chatLogIndexer;
+  private ScheduledExecutorService updateExecutor;
+
+  @Inject
+  private Logger logger;
+
+  @Inject
+  private CommandHistoryRecordDao commandHistoryRecordDao;
+
+  @PostConstruct
+  private void initChatSearchService() {
+    try {
+      index = new SearchIndex(indexDir);
+      if (stateFile.exists()) {
+        try (InputStream input = new FileInputStream(stateFile)) {
+          state.load(input);
+        }
+      }
+    } catch (IOException e) {
+      logger.error("Failed opening the chat search index, chat search is unavailable", e);
+      return;
+    }
+
+    chatLogIndexer = new ChatLogIndexer(new File(loggingDir, "chat.log"), new File(loggingDir, "archive/chat"), index, state);
+    updateExecutor = ThreadPools.newScheduledExecutorService("ChatSearchService");
+    updateExecutor.scheduleWithFixedDelay(this::scheduledUpdate, 0, UPDATE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+  }
+
+  @PreDestroy
+  private void destroyChatSearchService() {
+    if (updateExecutor != null) {
+      updateExecutor.shutdownNow();
+    }
+
+    if (index != null) {
+      try {
+        index.close();
+      } catch (IOException e) {
+        logger.error("Failed closing the chat search index", e);
+      }
+    }
+  }
+
+  /**
+   * Search chat lines and commands
+   *
+   * @param query The query, either terms or a username are required
+   * @return The newest results, newest first
+   * @throws IOException When the index is unavailable or could not be read
+   */
+  public List<ChatSearchResult> search(ChatSearchQuery query) throws IOException {
+    if (index == null) {
+      throw new IOException("The chat search index is unavailable");
+    }
+
+    Set<String> terms = SearchTokenizer.tokenize(query.getTerms());
+    if (StringUtils.isNotBlank(query.getUsername())) {
+      terms.add(SearchTokenizer.userTerm(query.getUsername().trim()));
+    }
+
+    if (terms.isEmpty()) {
+      throw new IllegalArgumentException("Search for at least a term or a username");
+    }
+
+    if (query.getSource() != null) {
+      terms.add(SearchTokenizer.sourceTerm(query.getSource()));
+    }
+
+    update();
+
+    long fromTime = (query.getFrom() == null ? Long.MIN_VALUE : query.getFrom().getMillis());
+    long toTime = (query.getTo() == null ? Long.MAX_VALUE : query.getTo().getMillis());
+    return index.search(terms, fromTime, toTime, query.getLimit());
+  }
+
+  /**
+   * @return The amount of chat lines and commands in the index
+   */
+  public int getDocumentCount() {
+    return (index == null ? 0 : index.getDocumentCount());
+  }
+
+  private void scheduledUpdate() {
+    try {
+      update();
+    } catch (Exception e) {
+      // Exceptions would cancel the scheduled update
+      logger.error("Failed updating the chat search index", e);
+    }
+  }
+
+  private synchronized void update() throws IOException {
+    chatLogIndexer.update();
+    indexCommandHistory();
+    index.commit();
+    saveState();
+  }
+
+  private void indexCommandHistory() throws IOException {
+    long lastId = Long.parseLong(state.getProperty(STATE_COMMANDS_LAST_ID, "0"));
+    List<CommandHistoryRecord> records;
+
+    do {
+      records = commandHistoryRecordDao.getRecordsAfter(lastId, COMMAND_BATCH_SIZE);
+
+      for (CommandHistoryRecord record : records) {
+        ChatSearchResult document = new ChatSearchResult();
+        document.setSource(ChatSearchSource.COMMAND);
+        document.setDate(record.getDate());
+        document.setUsername(record.getUser() == null ? null : record.getUser().getUsername());
+        document.setText(getCommandText(record));
+        index.add(document);
+        lastId = record.getId();
+      }
+    } while (records.size() == COMMAND_BATCH_SIZE);
+
+    state.setProperty(STATE_COMMANDS_LAST_ID, String.valueOf(lastId));
+  }
+
+  private static String getCommandText(CommandHistoryRecord record) {
+    // Arguments are recorded as a list, like "[a, b]"
+    String arguments = StringUtils.removeEnd(StringUtils.removeStart(record.getArguments(), "["), "]");
+    return ("!" + StringUtils.defaultIfEmpty(record.getTriggeredBy(), record.getCommand()) + " " + StringUtils.defaultString(arguments).replace(", ", " ")).trim();
+  }
+
+  private void saveState() throws IOException {
+    File tempFile = new File(indexDir, stateFile.getName() + ".tmp");
+    try (OutputStream output = new FileOutputStream(tempFile)) {
+      state.store(output, "Chat search index progress");
+    }
+    Files.move(tempFile.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
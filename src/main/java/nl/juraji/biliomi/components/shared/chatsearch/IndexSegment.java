@@ -0,0 +1,279 @@
+package nl.juraji.biliomi.components.shared.chatsearch;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeSet;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * An immutable file of posting lists, for a contiguous range of document ids.
+ * The file contains the posting lists, as variable length deltas between document ids,
+ * followed by a dictionary of the terms, their offsets and their document counts.
+ * Only the dictionary is kept in memory, posting lists are read when searched.
+ * <p>
+ * Segments are named after their range of document ids. Segments are written to a temporary file first,
+ * so a segment file is always complete.
+ */
+final class IndexSegment implements AutoCloseable {
+  private static final int MAGIC = 0x42534731;
+  private static final String EXTENSION = ".seg";
+
+  private final File file;
+  private final int minDocument;
+  private final int maxDocument;
+  private final Map<String, TermEntry> dictionary;
+  private final RandomAccessFile reader;
+
+  private IndexSegment(File file) throws IOException {
+    this.file = file;
+    this.reader = new RandomAccessFile(file, "r");
+
+    try {
+      if (reader.readInt() != MAGIC) {
+        throw new IOException("Not a search index segment: " + file);
+      }
+
+      minDocument = reader.readInt();
+      maxDocument = reader.readInt();
+      long dictionaryOffset = reader.readLong();
+
+      reader.seek(dictionaryOffset);
+      int termCount = reader.readInt();
+      dictionary = new HashMap<>(termCount * 2);
+      for (int i = 0; i < termCount; i++) {
+        dictionary.put(reader.readUTF(), new TermEntry(reader.readLong(), reader.readInt(), reader.readInt()));
+      }
+    } catch (IOException e) {
+      reader.close();
+      throw e;
+    }
+  }
+
+  static IndexSegment open(File file) throws IOException {
+    return new IndexSegment(file);
+  }
+
+  /**
+   * @return True if the file has the name of a segment
+   */
+  static boolean isSegmentFile(File file) {
+    return file.getName().startsWith("segment-") && file.getName().endsWith(EXTENSION);
+  }
+
+  /**
+   * Write posting lists to a new segment
+   *
+   * @param directory   The directory of the index
+   * @param minDocument The first document id in the segment
+   * @param maxDocument The last document id in the segment
+   * @param postings    The posting lists by term, document ids should be in ascending order
+   * @return The new segment
+   */
+  static IndexSegment write(File directory, int minDocument, int maxDocument, SortedMap<String, IntList> postings) throws IOException {
+    try (SegmentWriter writer = new SegmentWriter(directory, minDocument, maxDocument)) {
+      for (Map.Entry<String, IntList> entry : postings.entrySet()) {
+        writer.writeTerm(entry.getKey(), entry.getValue().toArray());
+      }
+      return writer.complete();
+    }
+  }
+
+  /**
+   * Merge adjacent segments into a single segment, the given segments are not deleted
+   *
+   * @param directory The directory of the index
+   * @param segments  The segments, ordered by document id
+   * @return The merged segment
+   */
+  static IndexSegment merge(File directory, List<IndexSegment> segments) throws IOException {
+    TreeSet<String> terms = new TreeSet<>();
+    segments.forEach(segment -> terms.addAll(segment.dictionary.keySet()));
+
+    int minDocument = segments.get(0).minDocument;
+    int maxDocument = segments.get(segments.size() - 1).maxDocument;
+
+    try (SegmentWriter writer = new SegmentWriter(directory, minDocument, maxDocument)) {
+      for (String term : terms) {
+        // Segments are disjoint and ordered, so concatenated posting lists stay in order
+        IntList postings = new IntList();
+        for (IndexSegment segment : segments) {
+          postings.addAll(segment.getPostings(term));
+        }
+        writer.writeTerm(term, postings.toArray());
+      }
+      return writer.complete();
+    }
+  }
+
+  File getFile() {
+    return file;
+  }
+
+  int getMinDocument() {
+    return minDocument;
+  }
+
+  int getMaxDocument() {
+    return maxDocument;
+  }
+
+  int getDocumentCount() {
+    return maxDocument - minDocument + 1;
+  }
+
+  /**
+   * @return True if this segment contains all documents of the other segment
+   */
+  boolean contains(IndexSegment other) {
+    return this != other && minDocument <= other.minDocument && maxDocument >= other.maxDocument;
+  }
+
+  /**
+   * @param term The term
+   * @return The ids of the documents containing the term, in ascending order
+   */
+  int[] getPostings(String term) throws IOException {
+    TermEntry entry = dictionary.get(term);
+    if (entry == null) {
+      return new int[0];
+    }
+
+    byte[] encoded = new byte[entry.length];
+    reader.seek(entry.offset);
+    reader.readFully(encoded);
+
+    int[] postings = new int[entry.count];
+    int position = 0;
+    int previous = -1;
+    for (int i = 0; i < entry.count; i++) {
+      int delta = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = encoded[position++];
+        delta |= (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+
+      previous += delta;
+      postings[i] = previous;
+    }
+
+    return postings;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  /**
+   * Close and delete the segment file
+   */
+  void delete() throws IOException {
+    close();
+    Files.deleteIfExists(file.toPath());
+  }
+
+  private static final class TermEntry {
+    private final long offset;
+    private final int count;
+    private final int length;
+
+    private TermEntry(long offset, int count, int length) {
+      this.offset = offset;
+      this.count = count;
+      this.length = length;
+    }
+  }
+
+  private static final class SegmentWriter implements AutoCloseable {
+    private final File directory;
+    private final File tempFile;
+    private final DataOutputStream output;
+    private final Map<String, TermEntry> dictionary = new HashMap<>();
+    private final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    private final int minDocument;
+    private final int maxDocument;
+    private long position;
+    private boolean completed;
+
+    private SegmentWriter(File directory, int minDocument, int maxDocument) throws IOException {
+      this.directory = directory;
+      this.minDocument = minDocument;
+      this.maxDocument = maxDocument;
+      this.tempFile = new File(directory, "segment-" + minDocument + "-" + maxDocument + ".tmp");
+      this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 65536));
+
+      output.writeInt(MAGIC);
+      output.writeInt(minDocument);
+      output.writeInt(maxDocument);
+      output.writeLong(0);
+      position = 20;
+    }
+
+    private void writeTerm(String term, int[] postings) throws IOException {
+      if (postings.length == 0) {
+        return;
+      }
+
+      encoded.reset();
+      int previous = -1;
+      for (int document : postings) {
+        int delta = document - previous;
+        while ((delta & ~0x7F) != 0) {
+          encoded.write((delta & 0x7F) | 0x80);
+          delta >>>= 7;
+        }
+        encoded.write(delta);
+        previous = document;
+      }
+
+      encoded.writeTo(output);
+      dictionary.put(term, new TermEntry(position, postings.length, encoded.size()));
+      position += encoded.size();
+    }
+
+    private IndexSegment complete() throws IOException {
+      output.writeInt(dictionary.size());
+      for (Map.Entry<String, TermEntry> entry : dictionary.entrySet()) {
+        output.writeUTF(entry.getKey());
+        output.writeLong(entry.getValue().offset);
+        output.writeInt(entry.getValue().count);
+        output.writeInt(entry.getValue().length);
+      }
+      output.close();
+
+      try (RandomAccessFile header = new RandomAccessFile(tempFile, "rw")) {
+        header.seek(12);
+        header.writeLong(position);
+      }
+
+      File segmentFile = new File(directory, "segment-" + minDocument + "-" + maxDocument + EXTENSION);
+      Files.move(tempFile.toPath(), segmentFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      completed = true;
+      return open(segmentFile);
+    }
+
+    @Override
+    public void close() throws IOException {
+      output.close();
+      if (!completed) {
+        Files.deleteIfExists(tempFile.toPath());
+      }
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package nl.juraji.biliomi.components.shared.chatsearch;
+
+import java.util.Arrays;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * A growing list of primitive ints, used for posting lists
+ */
+final class IntList {
+  private int[] values;
+  private int size;
+
+  IntList() {
+    this(8);
+  }
+
+  IntList(int initialCapacity) {
+    this.values = new int[Math.max(1, initialCapacity)];
+  }
+
+  void add(int value) {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, size * 2);
+    }
+    values[size++] = value;
+  }
+
+  void addAll(int[] other) {
+    if (size + other.length > values.length) {
+      values = Arrays.copyOf(values, Math.max(size * 2, size + other.length));
+    }
+    System.arraycopy(other, 0, values, size, other.length);
+    size += other.length;
+  }
+
+  int get(int index) {
+    return values[index];
+  }
+
+  int size() {
+    return size;
+  }
+
+  int[] toArray() {
+    return Arrays.copyOf(values, size);
+  }
+}
@@ -0,0 +1,395 @@
+package nl.juraji.biliomi.components.shared.chatsearch;
+
+import nl.juraji.biliomi.model.internal.rest.ChatSearchResult;
+import nl.juraji.biliomi.model.internal.rest.ChatSearchSource;
+import org.apache.commons.lang3.StringUtils;
+import org.joda.time.DateTime;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * An inverted index of chat lines and commands, stored on disk.
+ * <ul>
+ * <li>documents.dat: The documents, appended as they are added</li>
+ * <li>documents.idx: The offset and time of each document, the document id is its position in this file</li>
+ * <li>segment-[first id]-[last id].seg: Posting lists of the documents in a range of ids, see IndexSegment</li>
+ * </ul>
+ * New documents are indexed in memory, until FLUSH_DOCUMENTS documents are buffered and written to a new segment.
+ * Documents that were not written to a segment yet are indexed again from documents.dat when the index is opened.
+ * When there are more than MAX_SEGMENTS segments, the adjacent segments with the least documents are merged.
+ * <p>
+ * Methods are synchronized, the index is not expected to handle many concurrent searches.
+ */
+final class SearchIndex implements AutoCloseable {
+  private static final int FLUSH_DOCUMENTS = 10000;
+  private static final int MAX_SEGMENTS = 8;
+  private static final int MERGE_FACTOR = 4;
+  private static final int MAX_TEXT_LENGTH = 16384;
+  private static final int OFFSET_ENTRY_BYTES = 2 * Long.BYTES;
+
+  private final File directory;
+  private final File documentsFile;
+  private final File offsetsFile;
+  private final List<IndexSegment> segments = new ArrayList<>();
+  private final Map<String, IntList> buffer = new HashMap<>();
+  private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream();
+
+  private long[] times = new long[1024];
+  private int documentCount;
+  private int bufferedDocuments;
+  private long documentsLength;
+  private DataOutputStream documentsWriter;
+  private DataOutputStream offsetsWriter;
+  private RandomAccessFile documentsReader;
+  private RandomAccessFile offsetsReader;
+
+  SearchIndex(File directory) throws IOException {
+    this.directory = directory;
+    this.documentsFile = new File(directory, "documents.dat");
+    this.offsetsFile = new File(directory, "documents.idx");
+
+    if (!directory.exists() && !directory.mkdirs()) {
+      throw new IOException("Could not create directory " + directory);
+    }
+
+    openDocuments();
+    openSegments();
+  }
+
+  /**
+   * Add a document to the index, the document is searchable right away,
+   * but is only guaranteed to be on disk after commit
+   *
+   * @param document The document
+   */
+  synchronized void add(ChatSearchResult document) throws IOException {
+    String text = StringUtils.left(document.getText(), MAX_TEXT_LENGTH);
+    long time = document.getDate().getMillis();
+
+    recordBuffer.reset();
+    DataOutputStream record = new DataOutputStream(recordBuffer);
+    record.writeByte(document.getSource().ordinal());
+    record.writeLong(time);
+    record.writeUTF(StringUtils.defaultString(document.getUsername()));
+    record.writeUTF(StringUtils.defaultString(text));
+
+    offsetsWriter.writeLong(documentsLength);
+    offsetsWriter.writeLong(time);
+    recordBuffer.writeTo(documentsWriter);
+    documentsLength += recordBuffer.size();
+
+    int id = documentCount++;
+    if (id == times.length) {
+      times = Arrays.copyOf(times, times.length * 2);
+    }
+    times[id] = time;
+
+    indexInBuffer(id, document);
+
+    // Segments of documents that did not make it to disk are dropped when the index is opened
+    if (bufferedDocuments >= FLUSH_DOCUMENTS) {
+      flushBuffer();
+    }
+  }
+
+  /**
+   * Write added documents to disk
+   */
+  synchronized void commit() throws IOException {
+    documentsWriter.flush();
+    offsetsWriter.flush();
+  }
+
+  /**
+   * Find documents containing all terms
+   *
+   * @param terms    The terms, as produced by SearchTokenizer
+   * @param fromTime The minimum time of the documents in millis, inclusive
+   * @param toTime   The maximum time of the documents in millis, exclusive
+   * @param limit    The maximum amount of documents
+   * @return The newest documents matching the terms and time range, newest first
+   */
+  synchronized List<ChatSearchResult> search(Collection<String> terms, long fromTime, long toTime, int limit) throws IOException {
+    if (terms.isEmpty() || limit <= 0) {
+      return new ArrayList<>();
+    }
+
+    List<int[]> postingLists = new ArrayList<>();
+    for (String term : terms) {
+      int[] postings = getPostings(term);
+      if (postings.length == 0) {
+        return new ArrayList<>();
+      }
+      postingLists.add(postings);
+    }
+
+    // Intersect starting with the shortest list, so the candidates only shrink
+    postingLists.sort(Comparator.comparingInt(postings -> postings.length));
+    int[] candidates = postingLists.get(0);
+    for (int i = 1; i < postingLists.size() && candidates.length > 0; i++) {
+      candidates = intersect(candidates, postingLists.get(i));
+    }
+
+    // Documents are mostly, but not strictly, added in order of time, keep the newest
+    PriorityQueue<Integer> newest = new PriorityQueue<>(limit + 1, Comparator.comparingLong((Integer id) -> times[id]).thenComparingInt(id -> id));
+    for (int id : candidates) {
+      long time = times[id];
+      if (time >= fromTime && time < toTime) {
+        newest.add(id);
+        if (newest.size() > limit) {
+          newest.poll();
+        }
+      }
+    }
+
+    // Documents are read back from disk, so added documents should be written first
+    documentsWriter.flush();
+    offsetsWriter.flush();
+
+    List<ChatSearchResult> results = new ArrayList<>(newest.size());
+    while (!newest.isEmpty()) {
+      results.add(readDocument(newest.poll()));
+    }
+
+    results.sort(Comparator.comparing(ChatSearchResult::getDate).reversed());
+    return results;
+  }
+
+  synchronized int getDocumentCount() {
+    return documentCount;
+  }
+
+  synchronized int getSegmentCount() {
+    return segments.size();
+  }
+
+  /**
+   * Write buffered documents to a segment and close the index
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      commit();
+      flushBuffer();
+    } finally {
+      documentsWriter.close();
+      offsetsWriter.close();
+      documentsReader.close();
+      offsetsReader.close();
+      for (IndexSegment segment : segments) {
+        segment.close();
+      }
+      segments.clear();
+    }
+  }
+
+  private void openDocuments() throws IOException {
+    // Offsets of documents that were not completely written are dropped
+    long validLength = offsetsFile.length() - offsetsFile.length() % OFFSET_ENTRY_BYTES;
+    long documentsFileLength = documentsFile.length();
+
+    try (DataInputStream offsets = new DataInputStream(new BufferedInputStream(openOrEmpty(offsetsFile), 65536))) {
+      for (long position = 0; position < validLength; position += OFFSET_ENTRY_BYTES) {
+        long offset = offsets.readLong();
+        long time = offsets.readLong();
+
+        if (offset >= documentsFileLength) {
+          validLength = position;
+          break;
+        }
+
+        if (documentCount == times.length) {
+          times = Arrays.copyOf(times, times.length * 2);
+        }
+        times[documentCount++] = time;
+      }
+    }
+
+    documentsReader = new RandomAccessFile(documentsFile.exists() ? documentsFile : createEmpty(documentsFile), "r");
+    offsetsReader = new RandomAccessFile(offsetsFile.exists() ? offsetsFile : createEmpty(offsetsFile), "r");
+
+    // The last document may have been written partially
+    while (documentCount > 0 && !isReadable(documentCount - 1)) {
+      documentCount--;
+      validLength -= OFFSET_ENTRY_BYTES;
+    }
+
+    try (RandomAccessFile offsets = new RandomAccessFile(offsetsFile, "rw")) {
+      offsets.setLength(validLength);
+    }
+
+    documentsLength = documentsFileLength;
+    documentsWriter = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(documentsFile, true), 65536));
+    offsetsWriter = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(offsetsFile, true), 65536));
+  }
+
+  private boolean isReadable(int id) {
+    try {
+      readDocument(id);
+      return true;
+    } catch (IOException | RuntimeException e) {
+      return false;
+    }
+  }
+
+  private void openSegments() throws IOException {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      throw new IOException("Could not list " + directory);
+    }
+
+    for (File file : files) {
+      if (file.getName().endsWith(".tmp")) {
+        Files.deleteIfExists(file.toPath());
+      } else if (IndexSegment.isSegmentFile(file)) {
+        segments.add(IndexSegment.open(file));
+      }
+    }
+
+    // Segments that were merged, but not yet deleted, and segments of documents that were lost are removed
+    List<IndexSegment> obsolete = new ArrayList<>();
+    for (IndexSegment segment : segments) {
+      if (segment.getMaxDocument() >= documentCount || segments.stream().anyMatch(other -> other.contains(segment))) {
+        obsolete.add(segment);
+      }
+    }
+    for (IndexSegment segment : obsolete) {
+      segments.remove(segment);
+      segment.delete();
+    }
+
+    segments.sort(Comparator.comparingInt(IndexSegment::getMinDocument));
+
+    int firstUnindexed = (segments.isEmpty() ? 0 : segments.get(segments.size() - 1).getMaxDocument() + 1);
+    for (int id = firstUnindexed; id < documentCount; id++) {
+      indexInBuffer(id, readDocument(id));
+    }
+  }
+
+  private void indexInBuffer(int id, ChatSearchResult document) {
+    for (String term : SearchTokenizer.documentTerms(document)) {
+      buffer.computeIfAbsent(term, t -> new IntList(4)).add(id);
+    }
+    bufferedDocuments++;
+  }
+
+  private void flushBuffer() throws IOException {
+    if (bufferedDocuments == 0) {
+      return;
+    }
+
+    int minDocument = documentCount - bufferedDocuments;
+    segments.add(IndexSegment.write(directory, minDocument, documentCount - 1, new TreeMap<>(buffer)));
+    buffer.clear();
+    bufferedDocuments = 0;
+
+    compact();
+  }
+
+  private void compact() throws IOException {
+    while (segments.size() > MAX_SEGMENTS) {
+      int first = 0;
+      long leastDocuments = Long.MAX_VALUE;
+
+      for (int i = 0; i + MERGE_FACTOR <= segments.size(); i++) {
+        long documents = segments.subList(i, i + MERGE_FACTOR).stream().mapToLong(IndexSegment::getDocumentCount).sum();
+        if (documents < leastDocuments) {
+          leastDocuments = documents;
+          first = i;
+        }
+      }
+
+      List<IndexSegment> merging = new ArrayList<>(segments.subList(first, first + MERGE_FACTOR));
+      IndexSegment merged = IndexSegment.merge(directory, merging);
+
+      segments.subList(first, first + MERGE_FACTOR).clear();
+      segments.add(first, merged);
+      for (IndexSegment segment : merging) {
+        segment.delete();
+      }
+    }
+  }
+
+  private int[] getPostings(String term) throws IOException {
+    IntList postings = new IntList();
+    for (IndexSegment segment : segments) {
+      postings.addAll(segment.getPostings(term));
+    }
+
+    IntList buffered = buffer.get(term);
+    if (buffered != null) {
+      postings.addAll(buffered.toArray());
+    }
+
+    return postings.toArray();
+  }
+
+  private ChatSearchResult readDocument(int id) throws IOException {
+    offsetsReader.seek((long) id * OFFSET_ENTRY_BYTES);
+    documentsReader.seek(offsetsReader.readLong());
+
+    ChatSearchResult document = new ChatSearchResult();
+    document.setSource(ChatSearchSource.values()[documentsReader.readByte()]);
+    document.setDate(new DateTime(documentsReader.readLong()));
+    document.setUsername(StringUtils.trimToNull(documentsReader.readUTF()));
+    document.setText(documentsReader.readUTF());
+    return document;
+  }
+
+  private static int[] intersect(int[] a, int[] b) {
+    int[] result = new int[Math.min(a.length, b.length)];
+    int size = 0;
+    int i = 0;
+    int j = 0;
+
+    while (i < a.length && j < b.length) {
+      if (a[i] == b[j]) {
+        result[size++] = a[i];
+        i++;
+        j++;
+      } else if (a[i] < b[j]) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+
+    return Arrays.copyOf(result, size);
+  }
+
+  private static File createEmpty(File file) throws IOException {
+    Files.createFile(file.toPath());
+    return file;
+  }
+
+  private static InputStream openOrEmpty(File file) throws IOException {
+    if (!file.exists()) {
+      return new ByteArrayInputStream(new byte[0]);
+    }
+    return new FileInputStream(file);
+  }
+}
@@ -0,0 +1,78 @@
+package nl.juraji.biliomi.components.shared.chatsearch;
+
+import nl.juraji.biliomi.model.internal.rest.ChatSearchResult;
+import nl.juraji.biliomi.model.internal.rest.ChatSearchSource;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Splits text into lower case terms of letters and digits.
+ * Usernames and sources are indexed as terms as well, prefixed with characters that can not occur in words,
+ * so they can be searched using the same posting lists.
+ */
+final class SearchTokenizer {
+  private static final int MAX_TERM_LENGTH = 64;
+  private static final Pattern CHAT_LINE_TAGS = Pattern.compile("^(\\[[^\\]]*\\] ?)+");
+
+  private SearchTokenizer() {
+  }
+
+  static Set<String> tokenize(String text) {
+    Set<String> terms = new LinkedHashSet<>();
+    if (text == null) {
+      return terms;
+    }
+
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean isWordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+
+      if (isWordChar && start == -1) {
+        start = i;
+      } else if (!isWordChar && start != -1) {
+        terms.add(text.substring(start, Math.min(i, start + MAX_TERM_LENGTH)).toLowerCase(Locale.ROOT));
+        start = -1;
+      }
+    }
+
+    return terms;
+  }
+
+  /**
+   * Get the terms to index a document by, for chat lines the tags like "[MSG] [CHAT]" and the username are skipped
+   */
+  static Set<String> documentTerms(ChatSearchResult document) {
+    String text = document.getText();
+    String username = document.getUsername();
+
+    if (document.getSource() == ChatSearchSource.CHAT) {
+      text = CHAT_LINE_TAGS.matcher(StringUtils.defaultString(text)).replaceFirst("");
+      if (username != null && text.startsWith(username)) {
+        text = StringUtils.removeStart(text.substring(username.length()), ":");
+      }
+    }
+
+    Set<String> terms = tokenize(text);
+    terms.add(sourceTerm(document.getSource()));
+    if (StringUtils.isNotEmpty(username)) {
+      terms.add(userTerm(username));
+    }
+
+    return terms;
+  }
+
+  static String userTerm(String username) {
+    return "@" + username.toLowerCase(Locale.ROOT);
+  }
+
+  static String sourceTerm(ChatSearchSource source) {
+    return "#" + source.name().toLowerCase(Locale.ROOT);
+  }
+}
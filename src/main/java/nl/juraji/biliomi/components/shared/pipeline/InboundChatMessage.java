@@ -0,0 +1,61 @@
+package nl.juraji.biliomi.components.shared.pipeline;
+
+import nl.juraji.biliomi.model.core.User;
+import nl.juraji.biliomi.model.internal.events.irc.user.messages.IrcChatMessageEvent;
+
+import java.util.Map;
+
+/**
+ * Created by Juraji on 22-10-2017.
+ * Biliomi v3
+ * <p>
+ * A chat message passing through the InboundMessagePipeline.
+ * Stages share the data they resolve through this object, so it is resolved only once per message.
+ */
+public final class InboundChatMessage {
+  private final IrcChatMessageEvent event;
+  private User user;
+  private boolean vetoed;
+
+  public InboundChatMessage(IrcChatMessageEvent event) {
+    this.event = event;
+  }
+
+  public IrcChatMessageEvent getEvent() {
+    return event;
+  }
+
+  public String getUsername() {
+    return event.getUsername();
+  }
+
+  public String getMessage() {
+    return event.getMessage();
+  }
+
+  public Map<String, String> getTags() {
+    return event.getTags();
+  }
+
+  /**
+   * @return The User that sent the message, null if the user is not known (yet)
+   */
+  public User getUser() {
+    return user;
+  }
+
+  public void setUser(User user) {
+    this.user = user;
+  }
+
+  /**
+   * @return True if a stage stopped this message from reaching the next stages
+   */
+  public boolean isVetoed() {
+    return vetoed;
+  }
+
+  void setVetoed(boolean vetoed) {
+    this.vetoed = vetoed;
+  }
+}
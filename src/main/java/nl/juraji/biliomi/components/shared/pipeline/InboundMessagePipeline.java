@@ -0,0 +1,82 @@
+package nl.juraji.biliomi.components.shared.pipeline;
+
+import nl.juraji.biliomi.components.chat.chatmoderator.ChatModeratorWorkerService;
+import nl.juraji.biliomi.components.shared.ChatService;
+import nl.juraji.biliomi.components.system.users.UsersService;
+import nl.juraji.biliomi.model.internal.events.irc.user.messages.IrcChatMessageEvent;
+import nl.juraji.biliomi.utility.commandrouters.routers.CommandRouter;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.inject.Default;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Created by Juraji on 22-10-2017.
+ * Biliomi v3
+ * <p>
+ * Runs inbound chat messages through an ordered set of stages:
+ * enrich (resolve the user) -> moderate -> route commands -> log.
+ * Each stage can veto the message, in which case the following stages are skipped.
+ * The log stage always runs, so moderated messages still end up in the chat log.
+ */
+@Default
+@Singleton
+public class InboundMessagePipeline {
+
+  @Inject
+  private UsersService usersService;
+
+  @Inject
+  private ChatModeratorWorkerService moderatorWorker;
+
+  @Inject
+  private CommandRouter commandRouter;
+
+  @Inject
+  private ChatService chatService;
+
+  private List<InboundMessageStage> stages;
+
+  @PostConstruct
+  private void initPipeline() {
+    stages = Arrays.asList(
+        this::enrich,
+        moderatorWorker,
+        this::route
+    );
+  }
+
+  /**
+   * Run a chat message through the pipeline
+   *
+   * @param event The chat message event
+   * @return The processed message
+   */
+  public InboundChatMessage process(IrcChatMessageEvent event) {
+    InboundChatMessage message = new InboundChatMessage(event);
+
+    for (InboundMessageStage stage : stages) {
+      if (!stage.process(message)) {
+        message.setVetoed(true);
+        break;
+      }
+    }
+
+    chatService.logChatMessage(message);
+    return message;
+  }
+
+  private boolean enrich(InboundChatMessage message) {
+    // Users are not created here, the command router creates them when they run a command
+    message.setUser(usersService.getUser(message.getUsername()));
+    return true;
+  }
+
+  private boolean route(InboundChatMessage message) {
+    commandRouter.runCommand(message.getEvent(), message.getUser(), false);
+    return true;
+  }
+}
@@ -0,0 +1,17 @@
+package nl.juraji.biliomi.components.shared.pipeline;
+
+/**
+ * Created by Juraji on 22-10-2017.
+ * Biliomi v3
+ */
+@FunctionalInterface
+public interface InboundMessageStage {
+
+  /**
+   * Process an inbound chat message
+   *
+   * @param message The message to process
+   * @return True to pass the message on to the next stage, false to veto it
+   */
+  boolean process(InboundChatMessage message);
+}
@@ -0,0 +1,69 @@
+package nl.juraji.biliomi.components.shared.rostersync;
+
+import nl.juraji.biliomi.io.api.twitch.v5.model.TwitchUser;
+import nl.juraji.biliomi.utility.types.collections.LongHashSet;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Describes a remote list of Twitch users, like the followers or subscribers of the channel,
+ * and how it maps to the local users, for use with the RosterSync.
+ *
+ * @param <E> The type of the members in the remote list
+ */
+public interface RosterAdapter<E> {
+
+  /**
+   * @return The name of the roster, used in logging and statistics
+   */
+  String getName();
+
+  /**
+   * @return The Twitch ids of the users that are currently local members of the roster
+   * @throws RuntimeException When the local members could not be read, a partial set must never be returned
+   */
+  LongHashSet getLocalMemberIds();
+
+  /**
+   * @return True if the roster is paged by cursor, the RosterSync then fetches the pages one by one.
+   * False if the roster is paged by offset, the RosterSync then fetches several pages at once, up to the total of the first page
+   */
+  boolean isCursorPaged();
+
+  /**
+   * Fetch a page of the remote roster
+   * Rosters paged by cursor return the cursor of the next page, or 0 after the last page.
+   * Rosters paged by offset return a cursor of 0. All rosters return the total amount of members.
+   *
+   * @param limit  The maximum amount of members in the page
+   * @param offset The offset of the page
+   * @param cursor The cursor from the previous page, or 0 for the first page
+   * @return A CompletableFuture completing with the page, or exceptionally if the page could not be fetched
+   */
+  CompletableFuture<RosterPage<E>> fetchPage(int limit, int offset, long cursor);
+
+  /**
+   * @param member A member of the remote roster
+   * @return The Twitch user of the member
+   */
+  TwitchUser getUser(E member);
+
+  /**
+   * Called for each remote member that is not a local member, in order of the remote roster
+   * Usually posts an event to have the member added locally
+   *
+   * @param member The new member
+   */
+  void onMemberAdded(E member);
+
+  /**
+   * Remove local members that are no longer in the remote roster, in bulk
+   *
+   * @param twitchIds The Twitch ids of the removed members
+   * @return The amount of users updated
+   */
+  int removeMembers(LongHashSet twitchIds);
+}
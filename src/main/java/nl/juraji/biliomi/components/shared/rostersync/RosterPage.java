@@ -0,0 +1,41 @@
+package nl.juraji.biliomi.components.shared.rostersync;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * A single page of a remote roster
+ *
+ * @param <E> The type of the members in the remote list
+ */
+public final class RosterPage<E> {
+  private final List<E> members;
+  private final int total;
+  private final long nextCursor;
+
+  /**
+   * @param members    The members in this page
+   * @param total      The total amount of members in the roster
+   * @param nextCursor The cursor of the next page, or 0 if the roster is paged by offset or this is the last page
+   */
+  public RosterPage(List<E> members, int total, long nextCursor) {
+    this.members = (members == null ? Collections.emptyList() : members);
+    this.total = total;
+    this.nextCursor = nextCursor;
+  }
+
+  public List<E> getMembers() {
+    return members;
+  }
+
+  public int getTotal() {
+    return total;
+  }
+
+  public long getNextCursor() {
+    return nextCursor;
+  }
+}
@@ -0,0 +1,209 @@
+package nl.juraji.biliomi.components.shared.rostersync;
+
+import nl.juraji.biliomi.components.system.users.UsersService;
+import nl.juraji.biliomi.io.api.twitch.v5.model.TwitchUser;
+import nl.juraji.biliomi.utility.types.collections.LongHashSet;
+import org.apache.logging.log4j.Logger;
+import org.joda.time.DateTime;
+
+import javax.enterprise.inject.Default;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Synchronizes a remote roster of Twitch users, like the followers or subscribers of the channel, with the local users.
+ * Pages are fetched asynchronously, rosters paged by offset have a bounded amount of pages in flight,
+ * rosters paged by cursor are fetched one page after another. Pages are processed in order, as they complete.
+ * <p>
+ * Members are compared by Twitch id using primitive sets, new members are handed to the adapter,
+ * removed members are removed in bulk and changed usernames are updated without loading the users.
+ * A run fails as a whole when the local members or a page could not be read, since an incomplete roster cannot be compared.
+ * When the pages hold clearly fewer members than the total reported by the first page, nothing is removed either.
+ */
+@Default
+@Singleton
+public class RosterSync {
+  private static final int PAGE_SIZE = 100;
+  private static final int MAX_PAGES_IN_FLIGHT = 4;
+  // Rosters change while they are paged, so a run may see a few members less than the first page reported
+  private static final double MIN_COMPLETE_RATIO = 0.9;
+
+  private final Map<String, RosterSyncStatistics> statistics = new ConcurrentHashMap<>();
+
+  @Inject
+  private Logger logger;
+
+  @Inject
+  private UsersService usersService;
+
+  /**
+   * Synchronize a roster
+   *
+   * @param adapter The adapter of the roster
+   * @return The metrics of this run
+   * @throws Exception When the local members could not be read or a page could not be fetched,
+   *                   nothing is added or removed when reading the local members fails and nothing is removed when a page fails
+   */
+  public <E> RosterSyncStatistics sync(RosterAdapter<E> adapter) throws Exception {
+    SyncRun<E> run = new SyncRun<>(adapter);
+
+    RosterPage<E> firstPage = await(adapter.fetchPage(PAGE_SIZE, 0, 0));
+    run.expectedMembers = firstPage.getTotal();
+    run.process(firstPage);
+
+    if (adapter.isCursorPaged()) {
+      fetchByCursor(run, firstPage);
+    } else {
+      fetchByOffset(run, firstPage);
+    }
+
+    RosterSyncStatistics result = run.complete();
+    statistics.put(result.getRoster(), result);
+
+    logger.info("Synchronized " + result.getRoster() + " in " + result.getDurationMillis() + "ms"
+        + ", pages: " + result.getPages()
+        + ", members: " + result.getMembers()
+        + ", added: " + result.getAdded()
+        + ", removed: " + result.getRemoved()
+        + ", renamed: " + result.getRenamed());
+
+    return result;
+  }
+
+  /**
+   * @return The metrics of the last completed run of each roster, sorted by roster name
+   */
+  public List<RosterSyncStatistics> getStatistics() {
+    return statistics.values().stream()
+        .sorted(Comparator.comparing(RosterSyncStatistics::getRoster))
+        .collect(Collectors.toList());
+  }
+
+  private <E> void fetchByCursor(SyncRun<E> run, RosterPage<E> firstPage) throws Exception {
+    RosterPage<E> page = firstPage;
+    int offset = page.getMembers().size();
+
+    while (page.getNextCursor() != 0 && !page.getMembers().isEmpty()) {
+      page = await(run.adapter.fetchPage(PAGE_SIZE, offset, page.getNextCursor()));
+      run.process(page);
+      offset += page.getMembers().size();
+    }
+  }
+
+  private <E> void fetchByOffset(SyncRun<E> run, RosterPage<E> firstPage) throws Exception {
+    Deque<CompletableFuture<RosterPage<E>>> inFlight = new ArrayDeque<>();
+    int total = firstPage.getTotal();
+    int offset = PAGE_SIZE;
+
+    try {
+      while (offset < total || !inFlight.isEmpty()) {
+        while (offset < total && inFlight.size() < MAX_PAGES_IN_FLIGHT) {
+          inFlight.add(run.adapter.fetchPage(PAGE_SIZE, offset, 0));
+          offset += PAGE_SIZE;
+        }
+
+        run.process(await(inFlight.poll()));
+      }
+    } finally {
+      inFlight.forEach(future -> future.cancel(false));
+    }
+  }
+
+  private static <T> T await(CompletableFuture<T> future) throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      throw (cause instanceof Exception ? (Exception) cause : e);
+    }
+  }
+
+  private final class SyncRun<E> {
+    private final RosterAdapter<E> adapter;
+    private final long startedAt = System.currentTimeMillis();
+    private final LongHashSet localMemberIds;
+    private final LongHashSet remoteMemberIds;
+
+    private int expectedMembers;
+    private int pages;
+    private int added;
+    private int renamed;
+
+    private SyncRun(RosterAdapter<E> adapter) {
+      this.adapter = adapter;
+      this.localMemberIds = adapter.getLocalMemberIds();
+      this.remoteMemberIds = new LongHashSet(localMemberIds.size());
+    }
+
+    private void process(RosterPage<E> page) {
+      ++pages;
+      List<TwitchUser> pageUsers = new ArrayList<>(page.getMembers().size());
+
+      for (E member : page.getMembers()) {
+        TwitchUser twitchUser = adapter.getUser(member);
+
+        // Offset pages might overlap when the roster changes while paging
+        if (remoteMemberIds.add(twitchUser.getId())) {
+          pageUsers.add(twitchUser);
+
+          if (!localMemberIds.contains(twitchUser.getId())) {
+            adapter.onMemberAdded(member);
+            ++added;
+          }
+        }
+      }
+
+      updateChangedUsernames(pageUsers);
+    }
+
+    private void updateChangedUsernames(List<TwitchUser> twitchUsers) {
+      if (twitchUsers.isEmpty()) {
+        return;
+      }
+
+      List<Long> twitchIds = twitchUsers.stream()
+          .map(TwitchUser::getId)
+          .collect(Collectors.toList());
+      Map<Long, String> usernames = usersService.getUsernamesByTwitchIds(twitchIds);
+
+      twitchUsers.stream()
+          .filter(twitchUser -> usernames.containsKey(twitchUser.getId()))
+          .filter(twitchUser -> !twitchUser.getName().equals(usernames.get(twitchUser.getId())))
+          .forEach(twitchUser -> {
+            logger.info(usernames.get(twitchUser.getId()) + " changed their username to " + twitchUser.getDisplayName());
+            usersService.updateUsername(twitchUser.getId(), twitchUser.getName(), twitchUser.getDisplayName());
+            ++renamed;
+          });
+    }
+
+    private RosterSyncStatistics complete() {
+      int members = remoteMemberIds.size();
+      int removed = 0;
+
+      if (members < expectedMembers * MIN_COMPLETE_RATIO) {
+        logger.warn("Received " + members + " of " + expectedMembers + " " + adapter.getName()
+            + ", the roster is incomplete so no members are removed");
+      } else {
+        // What remains of the local members are no longer in the remote roster
+        remoteMemberIds.forEach(localMemberIds::remove);
+        removed = (localMemberIds.isEmpty() ? 0 : adapter.removeMembers(localMemberIds));
+      }
+
+      return new RosterSyncStatistics(adapter.getName(), DateTime.now(), System.currentTimeMillis() - startedAt,
+          pages, members, added, removed, renamed);
+    }
+  }
+}
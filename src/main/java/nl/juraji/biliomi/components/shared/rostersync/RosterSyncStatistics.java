@@ -0,0 +1,78 @@
+package nl.juraji.biliomi.components.shared.rostersync;
+
+import org.joda.time.DateTime;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * The metrics of a single run of the RosterSync
+ */
+public final class RosterSyncStatistics {
+  private final String roster;
+  private final DateTime completedAt;
+  private final long durationMillis;
+  private final int pages;
+  private final int members;
+  private final int added;
+  private final int removed;
+  private final int renamed;
+
+  RosterSyncStatistics(String roster, DateTime completedAt, long durationMillis, int pages, int members, int added, int removed, int renamed) {
+    this.roster = roster;
+    this.completedAt = completedAt;
+    this.durationMillis = durationMillis;
+    this.pages = pages;
+    this.members = members;
+    this.added = added;
+    this.removed = removed;
+    this.renamed = renamed;
+  }
+
+  public String getRoster() {
+    return roster;
+  }
+
+  public DateTime getCompletedAt() {
+    return completedAt;
+  }
+
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+
+  /**
+   * @return The amount of pages fetched
+   */
+  public int getPages() {
+    return pages;
+  }
+
+  /**
+   * @return The amount of members in the remote roster
+   */
+  public int getMembers() {
+    return members;
+  }
+
+  /**
+   * @return The amount of remote members that were not local members
+   */
+  public int getAdded() {
+    return added;
+  }
+
+  /**
+   * @return The amount of local members that were not remote members
+   */
+  public int getRemoved() {
+    return removed;
+  }
+
+  /**
+   * @return The amount of users whose username changed
+   */
+  public int getRenamed() {
+    return renamed;
+  }
+}
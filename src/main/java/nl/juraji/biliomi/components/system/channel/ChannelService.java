@@ -7,7 +7,6 @@ import nl.juraji.biliomi.io.api.twitch.v5.model.TwitchStream;
 import nl.juraji.biliomi.io.api.twitch.v5.model.wrappers.TwitchStreamInfo;
 import nl.juraji.biliomi.io.web.Response;
 import nl.juraji.biliomi.model.core.Game;
-import nl.juraji.biliomi.components.system.users.UsersService;
 import org.apache.logging.log4j.Logger;
 
 import javax.enterprise.inject.Default;
@@ -27,10 +26,10 @@ public class ChannelService {
   private TwitchApi twitchApi;
 
   @Inject
-  private UsersService usersService;
+  private GameService gameService;
 
   @Inject
-  private GameService gameService;
+  private ChannelStateService channelStateService;
 
   /**
    * Get the channel id of the channel Biliomi is currently connected to
@@ -38,16 +37,17 @@ public class ChannelService {
    * @return A Twitch id for the current channel
    */
   public long getChannelId() {
-    return usersService.getCaster().getTwitchUserId();
+    return channelStateService.getChannelId();
   }
 
   /**
    * Get current channel online/offline status
+   * This uses the last known state, it does not block on Twitch
    *
    * @return True if the current channel is online else False
    */
   public boolean isStreamOnline() {
-    return getStream() != null;
+    return channelStateService.isStreamOnline();
   }
 
   /**
@@ -60,12 +60,12 @@ public class ChannelService {
   }
 
   /**
-   * Get stream information on the current channel
+   * Get the last known stream information on the current channel
    *
-   * @return A TwitchStream object if the request succeeded else null
+   * @return A TwitchStream object if the channel is online else null
    */
   public TwitchStream getStream() {
-    return getStream(usersService.getCaster().getTwitchUserId());
+    return channelStateService.getStream();
   }
 
   /**
@@ -132,13 +132,14 @@ public class ChannelService {
    * @return The game name that was used in the update (Might be different due to game lookup) or null on failure
    */
   public Game updateGame(String gameName) {
-    long channelId = usersService.getCaster().getTwitchUserId();
+    long channelId = getChannelId();
 
     try {
       TwitchGame twitchGame = twitchApi.searchGame(gameName);
       Response<TwitchChannel> response = twitchApi.updateChannel(channelId, twitchGame.getName(), null);
 
-        if (response.isOK()) {
+      if (response.isOK()) {
+        channelStateService.refreshLater();
         return gameService.getByName(response.getData().getGame(), true);
       }
     } catch (Exception e) {
@@ -149,11 +150,15 @@ public class ChannelService {
   }
 
   public boolean updateStatus(String newstatus) {
-    long channelId = usersService.getCaster().getTwitchUserId();
+    long channelId = getChannelId();
 
     try {
       Response<TwitchChannel> response = twitchApi.updateChannel(channelId, null, newstatus);
-      return response.isOK() && response.getData() != null;
+      boolean updated = response.isOK() && response.getData() != null;
+      if (updated) {
+        channelStateService.refreshLater();
+      }
+      return updated;
     } catch (Exception e) {
       logger.error("Error updating channel status for " + channelId, e);
     }
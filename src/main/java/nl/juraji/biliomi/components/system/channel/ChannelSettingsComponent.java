@@ -38,6 +38,14 @@ public class ChannelSettingsComponent extends Component {
   @Inject
   private TemplateDao templateDao;
 
+  @Inject
+  private ChannelStateService channelStateService;
+
+  @Override
+  public void init() {
+    channelStateService.start();
+  }
+
   /**
    * Check wether the caster or another channel is streaming or not
    * Usage: !online or !online [channelname]
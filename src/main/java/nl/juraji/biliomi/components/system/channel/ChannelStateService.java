@@ -0,0 +1,130 @@
+package nl.juraji.biliomi.components.system.channel;
+
+import com.google.common.eventbus.Subscribe;
+import nl.juraji.biliomi.components.interfaces.TimerService;
+import nl.juraji.biliomi.components.system.users.UsersService;
+import nl.juraji.biliomi.io.api.twitch.irc.utils.Tags;
+import nl.juraji.biliomi.io.api.twitch.v5.TwitchApi;
+import nl.juraji.biliomi.io.api.twitch.v5.model.TwitchStream;
+import nl.juraji.biliomi.io.api.twitch.v5.model.wrappers.TwitchStreamInfo;
+import nl.juraji.biliomi.io.web.Response;
+import nl.juraji.biliomi.model.internal.events.irc.channel.IrcChannelJoinedEvent;
+import nl.juraji.biliomi.model.internal.events.irc.channel.IrcChannelNoticeEvent;
+import nl.juraji.biliomi.utility.events.interceptors.EventBusSubscriber;
+
+import javax.enterprise.inject.Default;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Keeps the state of the caster's stream in memory, so checking whether the stream is online does not block on Twitch.
+ * The state is refreshed periodically and when an event hints at a change, like the channel entering or exiting host mode.
+ */
+@Default
+@Singleton
+@EventBusSubscriber
+public class ChannelStateService extends TimerService {
+  private static final long REFRESH_INTERVAL = 30;
+  private static final TimeUnit REFRESH_INTERVAL_TU = TimeUnit.SECONDS;
+  private static final long NO_CHANNEL_ID = -1;
+
+  @Inject
+  private TwitchApi twitchApi;
+
+  @Inject
+  private UsersService usersService;
+
+  private volatile long channelId = NO_CHANNEL_ID;
+  private volatile TwitchStream stream;
+  private volatile boolean stateKnown;
+  private volatile boolean running;
+
+  @Override
+  public void start() {
+    super.start();
+    running = true;
+    scheduleAtFixedRate(this::refresh, 0, REFRESH_INTERVAL, REFRESH_INTERVAL_TU);
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    super.stop();
+  }
+
+  @Subscribe
+  public void onIrcChannelJoinedEvent(IrcChannelJoinedEvent event) {
+    refreshLater();
+  }
+
+  @Subscribe
+  public void onIrcChannelNoticeEvent(IrcChannelNoticeEvent event) {
+    Tags.MsgId msgId = event.getMsgId();
+    if (Tags.MsgId.HOST_ON.equals(msgId) || Tags.MsgId.HOST_OFF.equals(msgId)) {
+      refreshLater();
+    }
+  }
+
+  /**
+   * The caster does not change while Biliomi is running, so the id is only retrieved once
+   *
+   * @return The Twitch id of the caster's channel
+   */
+  public long getChannelId() {
+    long id = channelId;
+    if (id == NO_CHANNEL_ID) {
+      id = usersService.getCaster().getTwitchUserId();
+      channelId = id;
+    }
+    return id;
+  }
+
+  /**
+   * Get the last known stream of the caster
+   * Only the very first call blocks when the state has not been retrieved yet
+   *
+   * @return The TwitchStream or null if the caster is not streaming
+   */
+  public TwitchStream getStream() {
+    if (!stateKnown) {
+      refresh();
+    }
+    return stream;
+  }
+
+  public boolean isStreamOnline() {
+    return getStream() != null;
+  }
+
+  /**
+   * Refresh the state on the timer thread, for instance after updating the channel
+   */
+  public void refreshLater() {
+    if (running) {
+      schedule(this::refresh, 0, REFRESH_INTERVAL_TU);
+    }
+  }
+
+  /**
+   * Retrieve the current state from Twitch
+   * When the request fails the last known state is kept
+   */
+  private void refresh() {
+    try {
+      Response<TwitchStreamInfo> response = twitchApi.getStream(getChannelId());
+      if (response.isOK()) {
+        stream = response.getData().getStream();
+      } else {
+        logger.warn("Failed refreshing stream state, Status: " + response.getStatus() + ", Message: " + response.getRawData());
+      }
+    } catch (Exception e) {
+      logger.error("Failed refreshing stream state", e);
+    } finally {
+      stateKnown = true;
+    }
+  }
+}
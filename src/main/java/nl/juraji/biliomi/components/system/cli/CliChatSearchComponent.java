@@ -0,0 +1,93 @@
+package nl.juraji.biliomi.components.system.cli;
+
+import nl.juraji.biliomi.components.interfaces.Component;
+import nl.juraji.biliomi.components.shared.chatsearch.ChatSearchQuery;
+import nl.juraji.biliomi.components.shared.chatsearch.ChatSearchService;
+import nl.juraji.biliomi.model.internal.events.bot.ConsoleInputEvent;
+import nl.juraji.biliomi.model.internal.rest.ChatSearchResult;
+import nl.juraji.biliomi.model.internal.rest.ChatSearchSource;
+import nl.juraji.biliomi.utility.cdi.annotations.qualifiers.SystemComponent;
+import nl.juraji.biliomi.utility.commandrouters.annotations.CliCommandRoute;
+import nl.juraji.biliomi.utility.types.MutableString;
+import org.apache.commons.lang3.StringUtils;
+import org.joda.time.LocalDate;
+
+import javax.enterprise.inject.Default;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+@Default
+@Singleton
+@SystemComponent
+public class CliChatSearchComponent extends Component {
+  private static final int RESULT_LIMIT = 20;
+
+  @Inject
+  private ChatSearchService chatSearchService;
+
+  /**
+   * Search the chat logs and the command history
+   * Usage: /searchchat [user:username] [from:yyyy-MM-dd] [to:yyyy-MM-dd] [source:chat|command] [terms...]
+   */
+  @CliCommandRoute(command = "searchchat", description = "Search the chat logs and command history")
+  public boolean searchChatCommand(ConsoleInputEvent event) {
+    List<String> inputSplit = event.getInputSplit();
+    ChatSearchQuery query = new ChatSearchQuery();
+    List<String> terms = new ArrayList<>();
+    query.setLimit(RESULT_LIMIT);
+
+    try {
+      for (String argument : inputSplit.subList(1, inputSplit.size())) {
+        if (argument.startsWith("user:")) {
+          query.setUsername(argument.substring(5));
+        } else if (argument.startsWith("from:")) {
+          query.setFrom(LocalDate.parse(argument.substring(5)).toDateTimeAtStartOfDay());
+        } else if (argument.startsWith("to:")) {
+          // The to date is inclusive here, for convenience
+          query.setTo(LocalDate.parse(argument.substring(3)).plusDays(1).toDateTimeAtStartOfDay());
+        } else if (argument.startsWith("source:")) {
+          query.setSource(ChatSearchSource.valueOf(argument.substring(7).toUpperCase(Locale.ROOT)));
+        } else {
+          terms.add(argument);
+        }
+      }
+    } catch (IllegalArgumentException e) {
+      logger.info("Invalid argument: {}", e.getMessage());
+      return false;
+    }
+
+    query.setTerms(String.join(" ", terms));
+    if (StringUtils.isAllBlank(query.getTerms(), query.getUsername())) {
+      logger.info("Usage: /searchchat [user:username] [from:yyyy-MM-dd] [to:yyyy-MM-dd] [source:chat|command] [terms...]");
+      return false;
+    }
+
+    try {
+      long start = System.nanoTime();
+      List<ChatSearchResult> results = chatSearchService.search(query);
+      long durationMillis = (System.nanoTime() - start) / 1000000;
+
+      MutableString output = new MutableString("Chat search results (newest first):").appendNewLine();
+      results.forEach(result -> output.appendSpace(2)
+          .append(result.getDate().toString("yyyy-MM-dd HH:mm:ss"))
+          .append(" [").append(result.getSource()).append("] ")
+          .append(result.getText())
+          .appendNewLine());
+      output.append(results.size()).append(" results in ").append(durationMillis).append("ms, ")
+          .append(chatSearchService.getDocumentCount()).append(" lines and commands indexed");
+
+      logger.info(output.toString());
+      return true;
+    } catch (Exception e) {
+      logger.error("Failed searching the chat logs", e);
+      return false;
+    }
+  }
+}
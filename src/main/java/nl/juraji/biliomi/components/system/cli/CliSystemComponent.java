@@ -2,6 +2,8 @@ package nl.juraji.biliomi.components.system.cli;
 
 import nl.juraji.biliomi.BiliomiContainer;
 import nl.juraji.biliomi.components.interfaces.Component;
+import nl.juraji.biliomi.components.shared.rostersync.RosterSync;
+import nl.juraji.biliomi.io.web.WebClient;
 import nl.juraji.biliomi.model.internal.events.bot.ConsoleInputEvent;
 import nl.juraji.biliomi.utility.cdi.annotations.qualifiers.SystemComponent;
 import nl.juraji.biliomi.utility.commandrouters.annotations.CliCommandRoute;
@@ -28,6 +30,12 @@ public class CliSystemComponent extends Component {
   @Inject
   private CliCommandRouterRegistry cmdCommandRegistry;
 
+  @Inject
+  private WebClient webClient;
+
+  @Inject
+  private RosterSync rosterSync;
+
   @CliCommandRoute(command = "help", description = "Display usage information about the console")
   public boolean helpCommand(ConsoleInputEvent event) {
     MutableString help = new MutableString();
@@ -83,4 +91,49 @@ public class CliSystemComponent extends Component {
     }
     return true;
   }
+
+  /**
+   * Print the rate limiter counters of each api destination
+   * Usage: /webclientstats
+   */
+  @CliCommandRoute(command = "webclientstats", description = "Show web client rate limit statistics")
+  public boolean webClientStatsCommand(ConsoleInputEvent event) {
+    MutableString output = new MutableString("Web client rate limit statistics:").appendNewLine();
+
+    webClient.getRateLimitStatistics().forEach(statistics -> output.appendSpace(2)
+        .append(statistics.getDestination())
+        .append(": requests: ").append(statistics.getRequests())
+        .append(", delayed: ").append(statistics.getDelayed())
+        .append(", throttled: ").append(statistics.getThrottled())
+        .append(", retries: ").append(statistics.getRetries())
+        .append(", rejected: ").append(statistics.getRejected())
+        .append(", circuit breaker: ").append(statistics.getBreakerState())
+        .appendNewLine());
+
+    logger.info(output.toString());
+    return true;
+  }
+
+  /**
+   * Print the metrics of the last sync of each roster, like followers and subscribers
+   * Usage: /rostersyncstats
+   */
+  @CliCommandRoute(command = "rostersyncstats", description = "Show follower and subscriber sync statistics")
+  public boolean rosterSyncStatsCommand(ConsoleInputEvent event) {
+    MutableString output = new MutableString("Roster sync statistics:").appendNewLine();
+
+    rosterSync.getStatistics().forEach(statistics -> output.appendSpace(2)
+        .append(statistics.getRoster())
+        .append(": completed at: ").append(statistics.getCompletedAt().toString("yyyy-MM-dd HH:mm:ss"))
+        .append(", duration: ").append(statistics.getDurationMillis()).append("ms")
+        .append(", pages: ").append(statistics.getPages())
+        .append(", members: ").append(statistics.getMembers())
+        .append(", added: ").append(statistics.getAdded())
+        .append(", removed: ").append(statistics.getRemoved())
+        .append(", renamed: ").append(statistics.getRenamed())
+        .appendNewLine());
+
+    logger.info(output.toString());
+    return true;
+  }
 }
@@ -53,6 +53,7 @@ public class CommandService {
 
   public void save(Command entity) {
     commandDao.save(entity);
+    commandRouterRegistry.update(entity);
   }
 
   public void delete(Command entity) {
@@ -72,7 +73,7 @@ public class CommandService {
     }
 
     command.getAliasses().add(alias);
-    commandDao.save(command);
+    save(command);
     commandRouterRegistry.putAlias(alias, command.getCommand());
     return true;
   }
@@ -87,7 +88,7 @@ public class CommandService {
 
     if (command != null) {
       command.getAliasses().remove(alias);
-      commandDao.save(command);
+      save(command);
     }
   }
 
@@ -95,7 +96,7 @@ public class CommandService {
     if (command != null) {
       command.getAliasses().forEach(alias -> commandRouterRegistry.removeAlias(alias));
       command.getAliasses().clear();
-      commandDao.save(command);
+      save(command);
     }
   }
 
@@ -209,6 +209,7 @@ public class CommandsManagementComponent extends Component {
     }
 
     command.setModeratorCanActivate(OnOff.ON.equals(onOff));
+    commandService.save(command);
     if (command.isModeratorCanActivate()) {
       chat.whisper(user, l10n.get("ChatCommand.editCommand.modCanAlwaysActivate.set.on")
           .add("command", command::getCommand));
@@ -0,0 +1,73 @@
+package nl.juraji.biliomi.components.system.commands;
+
+import nl.juraji.biliomi.model.core.CustomCommand;
+import nl.juraji.biliomi.utility.types.CompiledTemplate;
+
+import javax.enterprise.inject.Default;
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * In-memory catalog of all custom commands, with their messages precompiled as templates.
+ * Filled by the CustomCommandsComponent on init and kept up to date by the custom command management commands
+ * and REST service, so running a custom command does not touch the database.
+ */
+@Default
+@Singleton
+public class CustomCommandCatalog {
+  private final Map<String, CatalogEntry> catalog = new ConcurrentHashMap<>();
+
+  /**
+   * Add or replace a custom command, use after persisting a new or edited custom command
+   *
+   * @param customCommand The custom command
+   */
+  public void put(CustomCommand customCommand) {
+    catalog.put(key(customCommand.getCommand()), new CatalogEntry(customCommand));
+  }
+
+  /**
+   * @param command The command to remove
+   */
+  public void remove(String command) {
+    catalog.remove(key(command));
+  }
+
+  /**
+   * @param command The command, not an alias
+   * @return The CatalogEntry for the command or null if the command does not exist
+   */
+  public CatalogEntry get(String command) {
+    return (command == null ? null : catalog.get(key(command)));
+  }
+
+  public int size() {
+    return catalog.size();
+  }
+
+  private static String key(String command) {
+    return command.toLowerCase();
+  }
+
+  public static final class CatalogEntry {
+    private final CustomCommand customCommand;
+    private final CompiledTemplate template;
+
+    private CatalogEntry(CustomCommand customCommand) {
+      this.customCommand = customCommand;
+      this.template = CompiledTemplate.compile(customCommand.getMessage());
+    }
+
+    public CustomCommand getCustomCommand() {
+      return customCommand;
+    }
+
+    public CompiledTemplate getTemplate() {
+      return template;
+    }
+  }
+}
@@ -13,11 +13,13 @@ import nl.juraji.biliomi.utility.commandrouters.routers.CommandRouter;
 import nl.juraji.biliomi.utility.commandrouters.routers.CommandRouterRegistry;
 import nl.juraji.biliomi.utility.commandrouters.annotations.SubCommandRoute;
 import nl.juraji.biliomi.utility.commandrouters.types.Arguments;
-import nl.juraji.biliomi.utility.types.Templater;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Created by Juraji on 4-5-2017.
@@ -50,6 +52,9 @@ public class CustomCommandsComponent extends Component {
   @Inject
   private CommandRouterRegistry commandRouterRegistry;
 
+  @Inject
+  private CustomCommandCatalog customCommandCatalog;
+
   @Inject
   private UserGroupService userGroupService;
 
@@ -64,11 +69,11 @@ public class CustomCommandsComponent extends Component {
 
   @Override
   public void init() {
-    // Get all previously persisted custom commands and register them with the commandService
+    // Get all previously persisted custom commands, load them into the catalog and register them with the commandService
     commandService.getAllCustomCommands()
         .forEach(customCommand -> {
-          commandRouterRegistry.put(customCommand.getCommand(), this, customCommandRunnerMethod);
-          customCommand.getAliasses().forEach(alias -> commandRouterRegistry.putAlias(alias, customCommand.getCommand()));
+          customCommandCatalog.put(customCommand);
+          commandRouterRegistry.put(customCommand, this, customCommandRunnerMethod);
         });
   }
 
@@ -122,7 +127,8 @@ public class CustomCommandsComponent extends Component {
     commandService.save(customCommand);
 
     // Register the new command so it is known and can be used immediately
-    commandRouterRegistry.put(customCommand.getCommand(), this, customCommandRunnerMethod);
+    customCommandCatalog.put(customCommand);
+    commandRouterRegistry.put(customCommand, this, customCommandRunnerMethod);
 
     chat.whisper(user, l10n.get("ChatCommand.customCommand.add.added")
         .add("command", customCommand::getCommand)
@@ -153,6 +159,7 @@ public class CustomCommandsComponent extends Component {
     customCommand.setMessage(newMessage);
 
     commandService.save(customCommand);
+    customCommandCatalog.put(customCommand);
 
     chat.whisper(user, l10n.get("ChatCommand.customCommand.edit.edited")
         .add("command", customCommand::getCommand)
@@ -179,6 +186,7 @@ public class CustomCommandsComponent extends Component {
 
     customCommand.getAliasses().forEach(commandRouterRegistry::removeAlias);
     commandRouterRegistry.remove(customCommand.getCommand());
+    customCommandCatalog.remove(customCommand.getCommand());
     commandService.delete(customCommand);
 
     chat.whisper(user, l10n.get("ChatCommand.customCommand.remove.removed")
@@ -192,26 +200,29 @@ public class CustomCommandsComponent extends Component {
    */
   @SuppressWarnings("unused") // Is used by reflection in init()
   public boolean customCommandRunner(User user, Arguments arguments) {
-    CustomCommand customCommand = commandService.getCustomCommand(arguments.getCommand());
+    // The command might have been called using an alias
+    String command = commandService.translateAlias(arguments.getCommand());
+    CustomCommandCatalog.CatalogEntry entry = customCommandCatalog.get(command);
 
-    if (customCommand == null) {
-      logger.error("Could not find persisted custom command {}!", arguments.getCommand());
+    if (entry == null) {
+      logger.error("Could not find custom command {}!", arguments.getCommand());
       return false;
     }
 
-    Templater template = Templater.template(customCommand.getMessage());
+    // Replacements are only evaluated when used in the message
+    Map<String, Supplier<Object>> replacements = new HashMap<>();
 
     // Caller information
-    template.add("callername", user::getNameAndTitle);
-    template.add("callerpoints", pointsService.asString(user.getPoints()));
-    template.add("callertime", timeFormatter.timeQuantity(user.getRecordedTime()));
-    template.add("callergroup", user.getUserGroup().getName());
+    replacements.put("callername", user::getNameAndTitle);
+    replacements.put("callerpoints", () -> pointsService.asString(user.getPoints()));
+    replacements.put("callertime", () -> timeFormatter.timeQuantity(user.getRecordedTime()));
+    replacements.put("callergroup", () -> user.getUserGroup().getName());
 
     // Command Arguments
-    template.add("firstargument", arguments.getSafe(0));
-    template.add("allarguments", arguments::toString);
+    replacements.put("firstargument", () -> arguments.getSafe(0));
+    replacements.put("allarguments", arguments::toString);
 
-    template.add("firstargumentasuser", () -> {
+    replacements.put("firstargumentasuser", () -> {
       User argUser = usersService.getUser(arguments.get(0), true);
       if (argUser == null) {
         return "!!!UnknownUser";
@@ -220,7 +231,7 @@ public class CustomCommandsComponent extends Component {
       }
     });
 
-    chat.say(template);
+    chat.say(entry.getTemplate().apply(replacements));
     return true;
   }
 }
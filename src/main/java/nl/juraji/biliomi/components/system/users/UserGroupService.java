@@ -2,6 +2,7 @@ package nl.juraji.biliomi.components.system.users;
 
 import nl.juraji.biliomi.model.core.UserGroupDao;
 import nl.juraji.biliomi.model.core.UserGroup;
+import nl.juraji.biliomi.utility.commandrouters.routers.CommandRouterRegistry;
 
 import javax.enterprise.inject.Default;
 import javax.inject.Inject;
@@ -19,6 +20,9 @@ public class UserGroupService {
   @Inject
   private UserGroupDao userGroupDao;
 
+  @Inject
+  private CommandRouterRegistry commandRouterRegistry;
+
   public UserGroup getByName(String name) {
     return userGroupDao.getByName(name);
   }
@@ -41,6 +45,7 @@ public class UserGroupService {
 
   public void save(UserGroup entity) {
     userGroupDao.save(entity);
+    commandRouterRegistry.updateUserGroup(entity);
   }
 
   public void delete(UserGroup entity) {
@@ -7,12 +7,14 @@ import nl.juraji.biliomi.io.web.Response;
 import nl.juraji.biliomi.model.core.User;
 import nl.juraji.biliomi.model.core.UserDao;
 import nl.juraji.biliomi.model.core.UserGroup;
+import nl.juraji.biliomi.utility.types.collections.LongHashSet;
 import org.apache.logging.log4j.Logger;
 
 import javax.enterprise.inject.Default;
 import javax.inject.Inject;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by Juraji on 19-4-2017.
@@ -165,6 +167,34 @@ public class UsersService {
     return userDao.getFollowerCount();
   }
 
+  public LongHashSet getFollowerTwitchIds() {
+    return userDao.getFollowerTwitchIds();
+  }
+
+  public LongHashSet getFollowerTwitchIds(Collection<Long> twitchIds) {
+    return userDao.getFollowerTwitchIds(twitchIds);
+  }
+
+  public Map<Long, String> getUsernamesByTwitchIds(Collection<Long> twitchIds) {
+    return userDao.getUsernamesByTwitchIds(twitchIds);
+  }
+
+  public int removeFollowers(LongHashSet twitchIds) {
+    return userDao.removeFollowers(twitchIds);
+  }
+
+  public LongHashSet getSubscriberTwitchIds() {
+    return userDao.getSubscriberTwitchIds();
+  }
+
+  public int removeSubscribers(LongHashSet twitchIds) {
+    return userDao.removeSubscribers(twitchIds);
+  }
+
+  public void updateUsername(long twitchId, String username, String displayName) {
+    userDao.updateUsername(twitchId, username, displayName);
+  }
+
   public List<User> getSubscribers() {
     return userDao.getSubscribers();
   }
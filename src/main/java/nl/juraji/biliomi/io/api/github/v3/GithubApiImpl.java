@@ -1,6 +1,7 @@
 package nl.juraji.biliomi.io.api.github.v3;
 
 import nl.juraji.biliomi.io.api.github.v3.model.GithubRelease;
+import nl.juraji.biliomi.io.web.RateLimitPolicy;
 import nl.juraji.biliomi.io.web.Response;
 import nl.juraji.biliomi.io.web.Url;
 import nl.juraji.biliomi.io.web.WebClient;
@@ -11,6 +12,7 @@ import org.eclipse.jetty.http.HttpHeader;
 import javax.annotation.PostConstruct;
 import javax.enterprise.inject.Default;
 import javax.inject.Inject;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by Juraji on 6-10-2017.
@@ -18,6 +20,7 @@ import javax.inject.Inject;
  */
 @Default
 public class GithubApiImpl implements GithubApi {
+  private static final RateLimitPolicy RATE_LIMIT_POLICY = new RateLimitPolicy(60, 1, TimeUnit.HOURS, 10);
 
   @Inject
   @AppDataValue("github.api.uris.v3")
@@ -33,6 +36,9 @@ public class GithubApiImpl implements GithubApi {
   private void initGithubApi() {
     headers.put(HttpHeader.ACCEPT, "application/vnd.github.v3+json");
     headers.put(WebClient.NO_CACHE_HEADER, "true");
+
+    // Unauthenticated requests are limited to 60 per hour
+    webClient.setRateLimitPolicy(apiBaseUri, RATE_LIMIT_POLICY);
   }
 
   @Override
@@ -9,6 +9,7 @@ import nl.juraji.biliomi.io.api.spotify.v1.model.tracks.SpotifyTrack;
 import nl.juraji.biliomi.io.api.spotify.v1.model.tracks.SpotifyTrackUriList;
 import nl.juraji.biliomi.io.api.spotify.v1.model.tracks.SpotifyTracksSearchResult;
 import nl.juraji.biliomi.io.api.spotify.v1.model.user.SpotifyUser;
+import nl.juraji.biliomi.io.web.RateLimitPolicy;
 import nl.juraji.biliomi.io.web.Response;
 import nl.juraji.biliomi.io.web.Url;
 import nl.juraji.biliomi.io.web.WebClient;
@@ -30,6 +31,7 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by Juraji on 30-9-2017.
@@ -39,6 +41,7 @@ import java.util.HashMap;
 @Singleton
 public class SpotifyApiImpl implements SpotifyApi {
   private static final String OAUTH_HEADER_PREFIX = "Bearer ";
+  private static final RateLimitPolicy RATE_LIMIT_POLICY = new RateLimitPolicy(10, 1, TimeUnit.SECONDS, 10);
 
   @Inject
   @AppDataValue("spotify.api.uris.v1")
@@ -68,6 +71,8 @@ public class SpotifyApiImpl implements SpotifyApi {
   private void initSpotifyApi() {
     headers.put(HttpHeader.ACCEPT, "application/json");
     headers.put(WebClient.NO_CACHE_HEADER, "true");
+
+    webClient.setRateLimitPolicy(apiBaseUri, RATE_LIMIT_POLICY);
   }
 
   @Override
@@ -2,6 +2,7 @@ package nl.juraji.biliomi.io.api.steam.v1;
 
 import nl.juraji.biliomi.io.api.steam.v1.model.library.SteamLibraryResponse;
 import nl.juraji.biliomi.io.api.steam.v1.model.players.SteamPlayersResponse;
+import nl.juraji.biliomi.io.web.RateLimitPolicy;
 import nl.juraji.biliomi.io.web.Response;
 import nl.juraji.biliomi.io.web.Url;
 import nl.juraji.biliomi.io.web.WebClient;
@@ -16,6 +17,7 @@ import javax.enterprise.inject.Default;
 import javax.inject.Inject;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by Juraji on 25-5-2017.
@@ -23,6 +25,7 @@ import java.util.Map;
  */
 @Default
 public class SteamApiImpl implements SteamApi {
+  private static final RateLimitPolicy RATE_LIMIT_POLICY = new RateLimitPolicy(1, 1, TimeUnit.SECONDS, 5);
 
   @Inject
   private AuthTokenDao authTokenDao;
@@ -41,6 +44,9 @@ public class SteamApiImpl implements SteamApi {
     AuthToken token = authTokenDao.get(TokenGroup.INTEGRATIONS, "steam");
     this.apiKey = token.getToken();
     this.userId = token.getUserId();
+
+    // Steam allows 100,000 requests per day
+    webClient.setRateLimitPolicy(apiBaseUri, RATE_LIMIT_POLICY);
   }
 
   @Override
@@ -3,6 +3,7 @@ package nl.juraji.biliomi.io.api.streamlabs.v1;
 import nl.juraji.biliomi.io.api.streamlabs.oauth.StreamLabsOAuthDirector;
 import nl.juraji.biliomi.io.api.streamlabs.v1.model.StreamLabsSocketToken;
 import nl.juraji.biliomi.io.api.streamlabs.v1.model.StreamLabsTwitchUser;
+import nl.juraji.biliomi.io.web.RateLimitPolicy;
 import nl.juraji.biliomi.io.web.Response;
 import nl.juraji.biliomi.io.web.Url;
 import nl.juraji.biliomi.io.web.WebClient;
@@ -23,6 +24,7 @@ import javax.enterprise.inject.Default;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by Juraji on 2-10-2017.
@@ -31,6 +33,7 @@ import java.util.Map;
 @Default
 @Singleton
 public class StreamLabsApiImpl implements StreamLabsApi {
+  private static final RateLimitPolicy RATE_LIMIT_POLICY = new RateLimitPolicy(5, 1, TimeUnit.SECONDS, 10);
 
   @Inject
   @AppDataValue("streamlabs.api.uris.v1")
@@ -56,6 +59,8 @@ public class StreamLabsApiImpl implements StreamLabsApi {
   private void initStreamLabsApi() {
     headers.put(HttpHeader.ACCEPT, "application/json");
     headers.put(WebClient.NO_CACHE_HEADER, "true");
+
+    webClient.setRateLimitPolicy(apiBaseUri, RATE_LIMIT_POLICY);
   }
 
   @Override
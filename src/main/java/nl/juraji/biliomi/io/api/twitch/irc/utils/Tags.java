@@ -19,7 +19,7 @@ public class Tags extends HashMap<String, String> {
   private static final String TAG_COLOR = "color";
   private static final String TAG_DISPLAY_NAME = "display-name";
   private static final String TAG_EMOTE_SETS = "emote-sets";
-  private static final String TAG_EMOTES = "emotes";
+  public static final String TAG_EMOTES = "emotes";
   private static final String TAG_ID = "id";
   private static final String TAG_MOD = "mod";
   private static final String TAG_MSG_ID = "msg-id";
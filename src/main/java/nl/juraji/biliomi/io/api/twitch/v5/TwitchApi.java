@@ -1,11 +1,16 @@
 package nl.juraji.biliomi.io.api.twitch.v5;
 
 import nl.juraji.biliomi.io.api.twitch.v5.model.TwitchChannel;
+import nl.juraji.biliomi.io.api.twitch.v5.model.TwitchFollower;
 import nl.juraji.biliomi.io.api.twitch.v5.model.TwitchGame;
+import nl.juraji.biliomi.io.api.twitch.v5.model.TwitchSubscription;
 import nl.juraji.biliomi.io.api.twitch.v5.model.TwitchUser;
 import nl.juraji.biliomi.io.api.twitch.v5.model.wrappers.*;
 import nl.juraji.biliomi.io.web.Response;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
 /**
  * Created by Juraji on 20-4-2017.
  * Biliomi v3
@@ -51,6 +56,53 @@ public interface TwitchApi {
    */
   Response<TwitchFollows> getChannelFollowers(long twitchId, int limit, int offset) throws Exception;
 
+  /**
+   * Retrieves a list of followers for the given twitchid's channel, without blocking
+   *
+   * @param twitchId The user id of the channel to fetch the followers for
+   * @param limit    The maximum of results to retrieve (max 100)
+   * @param offset   The offset from 0
+   * @return A CompletableFuture completing with a Response containing a TwitchFollows object
+   * @see #getChannelFollowers(long, int, int)
+   */
+  CompletableFuture<Response<TwitchFollows>> getChannelFollowersAsync(long twitchId, int limit, int offset);
+
+  /**
+   * Retrieves a page of followers for the given twitchid's channel, newest first, using a cursor
+   * Unlike offsets, cursors stay valid for lists of any length and are not affected by follows made while paging
+   *
+   * @param twitchId The user id of the channel to fetch the followers for
+   * @param limit    The maximum of results to retrieve (max 100)
+   * @param cursor   The cursor from the previous page or 0 for the first page
+   * @return A Response containing a TwitchFollows object, with the cursor of the next page or 0 on the last page
+   * @see <a href="https://dev.twitch.tv/docs/v5/reference/channels/#get-channel-followers">Twitch API docs</a>
+   */
+  Response<TwitchFollows> getChannelFollowersByCursor(long twitchId, int limit, long cursor) throws Exception;
+
+  /**
+   * Retrieves a page of followers for the given twitchid's channel, newest first, using a cursor, without blocking
+   *
+   * @param twitchId The user id of the channel to fetch the followers for
+   * @param limit    The maximum of results to retrieve (max 100)
+   * @param cursor   The cursor from the previous page or 0 for the first page
+   * @return A CompletableFuture completing with a Response containing a TwitchFollows object
+   * @see #getChannelFollowersByCursor(long, int, long)
+   */
+  CompletableFuture<Response<TwitchFollows>> getChannelFollowersByCursorAsync(long twitchId, int limit, long cursor);
+
+  /**
+   * Retrieves a page of followers for the given twitchid's channel, newest first, using a cursor, without blocking
+   * Each follower is handed to the consumer while the page is being received
+   *
+   * @param twitchId         The user id of the channel to fetch the followers for
+   * @param limit            The maximum of results to retrieve (max 100)
+   * @param cursor           The cursor from the previous page or 0 for the first page
+   * @param followerConsumer Called for each follower, on a web client thread
+   * @return A CompletableFuture completing with a Response containing a TwitchFollows object, without the follows
+   * @see #getChannelFollowersByCursor(long, int, long)
+   */
+  CompletableFuture<Response<TwitchFollows>> getChannelFollowersByCursorAsync(long twitchId, int limit, long cursor, Consumer<TwitchFollower> followerConsumer);
+
   /**
    * Retrieves a list of subscriptions for the given twitchid's channel
    *
@@ -62,6 +114,29 @@ public interface TwitchApi {
    */
   Response<TwitchSubscriptions> getChannelSubscriptions(long twitchId, int limit, int offset) throws Exception;
 
+  /**
+   * Retrieves a list of subscriptions for the given twitchid's channel, without blocking
+   *
+   * @param twitchId The user id of the channel to fetch the subscriptions for
+   * @param limit    The maximum of results to retrieve (max 100)
+   * @param offset   The offset from 0
+   * @return A CompletableFuture completing with a Response with TwitchSubscriptions object
+   * @see #getChannelSubscriptions(long, int, int)
+   */
+  CompletableFuture<Response<TwitchSubscriptions>> getChannelSubscriptionsAsync(long twitchId, int limit, int offset);
+
+  /**
+   * Retrieves a list of subscriptions for the given twitchid's channel, without blocking
+   * Each subscription is handed to the consumer while the list is being received
+   *
+   * @param twitchId             The user id of the channel to fetch the subscriptions for
+   * @param limit                The maximum of results to retrieve (max 100)
+   * @param offset               The offset from 0
+   * @param subscriptionConsumer Called for each subscription, on a web client thread
+   * @return A CompletableFuture completing with a Response with TwitchSubscriptions object, without the subscriptions
+   */
+  CompletableFuture<Response<TwitchSubscriptions>> getChannelSubscriptionsAsync(long twitchId, int limit, int offset, Consumer<TwitchSubscription> subscriptionConsumer);
+
   /**
    * Retrieves a list of teams for the given twitchid's channel
    *
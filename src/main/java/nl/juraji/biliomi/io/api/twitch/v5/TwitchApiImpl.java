@@ -3,9 +3,12 @@ package nl.juraji.biliomi.io.api.twitch.v5;
 import com.google.common.base.Joiner;
 import com.google.common.net.MediaType;
 import nl.juraji.biliomi.io.api.twitch.v5.model.TwitchChannel;
+import nl.juraji.biliomi.io.api.twitch.v5.model.TwitchFollower;
 import nl.juraji.biliomi.io.api.twitch.v5.model.TwitchGame;
+import nl.juraji.biliomi.io.api.twitch.v5.model.TwitchSubscription;
 import nl.juraji.biliomi.io.api.twitch.v5.model.TwitchUser;
 import nl.juraji.biliomi.io.api.twitch.v5.model.wrappers.*;
+import nl.juraji.biliomi.io.web.RateLimitPolicy;
 import nl.juraji.biliomi.io.web.Response;
 import nl.juraji.biliomi.io.web.Url;
 import nl.juraji.biliomi.io.web.WebClient;
@@ -26,6 +29,9 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Created by Juraji on 19-4-2017.
@@ -36,6 +42,9 @@ import java.util.Map;
 public class TwitchApiImpl implements TwitchApi {
   private static final int MAX_PAGE_SIZE = 100;
   private static final String OAUTH_HEADER_PREFIX = "OAuth ";
+  private static final long STREAM_CACHE_TTL = 10;
+  private static final long STATIC_DATA_CACHE_TTL = 300;
+  private static final RateLimitPolicy RATE_LIMIT_POLICY = new RateLimitPolicy(2, 1, TimeUnit.SECONDS, 10);
 
   @Inject
   @AppDataValue("twitch.api.uris.v5")
@@ -56,6 +65,8 @@ public class TwitchApiImpl implements TwitchApi {
   private AuthTokenDao authTokenDao;
 
   private final HttpFields headers = new HttpFields();
+  private HttpFields streamHeaders;
+  private HttpFields staticDataHeaders;
 
   @PostConstruct
   public void initTwitchApi() {
@@ -64,6 +75,13 @@ public class TwitchApiImpl implements TwitchApi {
     headers.put("Client-ID", clientId);
     headers.put(HttpHeader.ACCEPT, "application/vnd.twitchtv.v5+json");
     headers.put(HttpHeader.AUTHORIZATION, OAUTH_HEADER_PREFIX + casterToken.getToken());
+
+    // Stream status is polled often and should be recent, user data and games hardly change
+    streamHeaders = WebClient.withCacheTtl(headers, STREAM_CACHE_TTL, TimeUnit.SECONDS);
+    staticDataHeaders = WebClient.withCacheTtl(headers, STATIC_DATA_CACHE_TTL, TimeUnit.SECONDS);
+
+    // Keeps the paged follower and subscriber syncs from getting throttled
+    webClient.setRateLimitPolicy(apiBaseUri, RATE_LIMIT_POLICY);
   }
 
   @Override
@@ -95,11 +113,43 @@ public class TwitchApiImpl implements TwitchApi {
     return webClient.get(Url.url(apiBaseUri, "channels", twitchId, "follows").withQuery(listQuery(limit, offset)), headers, TwitchFollows.class);
   }
 
+  @Override
+  public CompletableFuture<Response<TwitchFollows>> getChannelFollowersAsync(long twitchId, int limit, int offset) {
+    return webClient.getAsync(Url.url(apiBaseUri, "channels", twitchId, "follows").withQuery(listQuery(limit, offset)), headers, TwitchFollows.class);
+  }
+
+  @Override
+  public Response<TwitchFollows> getChannelFollowersByCursor(long twitchId, int limit, long cursor) throws Exception {
+    return webClient.get(Url.url(apiBaseUri, "channels", twitchId, "follows").withQuery(cursorQuery(limit, cursor)), headers, TwitchFollows.class);
+  }
+
+  @Override
+  public CompletableFuture<Response<TwitchFollows>> getChannelFollowersByCursorAsync(long twitchId, int limit, long cursor) {
+    return webClient.getAsync(Url.url(apiBaseUri, "channels", twitchId, "follows").withQuery(cursorQuery(limit, cursor)), headers, TwitchFollows.class);
+  }
+
+  @Override
+  public CompletableFuture<Response<TwitchFollows>> getChannelFollowersByCursorAsync(long twitchId, int limit, long cursor, Consumer<TwitchFollower> followerConsumer) {
+    return webClient.getElementsAsync(Url.url(apiBaseUri, "channels", twitchId, "follows").withQuery(cursorQuery(limit, cursor)), headers,
+        TwitchFollows.class, "follows", TwitchFollower.class, followerConsumer);
+  }
+
   @Override
   public Response<TwitchSubscriptions> getChannelSubscriptions(long twitchId, int limit, int offset) throws Exception {
     return webClient.get(Url.url(apiBaseUri, "channels", twitchId, "subscriptions").withQuery(listQuery(limit, offset)), headers, TwitchSubscriptions.class);
   }
 
+  @Override
+  public CompletableFuture<Response<TwitchSubscriptions>> getChannelSubscriptionsAsync(long twitchId, int limit, int offset) {
+    return webClient.getAsync(Url.url(apiBaseUri, "channels", twitchId, "subscriptions").withQuery(listQuery(limit, offset)), headers, TwitchSubscriptions.class);
+  }
+
+  @Override
+  public CompletableFuture<Response<TwitchSubscriptions>> getChannelSubscriptionsAsync(long twitchId, int limit, int offset, Consumer<TwitchSubscription> subscriptionConsumer) {
+    return webClient.getElementsAsync(Url.url(apiBaseUri, "channels", twitchId, "subscriptions").withQuery(listQuery(limit, offset)), headers,
+        TwitchSubscriptions.class, "subscriptions", TwitchSubscription.class, subscriptionConsumer);
+  }
+
   @Override
   public Response<TwitchTeams> getChannelTeams(long twitchId) throws Exception {
     return webClient.get(Url.url(apiBaseUri, "channels", twitchId, "teams"), headers, TwitchTeams.class);
@@ -112,19 +162,19 @@ public class TwitchApiImpl implements TwitchApi {
 
   @Override
   public Response<TwitchStreamInfo> getStream(long twitchId) throws Exception {
-    return webClient.get(Url.url(apiBaseUri, "streams", twitchId), headers, TwitchStreamInfo.class);
+    return webClient.get(Url.url(apiBaseUri, "streams", twitchId), streamHeaders, TwitchStreamInfo.class);
   }
 
   @Override
   public Response<TwitchUserLogins> getUsersByUsername(String... usernames) throws Exception {
     Map<String, Object> loginQuery = new HashMap<>();
     loginQuery.put("login", Joiner.on(",").join(usernames));
-    return webClient.get(Url.url(apiBaseUri, "users").withQuery(loginQuery), headers, TwitchUserLogins.class);
+    return webClient.get(Url.url(apiBaseUri, "users").withQuery(loginQuery), staticDataHeaders, TwitchUserLogins.class);
   }
 
   @Override
   public Response<TwitchUser> getUser(String twitchId) throws Exception {
-    return webClient.get(Url.url(apiBaseUri, "users", twitchId), headers, TwitchUser.class);
+    return webClient.get(Url.url(apiBaseUri, "users", twitchId), staticDataHeaders, TwitchUser.class);
   }
 
   @Override
@@ -140,7 +190,7 @@ public class TwitchApiImpl implements TwitchApi {
     Map<String, Object> query = new HashMap<>();
     query.put("query", gameName);
 
-    Response<TwitchGames> response = webClient.get(Url.url(apiBaseUri, "search", "games").withQuery(query), headers, TwitchGames.class);
+    Response<TwitchGames> response = webClient.get(Url.url(apiBaseUri, "search", "games").withQuery(query), staticDataHeaders, TwitchGames.class);
     TwitchGame defaultGame = new TwitchGame();
     defaultGame.setName(gameName);
 
@@ -161,4 +211,14 @@ public class TwitchApiImpl implements TwitchApi {
     query.put("direction", "desc");
     return query;
   }
+
+  private Map<String, Object> cursorQuery(int limit, long cursor) {
+    Map<String, Object> query = new HashMap<>();
+    query.put("limit", MathUtils.minMax(limit, 1, MAX_PAGE_SIZE));
+    query.put("direction", "desc");
+    if (cursor != 0) {
+      query.put("cursor", cursor);
+    }
+    return query;
+  }
 }
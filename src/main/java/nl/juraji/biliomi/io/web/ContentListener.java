@@ -0,0 +1,150 @@
+package nl.juraji.biliomi.io.web;
+
+import nl.juraji.biliomi.utility.estreams.einterface.ESupplier;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.MimeTypes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Response listener for the WebClient.
+ * Successful UTF-8 responses that are bound to a model are fed to a JsonStreamReader as the contents arrive.
+ * All other responses, like errors and responses read as String, are buffered, so their raw contents can be read.
+ * Buffered and streamed documents are limited to a maximum length, streamed elements are not.
+ *
+ * @param <T> The model of the response
+ */
+abstract class ContentListener<T> extends Response.Listener.Adapter {
+  private final ESupplier<JsonStreamReader<T>, IOException> readerFactory;
+  private final boolean streamElements;
+  private final int maxContentLength;
+
+  private JsonStreamReader<T> reader;
+  private ByteArrayOutputStream buffer;
+  private byte[] chunk;
+  private String encoding;
+  private boolean aborted;
+
+  /**
+   * @param readerFactory    Creates the reader when the response can be streamed or null to always buffer the response
+   * @param streamElements   Whether the reader streams elements, which lifts the length limit
+   * @param maxContentLength The maximum length of the contents to buffer or bind at once
+   */
+  ContentListener(ESupplier<JsonStreamReader<T>, IOException> readerFactory, boolean streamElements, int maxContentLength) {
+    this.readerFactory = readerFactory;
+    this.streamElements = streamElements;
+    this.maxContentLength = maxContentLength;
+  }
+
+  @Override
+  public void onHeaders(Response response) {
+    String contentType = response.getHeaders().get(HttpHeader.CONTENT_TYPE);
+    encoding = (contentType == null ? null : MimeTypes.getCharsetFromContentType(contentType));
+    boolean utf8 = (encoding == null || StandardCharsets.UTF_8.name().equalsIgnoreCase(encoding));
+
+    try {
+      if (readerFactory != null && utf8 && response.getStatus() == HttpStatus.OK_200) {
+        reader = readerFactory.get();
+      } else {
+        buffer = new ByteArrayOutputStream();
+      }
+    } catch (IOException e) {
+      abort(response, e);
+    }
+  }
+
+  @Override
+  public void onContent(Response response, ByteBuffer content) {
+    int length = content.remaining();
+
+    try {
+      if (reader != null) {
+        if (!streamElements && reader.getBytesRead() + length > maxContentLength) {
+          throw new IOException("Response exceeds the maximum length of " + maxContentLength + " bytes");
+        }
+
+        // Jetty reuses its buffers, the reader has consumed the chunk when feed returns
+        if (chunk == null || chunk.length < length) {
+          chunk = new byte[Math.max(length, 8192)];
+        }
+        content.get(chunk, 0, length);
+        reader.feed(chunk, 0, length);
+      } else if (buffer != null) {
+        if (buffer.size() + length > maxContentLength) {
+          throw new IOException("Response exceeds the maximum length of " + maxContentLength + " bytes");
+        }
+
+        byte[] bytes = new byte[length];
+        content.get(bytes);
+        buffer.write(bytes, 0, length);
+      }
+    } catch (Exception e) {
+      abort(response, e);
+    }
+  }
+
+  /**
+   * @return True if the response was aborted because its contents could not be read
+   */
+  boolean isAborted() {
+    return aborted;
+  }
+
+  /**
+   * @return True if the contents were fed to the reader, false if they were buffered
+   */
+  boolean isStreamed() {
+    return reader != null;
+  }
+
+  /**
+   * @return The reader the contents were fed to
+   */
+  JsonStreamReader<T> getReader() {
+    return reader;
+  }
+
+  /**
+   * @return The buffered contents
+   */
+  byte[] getContent() {
+    return (buffer == null ? new byte[0] : buffer.toByteArray());
+  }
+
+  /**
+   * @return The length of the contents received
+   */
+  int getContentLength() {
+    if (reader != null) {
+      return (int) Math.min(reader.getBytesRead(), Integer.MAX_VALUE);
+    }
+    return (buffer == null ? 0 : buffer.size());
+  }
+
+  /**
+   * @return The amount of elements streamed to the consumer
+   */
+  long getElementCount() {
+    return (reader == null ? 0 : reader.getElementCount());
+  }
+
+  /**
+   * @return The charset from the Content-Type header or null if not set
+   */
+  String getEncoding() {
+    return encoding;
+  }
+
+  private void abort(Response response, Throwable cause) {
+    aborted = true;
+    response.abort(cause);
+  }
+}
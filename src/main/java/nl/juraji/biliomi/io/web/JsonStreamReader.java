@@ -0,0 +1,177 @@
+package nl.juraji.biliomi.io.web;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import nl.juraji.biliomi.utility.estreams.einterface.EConsumer;
+import nl.juraji.biliomi.utility.factories.marshalling.JacksonMarshaller;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Reads a JSON document while it is being received, using Jackson's non-blocking parser.
+ * The response contents are fed in chunks as they arrive, so the body never exists as a whole byte array or String.
+ * The tokens of the document are kept until the end of the input, at which point they are bound to the model.
+ * <p>
+ * Optionally the elements of an array in the root object, like the "follows" of a followers page,
+ * are bound and handed to a consumer one at a time, while the rest of the page is still being received.
+ * These elements are left out of the model, so a page of elements is never in memory at once.
+ *
+ * @param <T> The model of the document
+ */
+final class JsonStreamReader<T> {
+  private final ObjectMapper mapper;
+  private final JsonParser parser;
+  private final ByteArrayFeeder feeder;
+  private final Class<T> model;
+  private final TokenBuffer documentTokens;
+  private final String elementsField;
+  private final EConsumer<JsonParser, IOException> elementReader;
+
+  private int depth;
+  private ElementsState elementsState = ElementsState.BEFORE;
+  private TokenBuffer elementTokens;
+  private long bytesRead;
+  private long elementCount;
+
+  private enum ElementsState {
+    BEFORE, EXPECT_ARRAY, IN_ARRAY, AFTER
+  }
+
+  /**
+   * @param model The model class to bind the document to
+   */
+  JsonStreamReader(Class<T> model) throws IOException {
+    this(model, null, null);
+  }
+
+  /**
+   * @param model         The model class to bind the document to
+   * @param elementsField The name of the array field in the root object to stream
+   * @param elementType   The model class of the array elements
+   * @param consumer      The consumer for each element, called in order of the array
+   */
+  <E> JsonStreamReader(Class<T> model, String elementsField, Class<E> elementType, Consumer<? super E> consumer) throws IOException {
+    this(model, elementsField, elementParser -> consumer.accept(JacksonMarshaller.getObjectMapper().readValue(elementParser, elementType)));
+  }
+
+  private JsonStreamReader(Class<T> model, String elementsField, EConsumer<JsonParser, IOException> elementReader) throws IOException {
+    this.mapper = JacksonMarshaller.getObjectMapper();
+    this.parser = mapper.getFactory().createNonBlockingByteArrayParser();
+    this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    this.model = model;
+    this.documentTokens = new TokenBuffer(mapper, false);
+    this.elementsField = elementsField;
+    this.elementReader = elementReader;
+
+    if (elementsField == null) {
+      elementsState = ElementsState.AFTER;
+    }
+  }
+
+  /**
+   * Feed the next chunk of the document
+   * The parser reads all complete tokens before returning, so the chunk may be reused afterwards
+   *
+   * @param chunk  An array containing UTF-8 encoded JSON
+   * @param offset The offset of the chunk in the array
+   * @param length The length of the chunk
+   */
+  void feed(byte[] chunk, int offset, int length) throws IOException {
+    bytesRead += length;
+    feeder.feedInput(chunk, offset, offset + length);
+    readAvailableTokens();
+  }
+
+  /**
+   * Signal the end of the document and bind the model
+   *
+   * @return The model, without the streamed elements
+   */
+  T finish() throws IOException {
+    feeder.endOfInput();
+    readAvailableTokens();
+    parser.close();
+
+    try (JsonParser documentParser = documentTokens.asParser(mapper)) {
+      return mapper.readValue(documentParser, model);
+    }
+  }
+
+  /**
+   * @return The amount of bytes fed so far
+   */
+  long getBytesRead() {
+    return bytesRead;
+  }
+
+  /**
+   * @return The amount of elements handed to the consumer so far
+   */
+  long getElementCount() {
+    return elementCount;
+  }
+
+  private void readAvailableTokens() throws IOException {
+    JsonToken token;
+    while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+      if (token.isStructStart()) {
+        ++depth;
+      } else if (token.isStructEnd()) {
+        --depth;
+      }
+
+      switch (elementsState) {
+        case BEFORE:
+          if (depth == 1 && token == JsonToken.FIELD_NAME && elementsField.equals(parser.getCurrentName())) {
+            elementsState = ElementsState.EXPECT_ARRAY;
+          } else {
+            documentTokens.copyCurrentEvent(parser);
+          }
+          break;
+        case EXPECT_ARRAY:
+          if (token == JsonToken.START_ARRAY) {
+            elementsState = ElementsState.IN_ARRAY;
+          } else {
+            // Not an array after all, leave it to the model
+            elementsState = ElementsState.AFTER;
+            documentTokens.writeFieldName(elementsField);
+            documentTokens.copyCurrentEvent(parser);
+          }
+          break;
+        case IN_ARRAY:
+          readElementToken(token);
+          break;
+        default:
+          documentTokens.copyCurrentEvent(parser);
+      }
+    }
+  }
+
+  private void readElementToken(JsonToken token) throws IOException {
+    if (depth == 1 && token == JsonToken.END_ARRAY) {
+      elementsState = ElementsState.AFTER;
+      return;
+    }
+
+    if (elementTokens == null) {
+      elementTokens = new TokenBuffer(mapper, false);
+    }
+    elementTokens.copyCurrentEvent(parser);
+
+    // The element is complete when the parser is back at the level of the array
+    if (depth == 2) {
+      try (JsonParser elementParser = elementTokens.asParser(mapper)) {
+        elementReader.accept(elementParser);
+      }
+      elementTokens = null;
+      ++elementCount;
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package nl.juraji.biliomi.io.web;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * The rate limit, retry and circuit breaker settings for requests to a single destination (host)
+ */
+public final class RateLimitPolicy {
+  public static final RateLimitPolicy DEFAULT = new RateLimitPolicy(10, 1, TimeUnit.SECONDS, 20);
+
+  private static final int DEFAULT_MAX_RETRIES = 3;
+  private static final long DEFAULT_BASE_BACKOFF_MILLIS = 500;
+  private static final long DEFAULT_MAX_BACKOFF_MILLIS = 30000;
+  private static final int DEFAULT_BREAKER_THRESHOLD = 5;
+  private static final long DEFAULT_BREAKER_OPEN_MILLIS = 30000;
+
+  private final double permitsPerSecond;
+  private final int burst;
+  private final int maxRetries;
+  private final long baseBackoffMillis;
+  private final long maxBackoffMillis;
+  private final int breakerThreshold;
+  private final long breakerOpenMillis;
+
+  /**
+   * Create a policy with the default retry and circuit breaker settings
+   *
+   * @param requests The amount of requests allowed per period
+   * @param period   The length of the period
+   * @param unit     The TimeUnit of the period
+   * @param burst    The amount of requests that can be sent at once, after a quiet period
+   */
+  public RateLimitPolicy(int requests, long period, TimeUnit unit, int burst) {
+    this(requests, period, unit, burst, DEFAULT_MAX_RETRIES, DEFAULT_BREAKER_THRESHOLD);
+  }
+
+  /**
+   * @param requests         The amount of requests allowed per period
+   * @param period           The length of the period
+   * @param unit             The TimeUnit of the period
+   * @param burst            The amount of requests that can be sent at once, after a quiet period
+   * @param maxRetries       The maximum amount of retries for throttled or failed requests
+   * @param breakerThreshold The amount of consecutive failures after which requests are rejected for a while
+   */
+  public RateLimitPolicy(int requests, long period, TimeUnit unit, int burst, int maxRetries, int breakerThreshold) {
+    this(requests / (unit.toNanos(period) / 1e9), burst, maxRetries, DEFAULT_BASE_BACKOFF_MILLIS,
+        DEFAULT_MAX_BACKOFF_MILLIS, breakerThreshold, DEFAULT_BREAKER_OPEN_MILLIS);
+  }
+
+  RateLimitPolicy(double permitsPerSecond, int burst, int maxRetries, long baseBackoffMillis,
+                  long maxBackoffMillis, int breakerThreshold, long breakerOpenMillis) {
+    if (permitsPerSecond <= 0 || burst < 1) {
+      throw new IllegalArgumentException("A rate limit requires a positive rate and a burst of at least 1");
+    }
+
+    this.permitsPerSecond = permitsPerSecond;
+    this.burst = burst;
+    this.maxRetries = maxRetries;
+    this.baseBackoffMillis = baseBackoffMillis;
+    this.maxBackoffMillis = maxBackoffMillis;
+    this.breakerThreshold = breakerThreshold;
+    this.breakerOpenMillis = breakerOpenMillis;
+  }
+
+  public double getPermitsPerSecond() {
+    return permitsPerSecond;
+  }
+
+  public int getBurst() {
+    return burst;
+  }
+
+  public int getMaxRetries() {
+    return maxRetries;
+  }
+
+  public long getBaseBackoffMillis() {
+    return baseBackoffMillis;
+  }
+
+  public long getMaxBackoffMillis() {
+    return maxBackoffMillis;
+  }
+
+  public int getBreakerThreshold() {
+    return breakerThreshold;
+  }
+
+  public long getBreakerOpenMillis() {
+    return breakerOpenMillis;
+  }
+}
@@ -0,0 +1,70 @@
+package nl.juraji.biliomi.io.web;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * A snapshot of the rate limiter counters of a single destination of the WebClient
+ */
+public final class RateLimitStatistics {
+  private final String destination;
+  private final String breakerState;
+  private final long requests;
+  private final long delayed;
+  private final long throttled;
+  private final long retries;
+  private final long rejected;
+
+  RateLimitStatistics(String destination, String breakerState, long requests, long delayed, long throttled, long retries, long rejected) {
+    this.destination = destination;
+    this.breakerState = breakerState;
+    this.requests = requests;
+    this.delayed = delayed;
+    this.throttled = throttled;
+    this.retries = retries;
+    this.rejected = rejected;
+  }
+
+  public String getDestination() {
+    return destination;
+  }
+
+  /**
+   * @return The state of the circuit breaker, CLOSED, OPEN or HALF_OPEN
+   */
+  public String getBreakerState() {
+    return breakerState;
+  }
+
+  /**
+   * @return The amount of requests sent, including retries
+   */
+  public long getRequests() {
+    return requests;
+  }
+
+  /**
+   * @return The amount of requests delayed by the rate limit
+   */
+  public long getDelayed() {
+    return delayed;
+  }
+
+  /**
+   * @return The amount of 429 Too Many Requests responses
+   */
+  public long getThrottled() {
+    return throttled;
+  }
+
+  public long getRetries() {
+    return retries;
+  }
+
+  /**
+   * @return The amount of requests rejected by the open circuit breaker or because the rate limit would delay them too long
+   */
+  public long getRejected() {
+    return rejected;
+  }
+}
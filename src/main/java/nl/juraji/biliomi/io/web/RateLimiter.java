@@ -0,0 +1,247 @@
+package nl.juraji.biliomi.io.web;
+
+import nl.juraji.biliomi.utility.calculate.Numbers;
+import org.eclipse.jetty.http.DateParser;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Rate limiter and circuit breaker for a single destination of the WebClient.
+ * Requests take a token from a bucket that refills at the rate of the policy, when the bucket is empty
+ * requests are delayed until a token is available. Throttled responses and rate limit headers pause the bucket
+ * until the destination accepts requests again, pauses are capped at the maximum backoff of the policy.
+ * A request that would have to wait longer than the maximum backoff is rejected instead of delayed,
+ * so callers never wait on a single destination for long, even with slow policies like 60 requests per hour.
+ * After a number of consecutive failures the breaker opens and requests are rejected for a while,
+ * after which a single request is let through to probe whether the destination has recovered.
+ * All times are in milliseconds and passed in by the caller.
+ */
+final class RateLimiter {
+  private static final String[] REMAINING_HEADERS = {"Ratelimit-Remaining", "X-RateLimit-Remaining"};
+  private static final String[] RESET_HEADERS = {"Ratelimit-Reset", "X-RateLimit-Reset"};
+  private static final long DEFAULT_RESET_DELAY = 1000;
+
+  enum BreakerState {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final String destination;
+  private final RateLimitPolicy policy;
+
+  private double tokens;
+  private long lastRefill;
+  private long pausedUntil;
+
+  private BreakerState breakerState = BreakerState.CLOSED;
+  private int consecutiveFailures;
+  private long openUntil;
+  private boolean probeInFlight;
+
+  private long requestCount;
+  private long delayedCount;
+  private long throttledCount;
+  private long retryCount;
+  private long rejectedCount;
+
+  RateLimiter(String destination, RateLimitPolicy policy, long now) {
+    this.destination = destination;
+    this.policy = policy;
+    this.tokens = policy.getBurst();
+    this.lastRefill = now;
+  }
+
+  RateLimitPolicy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * Check the circuit breaker before sending a request
+   *
+   * @param now The current time
+   * @return True if the request may be sent, false if the breaker rejects it
+   */
+  synchronized boolean allowRequest(long now) {
+    if (breakerState == BreakerState.OPEN && now >= openUntil) {
+      breakerState = BreakerState.HALF_OPEN;
+      probeInFlight = false;
+    }
+
+    if (breakerState == BreakerState.OPEN || (breakerState == BreakerState.HALF_OPEN && probeInFlight)) {
+      ++rejectedCount;
+      return false;
+    }
+
+    if (breakerState == BreakerState.HALF_OPEN) {
+      probeInFlight = true;
+    }
+    return true;
+  }
+
+  /**
+   * Take a token for a request
+   * The bucket may go negative, so requests reserved while it is empty are spread out at the policy rate.
+   * No token is taken when the wait would exceed the maximum backoff of the policy.
+   *
+   * @param now The current time
+   * @return The time to wait before sending the request, or -1 if the request is rejected
+   */
+  synchronized long reserve(long now) {
+    if (now > lastRefill) {
+      tokens = Math.min(policy.getBurst(), tokens + (now - lastRefill) * policy.getPermitsPerSecond() / 1000.0);
+      lastRefill = now;
+    }
+
+    tokens -= 1;
+
+    long delay = (tokens < 0 ? (long) Math.ceil(-tokens * 1000.0 / policy.getPermitsPerSecond()) : 0);
+    delay = Math.max(delay, pausedUntil - now);
+
+    if (delay > policy.getMaxBackoffMillis()) {
+      tokens += 1;
+      ++rejectedCount;
+      return -1;
+    }
+
+    ++requestCount;
+    if (delay > 0) {
+      ++delayedCount;
+      return delay;
+    }
+    return 0;
+  }
+
+  /**
+   * The destination responded normally
+   *
+   * @param now     The current time
+   * @param resetIn The time until the rate limit of the destination resets when it reports no requests remain, or -1
+   */
+  synchronized void onSuccess(long now, long resetIn) {
+    consecutiveFailures = 0;
+    breakerState = BreakerState.CLOSED;
+    probeInFlight = false;
+
+    if (resetIn >= 0) {
+      pause(now, resetIn);
+    }
+  }
+
+  /**
+   * The destination failed to respond or responded with a server error
+   *
+   * @param now The current time
+   */
+  synchronized void onFailure(long now) {
+    ++consecutiveFailures;
+    probeInFlight = false;
+
+    if (breakerState == BreakerState.HALF_OPEN || consecutiveFailures >= policy.getBreakerThreshold()) {
+      breakerState = BreakerState.OPEN;
+      openUntil = now + policy.getBreakerOpenMillis();
+    }
+  }
+
+  /**
+   * The destination responded with 429 Too Many Requests
+   *
+   * @param now        The current time
+   * @param retryAfter The time the destination asked to wait
+   */
+  synchronized void onThrottled(long now, long retryAfter) {
+    ++throttledCount;
+    probeInFlight = false;
+    pause(now, retryAfter);
+  }
+
+  synchronized void onRetry() {
+    ++retryCount;
+  }
+
+  /**
+   * @param attempt The zero based attempt that failed
+   * @return A random delay between half and the whole of the exponential backoff for the attempt
+   */
+  long backoff(int attempt) {
+    long cap = policy.getBaseBackoffMillis() << Math.min(attempt, 20);
+    cap = Math.min(cap, policy.getMaxBackoffMillis());
+    long half = cap / 2;
+    return half + ThreadLocalRandom.current().nextLong(half + 1);
+  }
+
+  synchronized RateLimitStatistics getStatistics() {
+    return new RateLimitStatistics(destination, breakerState.name(),
+        requestCount, delayedCount, throttledCount, retryCount, rejectedCount);
+  }
+
+  synchronized BreakerState getBreakerState() {
+    return breakerState;
+  }
+
+  private void pause(long now, long delay) {
+    pausedUntil = Math.max(pausedUntil, now + Math.min(delay, policy.getMaxBackoffMillis()));
+    // Requests already reserved are not affected, but new ones should wait for the destination
+    tokens = Math.min(tokens, 0);
+  }
+
+  /**
+   * Read the Retry-After header, which is either a delay in seconds or a date
+   *
+   * @param headers The response headers
+   * @param now     The current time
+   * @return The time to wait or -1 if the header is absent or invalid
+   */
+  static long retryAfter(HttpFields headers, long now) {
+    String value = headers.get(HttpHeader.RETRY_AFTER);
+    if (value == null) {
+      return -1;
+    }
+
+    value = value.trim();
+    long seconds = Numbers.asNumber(value).withDefault(-1L).toLong();
+    if (seconds >= 0) {
+      return TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    long date = DateParser.parseDate(value);
+    return (date == -1 ? -1 : Math.max(0, date - now));
+  }
+
+  /**
+   * Read the rate limit headers used by Twitch, GitHub and others
+   *
+   * @param headers The response headers
+   * @param now     The current time
+   * @return The time until the rate limit resets if no requests remain, else -1
+   */
+  static long rateLimitReset(HttpFields headers, long now) {
+    String remaining = firstHeader(headers, REMAINING_HEADERS);
+    if (remaining == null || Numbers.asNumber(remaining.trim()).withDefault(1L).toLong() > 0) {
+      return -1;
+    }
+
+    // The reset header holds the epoch second at which the limit resets
+    String reset = firstHeader(headers, RESET_HEADERS);
+    long resetAt = Numbers.asNumber(reset == null ? null : reset.trim()).withDefault(-1L).toLong();
+    if (resetAt < 0) {
+      return DEFAULT_RESET_DELAY;
+    }
+
+    return Math.max(0, TimeUnit.SECONDS.toMillis(resetAt) - now);
+  }
+
+  private static String firstHeader(HttpFields headers, String[] names) {
+    for (String name : names) {
+      String value = headers.get(name);
+      if (value != null) {
+        return value;
+      }
+    }
+    return null;
+  }
+}
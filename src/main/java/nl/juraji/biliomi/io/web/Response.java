@@ -3,6 +3,7 @@ package nl.juraji.biliomi.io.web;
 import org.eclipse.jetty.client.api.Request;
 
 import javax.enterprise.inject.Vetoed;
+import java.nio.charset.Charset;
 
 /**
  * Created by Juraji on 19-4-2017.
@@ -13,6 +14,8 @@ public class Response<T> {
   private Request request;
   private int status;
   private String rawData;
+  private byte[] rawContent;
+  private Charset rawContentCharset;
   private T data;
 
   public Request getRequest() {
@@ -32,11 +35,27 @@ public class Response<T> {
   }
 
   public String getRawData() {
+    if (rawData == null && rawContent != null) {
+      rawData = new String(rawContent, rawContentCharset).trim();
+    }
     return rawData;
   }
 
   public void setRawData(String rawData) {
     this.rawData = rawData;
+    this.rawContent = null;
+  }
+
+  /**
+   * Set the raw response contents, these are only decoded to a String when getRawData() is called
+   *
+   * @param rawContent The response contents
+   * @param charset    The charset of the response contents
+   */
+  public void setRawContent(byte[] rawContent, Charset charset) {
+    this.rawData = null;
+    this.rawContent = rawContent;
+    this.rawContentCharset = charset;
   }
 
   public T getData() {
@@ -56,7 +75,7 @@ public class Response<T> {
     return "Response{" +
         "request=" + request +
         ", status=" + status +
-        ", rawData='" + rawData + '\'' +
+        ", rawData='" + getRawData() + '\'' +
         '}';
   }
 }
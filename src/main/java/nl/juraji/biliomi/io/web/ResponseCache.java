@@ -0,0 +1,197 @@
+package nl.juraji.biliomi.io.web;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * HTTP response cache for the WebClient.
+ * Responses are keyed on the uri and the request headers that change the response, like the authorization.
+ * Freshness follows the Cache-Control header of the response, unless the caller overrides the ttl.
+ * Stale entries with an ETag or Last-Modified header are kept for a while, so they can be revalidated
+ * using a conditional request, a 304 Not Modified response then reuses the cached response.
+ * The cache is bounded by the size of the cached response contents.
+ */
+final class ResponseCache {
+  private static final String[] VARY_HEADERS = {"Authorization", "Client-ID", "Accept", WebClient.RAW_DATA_HEADER};
+  private static final Pattern MAX_AGE_PATTERN = Pattern.compile("max-age=\"?(\\d+)\"?");
+  private static final int ENTRY_OVERHEAD = 512;
+  static final long NOT_STORABLE = -1;
+
+  private final Cache<String, CachedResponse> cache;
+  private final long defaultTtl;
+
+  /**
+   * @param defaultTtl The freshness lifetime in milliseconds for responses without caching headers
+   * @param maxWeight  The maximum total weight in bytes of the cached responses
+   * @param retention  The time in milliseconds to keep stale entries that can be revalidated
+   */
+  ResponseCache(long defaultTtl, long maxWeight, long retention) {
+    this.defaultTtl = defaultTtl;
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxWeight)
+        .weigher((String key, CachedResponse entry) -> entry.weight)
+        .expireAfterWrite(Math.max(defaultTtl, retention), TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  /**
+   * @param key The cache key, see key(String, HttpFields)
+   * @return The cached response, which may be stale, or null if none is cached
+   */
+  CachedResponse get(String key) {
+    return cache.getIfPresent(key);
+  }
+
+  /**
+   * Store a response, when the response headers allow it
+   *
+   * @param key             The cache key, see key(String, HttpFields)
+   * @param response        The response to cache
+   * @param contentLength   The length of the response contents in bytes
+   * @param responseHeaders The headers of the response
+   * @param ttlOverride     The ttl set by the caller or -1 to use the response headers
+   * @param now             The current time in milliseconds
+   */
+  void put(String key, Response<?> response, int contentLength, HttpFields responseHeaders, long ttlOverride, long now) {
+    long lifetime = freshnessLifetime(responseHeaders.get(HttpHeader.CACHE_CONTROL), ttlOverride, defaultTtl);
+    String etag = responseHeaders.get(HttpHeader.ETAG);
+    String lastModified = responseHeaders.get(HttpHeader.LAST_MODIFIED);
+
+    if (lifetime == NOT_STORABLE || (lifetime == 0 && etag == null && lastModified == null)) {
+      cache.invalidate(key);
+      return;
+    }
+
+    // The weight accounts for the unmarshalled model and the raw contents, if kept
+    int weight = ENTRY_OVERHEAD + key.length() * 2 + contentLength * 2;
+    cache.put(key, new CachedResponse(response, etag, lastModified, now + lifetime, weight));
+  }
+
+  /**
+   * Renew the freshness of an entry after the server responded with 304 Not Modified
+   *
+   * @param key             The cache key, see key(String, HttpFields)
+   * @param entry           The revalidated entry
+   * @param responseHeaders The headers of the 304 response
+   * @param ttlOverride     The ttl set by the caller or -1 to use the response headers
+   * @param now             The current time in milliseconds
+   */
+  void revalidated(String key, CachedResponse entry, HttpFields responseHeaders, long ttlOverride, long now) {
+    long lifetime = freshnessLifetime(responseHeaders.get(HttpHeader.CACHE_CONTROL), ttlOverride, defaultTtl);
+    if (lifetime == NOT_STORABLE) {
+      cache.invalidate(key);
+      return;
+    }
+
+    String etag = responseHeaders.get(HttpHeader.ETAG);
+    String lastModified = responseHeaders.get(HttpHeader.LAST_MODIFIED);
+    cache.put(key, new CachedResponse(entry.response,
+        (etag == null ? entry.etag : etag),
+        (lastModified == null ? entry.lastModified : lastModified),
+        now + lifetime, entry.weight));
+  }
+
+  long size() {
+    return cache.size();
+  }
+
+  /**
+   * Create a cache key for a request
+   *
+   * @param uri     The request uri
+   * @param headers The request headers, may be null
+   * @return The uri combined with the values of the headers that change the response
+   */
+  static String key(String uri, HttpFields headers) {
+    if (headers == null) {
+      return uri;
+    }
+
+    StringBuilder key = new StringBuilder(uri);
+    for (String name : VARY_HEADERS) {
+      String value = headers.get(name);
+      if (value != null) {
+        key.append('\n').append(name).append(':').append(value);
+      }
+    }
+
+    return key.toString();
+  }
+
+  /**
+   * Get the freshness lifetime of a response
+   * A "no-store" directive always prevents caching, otherwise the ttl override wins over the other directives.
+   *
+   * @param cacheControl The Cache-Control header of the response, may be null
+   * @param ttlOverride  The ttl set by the caller or -1 to use the response headers
+   * @param defaultTtl   The ttl to use when the response has no Cache-Control header
+   * @return The freshness lifetime in milliseconds or NOT_STORABLE
+   */
+  static long freshnessLifetime(String cacheControl, long ttlOverride, long defaultTtl) {
+    String directives = (cacheControl == null ? "" : cacheControl.toLowerCase());
+
+    if (directives.contains("no-store")) {
+      return NOT_STORABLE;
+    }
+
+    if (ttlOverride >= 0) {
+      return ttlOverride;
+    }
+
+    if (directives.contains("no-cache")) {
+      return 0;
+    }
+
+    Matcher matcher = MAX_AGE_PATTERN.matcher(directives);
+    if (matcher.find()) {
+      return TimeUnit.SECONDS.toMillis(Long.parseLong(matcher.group(1)));
+    }
+
+    return defaultTtl;
+  }
+
+  static final class CachedResponse {
+    private final Response<?> response;
+    private final String etag;
+    private final String lastModified;
+    private final long expiresAt;
+    private final int weight;
+
+    private CachedResponse(Response<?> response, String etag, String lastModified, long expiresAt, int weight) {
+      this.response = response;
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.expiresAt = expiresAt;
+      this.weight = weight;
+    }
+
+    Response<?> getResponse() {
+      return response;
+    }
+
+    String getEtag() {
+      return etag;
+    }
+
+    String getLastModified() {
+      return lastModified;
+    }
+
+    boolean isFresh(long now) {
+      return now < expiresAt;
+    }
+
+    boolean canRevalidate() {
+      return etag != null || lastModified != null;
+    }
+  }
+}
@@ -3,12 +3,26 @@ package nl.juraji.biliomi.io.web;
 import com.google.common.net.MediaType;
 import org.eclipse.jetty.http.HttpFields;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
 /**
  * Created by Juraji on 20-4-2017.
  * Biliomi v3
  *
  * Note: If the given model class is a Java type the response data will not be set.
- * The response raw data will always contain a string of the response contents.
+ * The response raw data contains a string of the response contents, except for successful responses bound to a model,
+ * which are read while they are received, use the RAW_DATA_HEADER to keep the raw data of these as well.
+ * <p>
+ * The async variants do not block the calling thread, the returned futures complete on a web client thread.
+ * Failed requests complete the future normally, with a Response with status 1 and the error as raw data,
+ * the same as the synchronous variants.
+ * Dependent actions doing heavy work should use the ...Async methods of CompletableFuture to move off the web client thread.
+ * <p>
+ * Requests are rate limited per destination host, see RateLimitPolicy.
+ * Throttled requests and, for GET and PUT requests, server errors are retried with a backoff.
  */
 public interface WebClient {
 
@@ -19,6 +33,20 @@ public interface WebClient {
    */
   String NO_CACHE_HEADER = "WEBCLIENT_NO_CACHE";
 
+  /**
+   * This header name can be present in the request headers to override the time in milliseconds
+   * a successful response is cached, regardless of the Cache-Control header of the response.
+   * Implementors should not send this header or the NO_CACHE_HEADER to the webresource
+   */
+  String CACHE_TTL_HEADER = "WEBCLIENT_CACHE_TTL";
+
+  /**
+   * This header name can be present in the request headers if the caller
+   * needs the raw data of a successful response, next to the model.
+   * Implementors should not send this header to the webresource
+   */
+  String RAW_DATA_HEADER = "WEBCLIENT_RAW_DATA";
+
   /**
    * Perform a GET request
    *
@@ -59,6 +87,76 @@ public interface WebClient {
    */
   <T> Response<T> put(String uri, HttpFields headers, String body, MediaType bodyMediaType, Class<T> model) throws Exception;
 
+  /**
+   * Perform a GET request without blocking
+   *
+   * @param uri     The uri to the webresource
+   * @param headers A HttpFields object containing headers to use
+   * @param model   The model class expected to be returned by the webresource
+   * @param <T>     Generictype model class, to assign a type to the response
+   * @return A CompletableFuture, completed with a Response object containing status information and any returned data
+   */
+  <T> CompletableFuture<Response<T>> getAsync(String uri, HttpFields headers, Class<T> model);
+
+  /**
+   * Perform a POST request without blocking
+   *
+   * @param <T>           Generictype model class, to assign a type to the response
+   * @param uri           The uri to the webresource
+   * @param headers       A HttpFields object containing headers to use
+   * @param body          A String containing the body to post the the webresource
+   * @param bodyMediaType The MediaType of the body, this is required for the webresource to understand the body
+   * @param model         The model class expected to be returned by the webresource
+   * @return A CompletableFuture, completed with a Response object containing status information and any returned data
+   */
+  <T> CompletableFuture<Response<T>> postAsync(String uri, HttpFields headers, String body, MediaType bodyMediaType, Class<T> model);
+
+  /**
+   * Perform a PUT request without blocking
+   *
+   * @param <T>           Generictype model class, to assign a type to the response
+   * @param uri           The uri to the webresource
+   * @param headers       A HttpFields object containing headers to use
+   * @param body          A String containing the body to post the the webresource
+   * @param bodyMediaType The MediaType of the body, this is required for the webresource to understand the body
+   * @param model         The model class expected to be returned by the webresource
+   * @return A CompletableFuture, completed with a Response object containing status information and any returned data
+   */
+  <T> CompletableFuture<Response<T>> putAsync(String uri, HttpFields headers, String body, MediaType bodyMediaType, Class<T> model);
+
+  /**
+   * Perform a GET request without blocking and stream the elements of an array in the response to a consumer,
+   * while the response is being received. Use this for large pages, like a page of followers.
+   * The elements are left out of the response data, the other properties, like the total or cursor, are set.
+   * Streamed responses are never cached and only retried when no elements have been consumed yet.
+   *
+   * @param <T>             Generictype model class, to assign a type to the response
+   * @param <E>             Generictype element class
+   * @param uri             The uri to the webresource
+   * @param headers         A HttpFields object containing headers to use
+   * @param model           The model class expected to be returned by the webresource
+   * @param elementsField   The name of the array property in the returned object, like "follows"
+   * @param elementType     The model class of the array elements
+   * @param elementConsumer Called for each element in order, on a web client thread
+   * @return A CompletableFuture, completed with a Response object when all elements have been consumed
+   */
+  <T, E> CompletableFuture<Response<T>> getElementsAsync(String uri, HttpFields headers, Class<T> model,
+                                                         String elementsField, Class<E> elementType, Consumer<? super E> elementConsumer);
+
+  /**
+   * Set the rate limit policy for all requests to the host of the uri,
+   * hosts without a policy use RateLimitPolicy.DEFAULT
+   *
+   * @param uri    An uri on the destination host, like the api base uri
+   * @param policy The policy to apply
+   */
+  void setRateLimitPolicy(String uri, RateLimitPolicy policy);
+
+  /**
+   * @return The rate limiter counters of each destination requested so far
+   */
+  List<RateLimitStatistics> getRateLimitStatistics();
+
   default <T> Response<T> get(Url url, HttpFields headers, Class<T> model) throws Exception {
     return get(url.toString(), headers, model);
   }
@@ -70,4 +168,35 @@ public interface WebClient {
   default <T> Response<T> put(Url url, HttpFields headers, String body, MediaType bodyMediaType, Class<T> model) throws Exception {
     return put(url.toString(), headers, body, bodyMediaType, model);
   }
+
+  default <T> CompletableFuture<Response<T>> getAsync(Url url, HttpFields headers, Class<T> model) {
+    return getAsync(url.toString(), headers, model);
+  }
+
+  default <T, E> CompletableFuture<Response<T>> getElementsAsync(Url url, HttpFields headers, Class<T> model,
+                                                                 String elementsField, Class<E> elementType, Consumer<? super E> elementConsumer) {
+    return getElementsAsync(url.toString(), headers, model, elementsField, elementType, elementConsumer);
+  }
+
+  default <T> CompletableFuture<Response<T>> postAsync(Url url, HttpFields headers, String body, MediaType bodyMediaType, Class<T> model) {
+    return postAsync(url.toString(), headers, body, bodyMediaType, model);
+  }
+
+  default <T> CompletableFuture<Response<T>> putAsync(Url url, HttpFields headers, String body, MediaType bodyMediaType, Class<T> model) {
+    return putAsync(url.toString(), headers, body, bodyMediaType, model);
+  }
+
+  /**
+   * Create a copy of headers with the cache ttl set, to use for a specific endpoint
+   *
+   * @param headers The headers to copy, may be null
+   * @param ttl     The time to cache successful responses
+   * @param unit    The TimeUnit of the ttl
+   * @return A new HttpFields object containing the headers and the CACHE_TTL_HEADER
+   */
+  static HttpFields withCacheTtl(HttpFields headers, long ttl, TimeUnit unit) {
+    HttpFields copy = (headers == null ? new HttpFields() : new HttpFields(headers));
+    copy.put(CACHE_TTL_HEADER, String.valueOf(unit.toMillis(ttl)));
+    return copy;
+  }
 }
@@ -1,22 +1,23 @@
 package nl.juraji.biliomi.io.web;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.google.common.net.MediaType;
 import nl.juraji.biliomi.model.core.VersionInfo;
 import nl.juraji.biliomi.utility.calculate.Numbers;
 import nl.juraji.biliomi.utility.calculate.ObjectGraphs;
 import nl.juraji.biliomi.utility.cdi.annotations.qualifiers.AppDataValue;
+import nl.juraji.biliomi.utility.estreams.einterface.ESupplier;
+import nl.juraji.biliomi.utility.factories.concurrent.ThreadPools;
 import nl.juraji.biliomi.utility.factories.marshalling.JacksonMarshaller;
 import org.apache.logging.log4j.Logger;
 import org.eclipse.jetty.client.HttpClient;
-import org.eclipse.jetty.client.api.ContentResponse;
 import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Result;
 import org.eclipse.jetty.client.util.StringContentProvider;
 import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.HttpStatus;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -24,21 +25,43 @@ import javax.enterprise.inject.Default;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.io.IOException;
+import java.net.URI;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Created by Juraji on 19-4-2017.
  * Biliomi v3
+ * <p>
+ * All requests are executed asynchronously using the Jetty HttpClient, the synchronous methods wait on the async ones.
+ * Successful JSON responses are read while they are received, see JsonStreamReader, and do not keep their raw contents.
+ * Other responses are buffered, without copying them into a String until the raw data is requested.
+ * Successful GET responses are cached, see ResponseCache.
+ * Identical cacheable GET requests that are in flight at the same time share a single request and future.
+ * Requests are rate limited per destination host and retried when throttled or failing, see RateLimiter.
  */
 @Default
 @Singleton
 public class WebClientImpl implements WebClient {
+  private static final int MAX_CONTENT_LENGTH = 4 * 1024 * 1024;
 
-  private Cache<String, Response> cache;
+  private final ConcurrentMap<String, CompletableFuture<? extends Response<?>>> inFlightRequests = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, RateLimitPolicy> rateLimitPolicies = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+  private ScheduledExecutorService scheduler;
+  private ResponseCache cache;
   private HttpClient httpClient;
+  private long requestTimeout;
 
   @Inject
   private Logger logger;
@@ -50,23 +73,56 @@ public class WebClientImpl implements WebClient {
   @AppDataValue("webclient.cache.duration")
   private String cacheDuration;
 
+  @Inject
+  @AppDataValue("webclient.cache.maxsize")
+  private String cacheMaxSize;
+
+  @Inject
+  @AppDataValue("webclient.cache.retention")
+  private String cacheRetention;
+
+  @Inject
+  @AppDataValue("webclient.connections.perdestination")
+  private String maxConnectionsPerDestination;
+
+  @Inject
+  @AppDataValue("webclient.timeout.connect")
+  private String connectTimeout;
+
+  @Inject
+  @AppDataValue("webclient.timeout.idle")
+  private String idleTimeout;
+
+  @Inject
+  @AppDataValue("webclient.timeout.request")
+  private String requestTimeoutValue;
+
   @PostConstruct
   private void initWebClient() {
     String userAgent = versionInfo.getUserAgent();
 
-    long cacheDurationL = Numbers.asNumber(cacheDuration).toLong();
-    this.cache = CacheBuilder.newBuilder()
-        .expireAfterWrite(cacheDurationL, TimeUnit.MILLISECONDS)
-        .build();
+    this.cache = new ResponseCache(
+        Numbers.asNumber(cacheDuration).toLong(),
+        Numbers.asNumber(cacheMaxSize).withDefault(16777216L).toLong(),
+        Numbers.asNumber(cacheRetention).withDefault(600000L).toLong());
+
+    this.requestTimeout = Numbers.asNumber(requestTimeoutValue).withDefault(30000L).toLong();
+    this.scheduler = ThreadPools.newScheduledExecutorService("WebClientScheduler");
 
     SslOverTlsContextFactory contextFactory = new SslOverTlsContextFactory();
     httpClient = new HttpClient(contextFactory);
-    httpClient.setMaxConnectionsPerDestination(8);
+    httpClient.setMaxConnectionsPerDestination(Numbers.asNumber(maxConnectionsPerDestination).withDefault(8).toInteger());
+    httpClient.setConnectTimeout(Numbers.asNumber(connectTimeout).withDefault(15000L).toLong());
+    httpClient.setIdleTimeout(Numbers.asNumber(idleTimeout).withDefault(30000L).toLong());
     httpClient.setUserAgentField(new HttpField(HttpHeader.USER_AGENT, userAgent));
   }
 
   @PreDestroy
   private void destructWebClient() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+
     try {
       if (httpClient != null && !httpClient.isStopped()) {
         httpClient.stop();
@@ -78,100 +134,400 @@ public class WebClientImpl implements WebClient {
 
   @Override
   public <T> Response<T> get(String uri, HttpFields headers, Class<T> model) throws Exception {
-    Request request = newRequest(uri);
-    request.method(HttpMethod.GET);
-    return execute(request, headers, model);
+    return await(getAsync(uri, headers, model));
   }
 
   @Override
   public <T> Response<T> post(String uri, HttpFields headers, String body, MediaType bodyMediaType, Class<T> model) throws Exception {
-    Request request = newRequest(uri);
-    request.method(HttpMethod.POST);
-    request.content(new StringContentProvider(body, mediaTypeToCharset(bodyMediaType)));
-
-    headers = appendDefaultPostHeaders(headers, body, bodyMediaType);
-    return execute(request, headers, model);
+    return await(postAsync(uri, headers, body, bodyMediaType, model));
   }
 
   @Override
   public <T> Response<T> put(String uri, HttpFields headers, String body, MediaType bodyMediaType, Class<T> model) throws Exception {
-    Request request = newRequest(uri);
-    request.method(HttpMethod.PUT);
-    request.content(new StringContentProvider(body, mediaTypeToCharset(bodyMediaType)));
+    return await(putAsync(uri, headers, body, bodyMediaType, model));
+  }
+
+  @Override
+  public <T> CompletableFuture<Response<T>> getAsync(String uri, HttpFields headers, Class<T> model) {
+    return execute(uri, HttpMethod.GET, headers, null, null, model, null);
+  }
+
+  @Override
+  public <T> CompletableFuture<Response<T>> postAsync(String uri, HttpFields headers, String body, MediaType bodyMediaType, Class<T> model) {
+    return execute(uri, HttpMethod.POST, headers, body, bodyMediaType, model, null);
+  }
 
-    headers = appendDefaultPostHeaders(headers, body, bodyMediaType);
-    return execute(request, headers, model);
+  @Override
+  public <T> CompletableFuture<Response<T>> putAsync(String uri, HttpFields headers, String body, MediaType bodyMediaType, Class<T> model) {
+    return execute(uri, HttpMethod.PUT, headers, body, bodyMediaType, model, null);
+  }
+
+  @Override
+  public <T, E> CompletableFuture<Response<T>> getElementsAsync(String uri, HttpFields headers, Class<T> model,
+                                                                 String elementsField, Class<E> elementType, Consumer<? super E> elementConsumer) {
+    return execute(uri, HttpMethod.GET, headers, null, null, model,
+        () -> new JsonStreamReader<>(model, elementsField, elementType, elementConsumer));
+  }
+
+  @Override
+  public void setRateLimitPolicy(String uri, RateLimitPolicy policy) {
+    String host = URI.create(uri).getHost();
+    RateLimitPolicy previous = rateLimitPolicies.put(host, policy);
+
+    // Api clients that are not singletons set their policy for each instance, this should not reset the limiter
+    if (previous != policy) {
+      rateLimiters.put(host, new RateLimiter(host, policy, System.currentTimeMillis()));
+    }
+  }
+
+  @Override
+  public List<RateLimitStatistics> getRateLimitStatistics() {
+    return rateLimiters.values().stream()
+        .map(RateLimiter::getStatistics)
+        .sorted(Comparator.comparing(RateLimitStatistics::getDestination))
+        .collect(Collectors.toList());
   }
 
   private Charset mediaTypeToCharset(MediaType mediaType) {
-    return mediaType.charset().or(Charset.forName("UTF-8"));
+    return mediaType.charset().or(StandardCharsets.UTF_8);
   }
 
-  private HttpFields appendDefaultPostHeaders(HttpFields headers, String body, MediaType bodyMediaType) {
-    if (headers == null) {
-      headers = new HttpFields();
+  /**
+   * Create a new Jetty request, Jetty requests can only be sent once, so each attempt needs a new request
+   * Jetty derives the Content-Type and Content-Length headers from the content,
+   * unless the Content-Type is set using the request headers
+   */
+  private Request newRequest(String uri, HttpMethod method, HttpFields headers, String body, MediaType bodyMediaType) throws Exception {
+    if (!httpClient.isStarted()) {
+      synchronized (this) {
+        if (!httpClient.isStarted()) {
+          httpClient.start();
+        }
+      }
     }
 
-    if (!headers.containsKey(HttpHeader.CONTENT_TYPE.name())) {
-      headers.put(HttpHeader.CONTENT_TYPE, bodyMediaType.toString());
+    Request request = httpClient.newRequest(uri)
+        .method(method)
+        .timeout(requestTimeout, TimeUnit.MILLISECONDS);
+
+    if (body != null) {
+      request.content(new StringContentProvider(bodyMediaType.toString(), body, mediaTypeToCharset(bodyMediaType)));
     }
 
-    if (!headers.containsKey(HttpHeader.CONTENT_LENGTH.name())) {
-      headers.put(HttpHeader.CONTENT_LENGTH, String.valueOf(body.getBytes().length));
+    if (headers != null) {
+      request.getHeaders().addAll(headers);
+      request.getHeaders().remove(NO_CACHE_HEADER);
+      request.getHeaders().remove(CACHE_TTL_HEADER);
+      request.getHeaders().remove(RAW_DATA_HEADER);
     }
 
-    return headers;
+    return request;
+  }
+
+  private RateLimiter getRateLimiter(String host) {
+    return rateLimiters.computeIfAbsent(host, h ->
+        new RateLimiter(h, rateLimitPolicies.getOrDefault(h, RateLimitPolicy.DEFAULT), System.currentTimeMillis()));
   }
 
-  private Request newRequest(String uri) throws Exception {
-    if (httpClient.isStopped()) {
-      httpClient.start();
+  /**
+   * @param elementsReaderFactory Creates the reader that streams elements or null to bind the whole document
+   */
+  private <T> CompletableFuture<Response<T>> execute(String uri, HttpMethod method, HttpFields headers, String body, MediaType bodyMediaType,
+                                                     Class<T> model, ESupplier<JsonStreamReader<T>, IOException> elementsReaderFactory) {
+    Request request;
+    try {
+      request = newRequest(uri, method, headers, body, bodyMediaType);
+    } catch (Exception e) {
+      return failedFuture(e);
+    }
+
+    // Streamed elements are handed to the caller's consumer, so these responses are never shared
+    boolean streamElements = (elementsReaderFactory != null);
+    ESupplier<JsonStreamReader<T>, IOException> readerFactory = elementsReaderFactory;
+    if (!streamElements && !ObjectGraphs.isJavaType(model)) {
+      readerFactory = () -> new JsonStreamReader<>(model);
+    }
+
+    boolean cacheable = (HttpMethod.GET.equals(method) && !streamElements
+        && (headers == null || !headers.containsKey(NO_CACHE_HEADER)));
+    String cacheKey = (cacheable ? ResponseCache.key(request.getURI().toString(), headers) : null);
+    ResponseCache.CachedResponse cachedResponse = (cacheable ? cache.get(cacheKey) : null);
+
+    if (cachedResponse != null) {
+      if (cachedResponse.isFresh(System.currentTimeMillis())) {
+        //noinspection unchecked
+        return CompletableFuture.completedFuture((Response<T>) cachedResponse.getResponse());
+      } else if (!cachedResponse.canRevalidate()) {
+        cachedResponse = null;
+      }
     }
-    return httpClient.newRequest(uri);
+
+    // Join an identical request that is already in flight, instead of sending the same request again
+    String flightKey = (cacheable ? cacheKey + '\n' + model.getName() : null);
+    CompletableFuture<Response<T>> future = new CompletableFuture<>();
+    if (flightKey != null) {
+      CompletableFuture<? extends Response<?>> inFlight = inFlightRequests.putIfAbsent(flightKey, future);
+      if (inFlight != null) {
+        //noinspection unchecked
+        return (CompletableFuture<Response<T>>) inFlight;
+      }
+    }
+
+    Exchange<T> exchange = new Exchange<>(uri, method, headers, body, bodyMediaType, model, readerFactory, streamElements,
+        cacheKey, flightKey, cachedResponse, future, getRateLimiter(request.getHost()));
+    exchange.attempt(request, 0);
+    return future;
   }
 
-  private <T> Response<T> execute(Request request, HttpFields headers, Class<T> model) {
-    String cacheKey = request.getURI().toString();
-    //noinspection unchecked
-    Response<T> response = null;
-    boolean bypassCache = (headers != null && headers.containsKey(NO_CACHE_HEADER));
+  /**
+   * A single logical request, which may take multiple attempts
+   * Each attempt is rate limited, throttled responses are retried after the delay requested by the destination,
+   * failures and server errors of idempotent requests are retried with a jittered exponential backoff.
+   */
+  private final class Exchange<T> {
+    private final String uri;
+    private final HttpMethod method;
+    private final HttpFields headers;
+    private final String body;
+    private final MediaType bodyMediaType;
+    private final Class<T> model;
+    private final ESupplier<JsonStreamReader<T>, IOException> readerFactory;
+    private final boolean streamElements;
+    private final boolean keepRawContent;
+    private final String cacheKey;
+    private final String flightKey;
+    private final long ttlOverride;
+    private final ResponseCache.CachedResponse revalidating;
+    private final CompletableFuture<Response<T>> future;
+    private final RateLimiter rateLimiter;
+    private final boolean idempotent;
 
-    if (!bypassCache) {
-      //noinspection unchecked
-      response = cache.getIfPresent(cacheKey);
+    private Exchange(String uri, HttpMethod method, HttpFields headers, String body, MediaType bodyMediaType, Class<T> model,
+                     ESupplier<JsonStreamReader<T>, IOException> readerFactory, boolean streamElements,
+                     String cacheKey, String flightKey, ResponseCache.CachedResponse revalidating,
+                     CompletableFuture<Response<T>> future, RateLimiter rateLimiter) {
+      this.uri = uri;
+      this.method = method;
+      this.headers = headers;
+      this.body = body;
+      this.bodyMediaType = bodyMediaType;
+      this.model = model;
+      this.readerFactory = readerFactory;
+      this.streamElements = streamElements;
+      this.keepRawContent = (headers != null && headers.containsKey(RAW_DATA_HEADER));
+      this.cacheKey = cacheKey;
+      this.flightKey = flightKey;
+      this.ttlOverride = getTtlOverride(headers);
+      this.revalidating = revalidating;
+      this.future = future;
+      this.rateLimiter = rateLimiter;
+      this.idempotent = (HttpMethod.GET.equals(method) || HttpMethod.PUT.equals(method));
     }
 
-    if (response == null) {
-      if (headers != null) {
-        request.getHeaders().addAll(headers);
+    private void attempt(Request request, int attempt) {
+      long now = System.currentTimeMillis();
+      if (!rateLimiter.allowRequest(now)) {
+        fail(request, "Circuit breaker open for " + request.getHost());
+        return;
       }
 
-      logger.debug("{} {} as {}", request.getMethod(), request.getURI(), model.getSimpleName());
+      long delay = rateLimiter.reserve(now);
+      if (delay < 0) {
+        fail(request, "Rate limit exceeded for " + request.getHost());
+      } else if (delay > 0) {
+        schedule(request, () -> send(request, attempt), delay);
+      } else {
+        send(request, attempt);
+      }
+    }
 
-      response = new Response<>();
-      response.setRequest(request);
+    private void retry(Request failedRequest, int attempt, long delay) {
+      rateLimiter.onRetry();
+      schedule(failedRequest, () -> {
+        try {
+          attempt(newRequest(uri, method, headers, body, bodyMediaType), attempt + 1);
+        } catch (Exception e) {
+          fail(failedRequest, e.getMessage());
+        }
+      }, delay);
+    }
+
+    private boolean canRetry(int attempt, long delay) {
+      RateLimitPolicy policy = rateLimiter.getPolicy();
+      return attempt < policy.getMaxRetries() && delay <= policy.getMaxBackoffMillis();
+    }
+
+    private void send(Request request, int attempt) {
+      // Stale, but the server can tell if it changed
+      if (revalidating != null) {
+        if (revalidating.getEtag() != null) {
+          request.header(HttpHeader.IF_NONE_MATCH, revalidating.getEtag());
+        }
+        if (revalidating.getLastModified() != null) {
+          request.header(HttpHeader.IF_MODIFIED_SINCE, revalidating.getLastModified());
+        }
+      }
+
+      logger.debug("{} {} as {}, attempt {}", request.getMethod(), request.getURI(), model.getSimpleName(), attempt + 1);
+
+      ESupplier<JsonStreamReader<T>, IOException> streamingReaderFactory = (keepRawContent ? null : readerFactory);
+      request.send(new ContentListener<T>(streamingReaderFactory, streamElements, MAX_CONTENT_LENGTH) {
+        @Override
+        public void onComplete(Result result) {
+          try {
+            long now = System.currentTimeMillis();
+
+            if (result.isFailed() && isAborted()) {
+              // The destination responded, but the contents could not be read, retrying won't help
+              rateLimiter.onSuccess(now, -1);
+              fail(request, result.getFailure().getMessage());
+              return;
+            }
+
+            if (result.isFailed()) {
+              rateLimiter.onFailure(now);
+              long delay = rateLimiter.backoff(attempt);
+
+              // Elements that were already handed to the consumer can not be taken back
+              if (idempotent && getElementCount() == 0 && canRetry(attempt, delay)) {
+                retry(request, attempt, delay);
+              } else {
+                fail(request, result.getFailure().getMessage());
+              }
+              return;
+            }
+
+            org.eclipse.jetty.client.api.Response httpResponse = result.getResponse();
+            HttpFields responseHeaders = httpResponse.getHeaders();
+            int status = httpResponse.getStatus();
+
+            if (status == HttpStatus.TOO_MANY_REQUESTS_429) {
+              long retryAfter = RateLimiter.retryAfter(responseHeaders, now);
+              long delay = (retryAfter >= 0 ? retryAfter : rateLimiter.backoff(attempt));
+              rateLimiter.onThrottled(now, delay);
+
+              // The destination did not handle the request, so even non-idempotent requests can be retried
+              if (canRetry(attempt, delay)) {
+                retry(request, attempt, delay);
+                return;
+              }
+            } else if (isRetryableServerError(status)) {
+              rateLimiter.onFailure(now);
+              long retryAfter = RateLimiter.retryAfter(responseHeaders, now);
+              long delay = (retryAfter >= 0 ? retryAfter : rateLimiter.backoff(attempt));
+
+              if (idempotent && canRetry(attempt, delay)) {
+                retry(request, attempt, delay);
+                return;
+              }
+            } else {
+              rateLimiter.onSuccess(now, RateLimiter.rateLimitReset(responseHeaders, now));
+            }
+
+            if (revalidating != null && status == HttpStatus.NOT_MODIFIED_304) {
+              cache.revalidated(cacheKey, revalidating, responseHeaders, ttlOverride, now);
+              //noinspection unchecked
+              complete((Response<T>) revalidating.getResponse());
+              return;
+            }
 
-      try {
-        ContentResponse cr = request.send();
-        response.setStatus(cr.getStatus());
-        response.setRawData(cr.getContentAsString().trim());
+            Response<T> response = new Response<>();
+            response.setRequest(request);
 
-        if (cr.getStatus() == 200) {
-          if (!ObjectGraphs.isJavaType(model)) {
-            T unmarshal = JacksonMarshaller.unmarshal(cr.getContentAsString(), model);
-            response.setData(unmarshal);
+            if (isStreamed()) {
+              response.setStatus(status);
+              response.setData(getReader().finish());
+            } else {
+              readResponse(response, status, getContent(), getEncoding());
+            }
+
+            if (cacheKey != null && status == HttpStatus.OK_200) {
+              cache.put(cacheKey, response, getContentLength(), responseHeaders, ttlOverride, now);
+            }
+
+            complete(response);
+          } catch (Exception e) {
+            fail(request, e.getMessage());
           }
         }
+      });
+    }
 
-        if (!bypassCache) {
-          cache.put(cacheKey, response);
+    /**
+     * Read a buffered response, these keep their raw contents
+     * Only successful responses that could not be streamed get bound to the model here,
+     * like responses in another charset than UTF-8 or responses of which the raw contents were requested
+     */
+    private void readResponse(Response<T> response, int status, byte[] content, String encoding) throws Exception {
+      Charset charset = (encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding));
+      response.setStatus(status);
+      response.setRawContent(content, charset);
+
+      if (status == HttpStatus.OK_200 && readerFactory != null) {
+        byte[] json = (StandardCharsets.UTF_8.equals(charset) ? content : response.getRawData().getBytes(StandardCharsets.UTF_8));
+
+        if (streamElements) {
+          JsonStreamReader<T> reader = readerFactory.get();
+          reader.feed(json, 0, json.length);
+          response.setData(reader.finish());
+        } else {
+          response.setData(JacksonMarshaller.unmarshal(json, model));
         }
-      } catch (IOException | InterruptedException | TimeoutException | ExecutionException e) {
-        response.setStatus(1);
-        response.setRawData(e.getMessage());
       }
     }
 
-    return response;
+    private void schedule(Request request, Runnable runnable, long delay) {
+      if (scheduler.isShutdown()) {
+        fail(request, "The web client is shut down");
+      } else {
+        scheduler.schedule(runnable, delay, TimeUnit.MILLISECONDS);
+      }
+    }
+
+    private void fail(Request request, String message) {
+      Response<T> response = new Response<>();
+      response.setRequest(request);
+      response.setStatus(1);
+      response.setRawData(message);
+      complete(response);
+    }
+
+    private void complete(Response<T> response) {
+      // The response is cached at this point, so callers from here on get the cached response
+      if (flightKey != null) {
+        inFlightRequests.remove(flightKey, future);
+      }
+      future.complete(response);
+    }
+  }
+
+  private static boolean isRetryableServerError(int status) {
+    return status == HttpStatus.INTERNAL_SERVER_ERROR_500
+        || status == HttpStatus.BAD_GATEWAY_502
+        || status == HttpStatus.SERVICE_UNAVAILABLE_503
+        || status == HttpStatus.GATEWAY_TIMEOUT_504;
+  }
+
+  private long getTtlOverride(HttpFields headers) {
+    String ttl = (headers == null ? null : headers.get(CACHE_TTL_HEADER));
+    return Numbers.asNumber(ttl).withDefault(-1L).toLong();
+  }
+
+  private static <T> T await(CompletableFuture<T> future) throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      throw e;
+    }
+  }
+
+  private static <T> CompletableFuture<T> failedFuture(Exception e) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(e);
+    return future;
   }
 }
@@ -49,6 +49,54 @@ public class ChatModeratorSettings extends Settings {
   @XmlElement(name = "RepeatedCharacterTrigger")
   private int repeatedCharacterTrigger;
 
+  @Column
+  @XmlElement(name = "EmoteSpamAllowed")
+  private boolean emoteSpamAllowed;
+
+  @Column
+  @XmlElement(name = "EmoteTrigger")
+  private int emoteTrigger;
+
+  @Column
+  @XmlElement(name = "SymbolSpamAllowed")
+  private boolean symbolSpamAllowed;
+
+  @Column
+  @XmlElement(name = "SymbolTrigger")
+  private int symbolTrigger;
+
+  @Column
+  @XmlElement(name = "SymbolTriggerRatio")
+  private double symbolTriggerRatio;
+
+  @Column
+  @XmlElement(name = "LongMessagesAllowed")
+  private boolean longMessagesAllowed;
+
+  @Column
+  @XmlElement(name = "MessageLengthTrigger")
+  private int messageLengthTrigger;
+
+  @Column
+  @XmlElement(name = "DuplicateMessagesAllowed")
+  private boolean duplicateMessagesAllowed;
+
+  @Column
+  @XmlElement(name = "DuplicateMessageTrigger")
+  private int duplicateMessageTrigger;
+
+  @Column
+  @XmlElement(name = "FloodAllowed")
+  private boolean floodAllowed;
+
+  @Column
+  @XmlElement(name = "FloodTrigger")
+  private int floodTrigger;
+
+  @Column
+  @XmlElement(name = "FloodWindow")
+  private long floodWindow;
+
   @Column
   @ElementCollection(fetch = FetchType.EAGER)
   @CollectionTable(name = "ChatModeratorLinkWhitelist")
@@ -130,6 +178,102 @@ public class ChatModeratorSettings extends Settings {
     this.repeatedCharacterTrigger = repeatedCharacterTrigger;
   }
 
+  public boolean isEmoteSpamAllowed() {
+    return emoteSpamAllowed;
+  }
+
+  public void setEmoteSpamAllowed(boolean emoteSpamAllowed) {
+    this.emoteSpamAllowed = emoteSpamAllowed;
+  }
+
+  public int getEmoteTrigger() {
+    return emoteTrigger;
+  }
+
+  public void setEmoteTrigger(int emoteTrigger) {
+    this.emoteTrigger = emoteTrigger;
+  }
+
+  public boolean isSymbolSpamAllowed() {
+    return symbolSpamAllowed;
+  }
+
+  public void setSymbolSpamAllowed(boolean symbolSpamAllowed) {
+    this.symbolSpamAllowed = symbolSpamAllowed;
+  }
+
+  public int getSymbolTrigger() {
+    return symbolTrigger;
+  }
+
+  public void setSymbolTrigger(int symbolTrigger) {
+    this.symbolTrigger = symbolTrigger;
+  }
+
+  public double getSymbolTriggerRatio() {
+    return symbolTriggerRatio;
+  }
+
+  public void setSymbolTriggerRatio(double symbolTriggerRatio) {
+    this.symbolTriggerRatio = symbolTriggerRatio;
+  }
+
+  public boolean isLongMessagesAllowed() {
+    return longMessagesAllowed;
+  }
+
+  public void setLongMessagesAllowed(boolean longMessagesAllowed) {
+    this.longMessagesAllowed = longMessagesAllowed;
+  }
+
+  public int getMessageLengthTrigger() {
+    return messageLengthTrigger;
+  }
+
+  public void setMessageLengthTrigger(int messageLengthTrigger) {
+    this.messageLengthTrigger = messageLengthTrigger;
+  }
+
+  public boolean isDuplicateMessagesAllowed() {
+    return duplicateMessagesAllowed;
+  }
+
+  public void setDuplicateMessagesAllowed(boolean duplicateMessagesAllowed) {
+    this.duplicateMessagesAllowed = duplicateMessagesAllowed;
+  }
+
+  public int getDuplicateMessageTrigger() {
+    return duplicateMessageTrigger;
+  }
+
+  public void setDuplicateMessageTrigger(int duplicateMessageTrigger) {
+    this.duplicateMessageTrigger = duplicateMessageTrigger;
+  }
+
+  public boolean isFloodAllowed() {
+    return floodAllowed;
+  }
+
+  public void setFloodAllowed(boolean floodAllowed) {
+    this.floodAllowed = floodAllowed;
+  }
+
+  public int getFloodTrigger() {
+    return floodTrigger;
+  }
+
+  public void setFloodTrigger(int floodTrigger) {
+    this.floodTrigger = floodTrigger;
+  }
+
+  public long getFloodWindow() {
+    return floodWindow;
+  }
+
+  public void setFloodWindow(long floodWindow) {
+    this.floodWindow = floodWindow;
+  }
+
   public List<String> getLinkWhitelist() {
     linkWhitelist = ModelUtils.initCollection(linkWhitelist);
     return linkWhitelist;
@@ -176,6 +320,18 @@ public class ChatModeratorSettings extends Settings {
     capsTriggerRatio = 0.4;
     repeatedCharactersAllowed = true;
     repeatedCharacterTrigger = 15;
+    emoteSpamAllowed = true;
+    emoteTrigger = 10;
+    symbolSpamAllowed = true;
+    symbolTrigger = 10;
+    symbolTriggerRatio = 0.5;
+    longMessagesAllowed = true;
+    messageLengthTrigger = 300;
+    duplicateMessagesAllowed = true;
+    duplicateMessageTrigger = 10;
+    floodAllowed = true;
+    floodTrigger = 8;
+    floodWindow = 10000;
     firstStrike = ModerationAction.WARN;
     secondStrike = ModerationAction.PURGE;
     thirdStrike = ModerationAction.PURGE;
@@ -43,4 +43,19 @@ public class CommandHistoryRecordDao extends JpaDao<CommandHistoryRecord> {
         .setMaxResults(20)
         .getList();
   }
+
+  /**
+   * Get the records after a record, in order of id
+   *
+   * @param id         The id of the last known record
+   * @param maxResults The maximum amount of records to return
+   * @return A list of records
+   */
+  public List<CommandHistoryRecord> getRecordsAfter(long id, int maxResults) {
+    return criteria()
+        .add(Restrictions.gt("id", id))
+        .addOrder(Order.asc("id"))
+        .setMaxResults(maxResults)
+        .getList();
+  }
 }
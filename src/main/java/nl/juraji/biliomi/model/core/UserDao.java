@@ -2,11 +2,20 @@ package nl.juraji.biliomi.model.core;
 
 import nl.juraji.biliomi.utility.jpa.JpaDao;
 import nl.juraji.biliomi.utility.jpa.managed.ManagedCriteria;
+import nl.juraji.biliomi.utility.types.collections.LongHashSet;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
 
 import javax.enterprise.inject.Default;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by Juraji on 10-4-2017.
@@ -14,6 +23,10 @@ import java.util.List;
  */
 @Default
 public class UserDao extends JpaDao<User> {
+  private static final int BULK_BATCH_SIZE = 500;
+
+  @Inject
+  private Logger logger;
 
   public UserDao() {
     super(User.class);
@@ -78,6 +91,112 @@ public class UserDao extends JpaDao<User> {
         .getCount();
   }
 
+  /**
+   * Get the Twitch ids of all followers, without loading the users themselves
+   *
+   * @return A set of Twitch user ids
+   */
+  public LongHashSet getFollowerTwitchIds() {
+    return getTwitchIdsWhere("u.follower = true");
+  }
+
+  /**
+   * Get which of the given Twitch ids belong to followers
+   *
+   * @param twitchIds The Twitch user ids to look up
+   * @return A set of the Twitch user ids of followers
+   */
+  public LongHashSet getFollowerTwitchIds(Collection<Long> twitchIds) {
+    LongHashSet followerIds = new LongHashSet(twitchIds.size());
+
+    if (!twitchIds.isEmpty()) {
+      try {
+        safeTransaction()
+            .executeWithinTransaction(session -> session
+                .createQuery("select u.twitchUserId from User u where u.follower = true and u.twitchUserId in (:twitchIds)")
+                .setParameterList("twitchIds", twitchIds)
+                .list()
+                .forEach(twitchId -> followerIds.add((long) twitchId)));
+      } catch (RuntimeException e) {
+        throw new IllegalStateException("Could not read follower ids", e);
+      }
+    }
+
+    return followerIds;
+  }
+
+  /**
+   * Get the Twitch ids of all subscribers, without loading the users themselves
+   *
+   * @return A set of Twitch user ids
+   */
+  public LongHashSet getSubscriberTwitchIds() {
+    return getTwitchIdsWhere("u.subscriber = true");
+  }
+
+  /**
+   * Get the usernames for the given Twitch ids, without loading the users themselves
+   *
+   * @param twitchIds The Twitch user ids to look up
+   * @return A map of Twitch user id to username, for the users that exist
+   */
+  public Map<Long, String> getUsernamesByTwitchIds(Collection<Long> twitchIds) {
+    Map<Long, String> usernames = new HashMap<>();
+
+    if (!twitchIds.isEmpty()) {
+      safeTransaction()
+          .withExceptionConsumer(e -> logger.error("Could not read usernames", e))
+          .executeWithinTransaction(session -> session
+              .createQuery("select u.twitchUserId, u.username from User u where u.twitchUserId in (:twitchIds)")
+              .setParameterList("twitchIds", twitchIds)
+              .list()
+              .forEach(row -> {
+                Object[] columns = (Object[]) row;
+                usernames.put((Long) columns[0], (String) columns[1]);
+              }));
+    }
+
+    return usernames;
+  }
+
+  /**
+   * Unset the follower status of the users with the given Twitch ids, in bulk
+   *
+   * @param twitchIds The Twitch user ids of the unfollowers
+   * @return The amount of users updated
+   */
+  public int removeFollowers(LongHashSet twitchIds) {
+    return updateByTwitchIds("u.follower = false", twitchIds);
+  }
+
+  /**
+   * Unset the subscriber status and subscribe date of the users with the given Twitch ids, in bulk
+   *
+   * @param twitchIds The Twitch user ids of the unsubscribers
+   * @return The amount of users updated
+   */
+  public int removeSubscribers(LongHashSet twitchIds) {
+    return updateByTwitchIds("u.subscriber = false, u.subscribeDate = null", twitchIds);
+  }
+
+  /**
+   * Update the username and display name of a user, without loading the user
+   *
+   * @param twitchId    The Twitch user id of the user
+   * @param username    The new username
+   * @param displayName The new display name
+   */
+  public void updateUsername(long twitchId, String username, String displayName) {
+    safeTransaction()
+        .withExceptionConsumer(e -> logger.error("Could not update username", e))
+        .executeWithinTransaction(session -> session
+            .createQuery("update User u set u.username = :username, u.displayName = :displayName where u.twitchUserId = :twitchId")
+            .setParameter("username", username)
+            .setParameter("displayName", displayName)
+            .setParameter("twitchId", twitchId)
+            .executeUpdate());
+  }
+
   public List<User> getSubscribers() {
     return getSubscribers(-1);
   }
@@ -108,4 +227,66 @@ public class UserDao extends JpaDao<User> {
         .setMaxResults(limit)
         .getList();
   }
+
+  /**
+   * Read the Twitch ids of the users matching the condition
+   * Callers compare these against remote rosters, where a partial set would make every missing user look new,
+   * so any failure is thrown instead of logged
+   *
+   * @param condition The HQL condition on User u
+   * @return The complete set of Twitch ids
+   * @throws IllegalStateException When the ids could not be read
+   */
+  private LongHashSet getTwitchIdsWhere(String condition) {
+    LongHashSet twitchIds = new LongHashSet();
+
+    try {
+      safeTransaction()
+          .executeWithinTransaction(session -> {
+            ScrollableResults results = session
+                .createQuery("select u.twitchUserId from User u where " + condition)
+                .setFetchSize(BULK_BATCH_SIZE)
+                .scroll(ScrollMode.FORWARD_ONLY);
+
+            try {
+              while (results.next()) {
+                twitchIds.add(results.getLong(0));
+              }
+            } finally {
+              results.close();
+            }
+          });
+    } catch (RuntimeException e) {
+      throw new IllegalStateException("Could not read Twitch ids", e);
+    }
+
+    return twitchIds;
+  }
+
+  private int updateByTwitchIds(String assignments, LongHashSet twitchIds) {
+    int[] updated = {0};
+
+    if (!twitchIds.isEmpty()) {
+      List<List<Long>> batches = new ArrayList<>();
+      List<Long> batch = new ArrayList<>(BULK_BATCH_SIZE);
+      batches.add(batch);
+
+      for (long twitchId : twitchIds.toArray()) {
+        if (batch.size() == BULK_BATCH_SIZE) {
+          batch = new ArrayList<>(BULK_BATCH_SIZE);
+          batches.add(batch);
+        }
+        batch.add(twitchId);
+      }
+
+      safeTransaction()
+          .withExceptionConsumer(e -> logger.error("Could not update users", e))
+          .executeWithinTransaction(session -> batches.forEach(twitchIdBatch -> updated[0] += session
+              .createQuery("update User u set " + assignments + " where u.twitchUserId in (:twitchIds)")
+              .setParameterList("twitchIds", twitchIdBatch)
+              .executeUpdate()));
+    }
+
+    return updated[0];
+  }
 }
@@ -1,11 +1,16 @@
 package nl.juraji.biliomi.model.core.settings;
 
+import nl.juraji.biliomi.utility.types.hibernatetypes.DateTimeISO8601Type;
+import org.hibernate.annotations.Type;
+import org.joda.time.DateTime;
+
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 
 /**
  * Created by Juraji on 27-4-2017.
@@ -20,6 +25,15 @@ public class FollowerWatchSettings extends Settings {
   @XmlElement(name = "Reward")
   private long reward;
 
+  /**
+   * The date of the newest follow seen by the follower sync,
+   * incremental updates only fetch follows made after this date
+   */
+  @Column
+  @Type(type = DateTimeISO8601Type.TYPE)
+  @XmlTransient
+  private DateTime lastFollowDate;
+
   public long getReward() {
     return reward;
   }
@@ -28,6 +42,14 @@ public class FollowerWatchSettings extends Settings {
     this.reward = reward;
   }
 
+  public DateTime getLastFollowDate() {
+    return lastFollowDate;
+  }
+
+  public void setLastFollowDate(DateTime lastFollowDate) {
+    this.lastFollowDate = lastFollowDate;
+  }
+
   @Override
   public void setDefaultValues() {
     this.reward = 0;
@@ -0,0 +1,51 @@
+package nl.juraji.biliomi.model.internal.rest;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * A single operation in a batch request to a model endpoint.
+ * Creations require the entity, updates the id and the entity and deletions only the id.
+ */
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
+public class BatchOperation<T> {
+
+  @XmlElement(name = "Operation")
+  private BatchOperationType operation;
+
+  @XmlElement(name = "Id")
+  private Long id;
+
+  @XmlElement(name = "Entity")
+  private T entity;
+
+  public BatchOperationType getOperation() {
+    return operation;
+  }
+
+  public void setOperation(BatchOperationType operation) {
+    this.operation = operation;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public T getEntity() {
+    return entity;
+  }
+
+  public void setEntity(T entity) {
+    this.entity = entity;
+  }
+}
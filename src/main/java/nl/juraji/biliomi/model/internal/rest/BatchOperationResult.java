@@ -0,0 +1,61 @@
+package nl.juraji.biliomi.model.internal.rest;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * The result of a single operation in a batch request.
+ * The status is the status the operation would have had as a single request,
+ * or 424 (Failed Dependency) when it was not applied because another operation in the batch failed.
+ */
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
+public class BatchOperationResult {
+  public static final int FAILED_DEPENDENCY = 424;
+
+  @XmlElement(name = "Index")
+  private int index;
+
+  @XmlElement(name = "Status")
+  private int status;
+
+  @XmlElement(name = "Entity")
+  private Object entity;
+
+  public BatchOperationResult() {
+  }
+
+  public BatchOperationResult(int index, int status) {
+    this.index = index;
+    this.status = status;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public void setIndex(int index) {
+    this.index = index;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  public void setStatus(int status) {
+    this.status = status;
+  }
+
+  public Object getEntity() {
+    return entity;
+  }
+
+  public void setEntity(Object entity) {
+    this.entity = entity;
+  }
+}
@@ -0,0 +1,61 @@
+package nl.juraji.biliomi.model.internal.rest;
+
+import org.joda.time.DateTime;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+@XmlRootElement(name = "ChatSearchResult")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ChatSearchResult {
+
+  @XmlElement(name = "Source")
+  private ChatSearchSource source;
+
+  @XmlElement(name = "Date")
+  private DateTime date;
+
+  @XmlElement(name = "Username")
+  private String username;
+
+  @XmlElement(name = "Text")
+  private String text;
+
+  public ChatSearchSource getSource() {
+    return source;
+  }
+
+  public void setSource(ChatSearchSource source) {
+    this.source = source;
+  }
+
+  public DateTime getDate() {
+    return date;
+  }
+
+  public void setDate(DateTime date) {
+    this.date = date;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public void setUsername(String username) {
+    this.username = username;
+  }
+
+  public String getText() {
+    return text;
+  }
+
+  public void setText(String text) {
+    this.text = text;
+  }
+}
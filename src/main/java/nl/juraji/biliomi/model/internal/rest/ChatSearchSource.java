@@ -0,0 +1,9 @@
+package nl.juraji.biliomi.model.internal.rest;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+public enum ChatSearchSource {
+  CHAT, COMMAND
+}
@@ -9,6 +9,7 @@ import nl.juraji.biliomi.model.internal.yaml.usersettings.biliomi.*;
 public class USBiliomi {
   private USCore core;
   private USDatabase database;
+  private USRest rest;
   private USTwitch twitch;
   private USIntegrations integrations;
   private USComponents components;
@@ -29,6 +30,14 @@ public class USBiliomi {
     this.database = database;
   }
 
+  public USRest getRest() {
+    return rest;
+  }
+
+  public void setRest(USRest rest) {
+    this.rest = rest;
+  }
+
   public USTwitch getTwitch() {
     return twitch;
   }
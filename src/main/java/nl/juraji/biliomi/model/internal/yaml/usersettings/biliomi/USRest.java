@@ -0,0 +1,80 @@
+package nl.juraji.biliomi.model.internal.yaml.usersettings.biliomi;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi
+ */
+public class USRest {
+  private int workerThreads = 8;
+  private int workerQueueSize = 64;
+  private int maxConcurrentRequestsPerEndpoint = 0;
+  private int requestTimeoutSeconds = 30;
+  private int compressionMinSize = 1024;
+  private int keepAliveIdleTimeoutSeconds = 30;
+  private int keepAliveMaxRequests = 256;
+  private int maxDatabaseConnections = 4;
+
+  public int getWorkerThreads() {
+    return workerThreads;
+  }
+
+  public void setWorkerThreads(int workerThreads) {
+    this.workerThreads = workerThreads;
+  }
+
+  public int getWorkerQueueSize() {
+    return workerQueueSize;
+  }
+
+  public void setWorkerQueueSize(int workerQueueSize) {
+    this.workerQueueSize = workerQueueSize;
+  }
+
+  public int getMaxConcurrentRequestsPerEndpoint() {
+    return maxConcurrentRequestsPerEndpoint;
+  }
+
+  public void setMaxConcurrentRequestsPerEndpoint(int maxConcurrentRequestsPerEndpoint) {
+    this.maxConcurrentRequestsPerEndpoint = maxConcurrentRequestsPerEndpoint;
+  }
+
+  public int getRequestTimeoutSeconds() {
+    return requestTimeoutSeconds;
+  }
+
+  public void setRequestTimeoutSeconds(int requestTimeoutSeconds) {
+    this.requestTimeoutSeconds = requestTimeoutSeconds;
+  }
+
+  public int getCompressionMinSize() {
+    return compressionMinSize;
+  }
+
+  public void setCompressionMinSize(int compressionMinSize) {
+    this.compressionMinSize = compressionMinSize;
+  }
+
+  public int getKeepAliveIdleTimeoutSeconds() {
+    return keepAliveIdleTimeoutSeconds;
+  }
+
+  public void setKeepAliveIdleTimeoutSeconds(int keepAliveIdleTimeoutSeconds) {
+    this.keepAliveIdleTimeoutSeconds = keepAliveIdleTimeoutSeconds;
+  }
+
+  public int getKeepAliveMaxRequests() {
+    return keepAliveMaxRequests;
+  }
+
+  public void setKeepAliveMaxRequests(int keepAliveMaxRequests) {
+    this.keepAliveMaxRequests = keepAliveMaxRequests;
+  }
+
+  public int getMaxDatabaseConnections() {
+    return maxDatabaseConnections;
+  }
+
+  public void setMaxDatabaseConnections(int maxDatabaseConnections) {
+    this.maxDatabaseConnections = maxDatabaseConnections;
+  }
+}
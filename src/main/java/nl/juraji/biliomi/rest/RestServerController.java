@@ -1,9 +1,18 @@
 package nl.juraji.biliomi.rest;
 
+import nl.juraji.biliomi.model.internal.yaml.usersettings.UserSettings;
+import nl.juraji.biliomi.model.internal.yaml.usersettings.biliomi.USRest;
+import nl.juraji.biliomi.rest.config.RestConnectionBudget;
+import nl.juraji.biliomi.rest.config.RestRequestLimiter;
+import nl.juraji.biliomi.rest.services.rest.logs.ChatLogRestService;
 import nl.juraji.biliomi.utility.cdi.annotations.qualifiers.AppDataValue;
+import nl.juraji.biliomi.utility.factories.concurrent.DefaultThreadFactory;
 import nl.juraji.biliomi.utility.types.Restartable;
 import org.apache.logging.log4j.Logger;
+import org.glassfish.grizzly.http.CompressionConfig;
 import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
 import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
 import org.glassfish.jersey.server.ResourceConfig;
 
@@ -11,17 +20,24 @@ import javax.annotation.PreDestroy;
 import javax.enterprise.inject.Default;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
 import java.net.URI;
 
 /**
  * Created by Juraji on 13-6-2017.
  * Biliomi v3
+ * <p>
+ * The HTTP server is tuned by the REST user settings, see USRest.
+ * Requests are handled by a worker pool of their own, so REST api traffic does not compete with chat for threads.
  */
 @Default
 @Singleton
 public class RestServerController implements Restartable {
   private static final String SERVICES_PACKAGE = "nl.juraji.biliomi.rest.services";
   private static final String PROVIDERS_PACKAGE = "nl.juraji.biliomi.rest.config.providers";
+  private static final String[] COMPRESSABLE_MIME_TYPES = {MediaType.APPLICATION_JSON, ChatLogRestService.NDJSON, MediaType.TEXT_PLAIN};
 
   @Inject
   private Logger logger;
@@ -30,16 +46,31 @@ public class RestServerController implements Restartable {
   @AppDataValue("rest.api.uris.base")
   private String apiBaseUri;
 
+  @Inject
+  private UserSettings userSettings;
+
   private HttpServer server;
 
   @Override
   public void start() {
     if (server == null) {
+      USRest restSettings = getRestSettings();
       final ResourceConfig resourceConfig = new ResourceConfig()
-          .packages(true, SERVICES_PACKAGE, PROVIDERS_PACKAGE);
+          .packages(true, SERVICES_PACKAGE, PROVIDERS_PACKAGE)
+          .register(new RestRequestLimiter(restSettings))
+          .register(new RestConnectionBudget(restSettings).binder());
+
+      server = GrizzlyHttpServerFactory.createHttpServer(URI.create(apiBaseUri), resourceConfig, false);
+      server.getListeners().forEach(listener -> configureListener(listener, restSettings));
+
+      try {
+        server.start();
+      } catch (IOException e) {
+        server = null;
+        throw new ProcessingException("Failed starting the HTTP REST server on " + apiBaseUri, e);
+      }
 
-      server = GrizzlyHttpServerFactory.createHttpServer(URI.create(apiBaseUri), resourceConfig);
-      logger.info("Started the HTTP REST server on {}", apiBaseUri);
+      logger.info("Started the HTTP REST server on {} with {} worker threads", apiBaseUri, restSettings.getWorkerThreads());
     }
   }
 
@@ -51,4 +82,37 @@ public class RestServerController implements Restartable {
       server = null;
     }
   }
+
+  /**
+   * @return The REST user settings, or the defaults when they are missing from the configuration
+   */
+  private USRest getRestSettings() {
+    USRest restSettings = (userSettings == null ? null : userSettings.getBiliomi().getRest());
+    return (restSettings == null ? new USRest() : restSettings);
+  }
+
+  private void configureListener(NetworkListener listener, USRest restSettings) {
+    int workerThreads = Math.max(1, restSettings.getWorkerThreads());
+    listener.getTransport().setWorkerThreadPoolConfig(ThreadPoolConfig.defaultConfig()
+        .setPoolName(DefaultThreadFactory.threadNameBuilder("RestServer"))
+        .setCorePoolSize(workerThreads)
+        .setMaxPoolSize(workerThreads)
+        .setQueueLimit(restSettings.getWorkerQueueSize()));
+
+    // Grizzly interrupts workers that exceed the transaction timeout
+    if (restSettings.getRequestTimeoutSeconds() > 0) {
+      listener.setTransactionTimeout(restSettings.getRequestTimeoutSeconds());
+    }
+
+    // The event stream is compressed by EventStreamGZipFilter, so it is not included in the mime types
+    if (restSettings.getCompressionMinSize() >= 0) {
+      CompressionConfig compressionConfig = listener.getCompressionConfig();
+      compressionConfig.setCompressionMode(CompressionConfig.CompressionMode.ON);
+      compressionConfig.setCompressionMinSize(restSettings.getCompressionMinSize());
+      compressionConfig.setCompressableMimeTypes(COMPRESSABLE_MIME_TYPES);
+    }
+
+    listener.getKeepAlive().setIdleTimeoutInSeconds(restSettings.getKeepAliveIdleTimeoutSeconds());
+    listener.getKeepAlive().setMaxRequestsCount(restSettings.getKeepAliveMaxRequests());
+  }
 }
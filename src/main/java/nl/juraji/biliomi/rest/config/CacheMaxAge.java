@@ -0,0 +1,23 @@
+package nl.juraji.biliomi.rest.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Allow clients to reuse responses of a resource for a while, without revalidating them.
+ * Responses of resources without this annotation are always revalidated, using their ETag.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface CacheMaxAge {
+
+  /**
+   * @return The amount of seconds clients may reuse a response
+   */
+  int value();
+}
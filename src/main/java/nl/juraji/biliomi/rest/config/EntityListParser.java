@@ -0,0 +1,265 @@
+package nl.juraji.biliomi.rest.config;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import nl.juraji.biliomi.utility.factories.marshalling.JacksonMarshaller;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.MatchMode;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.ProjectionList;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.type.Type;
+
+import javax.ws.rs.BadRequestException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Converts the filters, sorting and fields of ListParameters to criteria for an entity, see EntityListQuery.
+ * Properties are referred to by their JSON name or their name in Java,
+ * invalid parameters result in a BadRequestException.
+ */
+final class EntityListParser {
+  private static final String[] FILTER_OPERATORS = {">=", "<=", "!=", "=", ">", "<", "~"};
+  private static final Map<Class<?>, Map<String, String>> PROPERTY_NAMES = new ConcurrentHashMap<>();
+
+  private final ClassMetadata metadata;
+  private final ListParameters parameters;
+  private final Map<String, String> propertyNames;
+
+  EntityListParser(ClassMetadata metadata, Class<?> entityClass, ListParameters parameters) {
+    this.metadata = metadata;
+    this.parameters = parameters;
+    this.propertyNames = PROPERTY_NAMES.computeIfAbsent(entityClass, EntityListParser::mapJsonPropertyNames);
+  }
+
+  /**
+   * @return A criterion for each filter in the parameters
+   */
+  List<Criterion> getFilters() {
+    if (parameters.getFilters() == null) {
+      return Collections.emptyList();
+    }
+
+    return parameters.getFilters().stream()
+        .filter(StringUtils::isNotBlank)
+        .map(this::toCriterion)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Convert a filter like "Points&gt;=100" to a criterion
+   */
+  Criterion toCriterion(String filter) {
+    int operatorIndex = StringUtils.indexOfAny(filter, "<>!=~");
+    if (operatorIndex < 1) {
+      throw new BadRequestException("Invalid filter " + filter);
+    }
+
+    String operator = Arrays.stream(FILTER_OPERATORS)
+        .filter(o -> filter.startsWith(o, operatorIndex))
+        .findFirst()
+        .orElseThrow(() -> new BadRequestException("Invalid filter " + filter));
+
+    String property = resolveProperty(filter.substring(0, operatorIndex).trim());
+    String value = filter.substring(operatorIndex + operator.length()).trim();
+    Type type = getPropertyType(property);
+
+    if (type.isCollectionType()) {
+      throw new BadRequestException("Can not filter by " + filter.substring(0, operatorIndex).trim());
+    }
+
+    if (type.isAssociationType()) {
+      // Associated entities are compared by id, Hibernate resolves "id" to the identifier of the association
+      if (!"=".equals(operator) && !"!=".equals(operator)) {
+        throw new BadRequestException("Associations can only be filtered by = or !=");
+      }
+      property = property + ".id";
+      type = null;
+    }
+
+    Object typedValue = convertValue(value, (type == null ? Long.class : type.getReturnedClass()));
+
+    switch (operator) {
+      case "=":
+        return Restrictions.eq(property, typedValue);
+      case "!=":
+        return Restrictions.ne(property, typedValue);
+      case ">":
+        return Restrictions.gt(property, typedValue);
+      case ">=":
+        return Restrictions.ge(property, typedValue);
+      case "<":
+        return Restrictions.lt(property, typedValue);
+      case "<=":
+        return Restrictions.le(property, typedValue);
+      default:
+        if (!(typedValue instanceof String)) {
+          throw new BadRequestException("Only text can be filtered by ~");
+        }
+        return Restrictions.ilike(property, (String) typedValue, MatchMode.ANYWHERE);
+    }
+  }
+
+  /**
+   * Resolve the sort order and the cursor restriction
+   */
+  Ordering getOrdering() {
+    String idProperty = metadata.getIdentifierPropertyName();
+    List<Order> orders = new ArrayList<>();
+    boolean sortedById = true;
+    boolean descendingById = false;
+
+    if (StringUtils.isNotEmpty(parameters.getSort())) {
+      for (String sortProperty : StringUtils.split(parameters.getSort(), ',')) {
+        String name = sortProperty.trim();
+        boolean descending = name.startsWith("-");
+        String property = resolveProperty(descending ? name.substring(1) : name);
+
+        if (getPropertyType(property).isAssociationType()) {
+          throw new BadRequestException("Can not sort by " + name);
+        }
+
+        orders.add(descending ? Order.desc(property) : Order.asc(property));
+
+        if (property.equals(idProperty)) {
+          descendingById = descending;
+        } else if (parameters.getCursor() != null) {
+          throw new BadRequestException("A cursor can only be used when sorting by id");
+        } else {
+          sortedById = false;
+        }
+      }
+    } else {
+      orders.add(Order.asc(idProperty));
+    }
+
+    Criterion cursor = null;
+    if (parameters.getCursor() != null) {
+      cursor = (descendingById
+          ? Restrictions.lt(idProperty, parameters.getCursor())
+          : Restrictions.gt(idProperty, parameters.getCursor()));
+    }
+
+    return new Ordering(orders, cursor, sortedById);
+  }
+
+  /**
+   * @param idAlias The alias of the identifier, which is always selected
+   * @return A projection of the fields in the parameters
+   */
+  ProjectionList getProjection(String idAlias) {
+    ProjectionList projection = Projections.projectionList()
+        .add(Projections.property(metadata.getIdentifierPropertyName()), idAlias);
+
+    for (String field : StringUtils.split(parameters.getFields(), ',')) {
+      String property = resolveProperty(field.trim());
+
+      if (property.equals(metadata.getIdentifierPropertyName())) {
+        continue;
+      }
+
+      if (getPropertyType(property).isCollectionType()) {
+        throw new BadRequestException("Can not select " + field.trim());
+      }
+
+      projection.add(Projections.property(property), getJsonName(property));
+    }
+
+    return projection;
+  }
+
+  /**
+   * Resolve the name of a persistent property from its JSON name or its name in Java
+   */
+  String resolveProperty(String name) {
+    String property = propertyNames.getOrDefault(name, name);
+
+    if (!property.equals(metadata.getIdentifierPropertyName()) && !Arrays.asList(metadata.getPropertyNames()).contains(property)) {
+      throw new BadRequestException("Unknown property " + name);
+    }
+
+    return property;
+  }
+
+  String getJsonName(String property) {
+    return propertyNames.entrySet().stream()
+        .filter(entry -> entry.getValue().equals(property))
+        .map(Map.Entry::getKey)
+        .findFirst()
+        .orElse(property);
+  }
+
+  private Type getPropertyType(String property) {
+    if (property.equals(metadata.getIdentifierPropertyName())) {
+      return metadata.getIdentifierType();
+    }
+    return metadata.getPropertyType(property);
+  }
+
+  private static Object convertValue(String value, Class<?> type) {
+    try {
+      return JacksonMarshaller.getObjectMapper().convertValue(value, type);
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException("Invalid value " + value);
+    }
+  }
+
+  /**
+   * Map the JSON names of the properties of an entity to their names in Java
+   */
+  private static Map<String, String> mapJsonPropertyNames(Class<?> entityClass) {
+    ObjectMapper mapper = JacksonMarshaller.getObjectMapper();
+    BeanDescription description = mapper.getSerializationConfig().introspect(mapper.constructType(entityClass));
+    Map<String, String> names = new HashMap<>();
+
+    for (BeanPropertyDefinition property : description.findProperties()) {
+      names.put(property.getName(), property.getInternalName());
+    }
+
+    return Collections.unmodifiableMap(names);
+  }
+
+  static final class Ordering {
+    private final List<Order> orders;
+    private final Criterion cursor;
+    private final boolean sortedById;
+
+    private Ordering(List<Order> orders, Criterion cursor, boolean sortedById) {
+      this.orders = orders;
+      this.cursor = cursor;
+      this.sortedById = sortedById;
+    }
+
+    List<Order> getOrders() {
+      return orders;
+    }
+
+    /**
+     * @return The restriction for the cursor in the parameters, or null
+     */
+    Criterion getCursor() {
+      return cursor;
+    }
+
+    /**
+     * @return True if the entities are sorted by id only, so the next page can be fetched using a cursor
+     */
+    boolean isSortedById() {
+      return sortedById;
+    }
+  }
+}
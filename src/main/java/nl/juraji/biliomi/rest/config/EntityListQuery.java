@@ -0,0 +1,118 @@
+package nl.juraji.biliomi.rest.config;
+
+import nl.juraji.biliomi.utility.jpa.managed.ManagedCriteria;
+import org.apache.commons.beanutils.PropertyUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.FetchMode;
+import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.ProjectionList;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.metadata.ClassMetadata;
+
+import javax.persistence.EntityManagerFactory;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.Response;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Queries a page of entities, as described by ListParameters.
+ * Paging, sorting, filtering and projections are done by the database,
+ * projections only select the columns of the requested properties.
+ * <p>
+ * Collections of entities are fetched by separate selects, so they do not affect paging.
+ * Invalid parameters result in a BadRequestException, they are validated before any session is opened, see EntityListParser.
+ */
+final class EntityListQuery<T> {
+  private final EntityManagerFactory emf;
+  private final Class<T> entityClass;
+  private final ListParameters parameters;
+  private final ClassMetadata metadata;
+  private final EntityListParser parser;
+
+  EntityListQuery(EntityManagerFactory emf, Class<T> entityClass, ListParameters parameters) {
+    this.emf = emf;
+    this.entityClass = entityClass;
+    this.parameters = parameters;
+    this.metadata = emf.unwrap(SessionFactory.class).getClassMetadata(entityClass);
+
+    if (metadata == null) {
+      throw new IllegalArgumentException(entityClass.getName() + " is not an entity");
+    }
+
+    this.parser = new EntityListParser(metadata, entityClass, parameters);
+  }
+
+  /**
+   * Execute the query
+   *
+   * @param restrictions Restrictions to apply, besides the filters in the parameters
+   * @return An OK response with the page, or NO_CONTENT when the page is empty,
+   * with the total count of entities and the next cursor in the headers
+   * @throws Exception When an internal error occurs
+   */
+  Response execute(Consumer<ManagedCriteria<T>> restrictions) throws Exception {
+    List<Criterion> filters = parser.getFilters();
+    EntityListParser.Ordering ordering = parser.getOrdering();
+    String idAlias = parser.getJsonName(metadata.getIdentifierPropertyName());
+    ProjectionList projection = (StringUtils.isEmpty(parameters.getFields()) ? null : parser.getProjection(idAlias));
+
+    ManagedCriteria<T> countCriteria = new ManagedCriteria<>(emf, entityClass);
+    restrictions.accept(countCriteria);
+    filters.forEach(countCriteria::add);
+    long totalCount = countCriteria.getCount();
+
+    ManagedCriteria<T> criteria = new ManagedCriteria<>(emf, entityClass);
+    restrictions.accept(criteria);
+    filters.forEach(criteria::add);
+    ordering.getOrders().forEach(criteria::addOrder);
+    if (ordering.getCursor() != null) {
+      criteria.add(ordering.getCursor());
+    }
+
+    if (parameters.getOffset() != null) {
+      criteria.setFirstResult(Math.max(0, parameters.getOffset()));
+    }
+
+    if (parameters.getLimit() != null) {
+      criteria.setMaxResults(Math.max(0, parameters.getLimit()));
+    }
+
+    List<?> page;
+    Object lastId = null;
+
+    if (projection == null) {
+      for (String propertyName : metadata.getPropertyNames()) {
+        if (metadata.getPropertyType(propertyName).isCollectionType()) {
+          criteria.setFetchMode(propertyName, FetchMode.SELECT);
+        }
+      }
+
+      List<T> entities = criteria.getList();
+      if (!entities.isEmpty()) {
+        lastId = PropertyUtils.getProperty(entities.get(entities.size() - 1), metadata.getIdentifierPropertyName());
+      }
+      page = entities;
+    } else {
+      List<Map<String, Object>> rows = criteria
+          .setProjection(projection, entityClass)
+          .getMapList();
+      if (!rows.isEmpty()) {
+        lastId = rows.get(rows.size() - 1).get(idAlias);
+      }
+      page = rows;
+    }
+
+    // Without a cursor the total count tells whether this is the last page
+    int offset = (parameters.getOffset() == null ? 0 : Math.max(0, parameters.getOffset()));
+    boolean hasNextPage = ordering.isSortedById() && parameters.getLimit() != null && parameters.getLimit() > 0 && page.size() == parameters.getLimit()
+        && (parameters.getCursor() != null || offset + page.size() < totalCount);
+    return Responses.page(page, totalCount, (hasNextPage ? lastId : null));
+  }
+}
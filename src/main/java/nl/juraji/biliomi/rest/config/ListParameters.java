@@ -0,0 +1,111 @@
+package nl.juraji.biliomi.rest.config;
+
+import javax.ws.rs.QueryParam;
+import java.util.List;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Query parameters for paging, sorting, filtering and projecting lists of entities.
+ * Properties are referred to by their name in JSON, like "Username" or "UserGroup".
+ * <ul>
+ * <li>offset: The amount of entities to skip</li>
+ * <li>limit: The maximum amount of entities to return</li>
+ * <li>cursor: Only return entities after the entity with this id, see the X-Next-Cursor response header</li>
+ * <li>sort: A comma separated list of properties to sort by, prefix a property with "-" to sort descending</li>
+ * <li>fields: A comma separated list of properties to return, the id is always returned</li>
+ * <li>filter: A filter like "Points&gt;=100", operators are =, !=, &gt;, &gt;=, &lt;, &lt;= and ~ (contains),
+ * repeat the parameter to apply multiple filters</li>
+ * </ul>
+ */
+public class ListParameters {
+
+  @QueryParam("offset")
+  private Integer offset;
+
+  @QueryParam("limit")
+  private Integer limit;
+
+  @QueryParam("cursor")
+  private Long cursor;
+
+  @QueryParam("sort")
+  private String sort;
+
+  @QueryParam("fields")
+  private String fields;
+
+  @QueryParam("filter")
+  private List<String> filters;
+
+  public Integer getOffset() {
+    return offset;
+  }
+
+  public void setOffset(Integer offset) {
+    this.offset = offset;
+  }
+
+  public Integer getLimit() {
+    return limit;
+  }
+
+  public void setLimit(Integer limit) {
+    this.limit = limit;
+  }
+
+  public Long getCursor() {
+    return cursor;
+  }
+
+  public void setCursor(Long cursor) {
+    this.cursor = cursor;
+  }
+
+  public String getSort() {
+    return sort;
+  }
+
+  public void setSort(String sort) {
+    this.sort = sort;
+  }
+
+  public String getFields() {
+    return fields;
+  }
+
+  public void setFields(String fields) {
+    this.fields = fields;
+  }
+
+  public List<String> getFilters() {
+    return filters;
+  }
+
+  public void setFilters(List<String> filters) {
+    this.filters = filters;
+  }
+
+  /**
+   * @return True if none of the parameters are set, in which case the whole list is requested
+   */
+  public boolean isEmpty() {
+    return offset == null
+        && limit == null
+        && cursor == null
+        && sort == null
+        && fields == null
+        && (filters == null || filters.isEmpty());
+  }
+
+  /**
+   * @return True if only offset and/or limit are set
+   */
+  public boolean isOffsetOnly() {
+    return cursor == null
+        && sort == null
+        && fields == null
+        && (filters == null || filters.isEmpty());
+  }
+}
@@ -1,22 +1,46 @@
 package nl.juraji.biliomi.rest.config;
 
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nl.juraji.biliomi.model.internal.rest.BatchOperation;
+import nl.juraji.biliomi.model.internal.rest.BatchOperationResult;
 import nl.juraji.biliomi.utility.estreams.EStream;
+import nl.juraji.biliomi.utility.factories.marshalling.JacksonMarshaller;
+import nl.juraji.biliomi.utility.jpa.managed.ManagedBatch;
+import nl.juraji.biliomi.utility.jpa.managed.ManagedCriteria;
 import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.HibernateException;
 import org.hibernate.exception.ConstraintViolationException;
 
+import javax.inject.Inject;
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
  * Created by Juraji on 13-6-2017.
  * Biliomi v3
  */
 public abstract class ModelRestService<T> {
+  private static final int MAX_BATCH_SIZE = 500;
+  private static final Map<Class<?>, List<Field>> NOT_NULL_FIELDS = new ConcurrentHashMap<>();
+
+  @Inject
+  private EntityManagerFactory emf;
 
   public abstract List<T> getEntities();
 
@@ -28,17 +52,47 @@ public abstract class ModelRestService<T> {
 
   public abstract boolean deleteEntity(long id);
 
+  /**
+   * Restrict the entities listed when a page of entities is requested.
+   * Services which restrict getEntities() should apply the same restrictions here.
+   *
+   * @param criteria The criteria for the page
+   */
+  protected void restrictEntities(ManagedCriteria<T> criteria) {
+    // No restrictions by default
+  }
+
   /**
    * Get a list of entities
    * (path "/" is implied by Jersey)
+   * When any of the list parameters are set a page of entities is queried from the database,
+   * the total amount of entities is set in the X-Total-Count header.
    *
+   * @param listParameters Parameters for paging, sorting, filtering and projecting the list
    * @return An OK response with a list of entities or NO_CONTENT on empty result
    * @throws Exception When an internal error occurs
    */
   @GET
   @Produces(MediaType.APPLICATION_JSON)
-  public Response restGetEntities() throws Exception {
-    return Responses.okOrEmpty(getEntities());
+  public Response restGetEntities(@BeanParam ListParameters listParameters) throws Exception {
+    if (listParameters == null || listParameters.isEmpty()) {
+      return Responses.okOrEmpty(getEntities());
+    }
+
+    Class<T> entityClass = getEntityClass();
+    if (entityClass.isAnnotationPresent(Entity.class)) {
+      return new EntityListQuery<>(emf, entityClass, listParameters).execute(this::restrictEntities);
+    }
+
+    // Lists of types that are not entities can only be paged
+    if (!listParameters.isOffsetOnly()) {
+      return Responses.badRequest();
+    }
+
+    List<T> entities = getEntities();
+    int fromIndex = Math.min(entities.size(), Math.max(0, listParameters.getOffset() == null ? 0 : listParameters.getOffset()));
+    int toIndex = (listParameters.getLimit() == null ? entities.size() : Math.min(entities.size(), fromIndex + Math.max(0, listParameters.getLimit())));
+    return Responses.page(entities.subList(fromIndex, toIndex), entities.size(), null);
   }
 
   /**
@@ -66,17 +120,10 @@ public abstract class ModelRestService<T> {
   @Consumes(MediaType.APPLICATION_JSON)
   @Produces(MediaType.APPLICATION_JSON)
   public Response restCreateEntity(T e) throws Exception {
-    if (e == null || checkNotNullProperties(e)) {
+    if (e == null || checkNotNullProperties(e) || hasPersistedId(e)) {
       return Responses.badRequest();
     }
 
-    Object id = PropertyUtils.getProperty(e, "id");
-    if (id != null) {
-      if (Long.class.isAssignableFrom(id.getClass()) && (long) id > 0) {
-        return Responses.badRequest();
-      }
-    }
-
     try {
       T entity = createEntity(e);
 
@@ -142,15 +189,200 @@ public abstract class ModelRestService<T> {
     }
   }
 
+  /**
+   * Create, update and delete entities in a single transaction
+   * All operations are validated before any of them is applied, when any operation is invalid or fails none of them are applied.
+   * The response contains a result for each operation, in the order of the request.
+   *
+   * @param body A JSON array of operations
+   * @return An OK response with the results, BAD_REQUEST when any operation is invalid, CONFLICT when any operation failed
+   * or INTERNAL_SERVER_ERROR when the batch failed unexpectedly
+   * @throws Exception When an internal error occurs
+   */
+  @POST
+  @Path("/batch")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response restBatch(JsonNode body) throws Exception {
+    List<BatchOperation<T>> operations = readBatchOperations(body);
+    if (operations == null || operations.isEmpty() || operations.size() > MAX_BATCH_SIZE) {
+      return Responses.badRequest();
+    }
+
+    List<BatchOperationResult> results = new ArrayList<>(operations.size());
+    boolean allValid = true;
+    for (int i = 0; i < operations.size(); i++) {
+      boolean valid = isValidBatchOperation(operations.get(i));
+      results.add(new BatchOperationResult(i, valid ? BatchOperationResult.FAILED_DEPENDENCY : Response.Status.BAD_REQUEST.getStatusCode()));
+      allValid &= valid;
+    }
+
+    if (!allValid) {
+      return Response.status(Response.Status.BAD_REQUEST).entity(results).build();
+    }
+
+    ManagedBatch batch = new ManagedBatch(emf);
+    Response.Status failureStatus = Response.Status.CONFLICT;
+    try {
+      batch.execute(() -> {
+        for (int i = 0; i < operations.size() && !batch.isRollbackOnly(); i++) {
+          if (!applyBatchOperation(operations.get(i), results.get(i))) {
+            batch.setRollbackOnly();
+          }
+        }
+        return null;
+      });
+    } catch (HibernateException e) {
+      // Updates and deletes are flushed on commit, so they fail as a whole
+      batch.setRollbackOnly();
+      results.forEach(result -> result.setStatus(BatchOperationResult.FAILED_DEPENDENCY));
+    } catch (RuntimeException e) {
+      // The batch was rolled back, none of the operations were applied
+      batch.setRollbackOnly();
+      failureStatus = Response.Status.INTERNAL_SERVER_ERROR;
+      results.forEach(result -> result.setStatus(BatchOperationResult.FAILED_DEPENDENCY));
+    }
+
+    if (batch.isRollbackOnly()) {
+      results.stream()
+          .filter(result -> result.getStatus() == Response.Status.OK.getStatusCode())
+          .forEach(result -> result.setStatus(BatchOperationResult.FAILED_DEPENDENCY));
+      results.forEach(result -> result.setEntity(null));
+      return Response.status(failureStatus).entity(results).build();
+    }
+
+    return Responses.ok(results);
+  }
+
+  /**
+   * Resolve the type of the entities of this service from the type argument of ModelRestService
+   *
+   * @return The entity class
+   */
+  @SuppressWarnings("unchecked")
+  private Class<T> getEntityClass() {
+    for (Class<?> type = getClass(); type != null; type = type.getSuperclass()) {
+      Type superType = type.getGenericSuperclass();
+
+      if (superType instanceof ParameterizedType && ((ParameterizedType) superType).getRawType() == ModelRestService.class) {
+        return (Class<T>) ((ParameterizedType) superType).getActualTypeArguments()[0];
+      }
+    }
+
+    throw new IllegalStateException("Could not resolve the entity type of " + getClass().getName());
+  }
+
+  /**
+   * Read the operations of a batch request as operations on the entity type of this service
+   *
+   * @param body The request body
+   * @return The operations or null when the body is not a valid list of operations
+   */
+  private List<BatchOperation<T>> readBatchOperations(JsonNode body) {
+    if (body == null || !body.isArray()) {
+      return null;
+    }
+
+    ObjectMapper mapper = JacksonMarshaller.getObjectMapper();
+    JavaType operationType = mapper.getTypeFactory().constructParametricType(BatchOperation.class, getEntityClass());
+
+    try {
+      return mapper.convertValue(body, mapper.getTypeFactory().constructCollectionType(List.class, operationType));
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Validate a batch operation like its single request would be validated
+   *
+   * @param operation The operation to validate
+   * @return True if the operation can be applied, else False
+   * @throws Exception When an internal error occurs
+   */
+  private boolean isValidBatchOperation(BatchOperation<T> operation) throws Exception {
+    if (operation == null || operation.getOperation() == null) {
+      return false;
+    }
+
+    T entity = operation.getEntity();
+    boolean hasId = (operation.getId() != null && operation.getId() > 0);
+
+    switch (operation.getOperation()) {
+      case CREATE:
+        return entity != null && !checkNotNullProperties(entity) && !hasPersistedId(entity);
+      case UPDATE:
+        return hasId && entity != null && !checkNotNullProperties(entity);
+      case DELETE:
+        return hasId;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Apply a batch operation, setting its result
+   *
+   * @param operation The operation to apply
+   * @param result    The result of the operation
+   * @return True if the operation succeeded, else False
+   */
+  private boolean applyBatchOperation(BatchOperation<T> operation, BatchOperationResult result) {
+    Response.Status status;
+
+    try {
+      switch (operation.getOperation()) {
+        case CREATE:
+          result.setEntity(createEntity(operation.getEntity()));
+          status = (result.getEntity() == null ? Response.Status.NOT_MODIFIED : Response.Status.OK);
+          break;
+        case UPDATE:
+          result.setEntity(updateEntity(operation.getEntity(), operation.getId()));
+          status = (result.getEntity() == null ? Response.Status.NOT_MODIFIED : Response.Status.OK);
+          break;
+        default:
+          status = (deleteEntity(operation.getId()) ? Response.Status.OK : Response.Status.NOT_MODIFIED);
+          break;
+      }
+    } catch (WebApplicationException e) {
+      // Operations not supported by this service
+      result.setStatus(e.getResponse().getStatus());
+      return false;
+    } catch (ConstraintViolationException e) {
+      status = Response.Status.CONFLICT;
+    } catch (HibernateException e) {
+      status = Response.Status.NOT_MODIFIED;
+    }
+
+    result.setStatus(status.getStatusCode());
+    return status == Response.Status.OK;
+  }
+
+  /**
+   * Check if an entity already has a database identifier
+   *
+   * @param object The object to check
+   * @return True if the id property is set, else False
+   * @throws Exception When the id property could not be read
+   */
+  private boolean hasPersistedId(T object) throws Exception {
+    Object id = PropertyUtils.getProperty(object, "id");
+    return id != null && Long.class.isAssignableFrom(id.getClass()) && (long) id > 0;
+  }
+
   /**
    * Check if any of the @NotNull properties is null or empty
+   * The @NotNull fields of each class are looked up once
    *
    * @param object The object to check
    * @return True if a NotNull proeprty is null or empty, else False
    */
   protected boolean checkNotNullProperties(T object) {
-    return EStream.from(object.getClass().getDeclaredFields())
+    List<Field> notNullFields = NOT_NULL_FIELDS.computeIfAbsent(object.getClass(), type -> Arrays.stream(type.getDeclaredFields())
         .filter(field -> field.isAnnotationPresent(NotNull.class))
+        .collect(Collectors.toList()));
+
+    return EStream.from(notNullFields)
         .anyMatch(field -> {
           Object property = PropertyUtils.getProperty(object, field.getName());
           return property == null || (String.class.isAssignableFrom(property.getClass()) && StringUtils.isEmpty((String) property));
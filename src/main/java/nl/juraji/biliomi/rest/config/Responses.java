@@ -3,12 +3,15 @@ package nl.juraji.biliomi.rest.config;
 
 import javax.ws.rs.core.Response;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Created by Juraji on 16-6-2017.
  * Biliomi v3
  */
 public final class Responses {
+  public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
   /**
    * Returned when the request succeeded
@@ -43,6 +46,25 @@ public final class Responses {
     return ok(entity);
   }
 
+  /**
+   * Returned when a page of a list was requested
+   *
+   * @param page       The entities in the page
+   * @param totalCount The amount of entities in the whole list
+   * @param nextCursor The cursor of the next page or null if there is no next page
+   * @return A Response object
+   */
+  public static Response page(List<?> page, long totalCount, Object nextCursor) {
+    Response.ResponseBuilder builder = (page.isEmpty() ? Response.noContent() : Response.ok(page))
+        .header(TOTAL_COUNT_HEADER, totalCount);
+
+    if (nextCursor != null) {
+      builder.header(NEXT_CURSOR_HEADER, nextCursor);
+    }
+
+    return builder.build();
+  }
+
   /**
    * When a request succeeded but yielded epmty content
    *
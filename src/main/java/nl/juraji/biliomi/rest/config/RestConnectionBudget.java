@@ -0,0 +1,68 @@
+package nl.juraji.biliomi.rest.config;
+
+import nl.juraji.biliomi.model.internal.yaml.usersettings.biliomi.USRest;
+import nl.juraji.biliomi.utility.jpa.managed.ConnectionBudget;
+import org.glassfish.hk2.utilities.binding.AbstractBinder;
+import org.glassfish.jersey.server.model.Invocable;
+import org.glassfish.jersey.server.spi.internal.ResourceMethodInvocationHandlerProvider;
+
+import java.lang.reflect.InvocationHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Limits the amount of database connections used by requests at once, as configured in the REST user settings.
+ * The connection budget is entered and exited around the invocation of the resource method, on the thread that runs it,
+ * so a permit can never be left behind on a worker thread.
+ * <p>
+ * Register the binder of this class with the resource config, Jersey only looks up invocation handler providers
+ * that are bound as a service.
+ */
+public final class RestConnectionBudget implements ResourceMethodInvocationHandlerProvider {
+  private static final long DEFAULT_CONNECTION_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+  private final Semaphore connectionPermits;
+  private final long connectionTimeoutMillis;
+
+  public RestConnectionBudget(USRest settings) {
+    this.connectionPermits = (settings.getMaxDatabaseConnections() > 0 ? new Semaphore(settings.getMaxDatabaseConnections(), true) : null);
+    this.connectionTimeoutMillis = (settings.getRequestTimeoutSeconds() > 0
+        ? TimeUnit.SECONDS.toMillis(settings.getRequestTimeoutSeconds())
+        : DEFAULT_CONNECTION_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * @return A binder registering this provider with Jersey
+   */
+  public AbstractBinder binder() {
+    return new AbstractBinder() {
+      @Override
+      protected void configure() {
+        bind(RestConnectionBudget.this).to(ResourceMethodInvocationHandlerProvider.class);
+      }
+    };
+  }
+
+  /**
+   * @return An invocation handler running the resource method within the budget,
+   * or null when there is no limit, so Jersey uses its default handler
+   */
+  @Override
+  public InvocationHandler create(Invocable invocable) {
+    if (connectionPermits == null) {
+      return null;
+    }
+
+    return (resource, method, args) -> {
+      ConnectionBudget.enter(connectionPermits, connectionTimeoutMillis);
+      try {
+        return method.invoke(resource, args);
+      } finally {
+        ConnectionBudget.exit();
+      }
+    };
+  }
+}
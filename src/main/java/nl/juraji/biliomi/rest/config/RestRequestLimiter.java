@@ -0,0 +1,94 @@
+package nl.juraji.biliomi.rest.config;
+
+import nl.juraji.biliomi.model.internal.yaml.usersettings.biliomi.USRest;
+import org.glassfish.jersey.media.sse.SseFeature;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ExtendedUriInfo;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Limits the amount of requests each endpoint handles at once, as configured in the REST user settings.
+ * Requests to an endpoint that is at its limit are answered with 503 (Service Unavailable) and a Retry-After header.
+ * <p>
+ * Permits are returned when Jersey finishes the request, after the response was written.
+ * Database connections are limited by RestConnectionBudget.
+ * The event stream holds its connection open, so it is never limited.
+ */
+@Priority(Priorities.USER)
+public final class RestRequestLimiter implements ContainerRequestFilter, ApplicationEventListener {
+  private static final String ENDPOINT_PERMITS_PROPERTY = RestRequestLimiter.class.getName() + ".endpointPermits";
+  private static final int RETRY_AFTER_SECONDS = 1;
+
+  private final Map<Method, Semaphore> endpointPermits = new ConcurrentHashMap<>();
+  private final int maxConcurrentRequestsPerEndpoint;
+
+  public RestRequestLimiter(USRest settings) {
+    this.maxConcurrentRequestsPerEndpoint = settings.getMaxConcurrentRequestsPerEndpoint();
+  }
+
+  @Override
+  public void filter(ContainerRequestContext requestContext) {
+    ResourceMethod resourceMethod = ((ExtendedUriInfo) requestContext.getUriInfo()).getMatchedResourceMethod();
+    if (maxConcurrentRequestsPerEndpoint <= 0 || resourceMethod == null || isEventStream(resourceMethod)) {
+      return;
+    }
+
+    Method method = resourceMethod.getInvocable().getDefinitionMethod();
+    Semaphore permits = endpointPermits.computeIfAbsent(method, m -> new Semaphore(maxConcurrentRequestsPerEndpoint));
+
+    if (!permits.tryAcquire()) {
+      requestContext.abortWith(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+          .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+          .build());
+      return;
+    }
+
+    requestContext.setProperty(ENDPOINT_PERMITS_PROPERTY, permits);
+  }
+
+  @Override
+  public void onEvent(ApplicationEvent event) {
+    // Only request events are of interest
+  }
+
+  @Override
+  public RequestEventListener onRequest(RequestEvent requestEvent) {
+    return this::onRequestEvent;
+  }
+
+  private void onRequestEvent(RequestEvent event) {
+    ContainerRequest request = event.getContainerRequest();
+    if (event.getType() != RequestEvent.Type.FINISHED || request == null) {
+      return;
+    }
+
+    Semaphore permits = (Semaphore) request.getProperty(ENDPOINT_PERMITS_PROPERTY);
+    if (permits != null) {
+      request.removeProperty(ENDPOINT_PERMITS_PROPERTY);
+      permits.release();
+    }
+  }
+
+  private static boolean isEventStream(ResourceMethod resourceMethod) {
+    return resourceMethod.getProducedTypes().stream()
+        .anyMatch(mediaType -> mediaType.isCompatible(SseFeature.SERVER_SENT_EVENTS_TYPE) && !mediaType.isWildcardType());
+  }
+}
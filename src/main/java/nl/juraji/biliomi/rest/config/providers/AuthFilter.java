@@ -2,12 +2,10 @@ package nl.juraji.biliomi.rest.config.providers;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
-import nl.juraji.biliomi.model.core.settings.SettingsDao;
-import nl.juraji.biliomi.model.core.security.ApiSecuritySettings;
 import nl.juraji.biliomi.model.internal.rest.auth.RestAuthorizationResponse;
 import nl.juraji.biliomi.rest.config.RestRequestInfoHolder;
 import nl.juraji.biliomi.utility.factories.marshalling.JacksonMarshaller;
-import nl.juraji.biliomi.utility.security.JWTGenerator;
+import nl.juraji.biliomi.utility.security.ApiSecurityCache;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpMethod;
@@ -36,14 +34,11 @@ public class AuthFilter implements ContainerRequestFilter {
   protected static final String OPTIONS_METHOD = HttpMethod.OPTIONS.toString();
   private static final String APPLICATION_WADL_PATH = "application.wadl";
 
-  @Inject
-  private SettingsDao settingsDao;
-
   @Context
   private ResourceInfo resourceInfo;
 
   @Inject
-  private JWTGenerator jwtGenerator;
+  private ApiSecurityCache apiSecurityCache;
 
   @Override
   public void filter(ContainerRequestContext requestContext) throws IOException {
@@ -58,20 +53,12 @@ public class AuthFilter implements ContainerRequestFilter {
       authorizationToken = queryParameters.getFirst("token");
     }
 
-    ApiSecuritySettings settings = settingsDao.getSettings(ApiSecuritySettings.class);
     RestAuthorizationResponse fault = null;
 
     try {
       RestRequestInfoHolder.RequestInfo requestInfo = RestRequestInfoHolder.getRequestInfo();
-      Claims claims = jwtGenerator.validateToken(settings.getSecret(), authorizationToken);
-
-      boolean userNonExistent = settings.getLogins().stream()
-          .noneMatch(apiLogin -> apiLogin.getUser().getDisplayName().equals(claims.getSubject()));
-
-      if (userNonExistent) {
-        throw new JwtException("No login known for user " + claims.getSubject());
-      }
-
+      // Verified tokens are cached, so polling clients do not verify their token on every request
+      Claims claims = apiSecurityCache.verifyToken(authorizationToken);
       requestInfo.setUsername(claims.getSubject());
     } catch (IllegalArgumentException e) {
       fault = new RestAuthorizationResponse();
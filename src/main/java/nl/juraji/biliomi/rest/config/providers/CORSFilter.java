@@ -1,5 +1,7 @@
 package nl.juraji.biliomi.rest.config.providers;
 
+import nl.juraji.biliomi.rest.config.Responses;
+
 import javax.annotation.Priority;
 import javax.ws.rs.Priorities;
 import javax.ws.rs.container.ContainerRequestContext;
@@ -21,8 +23,9 @@ public class CORSFilter implements ContainerResponseFilter {
     MultivaluedMap<String, Object> headers = containerResponseContext.getHeaders();
 
     headers.add("Access-Control-Allow-Origin", containerRequestContext.getHeaders().getFirst("Origin"));
-    headers.add("Access-Control-Allow-Headers", "origin, content-type, accept, authorization");
+    headers.add("Access-Control-Allow-Headers", "origin, content-type, accept, authorization, if-none-match");
     headers.add("Access-Control-Allow-Credentials", "true");
     headers.add("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS, HEAD");
+    headers.add("Access-Control-Expose-Headers", Responses.TOTAL_COUNT_HEADER + ", " + Responses.NEXT_CURSOR_HEADER + ", ETag");
   }
 }
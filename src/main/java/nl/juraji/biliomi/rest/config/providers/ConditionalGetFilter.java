@@ -0,0 +1,130 @@
+package nl.juraji.biliomi.rest.config.providers;
+
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
+import nl.juraji.biliomi.rest.config.CacheMaxAge;
+import nl.juraji.biliomi.utility.factories.marshalling.JacksonMarshaller;
+import org.apache.commons.lang3.StringUtils;
+import org.glassfish.jersey.server.ChunkedOutput;
+
+import javax.annotation.Priority;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.Provider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Adds weak ETags and Cache-Control headers to JSON responses of GET requests,
+ * and answers requests with a matching If-None-Match header with NOT_MODIFIED.
+ * <p>
+ * The ETag is a hash of the JSON, computed while serializing the entity.
+ * The serialized JSON is used as the response body, so the entity is not serialized twice.
+ */
+@Provider
+@Priority(Priorities.HEADER_DECORATOR)
+public class ConditionalGetFilter implements ContainerResponseFilter {
+  private static final String REVALIDATE = "private, no-cache";
+  private static final String MAX_AGE = "private, max-age=";
+
+  @Context
+  private ResourceInfo resourceInfo;
+
+  @Override
+  public void filter(ContainerRequestContext containerRequestContext, ContainerResponseContext containerResponseContext) throws IOException {
+    String method = containerRequestContext.getMethod();
+    if (!HttpMethod.GET.equals(method) && !HttpMethod.HEAD.equals(method)) {
+      return;
+    }
+
+    if (containerResponseContext.getStatus() != Response.Status.OK.getStatusCode() || !isJsonEntity(containerResponseContext)) {
+      return;
+    }
+
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    HashingOutputStream hashingOutputStream = new HashingOutputStream(Hashing.murmur3_128(), body);
+    Object entity = containerResponseContext.getEntity();
+
+    if (entity instanceof String) {
+      hashingOutputStream.write(((String) entity).getBytes(StandardCharsets.UTF_8));
+    } else {
+      JacksonMarshaller.getObjectMapper().writeValue(hashingOutputStream, entity);
+    }
+
+    String eTag = "W/\"" + hashingOutputStream.hash().toString() + "\"";
+    containerResponseContext.getHeaders().putSingle(HttpHeaders.ETAG, eTag);
+    containerResponseContext.getHeaders().putSingle(HttpHeaders.CACHE_CONTROL, getCacheControl());
+
+    if (matchesETag(containerRequestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH), eTag)) {
+      containerResponseContext.setStatus(Response.Status.NOT_MODIFIED.getStatusCode());
+      containerResponseContext.setEntity(null);
+      containerResponseContext.getHeaders().remove(HttpHeaders.CONTENT_TYPE);
+    } else {
+      containerResponseContext.setEntity(body.toByteArray(), containerResponseContext.getEntityAnnotations(), containerResponseContext.getMediaType());
+    }
+  }
+
+  private boolean isJsonEntity(ContainerResponseContext containerResponseContext) {
+    Object entity = containerResponseContext.getEntity();
+    MediaType mediaType = containerResponseContext.getMediaType();
+
+    return entity != null
+        && mediaType != null
+        && MediaType.APPLICATION_JSON_TYPE.isCompatible(mediaType)
+        && !(entity instanceof ChunkedOutput)
+        && !(entity instanceof StreamingOutput)
+        && !(entity instanceof InputStream)
+        && !(entity instanceof File)
+        && !(entity instanceof byte[]);
+  }
+
+  private String getCacheControl() {
+    Method resourceMethod = resourceInfo.getResourceMethod();
+    CacheMaxAge cacheMaxAge = null;
+
+    if (resourceMethod != null) {
+      cacheMaxAge = resourceMethod.getAnnotation(CacheMaxAge.class);
+    }
+
+    if (cacheMaxAge == null && resourceInfo.getResourceClass() != null) {
+      cacheMaxAge = resourceInfo.getResourceClass().getAnnotation(CacheMaxAge.class);
+    }
+
+    return (cacheMaxAge == null ? REVALIDATE : MAX_AGE + cacheMaxAge.value());
+  }
+
+  /**
+   * Weak comparison of the ETags in an If-None-Match header to an ETag
+   */
+  private static boolean matchesETag(String ifNoneMatch, String eTag) {
+    if (StringUtils.isEmpty(ifNoneMatch)) {
+      return false;
+    }
+
+    String opaqueTag = StringUtils.removeStart(eTag, "W/");
+    for (String tag : StringUtils.split(ifNoneMatch, ',')) {
+      String candidate = tag.trim();
+      if ("*".equals(candidate) || opaqueTag.equals(StringUtils.removeStart(candidate, "W/"))) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+}
@@ -0,0 +1,67 @@
+package nl.juraji.biliomi.rest.config.providers;
+
+import org.apache.commons.lang3.StringUtils;
+import org.glassfish.jersey.media.sse.SseFeature;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Compresses event streams for clients accepting gzip.
+ * The stream is flushed with every write, so events are not held back by the compressor.
+ */
+@Provider
+@Priority(Priorities.ENTITY_CODER)
+public class EventStreamGZipFilter implements ContainerResponseFilter, WriterInterceptor {
+  private static final String GZIP = "gzip";
+
+  @Override
+  public void filter(ContainerRequestContext containerRequestContext, ContainerResponseContext containerResponseContext) throws IOException {
+    MediaType mediaType = containerResponseContext.getMediaType();
+
+    if (mediaType != null && SseFeature.SERVER_SENT_EVENTS_TYPE.isCompatible(mediaType)) {
+      containerResponseContext.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+      if (acceptsGZip(containerRequestContext.getHeaderString(HttpHeaders.ACCEPT_ENCODING))) {
+        containerResponseContext.getHeaders().putSingle(HttpHeaders.CONTENT_ENCODING, GZIP);
+      }
+    }
+  }
+
+  @Override
+  public void aroundWriteTo(WriterInterceptorContext writerInterceptorContext) throws IOException {
+    if (GZIP.equals(writerInterceptorContext.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING))) {
+      writerInterceptorContext.setOutputStream(new GZIPOutputStream(writerInterceptorContext.getOutputStream(), true));
+    }
+
+    writerInterceptorContext.proceed();
+  }
+
+  private static boolean acceptsGZip(String acceptEncoding) {
+    if (StringUtils.isEmpty(acceptEncoding)) {
+      return false;
+    }
+
+    for (String encoding : StringUtils.split(acceptEncoding, ',')) {
+      String[] parts = StringUtils.split(encoding, ';');
+      if (parts.length > 0 && GZIP.equalsIgnoreCase(parts[0].trim())) {
+        return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+      }
+    }
+
+    return false;
+  }
+}
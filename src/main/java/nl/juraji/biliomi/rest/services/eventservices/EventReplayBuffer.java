@@ -0,0 +1,95 @@
+package nl.juraji.biliomi.rest.services.eventservices;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * A ring buffer of recently marshalled events, bounded by count and by age.
+ * Events get increasing ids, so clients can resume the stream after the last event they received.
+ * Ids are seeded with the current time, so they keep increasing when Biliomi restarts.
+ * <p>
+ * Not thread safe, callers synchronize on the buffer.
+ */
+final class EventReplayBuffer {
+  private final MarshalledEvent[] events;
+  private final long maxAgeMillis;
+
+  private long lastEventId = System.currentTimeMillis();
+  private int head;
+  private int size;
+
+  /**
+   * @param capacity     The maximum amount of events to keep
+   * @param maxAgeMillis The maximum age of events to keep
+   */
+  EventReplayBuffer(int capacity, long maxAgeMillis) {
+    this.events = new MarshalledEvent[capacity];
+    this.maxAgeMillis = maxAgeMillis;
+  }
+
+  /**
+   * Assign the next id to an event and add it to the buffer
+   *
+   * @param typeNames The names of the event type and its base types
+   * @param data      The marshalled event
+   * @return The event with its id
+   */
+  MarshalledEvent add(Set<String> typeNames, String data) {
+    MarshalledEvent event = new MarshalledEvent(++lastEventId, typeNames, data);
+
+    if (size == events.length) {
+      events[head] = event;
+      head = (head + 1) % events.length;
+    } else {
+      events[(head + size) % events.length] = event;
+      ++size;
+    }
+
+    return event;
+  }
+
+  /**
+   * Get the buffered events after an event.
+   * When that event is no longer buffered all buffered events are returned.
+   *
+   * @param eventId The id of the event
+   * @return The events after the given event, oldest first
+   */
+  List<MarshalledEvent> getEventsAfter(long eventId) {
+    evictExpired();
+
+    if (size == 0 || eventId >= lastEventId) {
+      return Collections.emptyList();
+    }
+
+    // Ids in the buffer are consecutive, so the position of an event follows from its id
+    long oldestEventId = events[head].getId();
+    int start = (int) Math.max(0, eventId - oldestEventId + 1);
+
+    List<MarshalledEvent> result = new ArrayList<>(size - start);
+    for (int i = start; i < size; i++) {
+      result.add(events[(head + i) % events.length]);
+    }
+
+    return result;
+  }
+
+  long getLastEventId() {
+    return lastEventId;
+  }
+
+  private void evictExpired() {
+    long expiredBefore = System.currentTimeMillis() - maxAgeMillis;
+
+    while (size > 0 && events[head].getCreatedAt() < expiredBefore) {
+      events[head] = null;
+      head = (head + 1) % events.length;
+      --size;
+    }
+  }
+}
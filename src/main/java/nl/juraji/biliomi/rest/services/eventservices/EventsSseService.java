@@ -4,54 +4,194 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.common.eventbus.Subscribe;
 import nl.juraji.biliomi.utility.events.Event;
 import nl.juraji.biliomi.utility.events.interceptors.EventBusSubscriber;
+import nl.juraji.biliomi.utility.factories.concurrent.ThreadPools;
 import nl.juraji.biliomi.utility.factories.marshalling.JacksonMarshaller;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.logging.log4j.Logger;
 import org.glassfish.jersey.media.sse.EventOutput;
-import org.glassfish.jersey.media.sse.OutboundEvent;
-import org.glassfish.jersey.media.sse.SseBroadcaster;
 import org.glassfish.jersey.media.sse.SseFeature;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
-import javax.ws.rs.core.MediaType;
+import javax.ws.rs.QueryParam;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Created by Juraji on 14-6-2017.
  * Biliomi v3
+ * <p>
+ * Streams events from the event bus to connected clients.
+ * Clients can filter the stream by event type, events no client wants are not marshalled at all
+ * and other events are marshalled once for all clients.
+ * Events are queued and written to the clients in bursts, every FLUSH_INTERVAL_MILLIS.
+ * <p>
+ * Recent events are kept in a replay buffer, clients reconnecting with a Last-Event-ID get the events they missed.
+ * Events wanted by clients that disconnected recently are buffered as well, so they can be replayed.
  */
 @Singleton
 @Path("/events")
 @EventBusSubscriber
 public class EventsSseService {
-  private final SseBroadcaster sseBroadcaster = new SseBroadcaster();
+  private static final long FLUSH_INTERVAL_MILLIS = 100;
+  private static final int REPLAY_BUFFER_SIZE = 1000;
+  private static final long REPLAY_MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+  private final List<SseClient> clients = new CopyOnWriteArrayList<>();
+  private final Queue<MarshalledEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+  private final Map<Class<?>, Set<String>> eventTypeNames = new ConcurrentHashMap<>();
+  private final Map<Set<String>, Long> disconnectedClientTypes = new ConcurrentHashMap<>();
+  private final EventReplayBuffer replayBuffer = new EventReplayBuffer(REPLAY_BUFFER_SIZE, REPLAY_MAX_AGE_MILLIS);
+  private ScheduledExecutorService flushExecutor;
 
   @Inject
   private Logger logger;
 
+  @PostConstruct
+  private void initEventsSseService() {
+    flushExecutor = ThreadPools.newScheduledExecutorService("EventsSseService");
+    flushExecutor.scheduleWithFixedDelay(this::flushPendingEvents, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  private void destroyEventsSseService() {
+    flushExecutor.shutdownNow();
+    clients.forEach(SseClient::close);
+    clients.clear();
+  }
+
   @Subscribe
   public void onEvent(Event event) {
-    try {
-      String eventData = JacksonMarshaller.marshal(event);
+    if (clients.isEmpty() && disconnectedClientTypes.isEmpty()) {
+      return;
+    }
 
-      OutboundEvent outboundEvent = new OutboundEvent.Builder()
-          .mediaType(MediaType.APPLICATION_JSON_TYPE)
-          .data(String.class, eventData)
-          .build();
+    Set<String> typeNames = getEventTypeNames(event.getClass());
+    if (!isWanted(typeNames)) {
+      return;
+    }
 
-      sseBroadcaster.broadcast(outboundEvent);
+    try {
+      String data = JacksonMarshaller.marshal(event);
+
+      // Ids are assigned in the order events are queued
+      synchronized (replayBuffer) {
+        pendingEvents.add(replayBuffer.add(typeNames, data));
+      }
     } catch (JsonProcessingException e) {
       logger.error("Failed marshalling event for REST SSE events", e);
     }
   }
 
+  /**
+   * Listen to events
+   *
+   * @param types       A comma separated list of event types to receive, this includes base types like TwitchEvent or IrcEvent.
+   *                    All events are sent when omitted.
+   * @param batch       When true, the events of each burst are sent as a single SSE event named "batch",
+   *                    containing a JSON array of events. Otherwise each event is sent as a separate SSE event.
+   * @param lastEventId The id of the last event the client received before reconnecting,
+   *                    buffered events after it are sent first
+   * @return An SSE event output
+   */
   @GET
   @Produces(SseFeature.SERVER_SENT_EVENTS)
-  public EventOutput listenToEvents() {
-    final EventOutput eventOutput = new EventOutput();
-    sseBroadcaster.add(eventOutput);
-    return eventOutput;
+  public EventOutput listenToEvents(@QueryParam("types") String types,
+                                    @QueryParam("batch") boolean batch,
+                                    @HeaderParam(SseFeature.LAST_EVENT_ID_HEADER) String lastEventId) {
+    long resumeAfterEventId = NumberUtils.toLong(lastEventId, -1);
+    SseClient client;
+
+    synchronized (replayBuffer) {
+      List<MarshalledEvent> replay = (resumeAfterEventId < 0 ? null : replayBuffer.getEventsAfter(resumeAfterEventId));
+      client = new SseClient(parseTypes(types), batch, replay, replayBuffer.getLastEventId());
+      clients.add(client);
+    }
+
+    return client.getEventOutput();
+  }
+
+  private void flushPendingEvents() {
+    try {
+      if (pendingEvents.isEmpty() && clients.stream().noneMatch(SseClient::hasReplay)) {
+        return;
+      }
+
+      List<MarshalledEvent> events = new ArrayList<>();
+      MarshalledEvent event;
+      while ((event = pendingEvents.poll()) != null) {
+        events.add(event);
+      }
+
+      for (SseClient client : clients) {
+        if (!client.send(client.select(events))) {
+          clients.remove(client);
+          client.close();
+          disconnectedClientTypes.put(client.getTypes(), System.currentTimeMillis());
+        }
+      }
+    } catch (Exception e) {
+      // Exceptions would cancel the scheduled flush
+      logger.error("Failed writing REST SSE events", e);
+    }
+  }
+
+  /**
+   * @param typeNames The names of an event type and its base types
+   * @return True if a connected client, or a client that disconnected within the replay age, wants events of this type
+   */
+  private boolean isWanted(Set<String> typeNames) {
+    if (clients.stream().anyMatch(client -> client.accepts(typeNames))) {
+      return true;
+    }
+
+    long expiredBefore = System.currentTimeMillis() - REPLAY_MAX_AGE_MILLIS;
+    disconnectedClientTypes.values().removeIf(disconnectedAt -> disconnectedAt < expiredBefore);
+
+    return disconnectedClientTypes.keySet().stream()
+        .anyMatch(types -> SseClient.accepts(types, typeNames));
+  }
+
+  /**
+   * Get the names of an event type and its base types, up to Event
+   */
+  private Set<String> getEventTypeNames(Class<?> eventType) {
+    return eventTypeNames.computeIfAbsent(eventType, type -> {
+      Set<String> names = new HashSet<>();
+      for (Class<?> t = type; t != null && Event.class.isAssignableFrom(t); t = t.getSuperclass()) {
+        names.add(t.getSimpleName());
+      }
+      return Collections.unmodifiableSet(names);
+    });
+  }
+
+  private static Set<String> parseTypes(String types) {
+    if (StringUtils.isBlank(types)) {
+      return Collections.emptySet();
+    }
+
+    return Arrays.stream(StringUtils.split(types, ','))
+        .map(String::trim)
+        .filter(StringUtils::isNotEmpty)
+        .collect(Collectors.toSet());
   }
 }
@@ -0,0 +1,54 @@
+package nl.juraji.biliomi.rest.services.eventservices;
+
+import org.glassfish.jersey.media.sse.OutboundEvent;
+
+import javax.ws.rs.core.MediaType;
+import java.util.Set;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * An event marshalled for the SSE clients, so it is only marshalled once
+ */
+final class MarshalledEvent {
+  private final long id;
+  private final long createdAt = System.currentTimeMillis();
+  private final Set<String> typeNames;
+  private final String data;
+  private final OutboundEvent outboundEvent;
+
+  MarshalledEvent(long id, Set<String> typeNames, String data) {
+    this.id = id;
+    this.typeNames = typeNames;
+    this.data = data;
+    this.outboundEvent = new OutboundEvent.Builder()
+        .id(String.valueOf(id))
+        .mediaType(MediaType.APPLICATION_JSON_TYPE)
+        .data(String.class, data)
+        .build();
+  }
+
+  long getId() {
+    return id;
+  }
+
+  long getCreatedAt() {
+    return createdAt;
+  }
+
+  /**
+   * @return The simple names of the event type and its base types
+   */
+  Set<String> getTypeNames() {
+    return typeNames;
+  }
+
+  String getData() {
+    return data;
+  }
+
+  OutboundEvent getOutboundEvent() {
+    return outboundEvent;
+  }
+}
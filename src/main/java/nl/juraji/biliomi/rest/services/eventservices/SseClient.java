@@ -0,0 +1,157 @@
+package nl.juraji.biliomi.rest.services.eventservices;
+
+import org.glassfish.jersey.media.sse.EventOutput;
+import org.glassfish.jersey.media.sse.OutboundEvent;
+
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * A client connected to the EventsSseService
+ */
+final class SseClient {
+  private static final String BATCH_EVENT_NAME = "batch";
+
+  private final EventOutput eventOutput = new EventOutput();
+  private final Set<String> types;
+  private final boolean batch;
+  private final long lastReplayedEventId;
+  private volatile List<MarshalledEvent> replay;
+
+  /**
+   * @param types               The event types the client wants, or empty for all events
+   * @param batch               Whether to send the events of each burst as one SSE event
+   * @param replay              Buffered events to send before any new events, or null
+   * @param lastReplayedEventId The id of the last event in the replay, or of the last event before the client connected
+   */
+  SseClient(Set<String> types, boolean batch, List<MarshalledEvent> replay, long lastReplayedEventId) {
+    this.types = types;
+    this.batch = batch;
+    this.replay = replay;
+    this.lastReplayedEventId = lastReplayedEventId;
+  }
+
+  EventOutput getEventOutput() {
+    return eventOutput;
+  }
+
+  /**
+   * @param typeNames The names of an event type and its base types
+   * @return True if the client wants events of this type
+   */
+  boolean accepts(Set<String> typeNames) {
+    return accepts(types, typeNames);
+  }
+
+  Set<String> getTypes() {
+    return types;
+  }
+
+  boolean hasReplay() {
+    return replay != null;
+  }
+
+  /**
+   * Select the events to send to this client, the replay is selected only once
+   *
+   * @param events The new events
+   * @return The replay, if not yet sent, followed by the events the client wants and did not get by the replay
+   */
+  List<MarshalledEvent> select(List<MarshalledEvent> events) {
+    List<MarshalledEvent> selected = new ArrayList<>();
+
+    if (replay != null) {
+      replay.stream()
+          .filter(event -> accepts(event.getTypeNames()))
+          .forEach(selected::add);
+      replay = null;
+    }
+
+    events.stream()
+        .filter(event -> event.getId() > lastReplayedEventId)
+        .filter(event -> accepts(event.getTypeNames()))
+        .forEach(selected::add);
+
+    return selected;
+  }
+
+  /**
+   * @param types     The event types a client wants, or empty for all events
+   * @param typeNames The names of an event type and its base types
+   * @return True if the client wants events of this type
+   */
+  static boolean accepts(Set<String> types, Set<String> typeNames) {
+    if (types.isEmpty()) {
+      return true;
+    }
+
+    for (String typeName : typeNames) {
+      if (types.contains(typeName)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Send events to the client
+   *
+   * @param events The events to send
+   * @return False if the client disconnected
+   */
+  boolean send(List<MarshalledEvent> events) {
+    if (eventOutput.isClosed()) {
+      return false;
+    }
+
+    if (events.isEmpty()) {
+      return true;
+    }
+
+    try {
+      if (batch) {
+        eventOutput.write(toBatchEvent(events));
+      } else {
+        for (MarshalledEvent event : events) {
+          eventOutput.write(event.getOutboundEvent());
+        }
+      }
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  void close() {
+    try {
+      eventOutput.close();
+    } catch (IOException ignored) {
+      // The client is gone either way
+    }
+  }
+
+  private static OutboundEvent toBatchEvent(List<MarshalledEvent> events) {
+    StringBuilder data = new StringBuilder("[");
+    for (MarshalledEvent event : events) {
+      if (data.length() > 1) {
+        data.append(',');
+      }
+      data.append(event.getData());
+    }
+    data.append(']');
+
+    return new OutboundEvent.Builder()
+        .id(String.valueOf(events.get(events.size() - 1).getId()))
+        .name(BATCH_EVENT_NAME)
+        .mediaType(MediaType.APPLICATION_JSON_TYPE)
+        .data(String.class, data.toString())
+        .build();
+  }
+}
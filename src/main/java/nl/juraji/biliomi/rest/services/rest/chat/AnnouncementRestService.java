@@ -4,6 +4,7 @@ import nl.juraji.biliomi.model.chat.Announcement;
 import nl.juraji.biliomi.model.chat.AnnouncementDao;
 import nl.juraji.biliomi.components.chat.announcements.AnnouncementTimerService;
 import nl.juraji.biliomi.rest.config.ModelRestService;
+import nl.juraji.biliomi.utility.jpa.managed.ManagedBatch;
 
 import javax.inject.Inject;
 import javax.ws.rs.Path;
@@ -35,7 +36,7 @@ public class AnnouncementRestService extends ModelRestService<Announcement> {
   @Override
   public Announcement createEntity(Announcement e) {
     announcementDao.save(e);
-    announcementTimerService.restart();
+    ManagedBatch.afterCommit(announcementTimerService::restart);
     return e;
   }
 
@@ -49,7 +50,7 @@ public class AnnouncementRestService extends ModelRestService<Announcement> {
 
     announcement.setMessage(e.getMessage());
     announcementDao.save(announcement);
-    announcementTimerService.restart();
+    ManagedBatch.afterCommit(announcementTimerService::restart);
     return announcement;
   }
 
@@ -62,7 +63,7 @@ public class AnnouncementRestService extends ModelRestService<Announcement> {
     }
 
     announcementDao.delete(announcement);
-    announcementTimerService.restart();
+    ManagedBatch.afterCommit(announcementTimerService::restart);
     return true;
   }
 }
@@ -4,6 +4,8 @@ import nl.juraji.biliomi.model.core.Direction;
 import nl.juraji.biliomi.model.registers.HostRecord;
 import nl.juraji.biliomi.model.registers.HostRecordDao;
 import nl.juraji.biliomi.rest.config.ModelRestService;
+import nl.juraji.biliomi.utility.jpa.managed.ManagedCriteria;
+import org.hibernate.criterion.Restrictions;
 
 import javax.inject.Inject;
 import javax.ws.rs.ForbiddenException;
@@ -34,6 +36,13 @@ public class HostRecordRestService extends ModelRestService<HostRecord> {
     }
   }
 
+  @Override
+  protected void restrictEntities(ManagedCriteria<HostRecord> criteria) {
+    if (direction != null) {
+      criteria.add(Restrictions.eq("direction", direction));
+    }
+  }
+
   @Override
   public HostRecord getEntity(long id) {
     throw new ForbiddenException();
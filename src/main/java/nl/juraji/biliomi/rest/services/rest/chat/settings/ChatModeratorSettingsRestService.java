@@ -28,6 +28,18 @@ public class ChatModeratorSettingsRestService extends SettingsModelRestService<C
     settings.setCapsTriggerRatio(e.getCapsTriggerRatio());
     settings.setRepeatedCharactersAllowed(e.isRepeatedCharactersAllowed());
     settings.setRepeatedCharacterTrigger(e.getRepeatedCharacterTrigger());
+    settings.setEmoteSpamAllowed(e.isEmoteSpamAllowed());
+    settings.setEmoteTrigger(e.getEmoteTrigger());
+    settings.setSymbolSpamAllowed(e.isSymbolSpamAllowed());
+    settings.setSymbolTrigger(e.getSymbolTrigger());
+    settings.setSymbolTriggerRatio(e.getSymbolTriggerRatio());
+    settings.setLongMessagesAllowed(e.isLongMessagesAllowed());
+    settings.setMessageLengthTrigger(e.getMessageLengthTrigger());
+    settings.setDuplicateMessagesAllowed(e.isDuplicateMessagesAllowed());
+    settings.setDuplicateMessageTrigger(e.getDuplicateMessageTrigger());
+    settings.setFloodAllowed(e.isFloodAllowed());
+    settings.setFloodTrigger(e.getFloodTrigger());
+    settings.setFloodWindow(e.getFloodWindow());
     settings.setExemptedGroup(e.getExemptedGroup());
     settings.setFirstStrike(e.getFirstStrike());
     settings.setSecondStrike(e.getSecondStrike());
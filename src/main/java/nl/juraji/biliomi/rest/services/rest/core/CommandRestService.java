@@ -3,8 +3,13 @@ package nl.juraji.biliomi.rest.services.rest.core;
 import nl.juraji.biliomi.model.core.Command;
 import nl.juraji.biliomi.model.core.CommandDao;
 import nl.juraji.biliomi.model.core.CustomCommand;
+import nl.juraji.biliomi.model.core.UserGroup;
+import nl.juraji.biliomi.model.core.UserGroupDao;
 import nl.juraji.biliomi.rest.config.ModelRestService;
 import nl.juraji.biliomi.utility.commandrouters.routers.CommandRouterRegistry;
+import nl.juraji.biliomi.utility.jpa.managed.ManagedBatch;
+import nl.juraji.biliomi.utility.jpa.managed.ManagedCriteria;
+import org.hibernate.criterion.Restrictions;
 
 import javax.inject.Inject;
 import javax.ws.rs.ForbiddenException;
@@ -22,6 +27,9 @@ public class CommandRestService extends ModelRestService<Command> {
   @Inject
   private CommandDao commandDao;
 
+  @Inject
+  private UserGroupDao userGroupDao;
+
   @Inject
   private CommandRouterRegistry commandRouterRegistry;
 
@@ -33,6 +41,12 @@ public class CommandRestService extends ModelRestService<Command> {
         .collect(Collectors.toList());
   }
 
+  @Override
+  protected void restrictEntities(ManagedCriteria<Command> criteria) {
+    // Exclude custom commands, Hibernate resolves "class" to the entity type
+    criteria.add(Restrictions.eq("class", Command.class));
+  }
+
   @Override
   public Command getEntity(long id) {
     return commandDao.get(id);
@@ -46,6 +60,18 @@ public class CommandRestService extends ModelRestService<Command> {
   @Override
   public Command updateEntity(Command e, long id) {
     Command command = commandDao.get(id);
+
+    if (command == null) {
+      return null;
+    }
+
+    // The group in the body might only hold an id, the command is published with the stored group
+    UserGroup userGroup = (e.getUserGroup() == null ? command.getUserGroup() : userGroupDao.get(e.getUserGroup().getId()));
+
+    if (userGroup == null) {
+      return null;
+    }
+
     String commandStr = command.getCommand();
 
     // Only some of the properties can be changed
@@ -53,24 +79,23 @@ public class CommandRestService extends ModelRestService<Command> {
     command.setCooldown(e.getCooldown());
     command.setModeratorCanActivate(e.isModeratorCanActivate());
     command.setSystemCommand(e.isSystemCommand());
+    command.setUserGroup(userGroup);
 
-    if (e.getUserGroup() != null) {
-      command.setUserGroup(e.getUserGroup());
-    }
+    // Replace all aliasses for command
+    boolean hadAliasses = !command.getAliasses().isEmpty();
+    command.getAliasses().clear();
+    command.getAliasses().addAll(e.getAliasses());
 
-    // Clear current aliasses for command
-    if (!command.getAliasses().isEmpty()) {
-      command.getAliasses().clear();
-      commandRouterRegistry.clearAliassesFor(commandStr);
-    }
+    commandDao.save(command);
 
-    if (!e.getAliasses().isEmpty()) {
-      // Re-add all aliasses for command
-      command.getAliasses().addAll(e.getAliasses());
-      e.getAliasses().forEach(alias -> commandRouterRegistry.putAlias(alias, commandStr));
-    }
+    ManagedBatch.afterCommit(() -> {
+      if (hadAliasses) {
+        commandRouterRegistry.clearAliassesFor(commandStr);
+      }
 
-    commandDao.save(command);
+      e.getAliasses().forEach(alias -> commandRouterRegistry.putAlias(alias, commandStr));
+      commandRouterRegistry.update(command);
+    });
     return command;
   }
 
@@ -2,10 +2,14 @@ package nl.juraji.biliomi.rest.services.rest.core;
 
 import nl.juraji.biliomi.model.core.CustomCommand;
 import nl.juraji.biliomi.model.core.CustomCommandDao;
+import nl.juraji.biliomi.model.core.UserGroup;
+import nl.juraji.biliomi.model.core.UserGroupDao;
+import nl.juraji.biliomi.components.system.commands.CustomCommandCatalog;
 import nl.juraji.biliomi.components.system.commands.CustomCommandsComponent;
 import nl.juraji.biliomi.rest.config.ModelRestService;
 import nl.juraji.biliomi.utility.cdi.annotations.qualifiers.SystemComponent;
 import nl.juraji.biliomi.utility.commandrouters.routers.CommandRouterRegistry;
+import nl.juraji.biliomi.utility.jpa.managed.ManagedBatch;
 
 import javax.inject.Inject;
 import javax.ws.rs.Path;
@@ -21,9 +25,15 @@ public class CustomCommandRestService extends ModelRestService<CustomCommand> {
   @Inject
   private CustomCommandDao customCommandDao;
 
+  @Inject
+  private UserGroupDao userGroupDao;
+
   @Inject
   private CommandRouterRegistry commandRouterRegistry;
 
+  @Inject
+  private CustomCommandCatalog customCommandCatalog;
+
   @Inject
   @SystemComponent
   private CustomCommandsComponent customCommandsComponent;
@@ -40,11 +50,21 @@ public class CustomCommandRestService extends ModelRestService<CustomCommand> {
 
   @Override
   public CustomCommand createEntity(CustomCommand e) {
+    // The group in the body might only hold an id, the command is published with the stored group
+    UserGroup userGroup = userGroupDao.get(e.getUserGroup().getId());
+
+    if (userGroup == null) {
+      return null;
+    }
+
+    e.setUserGroup(userGroup);
     customCommandDao.save(e);
 
-    // Register new command in the commandrouter
-    commandRouterRegistry.put(e.getCommand(), customCommandsComponent, CustomCommandsComponent.customCommandRunnerMethod);
-    e.getAliasses().forEach(alias -> commandRouterRegistry.putAlias(alias, e.getCommand()));
+    // Register new command in the catalog and commandrouter
+    ManagedBatch.afterCommit(() -> {
+      customCommandCatalog.put(e);
+      commandRouterRegistry.put(e, customCommandsComponent, CustomCommandsComponent.customCommandRunnerMethod);
+    });
 
     return e;
   }
@@ -52,6 +72,18 @@ public class CustomCommandRestService extends ModelRestService<CustomCommand> {
   @Override
   public CustomCommand updateEntity(CustomCommand e, long id) {
     CustomCommand customCommand = customCommandDao.get(id);
+
+    if (customCommand == null) {
+      return null;
+    }
+
+    // The group in the body might only hold an id, the command is published with the stored group
+    UserGroup userGroup = userGroupDao.get(e.getUserGroup().getId());
+
+    if (userGroup == null) {
+      return null;
+    }
+
     String command = e.getCommand();
 
     // Only some of the properties can be changed
@@ -59,22 +91,25 @@ public class CustomCommandRestService extends ModelRestService<CustomCommand> {
     customCommand.setCooldown(e.getCooldown());
     customCommand.setModeratorCanActivate(e.isModeratorCanActivate());
     customCommand.setSystemCommand(e.isSystemCommand());
-    customCommand.setUserGroup(e.getUserGroup());
+    customCommand.setUserGroup(userGroup);
     customCommand.setMessage(e.getMessage());
 
-    // Clear current aliasses for command
-    if (!customCommand.getAliasses().isEmpty()) {
-      customCommand.getAliasses().clear();
-      commandRouterRegistry.clearAliassesFor(command);
-    }
-
-    if (!e.getAliasses().isEmpty()) {
-      // Re-add all aliasses for command
-      customCommand.getAliasses().addAll(e.getAliasses());
-      e.getAliasses().forEach(alias -> commandRouterRegistry.putAlias(alias, command));
-    }
+    // Replace all aliasses for command
+    boolean hadAliasses = !customCommand.getAliasses().isEmpty();
+    customCommand.getAliasses().clear();
+    customCommand.getAliasses().addAll(e.getAliasses());
 
     customCommandDao.save(customCommand);
+
+    ManagedBatch.afterCommit(() -> {
+      if (hadAliasses) {
+        commandRouterRegistry.clearAliassesFor(command);
+      }
+
+      e.getAliasses().forEach(alias -> commandRouterRegistry.putAlias(alias, command));
+      customCommandCatalog.put(customCommand);
+      commandRouterRegistry.update(customCommand);
+    });
     return customCommand;
   }
 
@@ -86,11 +121,14 @@ public class CustomCommandRestService extends ModelRestService<CustomCommand> {
       return false;
     }
 
-    // Remove command from registry, so it won't be recognized as valid command anymore
-    commandRouterRegistry.remove(customCommand.getCommand());
-    customCommand.getAliasses().forEach(commandRouterRegistry::removeAlias);
-
     customCommandDao.delete(customCommand);
+
+    // Remove command from registry, so it won't be recognized as valid command anymore
+    ManagedBatch.afterCommit(() -> {
+      commandRouterRegistry.remove(customCommand.getCommand());
+      customCommand.getAliasses().forEach(commandRouterRegistry::removeAlias);
+      customCommandCatalog.remove(customCommand.getCommand());
+    });
     return true;
   }
 }
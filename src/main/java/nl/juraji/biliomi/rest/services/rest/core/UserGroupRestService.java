@@ -5,6 +5,8 @@ import nl.juraji.biliomi.model.core.UserGroupDao;
 import nl.juraji.biliomi.rest.config.ModelRestService;
 import nl.juraji.biliomi.rest.config.Responses;
 import nl.juraji.biliomi.utility.calculate.MathUtils;
+import nl.juraji.biliomi.utility.commandrouters.routers.CommandRouterRegistry;
+import nl.juraji.biliomi.utility.jpa.managed.ManagedBatch;
 
 import javax.inject.Inject;
 import javax.ws.rs.GET;
@@ -24,6 +26,9 @@ public class UserGroupRestService extends ModelRestService<UserGroup> {
   @Inject
   private UserGroupDao userGroupDao;
 
+  @Inject
+  private CommandRouterRegistry commandRouterRegistry;
+
   @GET
   @Path("/default")
   @Produces(MediaType.APPLICATION_JSON)
@@ -75,6 +80,7 @@ public class UserGroupRestService extends ModelRestService<UserGroup> {
     }
 
     userGroupDao.save(userGroup);
+    ManagedBatch.afterCommit(() -> commandRouterRegistry.updateUserGroup(userGroup));
     return userGroup;
   }
 
@@ -4,6 +4,8 @@ import nl.juraji.biliomi.model.games.Tamagotchi;
 import nl.juraji.biliomi.model.games.TamagotchiDao;
 import nl.juraji.biliomi.rest.config.ModelRestService;
 import nl.juraji.biliomi.rest.config.Responses;
+import nl.juraji.biliomi.utility.jpa.managed.ManagedCriteria;
+import org.hibernate.criterion.Restrictions;
 
 import javax.inject.Inject;
 import javax.ws.rs.GET;
@@ -40,6 +42,11 @@ public class TamagotchiRestService extends ModelRestService<Tamagotchi> {
     return tamagotchiDao.getAliveTamagotchis();
   }
 
+  @Override
+  protected void restrictEntities(ManagedCriteria<Tamagotchi> criteria) {
+    criteria.add(Restrictions.eq("deceased", false));
+  }
+
   @Override
   public Tamagotchi getEntity(long id) {
     return tamagotchiDao.get(id);
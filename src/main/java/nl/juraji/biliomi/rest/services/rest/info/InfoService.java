@@ -12,6 +12,7 @@ import nl.juraji.biliomi.io.api.twitch.v5.model.wrappers.TwitchStreamInfo;
 import nl.juraji.biliomi.components.system.channel.GameService;
 import nl.juraji.biliomi.components.shared.ChatService;
 import nl.juraji.biliomi.components.system.users.UsersService;
+import nl.juraji.biliomi.rest.config.CacheMaxAge;
 import nl.juraji.biliomi.rest.config.Responses;
 
 import javax.inject.Inject;
@@ -47,6 +48,7 @@ public class InfoService {
 
   @GET
   @Path("/version")
+  @CacheMaxAge(3600)
   @Produces(MediaType.APPLICATION_JSON)
   public Response getVersionInfo() {
     return Responses.ok(versionInfo);
@@ -55,6 +57,7 @@ public class InfoService {
 
   @GET
   @Path("/channel")
+  @CacheMaxAge(10)
   @Produces(MediaType.APPLICATION_JSON)
   public Response getChannelStatus() throws Exception {
     ChannelInfo info = null;
@@ -0,0 +1,35 @@
+package nl.juraji.biliomi.rest.services.rest.logs;
+
+import javax.enterprise.inject.Default;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Keeps the line indexes of the chat logs archived before the chat journal existed (".log.gz"), in "logs/index".
+ * Archived logs are indexed once, on their first request. The latest chat log is served from the chat journal.
+ */
+@Default
+@Singleton
+public class ChatLogIndexService {
+  private final Map<String, LogLineIndex> indexes = new ConcurrentHashMap<>();
+  private final File indexDir = new File(System.getProperty("user.dir") + "/logs/index");
+
+  /**
+   * Get the line index of an archived log, the index is built when it does not exist yet
+   *
+   * @param logFile The archived log, compressed using gzip
+   * @return The index of the log
+   * @throws IOException When the log or the index could not be read or written
+   */
+  LogLineIndex getIndex(File logFile) throws IOException {
+    LogLineIndex index = indexes.computeIfAbsent(logFile.getName(), name -> new LogLineIndex(new File(indexDir, name + ".idx")));
+    index.update(logFile);
+    return index;
+  }
+}
@@ -1,79 +1,130 @@
 package nl.juraji.biliomi.rest.services.rest.logs;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import nl.juraji.biliomi.components.shared.chatjournal.ChatJournal;
+import nl.juraji.biliomi.components.shared.chatjournal.ChatJournalEvent;
+import nl.juraji.biliomi.components.shared.chatjournal.ChatJournalReader;
 import nl.juraji.biliomi.model.internal.rest.LogInfo;
+import nl.juraji.biliomi.rest.config.CacheMaxAge;
 import nl.juraji.biliomi.rest.config.Responses;
-import org.apache.commons.io.FileUtils;
+import nl.juraji.biliomi.utility.factories.marshalling.JacksonMarshaller;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
 
+import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.LinkOption;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
 
 /**
  * Created by Juraji on 25-8-2017.
  * Biliomi v3
+ * <p>
+ * Chat logs are served from the chat journal, the latest log is the newest segment of the journal.
+ * Chat logs archived before the journal existed are still listed and served from "logs/archive/chat".
  */
 @Path("/logs")
 public class ChatLogRestService {
+  public static final String NDJSON = "application/x-ndjson";
+  public static final String LOG_DATE_HEADER = "X-Log-Date";
+  private static final Pattern JOURNAL_ARCHIVE_PATTERN = Pattern.compile("^chat-(\\d{4}-\\d{2}-\\d{2})\\.journal\\.gz$");
 
   private final File loggingDir = new File(System.getProperty("user.dir") + "/logs");
   private final File archiveLoggingDir = new File(loggingDir, "archive/chat");
 
+  @Inject
+  private ChatLogIndexService chatLogIndexService;
+
+  @Inject
+  private ChatJournal chatJournal;
+
   @GET
   @Path("/latest")
   @Produces(MediaType.APPLICATION_JSON)
   public Response getLatestChatLog() throws IOException {
-    File currentChatLogFile = new File(loggingDir, "chat.log");
-    if (!currentChatLogFile.exists()) {
+    List<LocalDate> dates = chatJournal.getDates();
+    if (dates.isEmpty()) {
       return Responses.noContent();
     }
 
-    LogInfo logInfo = new LogInfo();
-    logInfo.setLogDate(getFileCreationDate(currentChatLogFile));
-    logInfo.getLines().addAll(FileUtils.readLines(currentChatLogFile, "UTF-8"));
+    return Responses.ok(readJournal(dates.get(0)));
+  }
 
-    return Responses.ok(logInfo);
+  /**
+   * Stream a range of lines of the current chat log
+   *
+   * @param tail  The amount of lines to get from the end of the log, can not be combined with from and count
+   * @param from  The index of the first line to get, 0 by default
+   * @param count The maximum amount of lines to get, all lines after from by default
+   * @return The lines as newline delimited JSON, like {"Line":0,"Text":"..."},
+   * with the total amount of lines in the X-Total-Count header
+   */
+  @GET
+  @Path("/latest/lines")
+  @Produces(NDJSON)
+  public Response getLatestChatLogLines(@QueryParam("tail") Long tail,
+                                        @QueryParam("from") Long from,
+                                        @QueryParam("count") Long count) throws IOException {
+    List<LocalDate> dates = chatJournal.getDates();
+    if (dates.isEmpty()) {
+      return Responses.noContent();
+    }
+
+    return streamJournal(dates.get(0), tail, from, count);
   }
 
   @GET
   @Path("/archive")
   @Produces(MediaType.APPLICATION_JSON)
   public Response getArchivedLogFiles() {
-    String[] files = archiveLoggingDir.list();
-    List<String> collect = null;
+    List<String> collect = chatJournal.getDates().stream()
+        .skip(1)
+        .map(date -> "chat-" + date + ".journal.gz")
+        .collect(Collectors.toList());
 
-    if (files!=null) {
-      collect = Arrays.stream(files)
-          .sorted(Comparator.reverseOrder())
-          .collect(Collectors.toList());
+    String[] files = archiveLoggingDir.list();
+    if (files != null) {
+      collect.addAll(Arrays.asList(files));
     }
 
+    collect.sort(Comparator.reverseOrder());
     return Responses.okOrEmpty(collect);
   }
 
   @GET
   @Path("/archive/{filename}")
   @Produces(MediaType.APPLICATION_JSON)
+  @CacheMaxAge(86400)
   public Response getArchivedLog(@PathParam("filename") String fileName) throws IOException {
     if (StringUtils.isEmpty(fileName)) {
       return Responses.noContent();
     }
 
-    File logFile = new File(archiveLoggingDir, fileName);
+    LocalDate journalDate = getArchivedJournalDate(fileName);
+    if (journalDate != null) {
+      return (isArchivedJournalDate(journalDate) ? Responses.ok(readJournal(journalDate)) : Responses.noContent());
+    }
+
+    File logFile = getArchivedLogFile(fileName);
     if (!logFile.exists()) {
       return Responses.noContent();
     }
@@ -85,25 +136,191 @@ public class ChatLogRestService {
     return Responses.ok(logInfo);
   }
 
-  private List<String> readGzipFile(File file) throws IOException {
-    GZIPInputStream gzipInputStream = new GZIPInputStream(new FileInputStream(file));
-    BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(gzipInputStream));
-    String line;
-    List<String> lines = new ArrayList<>();
+  /**
+   * Stream a range of lines of an archived chat log
+   *
+   * @param fileName The file name of the archived log
+   * @param tail     The amount of lines to get from the end of the log, can not be combined with from and count
+   * @param from     The index of the first line to get, 0 by default
+   * @param count    The maximum amount of lines to get, all lines after from by default
+   * @return The lines as newline delimited JSON, like {"Line":0,"Text":"..."},
+   * with the total amount of lines in the X-Total-Count header
+   */
+  @GET
+  @Path("/archive/{filename}/lines")
+  @Produces(NDJSON)
+  public Response getArchivedLogLines(@PathParam("filename") String fileName,
+                                      @QueryParam("tail") Long tail,
+                                      @QueryParam("from") Long from,
+                                      @QueryParam("count") Long count) throws IOException {
+    if (StringUtils.isEmpty(fileName)) {
+      return Responses.noContent();
+    }
+
+    LocalDate journalDate = getArchivedJournalDate(fileName);
+    if (journalDate != null) {
+      return (isArchivedJournalDate(journalDate) ? streamJournal(journalDate, tail, from, count) : Responses.noContent());
+    }
 
-    while ((line = bufferedReader.readLine()) != null) {
-      lines.add(line);
+    File logFile = getArchivedLogFile(fileName);
+    if (!logFile.exists()) {
+      return Responses.noContent();
     }
 
-    return lines;
+    return streamLines(logFile, getFileCreationDateFromName(logFile), tail, from, count);
+  }
+
+  private LogInfo readJournal(LocalDate date) throws IOException {
+    LogInfo logInfo = new LogInfo();
+    logInfo.setLogDate(date.toDateTimeAtStartOfDay());
+
+    try (ChatJournalReader reader = chatJournal.openReader(date, 0)) {
+      ChatJournalEvent event;
+      while (reader != null && (event = reader.next()) != null) {
+        logInfo.getLines().add(event.toLogLine());
+      }
+    }
+
+    return logInfo;
+  }
+
+  private Response streamJournal(LocalDate date, Long tail, Long from, Long count) throws IOException {
+    checkRangeParameters(tail, from, count);
+
+    long totalEvents = chatJournal.getEventCount(date);
+    long firstEvent = Math.min(totalEvents, (tail == null ? (from == null ? 0 : from) : Math.max(0, totalEvents - tail)));
+    long eventCount = Math.min(totalEvents - firstEvent, (tail == null ? (count == null ? Long.MAX_VALUE : count) : tail));
+
+    Response.ResponseBuilder builder = (eventCount == 0 ? Response.noContent() : Response.ok(writeEvents(date, firstEvent, eventCount), NDJSON))
+        .header(Responses.TOTAL_COUNT_HEADER, totalEvents)
+        .header(LOG_DATE_HEADER, date.toDateTimeAtStartOfDay());
+
+    return builder.build();
+  }
+
+  /**
+   * Events are written as lines of the chat log, in the same format as writeLines
+   */
+  private StreamingOutput writeEvents(LocalDate date, long firstEvent, long eventCount) {
+    return outputStream -> {
+      try (ChatJournalReader reader = chatJournal.openReader(date, firstEvent);
+           JsonGenerator generator = JacksonMarshaller.getObjectMapper().getFactory().createGenerator(outputStream)) {
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        ChatJournalEvent event;
+        long eventNumber = firstEvent;
+        while (reader != null && eventNumber < firstEvent + eventCount && (event = reader.next()) != null) {
+          generator.writeStartObject();
+          generator.writeNumberField("Line", eventNumber++);
+          generator.writeStringField("Text", event.toLogLine());
+          generator.writeEndObject();
+          generator.writeRaw('\n');
+        }
+      }
+    };
+  }
+
+  private Response streamLines(File logFile, DateTime logDate, Long tail, Long from, Long count) throws IOException {
+    checkRangeParameters(tail, from, count);
+
+    LogLineIndex index = chatLogIndexService.getIndex(logFile);
+    LogLineRange range = (tail == null
+        ? index.getRange((from == null ? 0 : from), (count == null ? Long.MAX_VALUE : count))
+        : index.getTail(tail));
+
+    Response.ResponseBuilder builder = (range.isEmpty() ? Response.noContent() : Response.ok(writeLines(logFile, range), NDJSON))
+        .header(Responses.TOTAL_COUNT_HEADER, range.getTotalLines())
+        .header(LOG_DATE_HEADER, logDate);
+
+    return builder.build();
+  }
+
+  /**
+   * Only the bytes of the range are read, the log is decompressed up to the end of the range
+   */
+  private StreamingOutput writeLines(File logFile, LogLineRange range) {
+    return outputStream -> {
+      try (InputStream content = openRange(logFile, range);
+           BufferedReader reader = new BufferedReader(new InputStreamReader(content, StandardCharsets.UTF_8));
+           JsonGenerator generator = JacksonMarshaller.getObjectMapper().getFactory().createGenerator(outputStream)) {
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        String line;
+        long lineNumber = range.getFirstLine();
+        while ((line = reader.readLine()) != null) {
+          generator.writeStartObject();
+          generator.writeNumberField("Line", lineNumber++);
+          generator.writeStringField("Text", line);
+          generator.writeEndObject();
+          generator.writeRaw('\n');
+        }
+      }
+    };
+  }
+
+  private void checkRangeParameters(Long tail, Long from, Long count) {
+    if (tail != null && (from != null || count != null)) {
+      throw new BadRequestException("Use either tail or from and count");
+    }
+
+    if ((tail != null && tail < 0) || (from != null && from < 0) || (count != null && count < 0)) {
+      throw new BadRequestException("Line numbers and counts can not be negative");
+    }
+  }
+
+  private InputStream openRange(File logFile, LogLineRange range) throws IOException {
+    InputStream content = new GZIPInputStream(new FileInputStream(logFile), 65536);
+    IOUtils.skipFully(content, range.getStart());
+    return new BoundedInputStream(content, range.getEnd() - range.getStart());
+  }
+
+  /**
+   * @return The date of an archived journal segment by name, or null if the name is not of a journal segment
+   */
+  private LocalDate getArchivedJournalDate(String fileName) {
+    Matcher matcher = JOURNAL_ARCHIVE_PATTERN.matcher(fileName);
+    if (!matcher.matches()) {
+      return null;
+    }
+
+    return LocalDate.parse(matcher.group(1));
+  }
+
+  /**
+   * @return True if the journal has a segment for the date, other than the latest
+   */
+  private boolean isArchivedJournalDate(LocalDate date) {
+    return chatJournal.getDates().indexOf(date) > 0;
+  }
+
+  /**
+   * Resolve an archived log by name, names can not point outside of the archive
+   */
+  private File getArchivedLogFile(String fileName) {
+    File logFile = new File(archiveLoggingDir, fileName);
+    if (!archiveLoggingDir.equals(logFile.getParentFile()) || fileName.contains("..")) {
+      throw new BadRequestException("Invalid log file name " + fileName);
+    }
+    return logFile;
+  }
+
+  private List<String> readGzipFile(File file) throws IOException {
+    try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+      String line;
+      List<String> lines = new ArrayList<>();
+
+      while ((line = bufferedReader.readLine()) != null) {
+        lines.add(line);
+      }
+
+      return lines;
+    }
   }
 
   private DateTime getFileCreationDateFromName(File file) {
     return new DateTime(file.getName().substring(5, 15));
   }
 
-  private DateTime getFileCreationDate(File file) throws IOException {
-    BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
-    return new DateTime(attributes.creationTime().toMillis());
-  }
 }
@@ -0,0 +1,85 @@
+package nl.juraji.biliomi.rest.services.rest.logs;
+
+import nl.juraji.biliomi.components.shared.chatsearch.ChatSearchQuery;
+import nl.juraji.biliomi.components.shared.chatsearch.ChatSearchService;
+import nl.juraji.biliomi.model.internal.rest.ChatSearchResult;
+import nl.juraji.biliomi.model.internal.rest.ChatSearchSource;
+import nl.juraji.biliomi.rest.config.Responses;
+import org.apache.commons.lang3.StringUtils;
+import org.joda.time.DateTime;
+
+import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+@Path("/logs/search")
+public class ChatSearchRestService {
+  private static final int MAX_LIMIT = 1000;
+
+  @Inject
+  private ChatSearchService chatSearchService;
+
+  /**
+   * Search the chat logs and the command history
+   *
+   * @param terms    Words that should all occur in the line or command
+   * @param username The user that wrote the line or ran the command
+   * @param from     The minimum date, as ISO 8601
+   * @param to       The maximum date, as ISO 8601
+   * @param source   CHAT or COMMAND, both are searched by default
+   * @param limit    The maximum amount of results, 50 by default
+   * @return The newest matching lines and commands, newest first
+   */
+  @GET
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response search(@QueryParam("q") String terms,
+                         @QueryParam("user") String username,
+                         @QueryParam("from") String from,
+                         @QueryParam("to") String to,
+                         @QueryParam("source") ChatSearchSource source,
+                         @QueryParam("limit") Integer limit) throws IOException {
+    if (StringUtils.isAllBlank(terms, username)) {
+      throw new BadRequestException("Search for at least a term or a username");
+    }
+
+    if (limit != null && (limit < 1 || limit > MAX_LIMIT)) {
+      throw new BadRequestException("The limit should be between 1 and " + MAX_LIMIT);
+    }
+
+    ChatSearchQuery query = new ChatSearchQuery();
+    query.setTerms(terms);
+    query.setUsername(username);
+    query.setFrom(parseDate(from));
+    query.setTo(parseDate(to));
+    query.setSource(source);
+    if (limit != null) {
+      query.setLimit(limit);
+    }
+
+    List<ChatSearchResult> results = chatSearchService.search(query);
+    return Responses.okOrEmpty(results);
+  }
+
+  private static DateTime parseDate(String date) {
+    if (StringUtils.isBlank(date)) {
+      return null;
+    }
+
+    try {
+      return DateTime.parse(date);
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException("Invalid date " + date);
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package nl.juraji.biliomi.rest.services.rest.logs;
+
+import nl.juraji.biliomi.utility.calculate.ChecksumUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * A sidecar file with the offsets of the lines in an archived log, so any range of lines can be found without reading the log.
+ * The index file starts with a checksum of the first line of the log, followed by the end offset of each line.
+ * Offsets are in the uncompressed content of the log.
+ * <p>
+ * Only complete lines, ending with a newline, are indexed. Archived logs do not change, so the index is built once
+ * and only rebuilt when the archive was replaced since.
+ * <p>
+ * Public methods are synchronized, so a range is never looked up while the index is being rebuilt.
+ */
+final class LogLineIndex {
+  private static final int HEADER_BYTES = Long.BYTES;
+  private static final int BUFFER_SIZE = 65536;
+
+  private final File indexFile;
+
+  LogLineIndex(File indexFile) {
+    this.indexFile = indexFile;
+  }
+
+  /**
+   * Build the index of an archived log, if it was not built yet or the archive was replaced since
+   *
+   * @param logFile The archived log, compressed using gzip
+   */
+  synchronized void update(File logFile) throws IOException {
+    if (!exists() || lastModified() < logFile.lastModified() || getFirstLineChecksum(logFile) != getFirstLineChecksum()) {
+      rebuild(logFile);
+    }
+  }
+
+  /**
+   * @param from  The index of the first line
+   * @param count The maximum amount of lines
+   * @return The range of the lines in the log
+   */
+  synchronized LogLineRange getRange(long from, long count) throws IOException {
+    long totalLines = getLineCount();
+    long firstLine = Math.min(from, totalLines);
+    long endLine = Math.min(totalLines, firstLine + Math.min(count, totalLines));
+
+    if (firstLine == endLine) {
+      return new LogLineRange(firstLine, 0, 0, 0, totalLines);
+    }
+
+    return new LogLineRange(firstLine, endLine - firstLine, getLineStart(firstLine), getLineEnd(endLine - 1), totalLines);
+  }
+
+  /**
+   * @param count The maximum amount of lines
+   * @return The range of the last lines in the log
+   */
+  synchronized LogLineRange getTail(long count) throws IOException {
+    return getRange(Math.max(0, getLineCount() - count), count);
+  }
+
+  /**
+   * @return The amount of complete lines in the log
+   */
+  private long getLineCount() {
+    return Math.max(0, (indexFile.length() - HEADER_BYTES) / Long.BYTES);
+  }
+
+  /**
+   * @param line The index of the line
+   * @return The offset of the first byte of the line
+   */
+  private long getLineStart(long line) throws IOException {
+    return (line == 0 ? 0 : getLineEnd(line - 1));
+  }
+
+  /**
+   * @param line The index of the line
+   * @return The offset after the newline of the line
+   */
+  private long getLineEnd(long line) throws IOException {
+    try (RandomAccessFile index = new RandomAccessFile(indexFile, "r")) {
+      index.seek(HEADER_BYTES + line * Long.BYTES);
+      return index.readLong();
+    }
+  }
+
+  /**
+   * @return The checksum of the first line at the time it was indexed
+   */
+  private long getFirstLineChecksum() throws IOException {
+    try (RandomAccessFile index = new RandomAccessFile(indexFile, "r")) {
+      return index.readLong();
+    }
+  }
+
+  /**
+   * @return True if the index file exists and contains a header
+   */
+  private boolean exists() {
+    return indexFile.length() >= HEADER_BYTES;
+  }
+
+  /**
+   * @return The time the index was last written to
+   */
+  private long lastModified() {
+    return indexFile.lastModified();
+  }
+
+  /**
+   * Index the lines of a log, replacing any existing index
+   */
+  private void rebuild(File logFile) throws IOException {
+    File parent = indexFile.getParentFile();
+    if (parent != null && !parent.exists() && !parent.mkdirs()) {
+      throw new IOException("Could not create directory " + parent);
+    }
+
+    try (InputStream content = openContent(logFile);
+         DataOutputStream index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, false), BUFFER_SIZE))) {
+      index.writeLong(getFirstLineChecksum(logFile));
+      scan(content, index);
+    }
+  }
+
+  /**
+   * @return The checksum of the first line of a log, as written to the header, 0 if there is no complete line
+   */
+  private static long getFirstLineChecksum(File logFile) throws IOException {
+    try (InputStream content = openContent(logFile)) {
+      Long checksum = ChecksumUtils.getFirstLineChecksum(content);
+      return (checksum == null ? 0 : checksum);
+    }
+  }
+
+  /**
+   * @return The uncompressed content of a log
+   */
+  private static InputStream openContent(File logFile) throws IOException {
+    return new GZIPInputStream(new FileInputStream(logFile), BUFFER_SIZE);
+  }
+
+  /**
+   * Write the end offset of each line in the content to the index
+   */
+  private static void scan(InputStream content, DataOutputStream index) throws IOException {
+    byte[] buffer = new byte[BUFFER_SIZE];
+    long position = 0;
+    int read;
+
+    while ((read = content.read(buffer)) != -1) {
+      for (int i = 0; i < read; i++) {
+        if (buffer[i] == '\n') {
+          index.writeLong(position + i + 1);
+        }
+      }
+      position += read;
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package nl.juraji.biliomi.rest.services.rest.logs;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * A range of lines in a log and the bytes they span in its uncompressed content
+ */
+final class LogLineRange {
+  private final long firstLine;
+  private final long lineCount;
+  private final long start;
+  private final long end;
+  private final long totalLines;
+
+  LogLineRange(long firstLine, long lineCount, long start, long end, long totalLines) {
+    this.firstLine = firstLine;
+    this.lineCount = lineCount;
+    this.start = start;
+    this.end = end;
+    this.totalLines = totalLines;
+  }
+
+  public long getFirstLine() {
+    return firstLine;
+  }
+
+  public long getLineCount() {
+    return lineCount;
+  }
+
+  public long getStart() {
+    return start;
+  }
+
+  public long getEnd() {
+    return end;
+  }
+
+  public long getTotalLines() {
+    return totalLines;
+  }
+
+  public boolean isEmpty() {
+    return lineCount == 0;
+  }
+}
@@ -4,6 +4,8 @@ import nl.juraji.biliomi.model.core.Direction;
 import nl.juraji.biliomi.model.registers.RaidRecord;
 import nl.juraji.biliomi.model.registers.RaidRecordDao;
 import nl.juraji.biliomi.rest.config.ModelRestService;
+import nl.juraji.biliomi.utility.jpa.managed.ManagedCriteria;
+import org.hibernate.criterion.Restrictions;
 
 import javax.inject.Inject;
 import javax.ws.rs.ForbiddenException;
@@ -33,6 +35,13 @@ public class RaidRecordRestService extends ModelRestService<RaidRecord> {
     }
   }
 
+  @Override
+  protected void restrictEntities(ManagedCriteria<RaidRecord> criteria) {
+    if (direction != null) {
+      criteria.add(Restrictions.eq("direction", direction));
+    }
+  }
+
   @Override
   public RaidRecord getEntity(long id) {
     throw new ForbiddenException();
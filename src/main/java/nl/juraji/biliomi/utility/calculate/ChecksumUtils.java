@@ -0,0 +1,39 @@
+package nl.juraji.biliomi.utility.calculate;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+public final class ChecksumUtils {
+
+  private ChecksumUtils() {
+  }
+
+  /**
+   * Get the checksum of the first line of a log, used to tell whether a log was rotated.
+   * The stream is not closed, but it may be read beyond the first line.
+   *
+   * @param content The uncompressed content of the log
+   * @return The CRC32 of the first complete line, including the newline, or null if there is no complete line
+   * @throws IOException When the content could not be read
+   */
+  public static Long getFirstLineChecksum(InputStream content) throws IOException {
+    InputStream input = new BufferedInputStream(content);
+    CRC32 checksum = new CRC32();
+    int b;
+
+    while ((b = input.read()) != -1) {
+      checksum.update(b);
+      if (b == '\n') {
+        return checksum.getValue();
+      }
+    }
+
+    return null;
+  }
+}
@@ -36,12 +36,7 @@ public class CommandRouteImplementorInterceptor {
     Component component = (Component) ctx.getTarget();
     CommandRouter.findCommandMethods(component.getClass(), CommandRoute.class)
         .mapKey(this::persistedCommand)
-        .forEach((command, method) -> {
-          // Register the command
-          commandRouterRegistry.put(command.getCommand(), component, method);
-          // Register any aliasses
-          command.getAliasses().forEach(alias -> commandRouterRegistry.putAlias(alias, command.getCommand()));
-        });
+        .forEach((command, method) -> commandRouterRegistry.put(command, component, method));
 
     return ctx.proceed();
   }
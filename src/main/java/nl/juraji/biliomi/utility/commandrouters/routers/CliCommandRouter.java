@@ -5,6 +5,7 @@ import nl.juraji.biliomi.model.internal.events.bot.ConsoleInputEvent;
 import nl.juraji.biliomi.model.internal.events.irc.user.messages.IrcChatMessageEvent;
 import nl.juraji.biliomi.components.shared.ChatService;
 import nl.juraji.biliomi.utility.cdi.annotations.qualifiers.ChannelName;
+import nl.juraji.biliomi.utility.commandrouters.types.CliCommandHandler;
 import nl.juraji.biliomi.utility.commandrouters.types.RegistryEntry;
 import nl.juraji.biliomi.utility.events.interceptors.EventBusSubscriber;
 import org.apache.logging.log4j.Logger;
@@ -12,7 +13,6 @@ import org.apache.logging.log4j.Logger;
 import javax.enterprise.inject.Default;
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.lang.reflect.InvocationTargetException;
 import java.util.LinkedList;
 
 /**
@@ -101,15 +101,15 @@ public class CliCommandRouter {
       return;
     }
 
-    RegistryEntry registryEntry = cmdCommandRegistry.get(list.pollFirst());
+    RegistryEntry<CliCommandHandler> registryEntry = cmdCommandRegistry.get(list.pollFirst());
     if (registryEntry == null) {
       logger.info("Usage: /help");
       return;
     }
 
     try {
-      registryEntry.getMethod().invoke(registryEntry.getComponentInstance(), event);
-    } catch (IllegalAccessException | InvocationTargetException e) {
+      registryEntry.getHandler().handle(event);
+    } catch (Exception e) {
       logger.error("Failed invoking command executor for input /" + event.toString(), e);
     }
   }
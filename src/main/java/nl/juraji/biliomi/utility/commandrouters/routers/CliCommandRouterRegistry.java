@@ -3,6 +3,8 @@ package nl.juraji.biliomi.utility.commandrouters.routers;
 import nl.juraji.biliomi.components.interfaces.Component;
 import nl.juraji.biliomi.utility.calculate.WeldUtils;
 import nl.juraji.biliomi.utility.commandrouters.annotations.CliCommandRoute;
+import nl.juraji.biliomi.utility.commandrouters.types.CliCommandHandler;
+import nl.juraji.biliomi.utility.commandrouters.types.CommandHandlers;
 import nl.juraji.biliomi.utility.commandrouters.types.RegistryEntry;
 import nl.juraji.biliomi.utility.estreams.EStream;
 import nl.juraji.biliomi.utility.types.collections.CIMap;
@@ -19,21 +21,21 @@ import java.lang.reflect.Method;
 @Default
 @Singleton
 public class CliCommandRouterRegistry {
-  private final CIMap<RegistryEntry> registry = new CIMap<>();
+  private final CIMap<RegistryEntry<CliCommandHandler>> registry = new CIMap<>();
 
   public boolean containsKey(String key) {
     return registry.containsKey(key);
   }
 
-  public RegistryEntry get(String key) {
+  public RegistryEntry<CliCommandHandler> get(String key) {
     return registry.getOrDefault(key, null);
   }
 
-  public RegistryEntry put(String key, Component component, Method method) {
-    return registry.put(key, new RegistryEntry(component, method));
+  public RegistryEntry<CliCommandHandler> put(String key, Component component, Method method) {
+    return registry.put(key, new RegistryEntry<>(component, method, CommandHandlers.forCliCommand(component, method)));
   }
 
-  public RegistryEntry remove(String key) {
+  public RegistryEntry<CliCommandHandler> remove(String key) {
     return registry.remove(key);
   }
 
@@ -0,0 +1,113 @@
+package nl.juraji.biliomi.utility.commandrouters.routers;
+
+import nl.juraji.biliomi.utility.commandrouters.types.CommandHandler;
+import nl.juraji.biliomi.utility.commandrouters.types.RegistryEntry;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Created by Juraji on 22-10-2017.
+ * Biliomi v3
+ * <p>
+ * Immutable case insensitive lookup table for commands and aliasses.
+ * Keys are normalized once when the table is built, lookups hash and compare the key
+ * character by character, so looking up a command does not allocate.
+ */
+final class CommandLookupTable {
+  static final CommandLookupTable EMPTY = new CommandLookupTable(Collections.emptyMap());
+  private static final int MIN_CAPACITY = 16;
+
+  private final int mask;
+  private final String[] keys;
+  private final RegistryEntry<CommandHandler>[] entries;
+  private final int size;
+
+  /**
+   * @param map A map of normalized keys to their entries, see normalize(String)
+   */
+  @SuppressWarnings("unchecked")
+  CommandLookupTable(Map<String, RegistryEntry<CommandHandler>> map) {
+    // Keep the load factor at or below 0.5, for short probe sequences
+    int capacity = MIN_CAPACITY;
+    while (capacity < map.size() * 2) {
+      capacity <<= 1;
+    }
+
+    this.mask = capacity - 1;
+    this.keys = new String[capacity];
+    this.entries = new RegistryEntry[capacity];
+    this.size = map.size();
+
+    map.forEach((key, entry) -> {
+      int slot = hash(key) & mask;
+      while (keys[slot] != null) {
+        slot = (slot + 1) & mask;
+      }
+
+      keys[slot] = key;
+      entries[slot] = entry;
+    });
+  }
+
+  RegistryEntry<CommandHandler> get(String key) {
+    if (key == null) {
+      return null;
+    }
+
+    return get(key, 0, key.length());
+  }
+
+  /**
+   * Look up a key that is a region of a larger string, such as the command token of a chat message
+   *
+   * @param source The string containing the key
+   * @param start  The index of the first character of the key
+   * @param end    The index after the last character of the key
+   * @return The entry for the key or null if it is not registered
+   */
+  RegistryEntry<CommandHandler> get(String source, int start, int end) {
+    int length = end - start;
+    int slot = hash(source, start, end) & mask;
+    String candidate;
+    while ((candidate = keys[slot]) != null) {
+      if (candidate.length() == length && candidate.regionMatches(true, 0, source, start, length)) {
+        return entries[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    return null;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Normalize a key for use in the table
+   * Characters are lowercased one by one (not using the default locale), matching the lookup hash
+   *
+   * @param key The key to normalize
+   * @return The normalized key
+   */
+  static String normalize(String key) {
+    char[] chars = key.toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = Character.toLowerCase(chars[i]);
+    }
+    return new String(chars);
+  }
+
+  private static int hash(String key) {
+    return hash(key, 0, key.length());
+  }
+
+  private static int hash(String source, int start, int end) {
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + Character.toLowerCase(source.charAt(i));
+    }
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -10,6 +10,7 @@ import nl.juraji.biliomi.model.core.CommandHistoryRecordDao;
 import nl.juraji.biliomi.model.core.User;
 import nl.juraji.biliomi.model.internal.events.irc.user.messages.IrcMessageEvent;
 import nl.juraji.biliomi.utility.commandrouters.types.CommandCall;
+import nl.juraji.biliomi.utility.commandrouters.types.CommandHandler;
 import nl.juraji.biliomi.utility.commandrouters.types.RegistryEntry;
 import nl.juraji.biliomi.utility.estreams.EBiStream;
 import nl.juraji.biliomi.utility.estreams.EStream;
@@ -63,19 +64,33 @@ public class CommandRouter {
    * @param event The MessageEvent containing the command
    */
   public boolean runCommand(IrcMessageEvent event, boolean calledByApi) {
+    return runCommand(event, null, calledByApi);
+  }
+
+  /**
+   * Check for command eligibility and run it of everything checks out
+   *
+   * @param event The MessageEvent containing the command
+   * @param user  The User that sent the message, when already resolved, otherwise null
+   */
+  public boolean runCommand(IrcMessageEvent event, User user, boolean calledByApi) {
     // Message is not command-like, drop it
     if (!CommandCall.isCallable(event.getMessage())) {
       return false;
     }
 
+    // Only the command is located here, arguments are parsed once the command is known
     CommandCall commandCall = new CommandCall(event.getMessage());
+    RegistryEntry<CommandHandler> entry = routerRegistry.lookup(commandCall);
     // Command is not known or disabled, drop it
-    if (!routerRegistry.containsKey(commandCall.getCommand())) {
+    if (entry == null) {
       return false;
     }
 
-    Command command = commandService.getCommand(commandService.translateAlias(commandCall.getCommand()));
-    User user = userService.getUser(event.getUsername(), true);
+    Command command = entry.getCommand();
+    if (user == null) {
+      user = userService.getUser(event.getUsername(), true);
+    }
 
     if (!calledByApi) {
       // Check permissions
@@ -108,17 +123,10 @@ public class CommandRouter {
       }
     }
 
-    RegistryEntry entry = routerRegistry.get(commandCall.getCommand());
     boolean commandSuccess = false;
 
     try {
-      if (entry == null) {
-        // Thrown, so it gets caught by the message in the catch
-        throw new IllegalStateException("Could not fetch register entry for " + commandCall.getCommand());
-      }
-
-      // No worries about method interface here, since it has already been asserted when it was registered
-      commandSuccess = (boolean) entry.getMethod().invoke(entry.getComponentInstance(), user, commandCall.getArguments());
+      commandSuccess = entry.getHandler().handle(user, commandCall.getArguments());
     } catch (Exception e) {
       chat.say(l10n.get("Common.errors.catchedFatalError")
           .add("username", user::getDisplayName)
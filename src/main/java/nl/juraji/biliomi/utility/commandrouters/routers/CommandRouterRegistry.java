@@ -1,61 +1,170 @@
 package nl.juraji.biliomi.utility.commandrouters.routers;
 
 import nl.juraji.biliomi.components.interfaces.Component;
+import nl.juraji.biliomi.model.core.Command;
+import nl.juraji.biliomi.model.core.UserGroup;
+import nl.juraji.biliomi.utility.commandrouters.types.CommandCall;
+import nl.juraji.biliomi.utility.commandrouters.types.CommandHandler;
+import nl.juraji.biliomi.utility.commandrouters.types.CommandHandlers;
 import nl.juraji.biliomi.utility.commandrouters.types.RegistryEntry;
-import nl.juraji.biliomi.utility.types.collections.CIMap;
+import org.apache.commons.beanutils.BeanUtils;
 
 import javax.enterprise.inject.Default;
 import javax.inject.Singleton;
 import java.lang.reflect.Method;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Created by Juraji on 2-5-2017.
  * Biliomi v3
+ * <p>
+ * Every command and alias resolves to a single RegistryEntry, holding the handler and the Command metadata.
+ * Lookups are done on an immutable CommandLookupTable, which is rebuilt and swapped on any change,
+ * so dispatching a command is a single lookup without locking or database access.
  */
 @Default
 @Singleton
 public class CommandRouterRegistry {
-  private final CIMap<RegistryEntry> registry = new CIMap<>();
-  private final CIMap<String> aliassesRegistry = new CIMap<>();
+  private final Map<String, RegistryEntry<CommandHandler>> registry = new HashMap<>();
+  private final Map<String, String> aliassesRegistry = new HashMap<>();
+  private final Map<Method, CommandHandler> handlers = new HashMap<>();
+  private volatile CommandLookupTable lookupTable = CommandLookupTable.EMPTY;
 
   public boolean containsKey(String key) {
-    return registry.containsKey(key) || aliassesRegistry.containsKey(key);
+    return lookupTable.get(key) != null;
   }
 
-  public RegistryEntry get(String key) {
-    // Translate alias, else use key itself
-    String tKey = translateAlias(key);
-    return registry.getOrDefault(tKey, null);
+  /**
+   * Get the entry for a command or alias
+   *
+   * @param key The command or alias, case insensitive
+   * @return The RegistryEntry or null if the command does not exist
+   */
+  public RegistryEntry<CommandHandler> get(String key) {
+    return lookupTable.get(key);
   }
 
-  public void put(String key, Component component, Method method) {
-    registry.put(key, new RegistryEntry(component, method));
+  /**
+   * Get the registry entry for the command call, without extracting the command from the message
+   *
+   * @param commandCall The CommandCall to look up
+   * @return The RegistryEntry for the called command or null if it is not registered
+   */
+  public RegistryEntry<CommandHandler> lookup(CommandCall commandCall) {
+    return lookupTable.get(commandCall.getMessage(), CommandCall.COMMAND_START, commandCall.getCommandEnd());
   }
 
-  public void remove(String key) {
-    registry.remove(key);
+  /**
+   * Register a command, including its aliasses
+   *
+   * @param command   The persisted Command
+   * @param component The component implementing the command
+   * @param method    The command method
+   */
+  public synchronized void put(Command command, Component component, Method method) {
+    String key = CommandLookupTable.normalize(command.getCommand());
+    // Components are singletons, so handlers can be shared by all commands using the same method (i.e. custom commands)
+    CommandHandler handler = handlers.computeIfAbsent(method, m -> CommandHandlers.forCommand(component, m));
+    registry.put(key, new RegistryEntry<>(component, method, handler, command));
+    command.getAliasses().forEach(alias -> aliassesRegistry.put(CommandLookupTable.normalize(alias), key));
+    rebuild();
   }
 
-  public String putAlias(String alias, String command) {
-    return aliassesRegistry.put(alias, command);
+  /**
+   * Replace the Command metadata of a registered command, use after persisting changes to a Command
+   *
+   * @param command The updated Command
+   */
+  public synchronized void update(Command command) {
+    String key = CommandLookupTable.normalize(command.getCommand());
+    RegistryEntry<CommandHandler> entry = registry.get(key);
+
+    if (entry != null) {
+      registry.put(key, entry.withCommand(command));
+      rebuild();
+    }
+  }
+
+  /**
+   * Replace the UserGroup of all registered commands requiring the given group, use after persisting changes to a UserGroup
+   * Permission checks compare against the group weight, so registered commands must not keep an outdated group.
+   * Published entries are never changed, the affected commands are copied into new entries
+   *
+   * @param userGroup The updated UserGroup
+   */
+  public synchronized void updateUserGroup(UserGroup userGroup) {
+    boolean updated = false;
+
+    for (Map.Entry<String, RegistryEntry<CommandHandler>> registryEntry : registry.entrySet()) {
+      Command command = registryEntry.getValue().getCommand();
+      if (command.getUserGroup() != null && command.getUserGroup().getId() == userGroup.getId()) {
+        Command copy = copyCommand(command);
+        copy.setUserGroup(userGroup);
+        registryEntry.setValue(registryEntry.getValue().withCommand(copy));
+        updated = true;
+      }
+    }
+
+    if (updated) {
+      rebuild();
+    }
+  }
+
+  public synchronized void remove(String key) {
+    if (registry.remove(CommandLookupTable.normalize(key)) != null) {
+      rebuild();
+    }
   }
 
-  public String removeAlias(String alias) {
-    return aliassesRegistry.remove(alias);
+  public synchronized String putAlias(String alias, String command) {
+    String previous = aliassesRegistry.put(CommandLookupTable.normalize(alias), CommandLookupTable.normalize(command));
+    rebuild();
+    return previous;
   }
 
-  public void clearAliassesFor(String command) {
-    Collections.unmodifiableSet(aliassesRegistry.entrySet())
-        .stream()
-        .filter(e -> e.getValue().equalsIgnoreCase(command))
-        .map(Map.Entry::getKey)
-        .forEach(aliassesRegistry::remove);
+  public synchronized String removeAlias(String alias) {
+    String previous = aliassesRegistry.remove(CommandLookupTable.normalize(alias));
+    if (previous != null) {
+      rebuild();
+    }
+    return previous;
+  }
+
+  public synchronized void clearAliassesFor(String command) {
+    String key = CommandLookupTable.normalize(command);
+    if (aliassesRegistry.values().removeIf(key::equals)) {
+      rebuild();
+    }
   }
 
   public String translateAlias(String key) {
-    return aliassesRegistry.getOrDefault(key, key);
+    RegistryEntry<CommandHandler> entry = lookupTable.get(key);
+    return (entry == null ? key : entry.getCommand().getCommand());
+  }
+
+  /**
+   * Shallow copy a Command, keeping its type
+   */
+  private static Command copyCommand(Command command) {
+    try {
+      return (Command) BeanUtils.cloneBean(command);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Could not copy command " + command.getCommand(), e);
+    }
   }
 
+  private void rebuild() {
+    Map<String, RegistryEntry<CommandHandler>> entries = new HashMap<>(registry);
+
+    // Aliasses resolve directly to the entry of their command
+    aliassesRegistry.forEach((alias, command) -> {
+      RegistryEntry<CommandHandler> entry = registry.get(command);
+      if (entry != null) {
+        entries.put(alias, entry);
+      }
+    });
+
+    lookupTable = new CommandLookupTable(entries);
+  }
 }
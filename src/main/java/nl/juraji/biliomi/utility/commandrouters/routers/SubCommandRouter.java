@@ -6,12 +6,12 @@ import nl.juraji.biliomi.model.core.User;
 import nl.juraji.biliomi.components.interfaces.Component;
 import nl.juraji.biliomi.utility.commandrouters.annotations.SubCommandRoute;
 import nl.juraji.biliomi.utility.commandrouters.types.Arguments;
+import nl.juraji.biliomi.utility.commandrouters.types.CommandHandler;
+import nl.juraji.biliomi.utility.commandrouters.types.CommandHandlers;
 import nl.juraji.biliomi.utility.commandrouters.types.CommandRouteInvocationException;
 import nl.juraji.biliomi.utility.commandrouters.types.CommandRouteNotFoundException;
 
 import javax.enterprise.inject.Vetoed;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 
 /**
  * Created by Juraji on 1-5-2017.
@@ -21,7 +21,7 @@ import java.lang.reflect.Method;
 @SuppressWarnings("CdiManagedBeanInconsistencyInspection")
 public class SubCommandRouter {
   private final Component parentComponent;
-  private final Table<String, String, Method> subCommandExecutors = HashBasedTable.create();
+  private final Table<String, String, CommandHandler> subCommandExecutors = HashBasedTable.create();
 
   public SubCommandRouter(Component parentComponent) {
     this.parentComponent = parentComponent;
@@ -30,22 +30,21 @@ public class SubCommandRouter {
   public void buildRoutes() throws Exception {
     if (subCommandExecutors.isEmpty()) {
       CommandRouter.findCommandMethods(parentComponent.getClass(), SubCommandRoute.class)
-          .forEach((annot, method) -> subCommandExecutors.put(annot.parentCommand(), annot.command(), method));
+          .forEach((annot, method) -> subCommandExecutors.put(annot.parentCommand(), annot.command(),
+              CommandHandlers.forCommand(parentComponent, method)));
     }
   }
 
   public boolean invokeSubCommand(String parentCommand, String subCommand, User user, Arguments arguments) throws CommandRouteInvocationException {
-    Method method = subCommandExecutors.get(parentCommand, subCommand);
+    CommandHandler handler = subCommandExecutors.get(parentCommand, subCommand);
 
-    if (method == null) {
+    if (handler == null) {
       throw new CommandRouteNotFoundException("No executor exists for subcommand " + parentCommand + " -> " + subCommand);
     }
 
     try {
-      return (boolean) method.invoke(parentComponent, user, arguments);
-    } catch (IllegalAccessException e) {
-      throw new CommandRouteInvocationException("Executor not accessible for subcommand " + parentCommand + " -> " + subCommand, e);
-    } catch (InvocationTargetException e) {
+      return handler.handle(user, arguments);
+    } catch (Exception e) {
       throw new CommandRouteInvocationException("Error invoking executor for subcommand " + parentCommand + " -> " + subCommand, e);
     }
   }
@@ -13,10 +13,23 @@ import java.util.stream.Stream;
 public final class Arguments implements Iterable<String> {
   private final String command;
   private final List<String> arguments = new FastList<>();
+  private final String source;
+  private final int[] offsets;
+  private int popped;
 
   public Arguments(String command, Collection<String> arguments) {
+    this(command, arguments, null, null);
+  }
+
+  /**
+   * @param source  The text the arguments were parsed from
+   * @param offsets The offset of each argument within the source
+   */
+  Arguments(String command, Collection<String> arguments, String source, int[] offsets) {
     this.command = command;
     this.arguments.addAll(arguments);
+    this.source = source;
+    this.offsets = offsets;
   }
 
   public Arguments(String command, String... arguments) {
@@ -42,7 +55,7 @@ public final class Arguments implements Iterable<String> {
    * @return The first argument or NULL if it doesn't exist
    */
   public String pop() {
-    return (isEmpty() ? null : arguments.remove(0));
+    return (isEmpty() ? null : removeFirst());
   }
 
   /**
@@ -51,7 +64,7 @@ public final class Arguments implements Iterable<String> {
    * @return The first argument or an empty string if it doesn't exist
    */
   public String popSafe() {
-    return (isEmpty() ? "" : arguments.remove(0));
+    return (isEmpty() ? "" : removeFirst());
   }
 
   /**
@@ -160,12 +173,33 @@ public final class Arguments implements Iterable<String> {
   }
 
   /**
+   * When the arguments were parsed from a message the remaining part of the message is returned as is,
+   * including quotes and whitespace, unless the remainder is a single quoted argument, which is returned without its quotes
+   *
    * @return A string containing all arguments in order of input separated by a space character
    */
   @Override
   public String toString() {
+    if (source != null) {
+      if (isEmpty()) {
+        return "";
+      }
+
+      // The parsed argument is the text within the quotes
+      if (arguments.size() == 1 && source.charAt(offsets[popped]) == '"') {
+        return arguments.get(0);
+      }
+
+      return source.substring(offsets[popped]);
+    }
+
     return arguments.stream()
         .reduce((l, r) -> l + ' ' + r)
         .orElse("");
   }
+
+  private String removeFirst() {
+    ++popped;
+    return arguments.remove(0);
+  }
 }
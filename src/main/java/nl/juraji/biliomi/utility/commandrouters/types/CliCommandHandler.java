@@ -0,0 +1,14 @@
+package nl.juraji.biliomi.utility.commandrouters.types;
+
+import nl.juraji.biliomi.model.internal.events.bot.ConsoleInputEvent;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Typed handler for console command methods, see CommandHandlers
+ */
+@FunctionalInterface
+public interface CliCommandHandler {
+  boolean handle(ConsoleInputEvent event) throws Exception;
+}
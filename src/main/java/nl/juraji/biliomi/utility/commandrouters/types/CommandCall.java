@@ -1,32 +1,132 @@
 package nl.juraji.biliomi.utility.commandrouters.types;
 
-import com.google.common.base.Splitter;
-
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Created by Juraji on 2-5-2017.
  * Biliomi v3
+ * <p>
+ * A command call is parsed in two phases.
+ * Constructing a CommandCall only locates the command token within the message, so it can be looked up
+ * in the registry without copying it. The arguments are only tokenized when they are requested,
+ * which in practice means only for registered commands.
+ * <p>
+ * Arguments are separated by spaces, an argument can be wrapped in double quotes to include spaces.
  */
 public final class CommandCall {
-  private final String command;
-  private final List<String> argList;
+  public static final int COMMAND_START = 1;
+  private static final char SEPARATOR = ' ';
+  private static final char QUOTE = '"';
+
+  private final String message;
+  private final int commandEnd;
+  private String command;
+  private String argumentSource;
+  private List<String> argList;
+  private int[] argOffsets;
 
   public CommandCall(String message) {
-    List<String> parts = Splitter.on(" ").splitToList(message.trim());
-    this.command = parts.get(0).substring(1);
-    this.argList = parts.subList(1, parts.size());
+    this.message = message;
+
+    // Trailing whitespace is not part of the command, the same as String#trim()
+    int length = message.length();
+    while (length > COMMAND_START && message.charAt(length - 1) <= SEPARATOR) {
+      --length;
+    }
+
+    int end = message.indexOf(SEPARATOR, COMMAND_START);
+    this.commandEnd = (end == -1 || end > length ? length : end);
+  }
+
+  /**
+   * @return The message this call was parsed from
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * @return The index in the message after the last character of the command
+   */
+  public int getCommandEnd() {
+    return commandEnd;
   }
 
   public String getCommand() {
+    if (command == null) {
+      command = message.substring(COMMAND_START, commandEnd);
+    }
     return command;
   }
 
+  /**
+   * Get the arguments for this call
+   * The arguments are tokenized on the first call, every call returns a new Arguments instance
+   *
+   * @return An Arguments object containing the arguments following the command
+   */
   public Arguments getArguments() {
-    return new Arguments(command, argList);
+    if (argList == null) {
+      tokenize();
+    }
+    return new Arguments(getCommand(), argList, argumentSource, argOffsets);
   }
 
   public static boolean isCallable(String message) {
     return (message.length() > 1 && message.startsWith("!") && !message.startsWith("!!"));
   }
+
+  private void tokenize() {
+    String source = message.trim();
+    List<String> tokens = new ArrayList<>();
+    int[] offsets = new int[8];
+    int length = source.length();
+    int i = commandEnd;
+
+    while (i < length) {
+      if (source.charAt(i) == SEPARATOR) {
+        ++i;
+        continue;
+      }
+
+      int start = i;
+      int closingQuote = (source.charAt(i) == QUOTE ? findClosingQuote(source, i) : -1);
+      if (closingQuote == -1) {
+        int end = source.indexOf(SEPARATOR, i);
+        i = (end == -1 ? length : end);
+        tokens.add(source.substring(start, i));
+      } else {
+        tokens.add(source.substring(start + 1, closingQuote));
+        i = closingQuote + 1;
+      }
+
+      if (tokens.size() > offsets.length) {
+        int[] grown = new int[offsets.length * 2];
+        System.arraycopy(offsets, 0, grown, 0, offsets.length);
+        offsets = grown;
+      }
+      offsets[tokens.size() - 1] = start;
+    }
+
+    this.argumentSource = source;
+    this.argOffsets = offsets;
+    this.argList = (tokens.isEmpty() ? Collections.emptyList() : tokens);
+  }
+
+  /**
+   * A quote only closes an argument when it is followed by a separator or the end of the message,
+   * any other quote is treated as a regular character
+   */
+  private static int findClosingQuote(String source, int openingQuote) {
+    int quote = source.indexOf(QUOTE, openingQuote + 1);
+    while (quote != -1) {
+      if (quote + 1 == source.length() || source.charAt(quote + 1) == SEPARATOR) {
+        return quote;
+      }
+      quote = source.indexOf(QUOTE, quote + 1);
+    }
+    return -1;
+  }
 }
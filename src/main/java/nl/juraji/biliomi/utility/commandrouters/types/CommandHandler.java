@@ -0,0 +1,14 @@
+package nl.juraji.biliomi.utility.commandrouters.types;
+
+import nl.juraji.biliomi.model.core.User;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Typed handler for chat command and subcommand methods, see CommandHandlers
+ */
+@FunctionalInterface
+public interface CommandHandler {
+  boolean handle(User user, Arguments arguments) throws Exception;
+}
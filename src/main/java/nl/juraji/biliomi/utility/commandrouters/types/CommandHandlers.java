@@ -0,0 +1,90 @@
+package nl.juraji.biliomi.utility.commandrouters.types;
+
+import org.apache.logging.log4j.LogManager;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Creates typed handlers for command methods.
+ * Handlers are generated using the LambdaMetafactory, so invoking a command is a plain interface call,
+ * without the boxing, argument arrays and exception wrapping of Method.invoke().
+ * When a handler can not be generated (i.e. the method is not accessible) a reflective handler is used instead.
+ */
+public final class CommandHandlers {
+  private static final String HANDLER_METHOD_NAME = "handle";
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  private CommandHandlers() {
+  }
+
+  /**
+   * Create a handler for a command or subcommand method
+   *
+   * @param target The instance to invoke the method on
+   * @param method A method with the interface boolean (User, Arguments)
+   * @return A CommandHandler bound to the target
+   */
+  public static CommandHandler forCommand(Object target, Method method) {
+    CommandHandler handler = generate(CommandHandler.class, target, method);
+
+    if (handler == null) {
+      handler = (user, arguments) -> invokeReflective(target, method, user, arguments);
+    }
+
+    return handler;
+  }
+
+  /**
+   * Create a handler for a console command method
+   *
+   * @param target The instance to invoke the method on
+   * @param method A method with the interface boolean (ConsoleInputEvent)
+   * @return A CliCommandHandler bound to the target
+   */
+  public static CliCommandHandler forCliCommand(Object target, Method method) {
+    CliCommandHandler handler = generate(CliCommandHandler.class, target, method);
+
+    if (handler == null) {
+      handler = event -> invokeReflective(target, method, event);
+    }
+
+    return handler;
+  }
+
+  private static <H> H generate(Class<H> handlerType, Object target, Method method) {
+    try {
+      MethodHandle implementation = LOOKUP.unreflect(method);
+      MethodType methodType = MethodType.methodType(method.getReturnType(), method.getParameterTypes());
+      CallSite callSite = LambdaMetafactory.metafactory(LOOKUP, HANDLER_METHOD_NAME,
+          MethodType.methodType(handlerType, method.getDeclaringClass()),
+          methodType, implementation, methodType);
+
+      return handlerType.cast(callSite.getTarget().invoke(target));
+    } catch (Throwable e) {
+      LogManager.getLogger(CommandHandlers.class).warn("Could not generate a handler for " + method.getDeclaringClass().getSimpleName()
+          + " -> " + method.getName() + "(), falling back to reflection", e);
+      return null;
+    }
+  }
+
+  private static boolean invokeReflective(Object target, Method method, Object... arguments) throws Exception {
+    try {
+      return (boolean) method.invoke(target, arguments);
+    } catch (InvocationTargetException e) {
+      // Unwrap, so callers see the same exceptions as they would from a generated handler
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
@@ -1,20 +1,31 @@
 package nl.juraji.biliomi.utility.commandrouters.types;
 
 import nl.juraji.biliomi.components.interfaces.Component;
+import nl.juraji.biliomi.model.core.Command;
 
 import java.lang.reflect.Method;
 
 /**
  * Created by robin on 1-6-17.
  * biliomi
+ *
+ * @param <H> The type of handler, CommandHandler or CliCommandHandler
  */
-public final class RegistryEntry {
+public final class RegistryEntry<H> {
   private final Component componentInstance;
   private final Method method;
+  private final H handler;
+  private final Command command;
 
-  public RegistryEntry(Component componentInstance, Method method) {
+  public RegistryEntry(Component componentInstance, Method method, H handler) {
+    this(componentInstance, method, handler, null);
+  }
+
+  public RegistryEntry(Component componentInstance, Method method, H handler, Command command) {
     this.componentInstance = componentInstance;
     this.method = method;
+    this.handler = handler;
+    this.command = command;
   }
 
   public Component getComponentInstance() {
@@ -24,4 +35,26 @@ public final class RegistryEntry {
   public Method getMethod() {
     return method;
   }
+
+  /**
+   * @return The handler invoking the command method on the component
+   */
+  public H getHandler() {
+    return handler;
+  }
+
+  /**
+   * @return The Command metadata (price, cooldown, permissions) for chat commands, null for cli commands
+   */
+  public Command getCommand() {
+    return command;
+  }
+
+  /**
+   * @param command The updated Command metadata
+   * @return A new RegistryEntry for the same handler, with the updated Command metadata
+   */
+  public RegistryEntry<H> withCommand(Command command) {
+    return new RegistryEntry<>(componentInstance, method, handler, command);
+  }
 }
@@ -39,6 +39,10 @@ public final class JacksonMarshaller {
     return getObjectMapper().readValue(json, type);
   }
 
+  public static <T> T unmarshal(byte[] json, Class<T> type) throws IOException {
+    return getObjectMapper().readValue(json, type);
+  }
+
   public static <T> T convertJsonNode(JsonNode node, Class<T> type) {
     return getObjectMapper().convertValue(node, type);
   }
@@ -0,0 +1,91 @@
+package nl.juraji.biliomi.utility.jpa.managed;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Limits the amount of database sessions a group of threads can have open at once,
+ * like the threads handling REST api requests, so they can never take all connections of the pool.
+ * <p>
+ * A thread enters a budget before doing work and exits it afterwards, threads that did not enter a budget are not limited.
+ * Each thread takes at most one permit, which is held while any of its sessions is open.
+ */
+public final class ConnectionBudget {
+  private static final ThreadLocal<Budget> currentBudget = new ThreadLocal<>();
+
+  private ConnectionBudget() {
+  }
+
+  /**
+   * Limit the database sessions of the current thread
+   *
+   * @param permits       The permits shared by all threads in the budget
+   * @param timeoutMillis The maximum time to wait for a permit
+   */
+  public static void enter(Semaphore permits, long timeoutMillis) {
+    exit();
+    currentBudget.set(new Budget(permits, timeoutMillis));
+  }
+
+  /**
+   * Stop limiting the database sessions of the current thread, a permit that is still held is released
+   */
+  public static void exit() {
+    Budget budget = currentBudget.get();
+    if (budget != null) {
+      if (budget.openSessions > 0) {
+        budget.permits.release();
+      }
+      currentBudget.remove();
+    }
+  }
+
+  /**
+   * Take a permit for a new session, when the current thread entered a budget
+   *
+   * @throws IllegalStateException When no permit became available in time
+   */
+  static void acquire() {
+    Budget budget = currentBudget.get();
+    if (budget == null) {
+      return;
+    }
+
+    if (budget.openSessions == 0) {
+      try {
+        if (!budget.permits.tryAcquire(budget.timeoutMillis, TimeUnit.MILLISECONDS)) {
+          throw new IllegalStateException("Timed out waiting for a database connection");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for a database connection", e);
+      }
+    }
+
+    budget.openSessions++;
+  }
+
+  /**
+   * Return the permit once the last session of the current thread is closed
+   */
+  static void release() {
+    Budget budget = currentBudget.get();
+    if (budget != null && budget.openSessions > 0 && --budget.openSessions == 0) {
+      budget.permits.release();
+    }
+  }
+
+  private static final class Budget {
+    private final Semaphore permits;
+    private final long timeoutMillis;
+    private int openSessions;
+
+    private Budget(Semaphore permits, long timeoutMillis) {
+      this.permits = permits;
+      this.timeoutMillis = timeoutMillis;
+    }
+  }
+}
@@ -11,13 +11,53 @@ import javax.persistence.EntityManagerFactory;
  */
 public abstract class Managed {
   protected final Session session;
+  private final boolean batched;
+  private boolean closed;
 
   public Managed(EntityManagerFactory emf) {
-    session = emf.createEntityManager().unwrap(HibernateEntityManager.class).getSession();
+    Session batchSession = ManagedBatch.currentSession();
+    if (batchSession != null) {
+      // Join the batch active on this thread, the batch owns the session
+      session = batchSession;
+      batched = true;
+      return;
+    }
+
+    ConnectionBudget.acquire();
+    try {
+      session = emf.createEntityManager().unwrap(HibernateEntityManager.class).getSession();
+      batched = false;
+    } catch (RuntimeException e) {
+      ConnectionBudget.release();
+      throw e;
+    }
+  }
+
+  /**
+   * @return True when this joined the session of a ManagedBatch
+   */
+  protected boolean isBatched() {
+    return batched;
+  }
+
+  /**
+   * Close the session and return its permit to the connection budget of the current thread
+   * The session of a batch is left open for the batch to close
+   */
+  protected void closeSession() {
+    closed = true;
+
+    if (!batched && session.isOpen()) {
+      try {
+        session.close();
+      } finally {
+        ConnectionBudget.release();
+      }
+    }
   }
 
   protected void validateSession() {
-    if (!session.isOpen()) {
+    if (closed || !session.isOpen()) {
       throw new IllegalStateException(getClass().getSimpleName() + " cannot be reused");
     }
   }
@@ -0,0 +1,107 @@
+package nl.juraji.biliomi.utility.jpa.managed;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Runs work within a single session and transaction.
+ * While the work runs, every ManagedCriteria and ManagedTransaction created on the same thread joins the batch,
+ * so existing dao methods can be used as is. Their changes are committed together when the work completes,
+ * or rolled back when it fails or the batch was marked rollback only.
+ * <p>
+ * Updates and deletes are sent to the database in JDBC batches when the transaction is flushed.
+ */
+public final class ManagedBatch extends Managed {
+  private static final ThreadLocal<ManagedBatch> currentBatch = new ThreadLocal<>();
+
+  private final List<Runnable> afterCommitActions = new ArrayList<>();
+  private boolean rollbackOnly;
+
+  public ManagedBatch(EntityManagerFactory emf) {
+    super(emf);
+
+    if (isBatched()) {
+      throw new IllegalStateException("A batch is already active on this thread");
+    }
+  }
+
+  /**
+   * Run an action once the batch active on the current thread is committed,
+   * when no batch is active the action is run immediately.
+   * Use this for changes outside of the database, which should not happen when the batch is rolled back.
+   *
+   * @param action The action to run
+   */
+  public static void afterCommit(Runnable action) {
+    ManagedBatch batch = currentBatch.get();
+
+    if (batch == null) {
+      action.run();
+    } else {
+      batch.afterCommitActions.add(action);
+    }
+  }
+
+  /**
+   * Roll back the batch once its work completes, instead of committing it
+   */
+  public void setRollbackOnly() {
+    this.rollbackOnly = true;
+  }
+
+  public boolean isRollbackOnly() {
+    return rollbackOnly;
+  }
+
+  /**
+   * Run the work within the batch
+   *
+   * @param work The work to run
+   * @param <R>  The result type of the work
+   * @return The result of the work
+   * @throws Exception When the work or the commit fails, the batch is rolled back
+   */
+  public <R> R execute(Callable<R> work) throws Exception {
+    validateSession();
+    Transaction transaction = session.beginTransaction();
+    currentBatch.set(this);
+
+    try {
+      R result = work.call();
+
+      if (rollbackOnly) {
+        transaction.rollback();
+      } else {
+        transaction.commit();
+        afterCommitActions.forEach(Runnable::run);
+      }
+
+      return result;
+    } catch (Exception e) {
+      if (transaction.isActive()) {
+        transaction.rollback();
+      }
+      throw e;
+    } finally {
+      currentBatch.remove();
+      afterCommitActions.clear();
+      closeSession();
+    }
+  }
+
+  /**
+   * @return The session of the batch active on the current thread or null when no batch is active
+   */
+  static Session currentSession() {
+    ManagedBatch batch = currentBatch.get();
+    return (batch == null ? null : batch.session);
+  }
+}
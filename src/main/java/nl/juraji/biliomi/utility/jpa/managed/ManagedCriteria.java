@@ -1,11 +1,13 @@
 package nl.juraji.biliomi.utility.jpa.managed;
 
 import org.hibernate.Criteria;
+import org.hibernate.FetchMode;
 import org.hibernate.criterion.*;
 import org.hibernate.transform.ResultTransformer;
 
 import javax.persistence.EntityManagerFactory;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by Juraji on 29-4-2017.
@@ -61,6 +63,17 @@ public class ManagedCriteria<T> extends Managed {
     return this;
   }
 
+  public ManagedCriteria<T> setFirstResult(int i) {
+    criteria.setFirstResult(i);
+    return this;
+  }
+
+  public ManagedCriteria<T> setFetchMode(String property, FetchMode fetchMode) {
+    validateSession();
+    criteria.setFetchMode(property, fetchMode);
+    return this;
+  }
+
   public T getRandom() {
     criteria.add(Restrictions.sqlRestriction(RAND_SQL_RESTRICTION));
     return getResult();
@@ -76,7 +89,7 @@ public class ManagedCriteria<T> extends Managed {
           .setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY)
           .uniqueResult();
     } finally {
-      session.close();
+      closeSession();
     }
 
     return result;
@@ -91,7 +104,27 @@ public class ManagedCriteria<T> extends Managed {
       this.criteria.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
       list = criteria.list();
     } finally {
-      session.close();
+      closeSession();
+    }
+
+    return list;
+  }
+
+  /**
+   * Get the results of a projection as maps of the projection aliases to the projected values
+   *
+   * @return A list of maps, one for each row
+   */
+  @SuppressWarnings("unchecked")
+  public List<Map<String, Object>> getMapList() {
+    List<Map<String, Object>> list;
+
+    try {
+      validateSession();
+      criteria.setResultTransformer(Criteria.ALIAS_TO_ENTITY_MAP);
+      list = criteria.list();
+    } finally {
+      closeSession();
     }
 
     return list;
@@ -106,7 +139,7 @@ public class ManagedCriteria<T> extends Managed {
           .setProjection(Projections.rowCount())
           .uniqueResult();
     } finally {
-      session.close();
+      closeSession();
     }
 
     return count;
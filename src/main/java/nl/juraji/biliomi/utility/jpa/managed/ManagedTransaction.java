@@ -24,17 +24,24 @@ public class ManagedTransaction extends Managed {
 
   public void executeWithinTransaction(Consumer<Session> sessionConsumer) {
     validateSession();
-    Transaction transaction = session.beginTransaction();
+    // Within a batch the batch commits or rolls back all work at once
+    Transaction transaction = (isBatched() ? null : session.beginTransaction());
     try {
       sessionConsumer.accept(session);
-      transaction.commit();
-      session.flush();
+      if (transaction != null) {
+        transaction.commit();
+        session.flush();
+      }
     } catch (Exception e) {
-      transaction.rollback();
-      exceptionConsumer.accept(e);
+      if (transaction != null) {
+        transaction.rollback();
+      }
+      if (exceptionConsumer != null) {
+        exceptionConsumer.accept(e);
+      }
       throw e;
     } finally {
-      session.close();
+      closeSession();
     }
   }
 }
@@ -0,0 +1,184 @@
+package nl.juraji.biliomi.utility.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import nl.juraji.biliomi.components.system.settings.SettingsService;
+import nl.juraji.biliomi.model.core.security.ApiLogin;
+import nl.juraji.biliomi.model.core.security.ApiSecuritySettings;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.inject.Default;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.xml.bind.DatatypeConverter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Fast path for the authorization of REST api requests.
+ * Keeps a snapshot of the ApiSecuritySettings, which is replaced when the settings are saved,
+ * so requests do not hit the database for the secret and logins.
+ * Verified tokens are cached by their SHA-256 digest until the token expires,
+ * the cache is cleared when the secret or the logins change.
+ * <p>
+ * Logins refer to users by display name, which may change outside of the settings.
+ * Tokens for unknown users reload the snapshot, at most once every few seconds,
+ * and the snapshot is reloaded when it gets old.
+ */
+@Default
+@Singleton
+public class ApiSecurityCache {
+  private static final int MAX_CACHED_TOKENS = 1000;
+  private static final long SNAPSHOT_MAX_AGE = TimeUnit.MINUTES.toMillis(5);
+  private static final long SNAPSHOT_MIN_RELOAD_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+  @Inject
+  private SettingsService settingsService;
+
+  @Inject
+  private JWTGenerator jwtGenerator;
+
+  private LongSupplier clock = System::currentTimeMillis;
+
+  private final Cache<String, VerifiedToken> verifiedTokens = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED_TOKENS)
+      .build();
+
+  private volatile Snapshot snapshot;
+
+  @PostConstruct
+  private void initApiSecurityCache() {
+    ApiSecuritySettings settings = settingsService.getSettings(ApiSecuritySettings.class, this::updateSnapshot);
+    updateSnapshot(settings);
+  }
+
+  /**
+   * Verify a token and check whether a login exists for its subject
+   *
+   * @param token The JWT
+   * @return The claims of the token
+   * @throws IllegalArgumentException When the token is empty
+   * @throws JwtException             When the token is invalid, expired or for an unknown user
+   */
+  public Claims verifyToken(String token) throws JwtException {
+    if (StringUtils.isEmpty(token)) {
+      throw new IllegalArgumentException("Token is empty");
+    }
+
+    Snapshot currentSnapshot = getSnapshot();
+    String digest = digest(token);
+    VerifiedToken verifiedToken = verifiedTokens.getIfPresent(digest);
+
+    if (verifiedToken != null) {
+      if (verifiedToken.expiresAt > clock.getAsLong()) {
+        return verifiedToken.claims;
+      }
+      verifiedTokens.invalidate(digest);
+    }
+
+    Claims claims = jwtGenerator.validateToken(currentSnapshot.secret, token);
+
+    if (!currentSnapshot.hasLogin(claims.getSubject()) && !reloadSnapshot(currentSnapshot).hasLogin(claims.getSubject())) {
+      throw new JwtException("No login known for user " + claims.getSubject());
+    }
+
+    Date expiration = claims.getExpiration();
+    if (expiration != null) {
+      verifiedTokens.put(digest, new VerifiedToken(claims, expiration.getTime()));
+    }
+
+    return claims;
+  }
+
+  private Snapshot getSnapshot() {
+    Snapshot currentSnapshot = snapshot;
+    if (clock.getAsLong() - currentSnapshot.loadedAt > SNAPSHOT_MAX_AGE) {
+      return reloadSnapshot(currentSnapshot);
+    }
+    return currentSnapshot;
+  }
+
+  /**
+   * Reload the snapshot from the database, unless it was (re)loaded recently
+   *
+   * @param currentSnapshot The snapshot the caller found outdated
+   * @return The snapshot to use
+   */
+  private synchronized Snapshot reloadSnapshot(Snapshot currentSnapshot) {
+    if (snapshot != currentSnapshot || clock.getAsLong() - currentSnapshot.loadedAt < SNAPSHOT_MIN_RELOAD_INTERVAL) {
+      return snapshot;
+    }
+
+    updateSnapshot(settingsService.getSettings(ApiSecuritySettings.class));
+    return snapshot;
+  }
+
+  private synchronized void updateSnapshot(ApiSecuritySettings settings) {
+    Snapshot newSnapshot = new Snapshot(settings, clock.getAsLong());
+
+    if (snapshot == null || !snapshot.sameAs(newSnapshot)) {
+      verifiedTokens.invalidateAll();
+    }
+
+    snapshot = newSnapshot;
+  }
+
+  private static String digest(String token) {
+    try {
+      MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+      return DatatypeConverter.printBase64Binary(messageDigest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class Snapshot {
+    private final byte[] secret;
+    private final Set<String> loginDisplayNames;
+    private final long loadedAt;
+
+    private Snapshot(ApiSecuritySettings settings, long loadedAt) {
+      Set<String> displayNames = new HashSet<>();
+      for (ApiLogin apiLogin : settings.getLogins()) {
+        displayNames.add(apiLogin.getUser().getDisplayName());
+      }
+
+      this.secret = settings.getSecret().clone();
+      this.loginDisplayNames = Collections.unmodifiableSet(displayNames);
+      this.loadedAt = loadedAt;
+    }
+
+    private boolean hasLogin(String displayName) {
+      return displayName != null && loginDisplayNames.contains(displayName);
+    }
+
+    private boolean sameAs(Snapshot other) {
+      return Arrays.equals(secret, other.secret) && loginDisplayNames.equals(other.loginDisplayNames);
+    }
+  }
+
+  private static final class VerifiedToken {
+    private final Claims claims;
+    private final long expiresAt;
+
+    private VerifiedToken(Claims claims, long expiresAt) {
+      this.claims = claims;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package nl.juraji.biliomi.utility.types;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * A template that is parsed once into literal text and {{key}} placeholders, for templates that are applied often.
+ * Applying it is a single pass over the parsed parts, only the replacements used in the template are evaluated.
+ * Replacement values are formatted the same way as in the Templater.
+ */
+public final class CompiledTemplate {
+  private static final String KEY_START = "{{";
+  private static final String KEY_END = "}}";
+
+  private final String template;
+  private final String[] literals;
+  private final int[] keyIndexes;
+  private final String[] keys;
+
+  private CompiledTemplate(String template, List<String> literals, List<Integer> keyIndexes, List<String> keys) {
+    this.template = template;
+    this.literals = literals.toArray(new String[literals.size()]);
+    this.keyIndexes = keyIndexes.stream().mapToInt(Integer::intValue).toArray();
+    this.keys = keys.toArray(new String[keys.size()]);
+  }
+
+  /**
+   * Parse a template
+   *
+   * @param template The template to compile, null is treated as empty
+   * @return A new CompiledTemplate
+   */
+  public static CompiledTemplate compile(String template) {
+    String source = (template == null ? "" : template);
+    List<String> literals = new ArrayList<>();
+    List<Integer> keyIndexes = new ArrayList<>();
+    List<String> keys = new ArrayList<>();
+
+    int position = 0;
+    int start;
+    while ((start = source.indexOf(KEY_START, position)) != -1) {
+      int end = source.indexOf(KEY_END, start + KEY_START.length());
+      if (end == -1) {
+        break;
+      }
+
+      String key = source.substring(start + KEY_START.length(), end);
+      int keyIndex = keys.indexOf(key);
+      if (keyIndex == -1) {
+        keyIndex = keys.size();
+        keys.add(key);
+      }
+
+      // Each key is preceded by a (possibly empty) literal
+      literals.add(source.substring(position, start));
+      keyIndexes.add(keyIndex);
+      position = end + KEY_END.length();
+    }
+
+    literals.add(source.substring(position));
+    return new CompiledTemplate(source, literals, keyIndexes, keys);
+  }
+
+  /**
+   * @return The original template
+   */
+  public String getTemplate() {
+    return template;
+  }
+
+  /**
+   * @param key The key to search, without {{ or }} marking
+   * @return True when the key is used in the template
+   */
+  public boolean containsKey(String key) {
+    for (String k : keys) {
+      if (k.equals(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Apply replacements to the template
+   * Keys without replacement are left in the result as is
+   *
+   * @param replacements A map of keys, without {{ or }} marking, and their replacement suppliers
+   * @return The resulting string
+   */
+  public String apply(Map<String, Supplier<Object>> replacements) {
+    if (keys.length == 0) {
+      return template;
+    }
+
+    // Evaluate each used replacement once
+    Object[] values = new Object[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      Supplier<Object> supplier = replacements.get(keys[i]);
+      values[i] = (supplier == null ? KEY_START + keys[i] + KEY_END : Templater.checkIsList(supplier.get()));
+    }
+
+    StringBuilder builder = new StringBuilder(template.length() + 16 * keyIndexes.length);
+    for (int i = 0; i < keyIndexes.length; i++) {
+      builder.append(literals[i]).append(values[keyIndexes[i]]);
+    }
+    builder.append(literals[keyIndexes.length]);
+
+    return builder.toString();
+  }
+}
@@ -122,7 +122,7 @@ public final class Templater {
         .toString();
   }
 
-  private static Object checkIsList(Object o) {
+  static Object checkIsList(Object o) {
     if (o == null) {
       return "";
     }
@@ -0,0 +1,193 @@
+package nl.juraji.biliomi.utility.types.collections;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * A set of primitive longs using open addressing with linear probing.
+ * Used for diffing large sets of ids, like all followers of a channel,
+ * where a HashSet of Longs would cost several times the memory and a boxed lookup per element.
+ */
+public class LongHashSet {
+  private static final int DEFAULT_CAPACITY = 16;
+  private static final float LOAD_FACTOR = 0.5f;
+
+  // Zero marks an empty slot in the table, so it is tracked separately
+  private long[] table;
+  private boolean containsZero;
+  private int size;
+  private int resizeThreshold;
+
+  public LongHashSet() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param expectedSize The amount of elements the set should hold without resizing
+   */
+  public LongHashSet(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+    table = new long[capacity];
+    resizeThreshold = (int) (capacity * LOAD_FACTOR);
+  }
+
+  /**
+   * @param value The value to add
+   * @return True if the value was added, false if it was already present
+   */
+  public boolean add(long value) {
+    if (value == 0) {
+      if (containsZero) {
+        return false;
+      }
+      containsZero = true;
+      ++size;
+      return true;
+    }
+
+    int index = indexOf(value);
+    if (table[index] == value) {
+      return false;
+    }
+
+    table[index] = value;
+    if (++size > resizeThreshold) {
+      resize();
+    }
+    return true;
+  }
+
+  public boolean contains(long value) {
+    if (value == 0) {
+      return containsZero;
+    }
+    return table[indexOf(value)] == value;
+  }
+
+  /**
+   * @param value The value to remove
+   * @return True if the value was removed, false if it was not present
+   */
+  public boolean remove(long value) {
+    if (value == 0) {
+      if (!containsZero) {
+        return false;
+      }
+      containsZero = false;
+      --size;
+      return true;
+    }
+
+    int index = indexOf(value);
+    if (table[index] != value) {
+      return false;
+    }
+
+    table[index] = 0;
+    --size;
+    closeGap(index);
+    return true;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    Arrays.fill(table, 0);
+    containsZero = false;
+    size = 0;
+  }
+
+  /**
+   * @param consumer Called for each value, in no particular order
+   */
+  public void forEach(LongConsumer consumer) {
+    if (containsZero) {
+      consumer.accept(0);
+    }
+
+    for (long value : table) {
+      if (value != 0) {
+        consumer.accept(value);
+      }
+    }
+  }
+
+  public long[] toArray() {
+    long[] values = new long[size];
+    int i = 0;
+
+    if (containsZero) {
+      values[i++] = 0;
+    }
+
+    for (long value : table) {
+      if (value != 0) {
+        values[i++] = value;
+      }
+    }
+
+    return values;
+  }
+
+  /**
+   * @return The slot holding the value or the empty slot where it would be inserted
+   */
+  private int indexOf(long value) {
+    int mask = table.length - 1;
+    int index = hash(value) & mask;
+
+    while (table[index] != 0 && table[index] != value) {
+      index = (index + 1) & mask;
+    }
+
+    return index;
+  }
+
+  /**
+   * Move values following a removed slot back, so no probe sequence is interrupted by the gap
+   */
+  private void closeGap(int gap) {
+    int mask = table.length - 1;
+    int index = (gap + 1) & mask;
+
+    while (table[index] != 0) {
+      int home = hash(table[index]) & mask;
+
+      // The value may move into the gap if its home slot is not between the gap and its current slot
+      if (((index - home) & mask) >= ((index - gap) & mask)) {
+        table[gap] = table[index];
+        table[index] = 0;
+        gap = index;
+      }
+
+      index = (index + 1) & mask;
+    }
+  }
+
+  private void resize() {
+    long[] oldTable = table;
+    table = new long[oldTable.length << 1];
+    resizeThreshold = (int) (table.length * LOAD_FACTOR);
+
+    for (long value : oldTable) {
+      if (value != 0) {
+        table[indexOf(value)] = value;
+      }
+    }
+  }
+
+  private static int hash(long value) {
+    // Mix the bits, ids tend to be sequential, which would cluster in the low bits
+    long h = value * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+}
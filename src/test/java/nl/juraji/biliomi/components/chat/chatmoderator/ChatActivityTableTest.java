@@ -0,0 +1,94 @@
+package nl.juraji.biliomi.components.chat.chatmoderator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created by Juraji on 21-10-2017.
+ * Biliomi v3
+ */
+public class ChatActivityTableTest {
+  private static final long START = 1_000_000L;
+  private static final long MAX_AGE = 60000L;
+  private static final long FLOOD_WINDOW = 10000L;
+
+  private ChatActivityTable table;
+
+  @Before
+  public void setUp() throws Exception {
+    table = new ChatActivityTable(MAX_AGE, START);
+  }
+
+  @Test
+  public void countsMessagesWithinFloodWindow() throws Exception {
+    MessageFeatures features = null;
+    for (int i = 0; i < 5; i++) {
+      features = record("viewer", "message " + i, START + i * 1000);
+    }
+    assertEquals(5, features.getMessagesInWindow());
+
+    // The first messages fall outside of the window
+    features = record("viewer", "message 5", START + 12500);
+    assertEquals(3, features.getMessagesInWindow());
+
+    // Other users do not count towards the window
+    assertEquals(1, record("otherviewer", "message 0", START + 12500).getMessagesInWindow());
+  }
+
+  @Test
+  public void detectsDuplicatesByUser() throws Exception {
+    assertFalse(record("viewer", "Hello World", START).isRepeatedByUser());
+    assertTrue(record("Viewer", "hello   world", START + 1000).isRepeatedByUser());
+    assertFalse(record("viewer", "something else", START + 2000).isRepeatedByUser());
+    assertFalse(record("otherviewer", "hello world", START + 3000).isRepeatedByUser());
+  }
+
+  @Test
+  public void countsChannelRepeats() throws Exception {
+    assertEquals(0, record("viewer1", "copy pasta", START).getChannelRepeatCount());
+    assertEquals(1, record("viewer2", "copy pasta", START + 100).getChannelRepeatCount());
+    assertEquals(2, record("viewer3", "copy pasta", START + 200).getChannelRepeatCount());
+
+    // Repeats by the sender themselves are not counted as channel repeats
+    assertEquals(2, record("viewer3", "copy pasta", START + 300).getChannelRepeatCount());
+  }
+
+  @Test
+  public void sweepEvictsInactiveUsers() throws Exception {
+    for (int i = 0; i < 2000; i++) {
+      record("viewer" + i, "message", START + i);
+    }
+    assertEquals(2000, table.size());
+
+    // Keep every other user active, the others should be evicted without breaking lookups
+    for (int i = 0; i < 2000; i += 2) {
+      record("viewer" + i, "message", START + 30000);
+    }
+    long now = START + MAX_AGE + 5000;
+    table.sweep(now);
+    assertEquals(1000, table.size());
+
+    for (int i = 0; i < 2000; i++) {
+      MessageFeatures features = record("viewer" + i, "message", now + 1000);
+      assertEquals("Unexpected activity for viewer" + i, i % 2 == 0, features.isRepeatedByUser());
+    }
+    assertEquals(2000, table.size());
+
+    table.sweep(now + MAX_AGE * 2);
+    assertEquals(0, table.size());
+  }
+
+  @Test
+  public void userKeyIsCaseInsensitive() throws Exception {
+    assertEquals(ChatActivityTable.userKey("Juraji"), ChatActivityTable.userKey("juraji"));
+    assertNotEquals(ChatActivityTable.userKey("juraji"), ChatActivityTable.userKey("biliomi"));
+  }
+
+  private MessageFeatures record(String username, String message, long now) {
+    MessageFeatures features = new MessageFeatures(message, null);
+    table.record(ChatActivityTable.userKey(username), features, now, FLOOD_WINDOW, MAX_AGE);
+    return features;
+  }
+}
@@ -0,0 +1,69 @@
+package nl.juraji.biliomi.components.chat.chatmoderator;
+
+import nl.juraji.biliomi.utility.calculate.PatternUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created by Juraji on 19-10-2017.
+ * Biliomi v3
+ */
+public class MessageFeaturesTest {
+
+  @Test
+  public void getLongestRepeatedSequence() throws Exception {
+    String[] messages = new String[]{
+        "aa ccc bbbbb aaaaaaa sssss",
+        "sdfsdfwegewr sadfasfaaaaaaaaasgsfgdfggfffgdrgeregee aergesargaerthret",
+        "#@$% %^&$%^&$% %^&$%^&$%^&#%$^#*^%& %^$&$%^%*$$#%^&$",
+        "#$%#$&^#$%&#$%^&%$^$% a ^$#%^$%^$^% ^@$%#^$#%^#$% ^$%^#$%^$% ^#$%^$%",
+        "No repetition here"
+    };
+
+    for (String message : messages) {
+      assertEquals("The longest sequence did not match PatternUtils for \"" + message + "\"",
+          PatternUtils.getLongestRepeatedCharacterSequence(message),
+          new MessageFeatures(message, null).getLongestRepeatedSequence());
+    }
+  }
+
+  @Test
+  public void getCapsRatio() throws Exception {
+    MessageFeatures features = new MessageFeatures("HELLO world", null);
+    assertEquals(5, features.getCapsCount());
+    assertEquals(5.0 / 11.0, features.getCapsRatio(), 0.0001);
+    assertEquals(0.0, new MessageFeatures("", null).getCapsRatio(), 0.0);
+  }
+
+  @Test
+  public void getSymbolRatio() throws Exception {
+    MessageFeatures features = new MessageFeatures("ab !?", null);
+    assertEquals(2, features.getSymbolCount());
+    assertEquals(0.5, features.getSymbolRatio(), 0.0001);
+  }
+
+  @Test
+  public void getEmoteCount() throws Exception {
+    assertEquals(0, new MessageFeatures("Kappa", null).getEmoteCount());
+    assertEquals(0, new MessageFeatures("Kappa", "").getEmoteCount());
+    assertEquals(1, new MessageFeatures("Kappa", "25:0-4").getEmoteCount());
+    assertEquals(3, new MessageFeatures("Kappa Keepo Kappa", "25:0-4,12-16/1902:6-10").getEmoteCount());
+  }
+
+  @Test
+  public void getLinks() throws Exception {
+    MessageFeatures noLinks = new MessageFeatures("Hi, my name is Juraji and do not mention websites!", null);
+    assertFalse(noLinks.hasLinkCandidates());
+    assertTrue(noLinks.getLinks().isEmpty());
+
+    assertEquals(1, new MessageFeatures("Hi, my name is Juraji and http://juraji.nl is my website!", null).getLinks().size());
+    assertEquals(1, new MessageFeatures("Hi, my name is Juraji and juraji(dot)nl is my website!", null).getLinks().size());
+    assertEquals(1, new MessageFeatures("Hi, my name is Juraji and juraji[dot]nl is my website!", null).getLinks().size());
+
+    // Quotes mixed into obfuscated links
+    assertEquals(1, new MessageFeatures("Hi, my name is Juraji and juraji(\")nl is my website!", null).getLinks().size());
+    assertEquals(1, new MessageFeatures("Hi, my name is Juraji and juraji-'-nl is my website!", null).getLinks().size());
+    assertEquals(1, new MessageFeatures("Hi, my name is Juraji and juraji(do\"t)nl is my website!", null).getLinks().size());
+  }
+}
@@ -0,0 +1,136 @@
+package nl.juraji.biliomi.components.chat.chatmoderator;
+
+import nl.juraji.biliomi.components.chat.chatmoderator.rules.*;
+import nl.juraji.biliomi.model.chat.settings.ChatModeratorSettings;
+import nl.juraji.biliomi.test.ChatCorpus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * Replays a chat corpus through the moderation path of the chat worker: computing the message features,
+ * recording them as chat activity and evaluating the rules, with every rule enabled.
+ * Activity is recorded at the times in the log, so flood and duplicate detection see the pace of the recorded chat.
+ * Reports the time each rule spends per message and checks the latency of messages against the budget of the engine.
+ * Run using "mvn test -Dtest=ModerationRuleEngineBenchmark", see ChatCorpus to replay a recorded chat log.
+ */
+public class ModerationRuleEngineBenchmark {
+  private static final int WARMUP_PASSES = 20;
+  private static final int MEASURED_PASSES = 50;
+
+  private ChatModeratorLinkPermitService linkPermitService;
+  private ChatActivityTable activityTable;
+  private ModerationRuleEngine engine;
+  private ChatModeratorSettings settings;
+
+  @Before
+  public void setUp() throws Exception {
+    linkPermitService = new ChatModeratorLinkPermitService();
+    linkPermitService.start();
+
+    PostedLinkRule postedLinkRule = new PostedLinkRule();
+    Field linkPermitServiceField = PostedLinkRule.class.getDeclaredField("linkPermitService");
+    linkPermitServiceField.setAccessible(true);
+    linkPermitServiceField.set(postedLinkRule, linkPermitService);
+
+    settings = new ChatModeratorSettings();
+    settings.setDefaultValues();
+    settings.setLinksAllowed(false);
+    settings.setExcessiveCapsAllowed(false);
+    settings.setRepeatedCharactersAllowed(false);
+    settings.setEmoteSpamAllowed(false);
+    settings.setSymbolSpamAllowed(false);
+    settings.setLongMessagesAllowed(false);
+    settings.setDuplicateMessagesAllowed(false);
+    settings.setFloodAllowed(false);
+
+    activityTable = new ChatActivityTable(ChatModeratorFloodService.MAX_WINDOW, 0);
+
+    engine = new ModerationRuleEngine();
+    Method registerRules = ModerationRuleEngine.class.getDeclaredMethod("registerRules", Iterable.class);
+    registerRules.setAccessible(true);
+    registerRules.invoke(engine, Arrays.asList(
+        postedLinkRule,
+        new DuplicateMessageRule(),
+        new RepeatedCharactersRule(),
+        new EmoteSpamRule(),
+        new SymbolSpamRule(),
+        new ExcessiveCapsRule(),
+        new MessageLengthRule(),
+        new FloodRule()
+    ));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    linkPermitService.stop();
+  }
+
+  @Test
+  public void corpusReplay() throws Exception {
+    ChatCorpus corpus = ChatCorpus.load();
+    List<ChatCorpus.Message> messages = corpus.getMessages();
+    long[] messageNanos = new long[messages.size() * MEASURED_PASSES];
+
+    // Passes are replayed one after another, with all activity of the previous pass forgotten
+    long passDuration = messages.get(messages.size() - 1).getTime() + ChatModeratorFloodService.MAX_WINDOW;
+    for (int pass = 0; pass < WARMUP_PASSES; pass++) {
+      replay(messages, pass * passDuration, null, 0);
+    }
+
+    engine.resetStatistics();
+    for (int pass = 0; pass < MEASURED_PASSES; pass++) {
+      replay(messages, (WARMUP_PASSES + pass) * passDuration, messageNanos, pass * messages.size());
+    }
+
+    System.out.println(String.format("Corpus %s: %d messages, %d passes",
+        corpus.getSource(), messages.size(), MEASURED_PASSES));
+
+    long messageCount = messageNanos.length;
+    for (ModerationRuleStatistics statistics : engine.getStatistics()) {
+      System.out.println(String.format("%-32s %10.1f ns/message %10.1f ns/evaluation %8.2f%% hits",
+          statistics.getRuleName(),
+          (double) statistics.getNanosSpent() / messageCount,
+          (double) statistics.getNanosSpent() / Math.max(statistics.getEvaluations(), 1),
+          statistics.getHits() * 100.0 / messageCount));
+    }
+
+    Arrays.sort(messageNanos);
+    long median = messageNanos[messageNanos.length / 2];
+    long p99 = messageNanos[(int) (messageNanos.length * 0.99)];
+    long max = messageNanos[messageNanos.length - 1];
+    System.out.println(String.format("Per message: median %d ns, p99 %d ns, max %d ns, %d evaluations over budget",
+        median, p99, max, engine.getOverBudgetCount()));
+
+    assertTrue("The p99 message latency of " + p99 + "ns exceeds the budget of " + ModerationRuleEngine.LATENCY_BUDGET_NANOS + "ns",
+        p99 < ModerationRuleEngine.LATENCY_BUDGET_NANOS);
+    assertTrue("More than 0.1% of the evaluations exceeded the latency budget",
+        engine.getOverBudgetCount() * 1000 < messageCount);
+  }
+
+  private void replay(List<ChatCorpus.Message> messages, long passStart, long[] messageNanos, int offset) {
+    for (int i = 0; i < messages.size(); i++) {
+      ChatCorpus.Message message = messages.get(i);
+      long start = System.nanoTime();
+
+      MessageFeatures features = new MessageFeatures(message.getText(), null);
+      activityTable.record(ChatActivityTable.userKey(message.getUsername()), features, passStart + message.getTime(),
+          settings.getFloodWindow(), ChatModeratorFloodService.DUPLICATE_WINDOW);
+      engine.evaluate(message.getUsername(), features, settings);
+
+      if (messageNanos != null) {
+        messageNanos[offset + i] = System.nanoTime() - start;
+      }
+    }
+  }
+}
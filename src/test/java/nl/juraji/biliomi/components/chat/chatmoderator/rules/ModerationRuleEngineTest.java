@@ -0,0 +1,141 @@
+package nl.juraji.biliomi.components.chat.chatmoderator.rules;
+
+import nl.juraji.biliomi.components.chat.chatmoderator.ChatModeratorFloodService;
+import nl.juraji.biliomi.components.chat.chatmoderator.ChatModeratorLinkPermitService;
+import nl.juraji.biliomi.components.chat.chatmoderator.MessageFeatures;
+import nl.juraji.biliomi.model.chat.ModerationReason;
+import nl.juraji.biliomi.model.chat.settings.ChatModeratorSettings;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by Juraji on 20-10-2017.
+ * Biliomi v3
+ */
+public class ModerationRuleEngineTest {
+
+  @Mock
+  private ChatModeratorLinkPermitService linkPermitService;
+
+  @InjectMocks
+  private PostedLinkRule postedLinkRule;
+
+  private ChatModeratorFloodService floodService;
+  private ModerationRuleEngine engine;
+  private ChatModeratorSettings settings;
+
+  @Before
+  public void setUp() throws Exception {
+    postedLinkRule = new PostedLinkRule();
+    MockitoAnnotations.initMocks(this);
+    Mockito.doReturn(false).when(linkPermitService).usePermit(Mockito.anyString());
+
+    settings = new ChatModeratorSettings();
+    settings.setDefaultValues();
+    settings.setLinksAllowed(false);
+    settings.setExcessiveCapsAllowed(false);
+    settings.setRepeatedCharactersAllowed(false);
+    settings.setEmoteSpamAllowed(false);
+    settings.setSymbolSpamAllowed(false);
+    settings.setLongMessagesAllowed(false);
+    settings.setDuplicateMessagesAllowed(false);
+    settings.setFloodAllowed(false);
+
+    floodService = new ChatModeratorFloodService();
+    floodService.start();
+
+    engine = new ModerationRuleEngine();
+    engine.registerRules(Arrays.asList(
+        postedLinkRule,
+        new DuplicateMessageRule(),
+        new RepeatedCharactersRule(),
+        new EmoteSpamRule(),
+        new SymbolSpamRule(),
+        new ExcessiveCapsRule(),
+        new MessageLengthRule(),
+        new FloodRule()
+    ));
+  }
+
+  @Test
+  public void rulesAreOrderedByCost() throws Exception {
+    List<ModerationRuleStatistics> statistics = engine.getStatistics();
+
+    for (int i = 1; i < statistics.size(); i++) {
+      int previousCost = statistics.get(i - 1).getCost();
+      int currentCost = statistics.get(i).getCost();
+      assertTrue("Rules are not ordered by cost", previousCost <= currentCost);
+    }
+  }
+
+  @Test
+  public void evaluateChatCorpus() throws Exception {
+    List<String> lines;
+    try (InputStream stream = getClass().getResourceAsStream("/chatmoderator/chat_corpus.txt")) {
+      lines = IOUtils.readLines(stream, StandardCharsets.UTF_8);
+    }
+
+    int messageCount = 0;
+    int violationCount = 0;
+
+    for (String line : lines) {
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+
+      String[] columns = line.split("\t", 4);
+      ModerationReason expected = ("NONE".equals(columns[0]) ? null : ModerationReason.valueOf(columns[0]));
+      String emotes = ("-".equals(columns[2]) ? null : columns[2]);
+
+      MessageFeatures features = new MessageFeatures(columns[3], emotes);
+      floodService.record(columns[1], features, settings.getFloodWindow());
+
+      ModerationReason actual = engine.evaluate(columns[1], features, settings);
+      assertEquals("Unexpected moderation result for \"" + columns[3] + "\"", expected, actual);
+
+      ++messageCount;
+      if (expected != null) {
+        ++violationCount;
+      }
+    }
+
+    // The cheapest rule is evaluated for every message, every hit is accounted for exactly once
+    List<ModerationRuleStatistics> statistics = engine.getStatistics();
+    assertEquals(messageCount, statistics.get(0).getEvaluations());
+    assertEquals(violationCount, statistics.stream().mapToLong(ModerationRuleStatistics::getHits).sum());
+  }
+
+  @Test
+  public void floodIsModerated() throws Exception {
+    for (int i = 1; i <= settings.getFloodTrigger(); i++) {
+      MessageFeatures features = new MessageFeatures("message number " + i, null);
+      floodService.record("flooder", features, settings.getFloodWindow());
+      assertEquals(null, engine.evaluate("flooder", features, settings));
+    }
+
+    MessageFeatures features = new MessageFeatures("one message too many", null);
+    floodService.record("flooder", features, settings.getFloodWindow());
+    assertEquals(ModerationReason.FLOOD, engine.evaluate("flooder", features, settings));
+  }
+
+  @Test
+  public void cheapRulesShortCircuit() throws Exception {
+    // Violates both the caps rule and the link rule, only the cheaper caps rule should be evaluated
+    MessageFeatures features = new MessageFeatures("VISIT MY WEBSITE AT WWW.EXAMPLE.COM NOW", null);
+    assertEquals(ModerationReason.EXCESSIVE_CAPS, engine.evaluate("viewer", features, settings));
+    Mockito.verify(linkPermitService, Mockito.never()).usePermit(Mockito.anyString());
+  }
+}
@@ -0,0 +1,155 @@
+package nl.juraji.biliomi.components.shared.chatjournal;
+
+import org.apache.commons.io.FileUtils;
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+public class SegmentedJournalTest {
+  private static final LocalDate DAY_ONE = new LocalDate(2017, 10, 23);
+  private static final LocalDate DAY_TWO = DAY_ONE.plusDays(1);
+
+  private File folder;
+
+  @Before
+  public void setUp() throws Exception {
+    folder = Files.createTempDirectory("SegmentedJournalTest").toFile();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    FileUtils.deleteDirectory(folder);
+  }
+
+  @Test
+  public void appendAndRead() throws Exception {
+    try (SegmentedJournal journal = new SegmentedJournal(folder, Runnable::run)) {
+      journal.append(new ChatJournalEvent(ChatJournalEventType.CHAT_MESSAGE, time(DAY_ONE, 1000), 1234, "viewer", "Hello there",
+          Collections.singletonMap("color", "#FF0000")));
+      journal.append(new ChatJournalEvent(ChatJournalEventType.SAY, time(DAY_ONE, 2000), ChatJournalEvent.UNKNOWN_USER_ID, null, "Hi!", null));
+
+      assertEquals(2, journal.getEventCount(DAY_ONE));
+
+      try (ChatJournalReader reader = journal.openReader(DAY_ONE, 0)) {
+        ChatJournalEvent event = reader.next();
+        assertEquals(ChatJournalEventType.CHAT_MESSAGE, event.getType());
+        assertEquals(time(DAY_ONE, 1000), event.getTimestamp());
+        assertEquals(1234, event.getUserId());
+        assertEquals("viewer", event.getUsername());
+        assertEquals("Hello there", event.getMessage());
+        assertEquals("#FF0000", event.getTags().get("color"));
+        assertEquals("00:00:01.000 [MSG] [CHAT] viewer: Hello there", event.toLogLine());
+
+        event = reader.next();
+        assertNull(event.getUsername());
+        assertEquals("00:00:02.000 [SAY] Hi!", event.toLogLine());
+        assertNull(reader.next());
+      }
+
+      try (ChatJournalReader reader = journal.openReader(DAY_ONE, 1)) {
+        assertEquals("Hi!", reader.next().getMessage());
+      }
+
+      assertNull(journal.openReader(DAY_TWO, 0));
+    }
+  }
+
+  @Test
+  public void rollover() throws Exception {
+    try (SegmentedJournal journal = new SegmentedJournal(folder, Runnable::run)) {
+      journal.append(chatMessage(DAY_ONE, 1000, "first"));
+      journal.append(chatMessage(DAY_ONE, 2000, "second"));
+      journal.append(chatMessage(DAY_ONE, 3000, "third"));
+      journal.append(chatMessage(DAY_TWO, 1000, "fourth"));
+
+      // The segment of the first day is closed and compressed
+      assertFalse(new File(folder, "chat-2017-10-23.journal").exists());
+      assertTrue(new File(folder, "chat-2017-10-23.journal.gz").exists());
+      assertEquals(Arrays.asList(DAY_TWO, DAY_ONE), journal.getDates());
+      assertEquals(3, journal.getEventCount(DAY_ONE));
+      assertEquals(1, journal.getEventCount(DAY_TWO));
+
+      try (ChatJournalReader reader = journal.openReader(DAY_ONE, 1)) {
+        assertEquals(Arrays.asList("second", "third"), messagesOf(reader));
+      }
+    }
+  }
+
+  @Test
+  public void reopen() throws Exception {
+    try (SegmentedJournal journal = new SegmentedJournal(folder, Runnable::run)) {
+      journal.append(chatMessage(DAY_ONE, 1000, "first"));
+    }
+
+    // The newest segment is continued
+    try (SegmentedJournal journal = new SegmentedJournal(folder, Runnable::run)) {
+      assertEquals(1, journal.getEventCount(DAY_ONE));
+      journal.append(chatMessage(DAY_ONE, 2000, "second"));
+
+      try (ChatJournalReader reader = journal.openReader(DAY_ONE, 0)) {
+        assertEquals(Arrays.asList("first", "second"), messagesOf(reader));
+      }
+    }
+  }
+
+  @Test
+  public void reopenAfterIncompleteEvent() throws Exception {
+    try (SegmentedJournal journal = new SegmentedJournal(folder, Runnable::run)) {
+      journal.append(chatMessage(DAY_ONE, 1000, "first"));
+    }
+
+    // An event of which the payload was written, but not the length, contains what looks like a length
+    // right after the next, shorter, event
+    ChatJournalEvent next = chatMessage(DAY_ONE, 2000, "x");
+    try (RandomAccessFile segment = new RandomAccessFile(new File(folder, "chat-2017-10-23.journal"), "rw")) {
+      segment.seek(JournalSegment.HEADER_BYTES);
+      int end = JournalSegment.HEADER_BYTES + Integer.BYTES + segment.readInt();
+      segment.seek(end + Integer.BYTES + next.toBytes().length);
+      segment.writeInt(16);
+    }
+
+    try (SegmentedJournal journal = new SegmentedJournal(folder, Runnable::run)) {
+      journal.append(next);
+    }
+
+    try (SegmentedJournal journal = new SegmentedJournal(folder, Runnable::run)) {
+      assertEquals(2, journal.getEventCount(DAY_ONE));
+
+      try (ChatJournalReader reader = journal.openReader(DAY_ONE, 0)) {
+        assertEquals(Arrays.asList("first", "x"), messagesOf(reader));
+      }
+    }
+  }
+
+  private static ChatJournalEvent chatMessage(LocalDate date, int millisOfDay, String message) {
+    return new ChatJournalEvent(ChatJournalEventType.CHAT_MESSAGE, time(date, millisOfDay), 1234, "viewer", message, null);
+  }
+
+  private static long time(LocalDate date, int millisOfDay) {
+    return date.toDateTimeAtStartOfDay().plusMillis(millisOfDay).getMillis();
+  }
+
+  private static List<String> messagesOf(ChatJournalReader reader) throws Exception {
+    List<String> messages = new ArrayList<>();
+    ChatJournalEvent event;
+    while ((event = reader.next()) != null) {
+      messages.add(event.getMessage());
+    }
+    return messages;
+  }
+}
@@ -0,0 +1,72 @@
+package nl.juraji.biliomi.components.shared.chatsearch;
+
+import nl.juraji.biliomi.model.internal.rest.ChatSearchResult;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+public class ChatLogIndexerTest {
+  private File folder;
+  private File logFile;
+  private File archiveDir;
+
+  @Before
+  public void setUp() throws Exception {
+    folder = Files.createTempDirectory("ChatLogIndexerTest").toFile();
+    logFile = new File(folder, "chat.log");
+    archiveDir = new File(folder, "archive/chat");
+    assertTrue(archiveDir.mkdirs());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    FileUtils.deleteDirectory(folder);
+  }
+
+  @Test
+  public void updateFollowsRotatedLog() throws Exception {
+    try (SearchIndex index = new SearchIndex(new File(folder, "index"))) {
+      ChatLogIndexer indexer = new ChatLogIndexer(logFile, archiveDir, index, new Properties());
+
+      FileUtils.write(logFile, "23:59:58.000 [MSG] [CHAT] viewer: first\n23:59:59.000 [JOIN] other", StandardCharsets.UTF_8);
+      indexer.update();
+      assertEquals(1, index.getDocumentCount());
+
+      // The log is rotated after another line was written
+      FileUtils.write(logFile, "\n00:00:01.000 [MSG] [CHAT] viewer: second\n", StandardCharsets.UTF_8, true);
+      try (OutputStream archive = new GZIPOutputStream(new FileOutputStream(new File(archiveDir, "chat-2017-10-22-1.log.gz")))) {
+        Files.copy(logFile.toPath(), archive);
+      }
+      FileUtils.write(logFile, "00:00:02.000 [MSG] [CHAT] viewer: third\n", StandardCharsets.UTF_8);
+
+      indexer.update();
+      assertEquals(4, index.getDocumentCount());
+
+      List<ChatSearchResult> joins = index.search(Collections.singleton(SearchTokenizer.userTerm("other")), Long.MIN_VALUE, Long.MAX_VALUE, 10);
+      assertEquals(1, joins.size());
+      assertEquals("[JOIN] other", joins.get(0).getText());
+
+      // The time of the line after midnight moves to the next day
+      List<ChatSearchResult> second = index.search(Collections.singleton("second"), Long.MIN_VALUE, Long.MAX_VALUE, 10);
+      List<ChatSearchResult> first = index.search(Collections.singleton("first"), Long.MIN_VALUE, Long.MAX_VALUE, 10);
+      assertEquals(3000, second.get(0).getDate().getMillis() - first.get(0).getDate().getMillis());
+    }
+  }
+}
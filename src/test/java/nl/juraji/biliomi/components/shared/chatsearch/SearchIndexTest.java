@@ -0,0 +1,92 @@
+package nl.juraji.biliomi.components.shared.chatsearch;
+
+import nl.juraji.biliomi.model.internal.rest.ChatSearchResult;
+import nl.juraji.biliomi.model.internal.rest.ChatSearchSource;
+import org.apache.commons.io.FileUtils;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+public class SearchIndexTest {
+  private File folder;
+
+  @Before
+  public void setUp() throws Exception {
+    folder = Files.createTempDirectory("SearchIndexTest").toFile();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    FileUtils.deleteDirectory(folder);
+  }
+
+  @Test
+  public void search() throws Exception {
+    try (SearchIndex index = new SearchIndex(folder)) {
+      index.add(document(ChatSearchSource.CHAT, 1000, "viewer", "[MSG] [CHAT] viewer: Hello there"));
+      index.add(document(ChatSearchSource.CHAT, 2000, "other", "[MSG] [CHAT] other: hello viewer"));
+      index.add(document(ChatSearchSource.COMMAND, 3000, "viewer", "!points"));
+
+      assertEquals(Arrays.asList("hello viewer", "Hello there"), textsOf(index.search(terms("hello"), Long.MIN_VALUE, Long.MAX_VALUE, 10)));
+      // Usernames and tags are not indexed as words
+      assertEquals(Collections.singletonList("hello viewer"), textsOf(index.search(terms("viewer"), Long.MIN_VALUE, Long.MAX_VALUE, 10)));
+      assertEquals(Arrays.asList("!points", "Hello there"), textsOf(index.search(Collections.singleton(SearchTokenizer.userTerm("Viewer")), Long.MIN_VALUE, Long.MAX_VALUE, 10)));
+      assertEquals(Collections.singletonList("hello viewer"), textsOf(index.search(terms("hello"), 1500, 2500, 10)));
+      assertEquals(Collections.singletonList("hello viewer"), textsOf(index.search(terms("hello"), Long.MIN_VALUE, Long.MAX_VALUE, 1)));
+      assertTrue(index.search(Arrays.asList("hello", SearchTokenizer.sourceTerm(ChatSearchSource.COMMAND)), Long.MIN_VALUE, Long.MAX_VALUE, 10).isEmpty());
+    }
+  }
+
+  @Test
+  public void reopen() throws Exception {
+    try (SearchIndex index = new SearchIndex(folder)) {
+      index.add(document(ChatSearchSource.CHAT, 1000, "viewer", "[MSG] [CHAT] viewer: first"));
+    }
+
+    // Documents that were not written to a segment are indexed again when opened
+    SearchIndex index = new SearchIndex(folder);
+    index.add(document(ChatSearchSource.CHAT, 2000, "viewer", "[MSG] [CHAT] viewer: second"));
+    index.commit();
+
+    try (SearchIndex reopened = new SearchIndex(folder)) {
+      assertEquals(2, reopened.getDocumentCount());
+      assertEquals(Arrays.asList("second", "first"),
+          textsOf(reopened.search(Collections.singleton(SearchTokenizer.userTerm("viewer")), Long.MIN_VALUE, Long.MAX_VALUE, 10)));
+    }
+
+    index.close();
+  }
+
+  private static ChatSearchResult document(ChatSearchSource source, long time, String username, String text) {
+    ChatSearchResult document = new ChatSearchResult();
+    document.setSource(source);
+    document.setDate(new DateTime(time));
+    document.setUsername(username);
+    document.setText(text);
+    return document;
+  }
+
+  private static List<String> terms(String text) {
+    return SearchTokenizer.tokenize(text).stream().collect(Collectors.toList());
+  }
+
+  private static List<String> textsOf(List<ChatSearchResult> results) {
+    return results.stream()
+        .map(result -> result.getText().replaceFirst("^\\[MSG\\] \\[CHAT\\] \\w+: ", ""))
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,211 @@
+package nl.juraji.biliomi.components.shared.rostersync;
+
+import nl.juraji.biliomi.components.system.users.UsersService;
+import nl.juraji.biliomi.io.api.twitch.v5.model.TwitchUser;
+import nl.juraji.biliomi.utility.types.collections.LongHashSet;
+import org.apache.logging.log4j.Logger;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+public class RosterSyncTest {
+
+  @Mock
+  private Logger logger;
+
+  @Mock
+  private UsersService usersService;
+
+  @InjectMocks
+  private RosterSync rosterSync;
+
+  @Before
+  public void setUp() throws Exception {
+    rosterSync = new RosterSync();
+    MockitoAnnotations.initMocks(this);
+    Mockito.doReturn(Collections.singletonMap(3L, "oldname3")).when(usersService).getUsernamesByTwitchIds(Mockito.anyCollectionOf(Long.class));
+  }
+
+  @Test
+  public void syncByOffset() throws Exception {
+    // Local members 1 to 5, remote members 3 to 252
+    TestRosterAdapter adapter = new TestRosterAdapter(LongStream.rangeClosed(1, 5), 3, 252, false);
+    RosterSyncStatistics statistics = rosterSync.sync(adapter);
+
+    assertEquals(3, statistics.getPages());
+    assertEquals(250, statistics.getMembers());
+    assertEquals(247, statistics.getAdded());
+    assertEquals(2, statistics.getRemoved());
+    assertEquals(1, statistics.getRenamed());
+
+    assertEquals(LongStream.rangeClosed(6, 252).boxed().collect(Collectors.toList()), adapter.added);
+    assertArrayEquals(new long[]{1, 2}, sorted(adapter.removed));
+    Mockito.verify(usersService).updateUsername(3L, "user3", "User3");
+    assertSame(statistics, rosterSync.getStatistics().get(0));
+  }
+
+  @Test
+  public void syncByCursor() throws Exception {
+    TestRosterAdapter adapter = new TestRosterAdapter(LongStream.rangeClosed(1, 5), 3, 252, true);
+    RosterSyncStatistics statistics = rosterSync.sync(adapter);
+
+    assertEquals(3, statistics.getPages());
+    assertEquals(250, statistics.getMembers());
+    assertEquals(247, statistics.getAdded());
+    assertArrayEquals(new long[]{1, 2}, sorted(adapter.removed));
+  }
+
+  @Test
+  public void truncatedRosterRemovesNothing() throws Exception {
+    // The roster reports 250 members, but runs out of pages after the first
+    TestRosterAdapter adapter = new TestRosterAdapter(LongStream.rangeClosed(1, 5), 3, 252, true);
+    adapter.truncateAtOffset = 100;
+    RosterSyncStatistics statistics = rosterSync.sync(adapter);
+
+    assertEquals(2, statistics.getPages());
+    assertEquals(100, statistics.getMembers());
+    assertEquals(97, statistics.getAdded());
+    assertEquals(0, statistics.getRemoved());
+    assertNull(adapter.removed);
+  }
+
+  @Test
+  public void failedPageRemovesNothing() throws Exception {
+    TestRosterAdapter adapter = new TestRosterAdapter(LongStream.rangeClosed(1, 5), 3, 252, false);
+    adapter.failAtOffset = 200;
+
+    try {
+      rosterSync.sync(adapter);
+      fail("The sync should fail when a page fails");
+    } catch (Exception e) {
+      assertEquals("Page failed", e.getMessage());
+    }
+
+    assertNull(adapter.removed);
+    assertTrue(rosterSync.getStatistics().isEmpty());
+  }
+
+  @Test
+  public void failedLocalMembersAbortsSync() throws Exception {
+    TestRosterAdapter adapter = new TestRosterAdapter(LongStream.rangeClosed(1, 5), 3, 252, false);
+    adapter.failLocalMembers = true;
+
+    try {
+      rosterSync.sync(adapter);
+      fail("The sync should fail when the local members could not be read");
+    } catch (IllegalStateException e) {
+      assertEquals("Could not read Twitch ids", e.getMessage());
+    }
+
+    // No remote member is taken for a new member
+    assertTrue(adapter.added.isEmpty());
+    assertNull(adapter.removed);
+    assertTrue(rosterSync.getStatistics().isEmpty());
+  }
+
+  private static long[] sorted(LongHashSet set) {
+    long[] values = set.toArray();
+    Arrays.sort(values);
+    return values;
+  }
+
+  private static final class TestRosterAdapter implements RosterAdapter<TwitchUser> {
+    private final LongHashSet localMemberIds = new LongHashSet();
+    private final long firstRemoteId;
+    private final long lastRemoteId;
+    private final boolean pagedByCursor;
+
+    private final List<Long> added = new ArrayList<>();
+    private LongHashSet removed;
+    private int failAtOffset = -1;
+    private int truncateAtOffset = -1;
+    private boolean failLocalMembers;
+
+    private TestRosterAdapter(LongStream localMemberIds, long firstRemoteId, long lastRemoteId, boolean pagedByCursor) {
+      localMemberIds.forEach(this.localMemberIds::add);
+      this.firstRemoteId = firstRemoteId;
+      this.lastRemoteId = lastRemoteId;
+      this.pagedByCursor = pagedByCursor;
+    }
+
+    @Override
+    public String getName() {
+      return "test";
+    }
+
+    @Override
+    public boolean isCursorPaged() {
+      return pagedByCursor;
+    }
+
+    @Override
+    public LongHashSet getLocalMemberIds() {
+      if (failLocalMembers) {
+        throw new IllegalStateException("Could not read Twitch ids");
+      }
+      return localMemberIds;
+    }
+
+    @Override
+    public CompletableFuture<RosterPage<TwitchUser>> fetchPage(int limit, int offset, long cursor) {
+      CompletableFuture<RosterPage<TwitchUser>> future = new CompletableFuture<>();
+      if (offset == failAtOffset) {
+        future.completeExceptionally(new Exception("Page failed"));
+        return future;
+      }
+
+      // The cursor is the offset of the next page, shifted so 0 means no more pages
+      int start = (int) (pagedByCursor && cursor != 0 ? cursor - 1 : offset);
+      int total = (int) (lastRemoteId - firstRemoteId + 1);
+      int end = (truncateAtOffset >= 0 && start >= truncateAtOffset ? start : Math.min(start + limit, total));
+      List<TwitchUser> members = LongStream.range(firstRemoteId + start, firstRemoteId + end)
+          .mapToObj(TestRosterAdapter::newTwitchUser)
+          .collect(Collectors.toList());
+      long nextCursor = (pagedByCursor && start + limit < total ? start + limit + 1 : 0);
+
+      future.complete(new RosterPage<>(members, total, nextCursor));
+      return future;
+    }
+
+    @Override
+    public TwitchUser getUser(TwitchUser member) {
+      return member;
+    }
+
+    @Override
+    public void onMemberAdded(TwitchUser member) {
+      added.add(member.getId());
+    }
+
+    @Override
+    public int removeMembers(LongHashSet twitchIds) {
+      removed = twitchIds;
+      return twitchIds.size();
+    }
+
+    private static TwitchUser newTwitchUser(long id) {
+      TwitchUser twitchUser = new TwitchUser();
+      twitchUser.setId(id);
+      twitchUser.setName("user" + id);
+      twitchUser.setDisplayName("User" + id);
+      return twitchUser;
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package nl.juraji.biliomi.io.web;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+public class JsonStreamReaderTest {
+  private static final String PAGE = "{\"_total\":3,\"follows\":[{\"name\":\"één\"},{\"name\":\"two\",\"tags\":[1,2]},{\"name\":\"three\"}],\"_cursor\":42}";
+
+  @Test
+  public void readsDocumentFedInChunks() throws Exception {
+    JsonStreamReader<Page> reader = new JsonStreamReader<>(Page.class);
+    feedPerByte(reader, PAGE);
+
+    Page page = reader.finish();
+    assertEquals(3, page._total);
+    assertEquals(42, page._cursor);
+    assertEquals(3, page.follows.size());
+    assertEquals("één", page.follows.get(0).name);
+    assertEquals(0, reader.getElementCount());
+  }
+
+  @Test
+  public void streamsElements() throws Exception {
+    List<Element> elements = new ArrayList<>();
+    JsonStreamReader<Page> reader = new JsonStreamReader<>(Page.class, "follows", Element.class, elements::add);
+    byte[] bytes = PAGE.getBytes(StandardCharsets.UTF_8);
+
+    // Elements are consumed as soon as they are complete, before the end of the document
+    int secondElementEnd = PAGE.substring(0, PAGE.indexOf("]}") + 2).getBytes(StandardCharsets.UTF_8).length;
+    reader.feed(bytes, 0, secondElementEnd);
+    assertEquals(2, elements.size());
+    assertArrayEquals(new int[]{1, 2}, elements.get(1).tags);
+
+    reader.feed(bytes, secondElementEnd, bytes.length - secondElementEnd);
+    Page page = reader.finish();
+
+    assertEquals(3, elements.size());
+    assertEquals("three", elements.get(2).name);
+    assertNull(page.follows);
+    assertEquals(3, page._total);
+    assertEquals(42, page._cursor);
+    assertEquals(bytes.length, reader.getBytesRead());
+  }
+
+  @Test
+  public void leavesNonArrayFieldToTheModel() throws Exception {
+    List<Element> elements = new ArrayList<>();
+    JsonStreamReader<Page> reader = new JsonStreamReader<>(Page.class, "follows", Element.class, elements::add);
+    feedPerByte(reader, "{\"_total\":0,\"follows\":null}");
+
+    Page page = reader.finish();
+    assertTrue(elements.isEmpty());
+    assertNull(page.follows);
+    assertEquals(0, page._total);
+  }
+
+  @Test(expected = Exception.class)
+  public void failsOnMalformedDocument() throws Exception {
+    JsonStreamReader<Page> reader = new JsonStreamReader<>(Page.class);
+    feedPerByte(reader, "{\"_total\":3,\"follows\":[}");
+    reader.finish();
+  }
+
+  private void feedPerByte(JsonStreamReader<?> reader, String json) throws Exception {
+    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    for (int i = 0; i < bytes.length; i++) {
+      reader.feed(bytes, i, 1);
+    }
+  }
+
+  public static class Page {
+    public int _total;
+    public long _cursor;
+    public List<Element> follows;
+  }
+
+  public static class Element {
+    public String name;
+    public int[] tags;
+  }
+}
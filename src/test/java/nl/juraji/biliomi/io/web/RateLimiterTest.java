@@ -0,0 +1,145 @@
+package nl.juraji.biliomi.io.web;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+public class RateLimiterTest {
+  private static final long NOW = 1_500_000_000_000L;
+
+  private RateLimiter rateLimiter;
+
+  @Before
+  public void setUp() throws Exception {
+    // 10 requests per second, a burst of 2 and a breaker that opens after 3 failures for 5 seconds
+    RateLimitPolicy policy = new RateLimitPolicy(10, 2, 3, 500, 30000, 3, 5000);
+    rateLimiter = new RateLimiter("api.example.com", policy, NOW);
+  }
+
+  @Test
+  public void bucketDelaysRequestsOverTheRate() throws Exception {
+    assertEquals(0, rateLimiter.reserve(NOW));
+    assertEquals(0, rateLimiter.reserve(NOW));
+    assertEquals(100, rateLimiter.reserve(NOW));
+    assertEquals(200, rateLimiter.reserve(NOW));
+
+    // The bucket refills at the policy rate
+    assertEquals(0, rateLimiter.reserve(NOW + 1000));
+
+    RateLimitStatistics statistics = rateLimiter.getStatistics();
+    assertEquals(5, statistics.getRequests());
+    assertEquals(2, statistics.getDelayed());
+  }
+
+  @Test
+  public void throttlingPausesTheBucket() throws Exception {
+    rateLimiter.onThrottled(NOW, 2000);
+
+    assertEquals(2000, rateLimiter.reserve(NOW));
+    assertEquals(0, rateLimiter.reserve(NOW + 5000));
+    assertEquals(1, rateLimiter.getStatistics().getThrottled());
+
+    // Pauses are capped at the maximum backoff
+    rateLimiter.onThrottled(NOW + 5000, TimeUnit.HOURS.toMillis(1));
+    assertEquals(30000, rateLimiter.reserve(NOW + 5000));
+  }
+
+  @Test
+  public void requestsOverTheMaximumBackoffAreRejected() throws Exception {
+    // The GitHub policy, 60 requests per hour with a burst of 10, refills a token every minute
+    rateLimiter = new RateLimiter("api.github.com", new RateLimitPolicy(60, 1, TimeUnit.HOURS, 10), NOW);
+
+    for (int i = 0; i < 10; i++) {
+      assertEquals(0, rateLimiter.reserve(NOW));
+    }
+
+    // Waiting a minute for the next token exceeds the maximum backoff, rejected requests take no token
+    assertEquals(-1, rateLimiter.reserve(NOW));
+    assertEquals(-1, rateLimiter.reserve(NOW + 1000));
+    assertEquals(0, rateLimiter.reserve(NOW + TimeUnit.MINUTES.toMillis(1)));
+    assertEquals(2, rateLimiter.getStatistics().getRejected());
+  }
+
+  @Test
+  public void breakerOpensAfterConsecutiveFailures() throws Exception {
+    rateLimiter.onFailure(NOW);
+    rateLimiter.onFailure(NOW);
+    rateLimiter.onSuccess(NOW, -1);
+    rateLimiter.onFailure(NOW);
+    rateLimiter.onFailure(NOW);
+    assertTrue(rateLimiter.allowRequest(NOW));
+
+    rateLimiter.onFailure(NOW);
+    assertEquals(RateLimiter.BreakerState.OPEN, rateLimiter.getBreakerState());
+    assertFalse(rateLimiter.allowRequest(NOW + 4999));
+
+    // A single probe is let through after the open period
+    assertTrue(rateLimiter.allowRequest(NOW + 5000));
+    assertFalse(rateLimiter.allowRequest(NOW + 5000));
+    assertEquals(RateLimiter.BreakerState.HALF_OPEN, rateLimiter.getBreakerState());
+
+    // A failing probe opens the breaker again
+    rateLimiter.onFailure(NOW + 5000);
+    assertFalse(rateLimiter.allowRequest(NOW + 9999));
+
+    assertTrue(rateLimiter.allowRequest(NOW + 10000));
+    rateLimiter.onSuccess(NOW + 10000, -1);
+    assertEquals(RateLimiter.BreakerState.CLOSED, rateLimiter.getBreakerState());
+    assertEquals(3, rateLimiter.getStatistics().getRejected());
+  }
+
+  @Test
+  public void backoffGrowsWithJitter() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      long first = rateLimiter.backoff(0);
+      long third = rateLimiter.backoff(2);
+      long capped = rateLimiter.backoff(30);
+
+      assertTrue(first >= 250 && first <= 500);
+      assertTrue(third >= 1000 && third <= 2000);
+      assertTrue(capped >= 15000 && capped <= 30000);
+    }
+  }
+
+  @Test
+  public void retryAfter() throws Exception {
+    HttpFields headers = new HttpFields();
+    assertEquals(-1, RateLimiter.retryAfter(headers, NOW));
+
+    headers.put(HttpHeader.RETRY_AFTER, "3");
+    assertEquals(3000, RateLimiter.retryAfter(headers, NOW));
+
+    headers.put(HttpHeader.RETRY_AFTER, "Fri, 14 Jul 2017 02:40:10 GMT");
+    assertEquals(10000, RateLimiter.retryAfter(headers, NOW));
+
+    headers.put(HttpHeader.RETRY_AFTER, "soon");
+    assertEquals(-1, RateLimiter.retryAfter(headers, NOW));
+  }
+
+  @Test
+  public void rateLimitReset() throws Exception {
+    HttpFields headers = new HttpFields();
+    assertEquals(-1, RateLimiter.rateLimitReset(headers, NOW));
+
+    headers.put("Ratelimit-Remaining", "12");
+    headers.put("Ratelimit-Reset", String.valueOf(TimeUnit.MILLISECONDS.toSeconds(NOW) + 20));
+    assertEquals(-1, RateLimiter.rateLimitReset(headers, NOW));
+
+    headers.put("Ratelimit-Remaining", "0");
+    assertEquals(20000, RateLimiter.rateLimitReset(headers, NOW));
+
+    HttpFields githubHeaders = new HttpFields();
+    githubHeaders.put("X-RateLimit-Remaining", "0");
+    githubHeaders.put("X-RateLimit-Reset", String.valueOf(TimeUnit.MILLISECONDS.toSeconds(NOW) + 60));
+    assertEquals(60000, RateLimiter.rateLimitReset(githubHeaders, NOW));
+  }
+}
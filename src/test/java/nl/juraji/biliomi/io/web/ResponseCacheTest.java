@@ -0,0 +1,111 @@
+package nl.juraji.biliomi.io.web;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+public class ResponseCacheTest {
+  private static final long DEFAULT_TTL = 30000;
+  private static final long NOW = 1_000_000L;
+
+  private ResponseCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    cache = new ResponseCache(DEFAULT_TTL, 1024 * 1024, 600000);
+  }
+
+  @Test
+  public void freshnessLifetime() throws Exception {
+    assertEquals(DEFAULT_TTL, ResponseCache.freshnessLifetime(null, -1, DEFAULT_TTL));
+    assertEquals(60000, ResponseCache.freshnessLifetime("public, max-age=60", -1, DEFAULT_TTL));
+    assertEquals(0, ResponseCache.freshnessLifetime("no-cache", -1, DEFAULT_TTL));
+    assertEquals(ResponseCache.NOT_STORABLE, ResponseCache.freshnessLifetime("no-cache, no-store", -1, DEFAULT_TTL));
+
+    // Overrides win over anything but no-store
+    assertEquals(5000, ResponseCache.freshnessLifetime("max-age=60", 5000, DEFAULT_TTL));
+    assertEquals(5000, ResponseCache.freshnessLifetime("no-cache", 5000, DEFAULT_TTL));
+    assertEquals(ResponseCache.NOT_STORABLE, ResponseCache.freshnessLifetime("No-Store", 5000, DEFAULT_TTL));
+  }
+
+  @Test
+  public void keyVariesOnAuthorization() throws Exception {
+    HttpFields casterHeaders = new HttpFields();
+    casterHeaders.put(HttpHeader.AUTHORIZATION, "OAuth caster");
+    HttpFields botHeaders = new HttpFields();
+    botHeaders.put(HttpHeader.AUTHORIZATION, "OAuth bot");
+    botHeaders.put("X-Unrelated", "value");
+
+    String uri = "https://api.twitch.tv/kraken/channel";
+    assertNotEquals(ResponseCache.key(uri, casterHeaders), ResponseCache.key(uri, botHeaders));
+    assertEquals(uri, ResponseCache.key(uri, null));
+    assertEquals(uri, ResponseCache.key(uri, new HttpFields()));
+  }
+
+  @Test
+  public void freshAndStaleEntries() throws Exception {
+    Response<String> response = new Response<>();
+    cache.put("fresh", response, 100, responseHeaders("max-age=10", null), -1, NOW);
+
+    ResponseCache.CachedResponse entry = cache.get("fresh");
+    assertSame(response, entry.getResponse());
+    assertTrue(entry.isFresh(NOW + 9999));
+    assertFalse(entry.isFresh(NOW + 10000));
+    assertFalse(entry.canRevalidate());
+  }
+
+  @Test
+  public void notStorableResponses() throws Exception {
+    cache.put("nostore", new Response<>(), 100, responseHeaders("no-store", "\"v1\""), -1, NOW);
+    assertNull(cache.get("nostore"));
+
+    // Without validators an entry that always needs revalidation is useless
+    cache.put("nocache", new Response<>(), 100, responseHeaders("no-cache", null), -1, NOW);
+    assertNull(cache.get("nocache"));
+  }
+
+  @Test
+  public void revalidationRenewsEntry() throws Exception {
+    Response<String> response = new Response<>();
+    cache.put("key", response, 100, responseHeaders("no-cache", "\"v1\""), 5000, NOW);
+
+    ResponseCache.CachedResponse entry = cache.get("key");
+    assertTrue(entry.canRevalidate());
+    assertEquals("\"v1\"", entry.getEtag());
+    assertFalse(entry.isFresh(NOW + 6000));
+
+    cache.revalidated("key", entry, new HttpFields(), 5000, NOW + 6000);
+
+    ResponseCache.CachedResponse renewed = cache.get("key");
+    assertSame(response, renewed.getResponse());
+    assertEquals("\"v1\"", renewed.getEtag());
+    assertTrue(renewed.isFresh(NOW + 10000));
+  }
+
+  @Test
+  public void cacheIsBoundedByWeight() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      cache.put("key" + i, new Response<>(), 64 * 1024, responseHeaders(null, null), -1, NOW);
+    }
+
+    assertTrue("Cache exceeded its maximum weight", cache.size() < 10);
+  }
+
+  private HttpFields responseHeaders(String cacheControl, String etag) {
+    HttpFields headers = new HttpFields();
+    if (cacheControl != null) {
+      headers.put(HttpHeader.CACHE_CONTROL, cacheControl);
+    }
+    if (etag != null) {
+      headers.put(HttpHeader.ETAG, etag);
+    }
+    return headers;
+  }
+}
@@ -0,0 +1,156 @@
+package nl.juraji.biliomi.rest.config;
+
+import nl.juraji.biliomi.model.core.User;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.LikeExpression;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.type.LongType;
+import org.hibernate.type.ManyToOneType;
+import org.hibernate.type.SetType;
+import org.hibernate.type.StringType;
+import org.hibernate.type.Type;
+import org.junit.Test;
+
+import javax.ws.rs.BadRequestException;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+public class EntityListParserTest {
+  private static final Map<String, Type> PROPERTY_TYPES = new HashMap<>();
+
+  static {
+    PROPERTY_TYPES.put("username", StringType.INSTANCE);
+    PROPERTY_TYPES.put("points", LongType.INSTANCE);
+    PROPERTY_TYPES.put("userGroup", new ManyToOneType(null, "nl.juraji.biliomi.model.core.UserGroup"));
+    PROPERTY_TYPES.put("roles", new SetType(null, "nl.juraji.biliomi.model.core.User.roles", null));
+  }
+
+  @Test
+  public void filterOperators() throws Exception {
+    // Two character operators take precedence over their first character
+    assertEquals("points>=100", filter("Points>=100"));
+    assertEquals("points>100", filter("Points>100"));
+    assertEquals("points<=100", filter("Points<=100"));
+    assertEquals("points<100", filter("Points<100"));
+    assertEquals("points=100", filter("Points=100"));
+    assertEquals("points<>100", filter("Points!=100"));
+    assertTrue(parser(new ListParameters()).toCriterion("Username~juraji") instanceof LikeExpression);
+
+    // Properties can be referred to by their name in Java and spaces are ignored
+    assertEquals("points>=100", filter("points >= 100"));
+  }
+
+  @Test
+  public void associationFilters() throws Exception {
+    assertEquals("userGroup.id=2", filter("UserGroup=2"));
+    assertEquals("userGroup.id<>2", filter("UserGroup!=2"));
+    assertBadRequest(() -> filter("UserGroup>2"));
+    assertBadRequest(() -> filter("UserGroup~2"));
+    assertBadRequest(() -> filter("roles=2"));
+  }
+
+  @Test
+  public void invalidFilters() throws Exception {
+    assertBadRequest(() -> filter("Points"));
+    assertBadRequest(() -> filter(">=100"));
+    assertBadRequest(() -> filter("Points=>100"));
+    assertBadRequest(() -> filter("Points>=many"));
+    assertBadRequest(() -> filter("Points~100"));
+  }
+
+  @Test
+  public void unknownProperties() throws Exception {
+    assertEquals("points", parser(new ListParameters()).resolveProperty("Points"));
+    assertEquals("id", parser(new ListParameters()).resolveProperty("Id"));
+
+    assertBadRequest(() -> parser(new ListParameters()).resolveProperty("Unknown"));
+    assertBadRequest(() -> filter("Unknown=1"));
+    assertBadRequest(() -> ordering("Unknown", null));
+    assertBadRequest(() -> {
+      ListParameters parameters = new ListParameters();
+      parameters.setFields("Username,Unknown");
+      parser(parameters).getProjection("Id");
+    });
+  }
+
+  @Test
+  public void ordering() throws Exception {
+    EntityListParser.Ordering ordering = ordering(null, null);
+    assertEquals("[id asc]", ordering.getOrders().toString());
+    assertNull(ordering.getCursor());
+    assertTrue(ordering.isSortedById());
+
+    ordering = ordering("-Points,Id", null);
+    assertEquals("[points desc, id asc]", ordering.getOrders().toString());
+    assertFalse(ordering.isSortedById());
+
+    assertBadRequest(() -> ordering("UserGroup", null));
+  }
+
+  @Test
+  public void cursor() throws Exception {
+    EntityListParser.Ordering ordering = ordering(null, 10L);
+    assertEquals("id>10", ordering.getCursor().toString());
+    assertTrue(ordering.isSortedById());
+
+    ordering = ordering("-Id", 10L);
+    assertEquals("id<10", ordering.getCursor().toString());
+
+    // A cursor only works when sorting by id
+    assertBadRequest(() -> ordering("Points", 10L));
+    assertBadRequest(() -> ordering("Id,-Points", 10L));
+  }
+
+  private static String filter(String filter) {
+    Criterion criterion = parser(new ListParameters()).toCriterion(filter);
+    return criterion.toString();
+  }
+
+  private static EntityListParser.Ordering ordering(String sort, Long cursor) {
+    ListParameters parameters = new ListParameters();
+    parameters.setSort(sort);
+    parameters.setCursor(cursor);
+    return parser(parameters).getOrdering();
+  }
+
+  private static void assertBadRequest(Runnable runnable) {
+    try {
+      runnable.run();
+      fail("Expected a BadRequestException");
+    } catch (BadRequestException e) {
+      assertEquals(400, e.getResponse().getStatus());
+    }
+  }
+
+  private static EntityListParser parser(ListParameters parameters) {
+    return new EntityListParser(userMetadata(), User.class, parameters);
+  }
+
+  private static ClassMetadata userMetadata() {
+    String[] propertyNames = PROPERTY_TYPES.keySet().stream().sorted().collect(Collectors.toList()).toArray(new String[0]);
+
+    return (ClassMetadata) Proxy.newProxyInstance(ClassMetadata.class.getClassLoader(), new Class<?>[]{ClassMetadata.class}, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "getIdentifierPropertyName":
+          return "id";
+        case "getIdentifierType":
+          return LongType.INSTANCE;
+        case "getPropertyNames":
+          return Arrays.copyOf(propertyNames, propertyNames.length);
+        case "getPropertyType":
+          return PROPERTY_TYPES.get((String) args[0]);
+        default:
+          throw new UnsupportedOperationException(method.getName());
+      }
+    });
+  }
+}
@@ -0,0 +1,217 @@
+package nl.juraji.biliomi.rest.config;
+
+import nl.juraji.biliomi.model.core.Game;
+import nl.juraji.biliomi.model.internal.rest.BatchOperationResult;
+import nl.juraji.biliomi.utility.factories.marshalling.JacksonMarshaller;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.jpa.HibernateEntityManager;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.ws.rs.core.Response;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+public class ModelRestServiceTest {
+  private final GameService service = new GameService();
+
+  public ModelRestServiceTest() throws Exception {
+    Field emf = ModelRestService.class.getDeclaredField("emf");
+    emf.setAccessible(true);
+    emf.set(service, entityManagerFactory());
+  }
+
+  @Test
+  public void checkNotNullProperties() {
+    Game game = new Game();
+    assertTrue(service.checkNotNullProperties(game));
+
+    game.setName("");
+    game.setFirstPlayedOn(DateTime.now());
+    assertTrue(service.checkNotNullProperties(game));
+
+    game.setName("Game");
+    assertFalse(service.checkNotNullProperties(game));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void batchValidation() throws Exception {
+    Response response = batch("[" +
+        "{\"Operation\": \"CREATE\", \"Entity\": {\"Name\": \"Game\", \"FirstPlayedOn\": \"2017-10-23T00:00:00.000Z\"}}," +
+        "{\"Operation\": \"CREATE\", \"Entity\": {\"Id\": 3, \"Name\": \"Game\", \"FirstPlayedOn\": \"2017-10-23T00:00:00.000Z\"}}," +
+        "{\"Operation\": \"UPDATE\", \"Entity\": {\"Name\": \"Game\", \"FirstPlayedOn\": \"2017-10-23T00:00:00.000Z\"}}," +
+        "{\"Operation\": \"DELETE\", \"Id\": 3}," +
+        "{\"Operation\": \"DELETE\"}" +
+        "]");
+
+    // Nothing is applied when any operation is invalid
+    assertEquals(400, response.getStatus());
+    List<BatchOperationResult> results = (List<BatchOperationResult>) response.getEntity();
+    assertEquals(5, results.size());
+    assertEquals(BatchOperationResult.FAILED_DEPENDENCY, results.get(0).getStatus());
+    assertEquals(400, results.get(1).getStatus());
+    assertEquals(400, results.get(2).getStatus());
+    assertEquals(BatchOperationResult.FAILED_DEPENDENCY, results.get(3).getStatus());
+    assertEquals(400, results.get(4).getStatus());
+    assertEquals(4, results.get(4).getIndex());
+  }
+
+  @Test
+  public void batchMalformed() throws Exception {
+    assertEquals(400, batch("[]").getStatus());
+    assertEquals(400, batch("{\"Operation\": \"DELETE\", \"Id\": 3}").getStatus());
+    assertEquals(400, batch("[{\"Operation\": \"DELETE\", \"Id\": \"three\"}]").getStatus());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void batchApplied() throws Exception {
+    service.createEntity(game("Existing"));
+
+    Response response = batch("[" +
+        "{\"Operation\": \"CREATE\", \"Entity\": {\"Name\": \"Game\", \"FirstPlayedOn\": \"2017-10-23T00:00:00.000Z\"}}," +
+        "{\"Operation\": \"UPDATE\", \"Id\": 1, \"Entity\": {\"Name\": \"Renamed\", \"FirstPlayedOn\": \"2017-10-23T00:00:00.000Z\"}}," +
+        "{\"Operation\": \"UPDATE\", \"Id\": 7, \"Entity\": {\"Name\": \"Missing\", \"FirstPlayedOn\": \"2017-10-23T00:00:00.000Z\"}}" +
+        "]");
+
+    // Updating a game that does not exist fails the batch
+    assertEquals(409, response.getStatus());
+    List<BatchOperationResult> results = (List<BatchOperationResult>) response.getEntity();
+    assertEquals(BatchOperationResult.FAILED_DEPENDENCY, results.get(0).getStatus());
+    assertEquals(BatchOperationResult.FAILED_DEPENDENCY, results.get(1).getStatus());
+    assertEquals(304, results.get(2).getStatus());
+
+    response = batch("[" +
+        "{\"Operation\": \"CREATE\", \"Entity\": {\"Name\": \"Game\", \"FirstPlayedOn\": \"2017-10-23T00:00:00.000Z\"}}," +
+        "{\"Operation\": \"UPDATE\", \"Id\": 1, \"Entity\": {\"Name\": \"Renamed\", \"FirstPlayedOn\": \"2017-10-23T00:00:00.000Z\"}}" +
+        "]");
+
+    assertEquals(200, response.getStatus());
+    results = (List<BatchOperationResult>) response.getEntity();
+    assertEquals(200, results.get(0).getStatus());
+    assertEquals("Renamed", ((Game) results.get(1).getEntity()).getName());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void batchUnexpectedFailure() throws Exception {
+    Response response = batch("[" +
+        "{\"Operation\": \"CREATE\", \"Entity\": {\"Name\": \"Game\", \"FirstPlayedOn\": \"2017-10-23T00:00:00.000Z\"}}," +
+        "{\"Operation\": \"DELETE\", \"Id\": -1}" +
+        "]");
+    assertEquals(400, response.getStatus());
+
+    service.failDeletes = true;
+    response = batch("[" +
+        "{\"Operation\": \"CREATE\", \"Entity\": {\"Name\": \"Game\", \"FirstPlayedOn\": \"2017-10-23T00:00:00.000Z\"}}," +
+        "{\"Operation\": \"DELETE\", \"Id\": 1}" +
+        "]");
+
+    assertEquals(500, response.getStatus());
+    List<BatchOperationResult> results = (List<BatchOperationResult>) response.getEntity();
+    assertEquals(BatchOperationResult.FAILED_DEPENDENCY, results.get(0).getStatus());
+    assertEquals(BatchOperationResult.FAILED_DEPENDENCY, results.get(1).getStatus());
+    assertNull(results.get(0).getEntity());
+  }
+
+  private Response batch(String json) throws Exception {
+    return service.restBatch(JacksonMarshaller.getObjectMapper().readTree(json));
+  }
+
+  private static Game game(String name) {
+    Game game = new Game();
+    game.setName(name);
+    game.setFirstPlayedOn(DateTime.now());
+    return game;
+  }
+
+  /**
+   * An entity manager factory of which the sessions do nothing, so batches can run without a database
+   */
+  private static EntityManagerFactory entityManagerFactory() {
+    Transaction transaction = proxy(Transaction.class, (method, args) -> (method.equals("isActive") ? false : null));
+    Session session = proxy(Session.class, (method, args) -> {
+      switch (method) {
+        case "isOpen":
+          return true;
+        case "beginTransaction":
+          return transaction;
+        default:
+          return null;
+      }
+    });
+    HibernateEntityManager entityManager = proxy(HibernateEntityManager.class, (method, args) -> (method.equals("getSession") ? session : null));
+    EntityManager unwrappable = proxy(EntityManager.class, (method, args) -> (method.equals("unwrap") ? entityManager : null));
+    return proxy(EntityManagerFactory.class, (method, args) -> (method.equals("createEntityManager") ? unwrappable : null));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <P> P proxy(Class<P> type, ProxyHandler handler) {
+    return (P) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> handler.invoke(method.getName(), args));
+  }
+
+  private interface ProxyHandler {
+    Object invoke(String method, Object[] args);
+  }
+
+  /**
+   * Keeps games in memory, changes are not rolled back with a batch
+   */
+  private static class GameService extends ModelRestService<Game> {
+    private final Map<Long, Game> games = new TreeMap<>();
+    private boolean failDeletes;
+
+    @Override
+    public List<Game> getEntities() {
+      return new ArrayList<>(games.values());
+    }
+
+    @Override
+    public Game getEntity(long id) {
+      return games.get(id);
+    }
+
+    @Override
+    public Game createEntity(Game e) {
+      e.setId(games.size() + 1);
+      games.put(e.getId(), e);
+      return e;
+    }
+
+    @Override
+    public Game updateEntity(Game e, long id) {
+      Game game = games.get(id);
+
+      if (game == null) {
+        return null;
+      }
+
+      game.setName(e.getName());
+      game.setFirstPlayedOn(e.getFirstPlayedOn());
+      return game;
+    }
+
+    @Override
+    public boolean deleteEntity(long id) {
+      if (failDeletes) {
+        throw new IllegalStateException("Deletes are not available");
+      }
+
+      return games.remove(id) != null;
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package nl.juraji.biliomi.rest.services.eventservices;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+public class EventReplayBufferTest {
+
+  @Test
+  public void getEventsAfter() throws Exception {
+    EventReplayBuffer buffer = new EventReplayBuffer(10, 60000);
+    long firstId = buffer.add(Collections.emptySet(), "1").getId();
+    buffer.add(Collections.emptySet(), "2");
+    buffer.add(Collections.emptySet(), "3");
+
+    assertEquals(firstId + 2, buffer.getLastEventId());
+    assertEquals("23", dataOf(buffer.getEventsAfter(firstId)));
+    assertEquals("", dataOf(buffer.getEventsAfter(firstId + 2)));
+  }
+
+  @Test
+  public void getEventsAfterWraps() throws Exception {
+    EventReplayBuffer buffer = new EventReplayBuffer(3, 60000);
+    long firstId = buffer.add(Collections.emptySet(), "1").getId();
+    for (int i = 2; i <= 5; i++) {
+      buffer.add(Collections.emptySet(), String.valueOf(i));
+    }
+
+    assertEquals("45", dataOf(buffer.getEventsAfter(firstId + 2)));
+    // Events that are no longer buffered are skipped
+    assertEquals("345", dataOf(buffer.getEventsAfter(firstId)));
+  }
+
+  @Test
+  public void getEventsAfterEvictsExpired() throws Exception {
+    EventReplayBuffer buffer = new EventReplayBuffer(3, 50);
+    long firstId = buffer.add(Collections.emptySet(), "1").getId();
+    Thread.sleep(100);
+    buffer.add(Collections.emptySet(), "2");
+
+    assertEquals("2", dataOf(buffer.getEventsAfter(firstId - 1)));
+  }
+
+  private static String dataOf(List<MarshalledEvent> events) {
+    return events.stream()
+        .map(MarshalledEvent::getData)
+        .collect(Collectors.joining());
+  }
+}
@@ -0,0 +1,75 @@
+package nl.juraji.biliomi.rest.services.rest.logs;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+public class LogLineIndexTest {
+
+  private File folder;
+
+  @Before
+  public void setUp() throws Exception {
+    folder = Files.createTempDirectory("LogLineIndexTest").toFile();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    FileUtils.deleteDirectory(folder);
+  }
+
+  @Test
+  public void updateIndexesCompressedLog() throws Exception {
+    File log = new File(folder, "chat-2017-10-23-1.log.gz");
+    writeArchive(log, "a\nbb\nccc\n");
+
+    LogLineIndex index = new LogLineIndex(new File(folder, "index/chat-2017-10-23-1.log.gz.idx"));
+    index.update(log);
+    assertRange(index.getTail(1), 2, 1, 5, 9, 3);
+    assertRange(index.getRange(1, 2), 1, 2, 2, 9, 3);
+    assertTrue(index.getRange(3, 10).isEmpty());
+  }
+
+  @Test
+  public void updateRebuildsReplacedArchive() throws Exception {
+    File log = new File(folder, "chat-2017-10-23-1.log.gz");
+    LogLineIndex index = new LogLineIndex(new File(folder, "chat-2017-10-23-1.log.gz.idx"));
+
+    writeArchive(log, "first\nsecond\n");
+    index.update(log);
+
+    // Replaced by another archive with the same name, without a newer modification time
+    writeArchive(log, "other\nlonger line\nthird\n");
+    assertTrue(log.setLastModified(0));
+    index.update(log);
+    assertRange(index.getRange(0, Long.MAX_VALUE), 0, 3, 0, 24, 3);
+  }
+
+  private static void writeArchive(File log, String content) throws Exception {
+    try (OutputStream out = new GZIPOutputStream(new FileOutputStream(log))) {
+      out.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private static void assertRange(LogLineRange range, long firstLine, long lineCount, long start, long end, long totalLines) {
+    assertEquals(firstLine, range.getFirstLine());
+    assertEquals(lineCount, range.getLineCount());
+    assertEquals(start, range.getStart());
+    assertEquals(end, range.getEnd());
+    assertEquals(totalLines, range.getTotalLines());
+  }
+}
@@ -0,0 +1,71 @@
+package nl.juraji.biliomi.test;
+
+import java.util.Arrays;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * A minimal harness for the *Benchmark classes in the test sources.
+ * Benchmarks are not matched by the default test includes, run one using "mvn test -Dtest=[name]Benchmark".
+ * <p>
+ * Each measurement runs warm-up rounds first, so the measured code is JIT compiled, and reports the median of the measured rounds.
+ * Results of the operation are consumed, so the JIT can not drop the work.
+ * Numbers are only comparable when measured on the same machine and JVM.
+ */
+public final class Benchmark {
+  private static final int WARMUP_ROUNDS = 5;
+  private static final int MEASURED_ROUNDS = 10;
+
+  private static volatile Object sinkMarker = new Object();
+  private static volatile long sink;
+
+  private Benchmark() {
+  }
+
+  /**
+   * Measure an operation and print the result
+   *
+   * @param name       The name to print with the result
+   * @param operations The amount of operations per round, the operation is passed the index of the operation
+   * @param operation  The operation to measure
+   * @return The median time per operation in nanoseconds
+   * @throws Exception When the operation fails
+   */
+  public static double measure(String name, int operations, Operation operation) throws Exception {
+    for (int round = 0; round < WARMUP_ROUNDS; round++) {
+      runRound(operations, operation);
+    }
+
+    double[] nanosPerOperation = new double[MEASURED_ROUNDS];
+    for (int round = 0; round < MEASURED_ROUNDS; round++) {
+      nanosPerOperation[round] = (double) runRound(operations, operation) / operations;
+    }
+
+    Arrays.sort(nanosPerOperation);
+    double median = nanosPerOperation[MEASURED_ROUNDS / 2];
+    System.out.println(String.format("%-48s %12.1f ns/op", name, median));
+    return median;
+  }
+
+  private static long runRound(int operations, Operation operation) throws Exception {
+    Object marker = sinkMarker;
+    long consumed = 0;
+
+    long start = System.nanoTime();
+    for (int i = 0; i < operations; i++) {
+      if (operation.run(i) == marker) {
+        ++consumed;
+      }
+    }
+    long nanos = System.nanoTime() - start;
+
+    sink += consumed;
+    return nanos;
+  }
+
+  @FunctionalInterface
+  public interface Operation {
+    Object run(int index) throws Exception;
+  }
+}
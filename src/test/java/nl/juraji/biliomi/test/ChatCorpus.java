@@ -0,0 +1,128 @@
+package nl.juraji.biliomi.test;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * The chat messages of a chat log, for replay by benchmarks.
+ * By default the sample log in the test resources is used, set the system property "benchmark.chatLog"
+ * to the path of a recorded Biliomi chat log (i.e. an archive from "logs/archive/chat") to replay that instead.
+ */
+public final class ChatCorpus {
+  public static final String CHAT_LOG_PROPERTY = "benchmark.chatLog";
+  private static final String SAMPLE_RESOURCE = "/benchmark/chat_sample.log";
+  private static final Pattern MESSAGE_PATTERN = Pattern.compile("^(\\d{2}):(\\d{2}):(\\d{2})\\.(\\d{3}) \\[MSG\\] \\[[A-Z]+\\] ([^:\\s]+): (.*)$");
+
+  private final String source;
+  private final List<Message> messages;
+
+  private ChatCorpus(String source, List<Message> messages) {
+    this.source = source;
+    this.messages = Collections.unmodifiableList(messages);
+  }
+
+  /**
+   * @return The corpus of the log set in "benchmark.chatLog", or the sample log
+   * @throws IOException When the log could not be read
+   */
+  public static ChatCorpus load() throws IOException {
+    String chatLog = System.getProperty(CHAT_LOG_PROPERTY);
+
+    if (chatLog == null) {
+      try (InputStream content = ChatCorpus.class.getResourceAsStream(SAMPLE_RESOURCE)) {
+        return new ChatCorpus(SAMPLE_RESOURCE, readMessages(content));
+      }
+    }
+
+    InputStream fileContent = new FileInputStream(chatLog);
+    try (InputStream content = (chatLog.endsWith(".gz") ? new GZIPInputStream(fileContent) : fileContent)) {
+      return new ChatCorpus(chatLog, readMessages(content));
+    }
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  public List<Message> getMessages() {
+    return messages;
+  }
+
+  /**
+   * @return The fraction of the messages that start with "!"
+   */
+  public double getCommandRatio() {
+    return (double) messages.stream().filter(message -> message.getText().startsWith("!")).count() / messages.size();
+  }
+
+  private static List<Message> readMessages(InputStream content) throws IOException {
+    List<Message> messages = new ArrayList<>();
+    long dayOffset = 0;
+    long previousTime = 0;
+
+    for (String line : IOUtils.readLines(content, StandardCharsets.UTF_8)) {
+      Matcher matcher = MESSAGE_PATTERN.matcher(line);
+      if (matcher.matches()) {
+        long timeOfDay = TimeUnit.HOURS.toMillis(Long.parseLong(matcher.group(1)))
+            + TimeUnit.MINUTES.toMillis(Long.parseLong(matcher.group(2)))
+            + TimeUnit.SECONDS.toMillis(Long.parseLong(matcher.group(3)))
+            + Long.parseLong(matcher.group(4));
+
+        // Logs only hold the time of day, a log running past midnight continues on the next day
+        if (dayOffset + timeOfDay < previousTime) {
+          dayOffset += TimeUnit.DAYS.toMillis(1);
+        }
+
+        previousTime = dayOffset + timeOfDay;
+        messages.add(new Message(previousTime, matcher.group(5), matcher.group(6)));
+      }
+    }
+
+    if (messages.isEmpty()) {
+      throw new IOException("The chat log contains no chat messages");
+    }
+
+    return messages;
+  }
+
+  public static final class Message {
+    private final long time;
+    private final String username;
+    private final String text;
+
+    private Message(long time, String username, String text) {
+      this.time = time;
+      this.username = username;
+      this.text = text;
+    }
+
+    /**
+     * @return The time the message was sent in milliseconds, relative to the start of the first day in the log
+     */
+    public long getTime() {
+      return time;
+    }
+
+    public String getUsername() {
+      return username;
+    }
+
+    public String getText() {
+      return text;
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package nl.juraji.biliomi.utility.calculate;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+public class ChecksumUtilsTest {
+
+  @Test
+  public void getFirstLineChecksum() throws Exception {
+    CRC32 expected = new CRC32();
+    expected.update("first\n".getBytes(StandardCharsets.UTF_8));
+
+    assertEquals(Long.valueOf(expected.getValue()), ChecksumUtils.getFirstLineChecksum(stream("first\nsecond\n")));
+    assertNull(ChecksumUtils.getFirstLineChecksum(stream("incomplete")));
+    assertNull(ChecksumUtils.getFirstLineChecksum(stream("")));
+  }
+
+  private static ByteArrayInputStream stream(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+}
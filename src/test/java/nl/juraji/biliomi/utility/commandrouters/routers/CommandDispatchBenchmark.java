@@ -0,0 +1,110 @@
+package nl.juraji.biliomi.utility.commandrouters.routers;
+
+import com.google.common.base.Splitter;
+import nl.juraji.biliomi.components.interfaces.Component;
+import nl.juraji.biliomi.model.core.Command;
+import nl.juraji.biliomi.model.core.User;
+import nl.juraji.biliomi.test.Benchmark;
+import nl.juraji.biliomi.test.ChatCorpus;
+import nl.juraji.biliomi.utility.commandrouters.types.Arguments;
+import nl.juraji.biliomi.utility.commandrouters.types.CommandCall;
+import nl.juraji.biliomi.utility.commandrouters.types.CommandHandler;
+import nl.juraji.biliomi.utility.commandrouters.types.RegistryEntry;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * The cost of recognizing commands in chat, replaying a chat corpus against a registry of common commands.
+ * Splitting each message up front, as command calls were parsed before, is compared to locating the command token
+ * with CommandCall and resolving it in the lookup table. Arguments are requested for every registered command.
+ * Run using "mvn test -Dtest=CommandDispatchBenchmark", see ChatCorpus to replay a recorded chat log.
+ */
+public class CommandDispatchBenchmark {
+  private static final String[] COMMANDS = {"points", "song", "songrequest", "uptime", "followage", "quote", "roll", "slots",
+      "raffle", "8ball", "discord", "bet", "hug", "lurk", "commands", "help", "game", "title", "permit", "chatmoderator",
+      "customcommand", "usergroup", "announcement", "giveaway", "tamagotchi", "investment", "kill", "duel", "hosts", "followers"};
+  private static final Splitter SPACE_SPLITTER = Splitter.on(" ");
+
+  @Test
+  public void commandRecognition() throws Exception {
+    ChatCorpus corpus = ChatCorpus.load();
+    List<ChatCorpus.Message> messages = corpus.getMessages();
+    CommandRouterRegistry registry = createRegistry();
+    int operations = Math.max(messages.size(), 5_000_000 / messages.size() * messages.size());
+
+    System.out.println(String.format("Corpus %s: %d messages, %.1f%% commands",
+        corpus.getSource(), messages.size(), corpus.getCommandRatio() * 100));
+
+    Benchmark.measure("Chat mix, split up front", operations,
+        i -> splitUpFront(registry, messages.get(i % messages.size()).getText()));
+    Benchmark.measure("Chat mix, CommandCall and lookup table", operations,
+        i -> locateCommand(registry, messages.get(i % messages.size()).getText()));
+
+    // Most chat messages are rejected by CommandCall.isCallable on either path, measure the commands on their own as well
+    List<String> commands = messages.stream()
+        .map(ChatCorpus.Message::getText)
+        .filter(CommandCall::isCallable)
+        .collect(Collectors.toList());
+    int commandOperations = Math.max(commands.size(), 1_000_000 / commands.size() * commands.size());
+
+    Benchmark.measure("Commands, split up front", commandOperations,
+        i -> splitUpFront(registry, commands.get(i % commands.size())));
+    Benchmark.measure("Commands, CommandCall and lookup table", commandOperations,
+        i -> locateCommand(registry, commands.get(i % commands.size())));
+
+    // Both recognize the same commands
+    for (ChatCorpus.Message message : messages) {
+      assertEquals(message.getText(), splitUpFront(registry, message.getText()) != null, locateCommand(registry, message.getText()) != null);
+    }
+  }
+
+  private static Arguments splitUpFront(CommandRouterRegistry registry, String message) {
+    if (!CommandCall.isCallable(message)) {
+      return null;
+    }
+
+    List<String> parts = SPACE_SPLITTER.splitToList(message.trim());
+    String command = parts.get(0).substring(1);
+    RegistryEntry<CommandHandler> entry = registry.get(command);
+    return (entry == null ? null : new Arguments(command, parts.subList(1, parts.size())));
+  }
+
+  private static Arguments locateCommand(CommandRouterRegistry registry, String message) {
+    if (!CommandCall.isCallable(message)) {
+      return null;
+    }
+
+    CommandCall commandCall = new CommandCall(message);
+    RegistryEntry<CommandHandler> entry = registry.lookup(commandCall);
+    return (entry == null ? null : commandCall.getArguments());
+  }
+
+  private static CommandRouterRegistry createRegistry() throws Exception {
+    CommandRouterRegistry registry = new CommandRouterRegistry();
+    BenchmarkComponent component = new BenchmarkComponent();
+    Method method = BenchmarkComponent.class.getMethod("benchmarkCommand", User.class, Arguments.class);
+
+    for (String name : COMMANDS) {
+      Command command = new Command();
+      command.setCommand(name);
+      registry.put(command, component, method);
+    }
+
+    registry.putAlias("sr", "songrequest");
+    return registry;
+  }
+
+  public static class BenchmarkComponent extends Component {
+    public boolean benchmarkCommand(User user, Arguments arguments) {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package nl.juraji.biliomi.utility.commandrouters.routers;
+
+import nl.juraji.biliomi.components.interfaces.Component;
+import nl.juraji.biliomi.model.core.Command;
+import nl.juraji.biliomi.model.core.User;
+import nl.juraji.biliomi.model.core.UserGroup;
+import nl.juraji.biliomi.utility.commandrouters.types.Arguments;
+import nl.juraji.biliomi.utility.commandrouters.types.CommandCall;
+import nl.juraji.biliomi.utility.commandrouters.types.CommandHandler;
+import nl.juraji.biliomi.utility.commandrouters.types.RegistryEntry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created by Juraji on 22-10-2017.
+ * Biliomi v3
+ */
+public class CommandRouterRegistryTest {
+
+  private CommandRouterRegistry registry;
+  private TestComponent component;
+  private Method method;
+
+  @Before
+  public void setUp() throws Exception {
+    registry = new CommandRouterRegistry();
+    component = new TestComponent();
+    method = TestComponent.class.getMethod("testCommand", User.class, Arguments.class);
+  }
+
+  @Test
+  public void getIsCaseInsensitive() throws Exception {
+    Command command = createCommand("points", "p");
+    registry.put(command, component, method);
+
+    assertSame(command, registry.get("points").getCommand());
+    assertSame(command, registry.get("POINTS").getCommand());
+    assertSame(command, registry.get("P").getCommand());
+    assertNull(registry.get("pointz"));
+    assertNull(registry.get(null));
+  }
+
+  @Test
+  public void lookupUsesCommandToken() throws Exception {
+    Command command = createCommand("points", "p");
+    registry.put(command, component, method);
+
+    assertSame(command, registry.lookup(new CommandCall("!Points give viewer 100")).getCommand());
+    assertSame(command, registry.lookup(new CommandCall("!p")).getCommand());
+    assertNull(registry.lookup(new CommandCall("!pointsgive viewer")));
+    assertNull(registry.lookup(new CommandCall("! points")));
+  }
+
+  @Test
+  public void aliassesResolveToCommandEntry() throws Exception {
+    registry.put(createCommand("points"), component, method);
+    registry.putAlias("balance", "Points");
+
+    RegistryEntry<CommandHandler> entry = registry.get("points");
+    assertSame(entry, registry.get("balance"));
+    assertEquals("points", registry.translateAlias("BALANCE"));
+    assertEquals("unknown", registry.translateAlias("unknown"));
+
+    registry.removeAlias("balance");
+    assertFalse(registry.containsKey("balance"));
+
+    registry.putAlias("balance", "points");
+    registry.putAlias("bal", "points");
+    registry.clearAliassesFor("points");
+    assertFalse(registry.containsKey("balance"));
+    assertFalse(registry.containsKey("bal"));
+    assertTrue(registry.containsKey("points"));
+  }
+
+  @Test
+  public void updateReplacesCommandMetadata() throws Exception {
+    registry.put(createCommand("points", "p"), component, method);
+
+    Command updated = createCommand("points", "p");
+    updated.setPrice(100);
+    registry.update(updated);
+
+    assertEquals(100, registry.get("points").getCommand().getPrice());
+    assertEquals(100, registry.get("p").getCommand().getPrice());
+
+    // Updating an unregistered command does not register it
+    registry.update(createCommand("unregistered"));
+    assertFalse(registry.containsKey("unregistered"));
+  }
+
+  @Test
+  public void updateUserGroupRefreshesCommands() throws Exception {
+    Command command = createCommand("points");
+    command.setUserGroup(createUserGroup(1, 100));
+    registry.put(command, component, method);
+    Command other = createCommand("balance");
+    other.setUserGroup(createUserGroup(2, 200));
+    registry.put(other, component, method);
+    RegistryEntry<CommandHandler> published = registry.get("points");
+
+    registry.updateUserGroup(createUserGroup(1, 50));
+
+    assertEquals(50, registry.get("points").getCommand().getUserGroup().getWeight());
+    // Entries that may still be used by dispatching threads are left as they were
+    assertEquals(100, published.getCommand().getUserGroup().getWeight());
+    assertNotSame(published, registry.get("points"));
+    assertEquals(200, registry.get("balance").getCommand().getUserGroup().getWeight());
+  }
+
+  @Test
+  public void handlerInvokesCommandMethod() throws Exception {
+    registry.put(createCommand("points"), component, method);
+    registry.put(createCommand("balance"), component, method);
+
+    CommandHandler handler = registry.get("points").getHandler();
+    assertSame("Handlers should be shared for the same method", handler, registry.get("balance").getHandler());
+
+    assertTrue(handler.handle(null, new Arguments("points", "succeed")));
+    assertFalse(handler.handle(null, new Arguments("points", "fail")));
+    assertEquals(2, component.invocations);
+  }
+
+  @Test
+  public void removeCommand() throws Exception {
+    registry.put(createCommand("points", "p"), component, method);
+    registry.remove("POINTS");
+
+    assertFalse(registry.containsKey("points"));
+    assertFalse(registry.containsKey("p"));
+  }
+
+  @Test
+  public void manyCommands() throws Exception {
+    for (int i = 0; i < 500; i++) {
+      registry.put(createCommand("command" + i, "alias" + i), component, method);
+    }
+
+    for (int i = 0; i < 500; i++) {
+      assertEquals("command" + i, registry.get("Command" + i).getCommand().getCommand());
+      assertEquals("command" + i, registry.get("ALIAS" + i).getCommand().getCommand());
+    }
+  }
+
+  private Command createCommand(String name, String... aliasses) {
+    Command command = new Command();
+    command.setCommand(name);
+    for (String alias : aliasses) {
+      command.getAliasses().add(alias);
+    }
+    return command;
+  }
+
+  private UserGroup createUserGroup(long id, int weight) {
+    UserGroup userGroup = new UserGroup();
+    userGroup.setId(id);
+    userGroup.setWeight(weight);
+    return userGroup;
+  }
+
+  public static class TestComponent extends Component {
+    private int invocations;
+
+    public boolean testCommand(User user, Arguments arguments) {
+      ++invocations;
+      return "succeed".equals(arguments.get(0));
+    }
+  }
+}
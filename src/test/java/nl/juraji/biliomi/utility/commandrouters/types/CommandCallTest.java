@@ -0,0 +1,82 @@
+package nl.juraji.biliomi.utility.commandrouters.types;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+public class CommandCallTest {
+
+  @Test
+  public void locatesCommand() throws Exception {
+    assertCommand("points", "!points");
+    assertCommand("points", "!points   ");
+    assertCommand("points", "!points give viewer 100");
+    assertCommand("", "! points");
+  }
+
+  @Test
+  public void tokenizesArguments() throws Exception {
+    Arguments arguments = new CommandCall("!points give  viewer 100 ").getArguments();
+
+    assertEquals("points", arguments.getCommand());
+    assertArrayEquals(new String[]{"give", "viewer", "100"}, arguments.getArguments());
+    assertTrue(new CommandCall("!points").getArguments().isEmpty());
+  }
+
+  @Test
+  public void tokenizesQuotedArguments() throws Exception {
+    Arguments arguments = new CommandCall("!customcommand add \"hello world\" \"\" end").getArguments();
+    assertArrayEquals(new String[]{"add", "hello world", "", "end"}, arguments.getArguments());
+
+    // Quotes that do not wrap an argument are regular characters
+    arguments = new CommandCall("!quote add He said \"hi there\"to me \"unclosed").getArguments();
+    assertArrayEquals(new String[]{"add", "He", "said", "\"hi", "there\"to", "me", "\"unclosed"}, arguments.getArguments());
+  }
+
+  @Test
+  public void toStringKeepsOriginalText() throws Exception {
+    Arguments arguments = new CommandCall("!customcommand add hello  \"big\" world").getArguments();
+    assertEquals("add hello  \"big\" world", arguments.toString());
+
+    arguments.pop();
+    arguments.pop();
+    assertEquals("\"big\" world", arguments.toString());
+
+    arguments.pop();
+    arguments.pop();
+    assertEquals("", arguments.toString());
+  }
+
+  @Test
+  public void toStringUnquotesSingleQuotedRemainder() throws Exception {
+    Arguments arguments = new CommandCall("!customcommand add hello \"Hello world!\"").getArguments();
+    arguments.pop();
+    arguments.pop();
+    assertEquals("Hello world!", arguments.toString());
+
+    // Quotes within free text are kept
+    arguments = new CommandCall("!customcommand add hello \"Hello\" world!").getArguments();
+    arguments.pop();
+    arguments.pop();
+    assertEquals("\"Hello\" world!", arguments.toString());
+  }
+
+  @Test
+  public void argumentsAreIndependentPerCall() throws Exception {
+    CommandCall commandCall = new CommandCall("!points give viewer");
+    commandCall.getArguments().pop();
+
+    assertEquals(2, commandCall.getArguments().size());
+    assertEquals("give viewer", commandCall.getArguments().toString());
+  }
+
+  private void assertCommand(String expected, String message) {
+    CommandCall commandCall = new CommandCall(message);
+    assertEquals(expected, commandCall.getCommand());
+    assertEquals(expected, message.substring(CommandCall.COMMAND_START, commandCall.getCommandEnd()));
+  }
+}
@@ -0,0 +1,45 @@
+package nl.juraji.biliomi.utility.commandrouters.types;
+
+import nl.juraji.biliomi.model.core.User;
+import nl.juraji.biliomi.test.Benchmark;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ * <p>
+ * The cost of invoking a command method, through Method.invoke() as commands were dispatched before,
+ * through a generated CommandHandler and as a direct call for reference.
+ * Run using "mvn test -Dtest=CommandHandlersBenchmark".
+ */
+public class CommandHandlersBenchmark {
+  private static final int OPERATIONS = 1_000_000;
+
+  @Test
+  public void dispatchCost() throws Exception {
+    BenchmarkComponent component = new BenchmarkComponent();
+    Method method = BenchmarkComponent.class.getMethod("benchmarkCommand", User.class, Arguments.class);
+    CommandHandler handler = CommandHandlers.forCommand(component, method);
+    User user = new User();
+    Arguments[] arguments = {new Arguments("points", "give", "viewer", "100"), new Arguments("points")};
+
+    double reflective = Benchmark.measure("Method.invoke()", OPERATIONS,
+        i -> method.invoke(component, user, arguments[i & 1]));
+    double generated = Benchmark.measure("CommandHandler (LambdaMetafactory)", OPERATIONS,
+        i -> handler.handle(user, arguments[i & 1]));
+    Benchmark.measure("Direct call", OPERATIONS,
+        i -> component.benchmarkCommand(user, arguments[i & 1]));
+
+    assertTrue(reflective > 0 && generated > 0);
+  }
+
+  public static final class BenchmarkComponent {
+    public boolean benchmarkCommand(User user, Arguments arguments) {
+      return arguments.size() > 1;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package nl.juraji.biliomi.utility.jpa.managed;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+public class ConnectionBudgetTest {
+
+  @After
+  public void tearDown() {
+    ConnectionBudget.exit();
+  }
+
+  @Test
+  public void acquireAndRelease() {
+    Semaphore permits = new Semaphore(2);
+    ConnectionBudget.enter(permits, 100);
+
+    // A thread takes a single permit, however many sessions it opens
+    ConnectionBudget.acquire();
+    ConnectionBudget.acquire();
+    assertEquals(1, permits.availablePermits());
+
+    ConnectionBudget.release();
+    assertEquals(1, permits.availablePermits());
+    ConnectionBudget.release();
+    assertEquals(2, permits.availablePermits());
+
+    // Exiting returns a permit that is still held
+    ConnectionBudget.acquire();
+    ConnectionBudget.exit();
+    assertEquals(2, permits.availablePermits());
+  }
+
+  @Test
+  public void exhausted() throws Exception {
+    Semaphore permits = new Semaphore(1);
+    ConnectionBudget.enter(permits, 100);
+    ConnectionBudget.acquire();
+
+    String failure = CompletableFuture.supplyAsync(() -> {
+      ConnectionBudget.enter(permits, 100);
+      try {
+        ConnectionBudget.acquire();
+        return null;
+      } catch (IllegalStateException e) {
+        return e.getMessage();
+      } finally {
+        ConnectionBudget.exit();
+      }
+    }).get();
+
+    assertEquals("Timed out waiting for a database connection", failure);
+    assertEquals(0, permits.availablePermits());
+
+    // Threads outside of a budget are not limited
+    ConnectionBudget.exit();
+    ConnectionBudget.acquire();
+    ConnectionBudget.release();
+    assertEquals(1, permits.availablePermits());
+  }
+}
@@ -0,0 +1,175 @@
+package nl.juraji.biliomi.utility.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.impl.DefaultClaims;
+import nl.juraji.biliomi.components.system.settings.SettingsService;
+import nl.juraji.biliomi.model.core.security.ApiLogin;
+import nl.juraji.biliomi.model.core.security.ApiSecuritySettings;
+import nl.juraji.biliomi.test.TestUtils;
+import nl.juraji.biliomi.test.mockmodel.jpa.TestUser;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.*;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+public class ApiSecurityCacheTest {
+  private static final long NOW = 1_500_000_000_000L;
+
+  @Captor
+  private ArgumentCaptor<Consumer<ApiSecuritySettings>> onUpdatedCaptor;
+
+  @Mock
+  private SettingsService settingsService;
+
+  @Mock
+  private JWTGenerator jwtGenerator;
+
+  @Mock
+  private LongSupplier clock;
+
+  @InjectMocks
+  private ApiSecurityCache apiSecurityCache;
+
+  private ApiSecuritySettings settings;
+  private int secretCount;
+
+  @Before
+  public void setUp() throws Exception {
+    apiSecurityCache = new ApiSecurityCache();
+    MockitoAnnotations.initMocks(this);
+
+    settings = createSettings(1);
+    Mockito.doReturn(NOW).when(clock).getAsLong();
+    Mockito.doReturn(settings).when(settingsService).getSettings(Mockito.eq(ApiSecuritySettings.class), onUpdatedCaptor.capture());
+    Mockito.doReturn(settings).when(settingsService).getSettings(ApiSecuritySettings.class);
+
+    stubToken("token1", "TestUser1", NOW + TimeUnit.HOURS.toMillis(1));
+    TestUtils.callPostConstruct(apiSecurityCache);
+  }
+
+  @Test
+  public void verifiedTokensAreCached() throws Exception {
+    assertEquals("TestUser1", apiSecurityCache.verifyToken("token1").getSubject());
+    assertEquals("TestUser1", apiSecurityCache.verifyToken("token1").getSubject());
+
+    Mockito.verify(jwtGenerator, Mockito.times(1)).validateToken(Mockito.any(byte[].class), Mockito.eq("token1"));
+  }
+
+  @Test
+  public void cacheIsClearedWhenTheSecretChanges() throws Exception {
+    apiSecurityCache.verifyToken("token1");
+
+    // Saving the settings unchanged keeps the cache
+    onUpdatedCaptor.getValue().accept(settings);
+    apiSecurityCache.verifyToken("token1");
+    Mockito.verify(jwtGenerator, Mockito.times(1)).validateToken(Mockito.any(byte[].class), Mockito.eq("token1"));
+
+    ApiSecuritySettings newSettings = createSettings(1);
+    byte[] newSecret = newSettings.getSecret();
+    onUpdatedCaptor.getValue().accept(newSettings);
+    apiSecurityCache.verifyToken("token1");
+    Mockito.verify(jwtGenerator).validateToken(newSecret, "token1");
+  }
+
+  @Test
+  public void cacheIsClearedWhenTheLoginsChange() throws Exception {
+    apiSecurityCache.verifyToken("token1");
+
+    settings.getLogins().add(createLogin(2));
+    onUpdatedCaptor.getValue().accept(settings);
+    apiSecurityCache.verifyToken("token1");
+
+    Mockito.verify(jwtGenerator, Mockito.times(2)).validateToken(Mockito.any(byte[].class), Mockito.eq("token1"));
+  }
+
+  @Test
+  public void expiredTokenIsRejectedWhileCached() throws Exception {
+    stubToken("token2", "TestUser1", NOW + 1000);
+    apiSecurityCache.verifyToken("token2");
+
+    // The cached token expires, validation of the token itself now fails
+    Mockito.doReturn(NOW + 2000).when(clock).getAsLong();
+    Mockito.doThrow(new JwtException("Token expired")).when(jwtGenerator).validateToken(Mockito.any(byte[].class), Mockito.eq("token2"));
+
+    try {
+      apiSecurityCache.verifyToken("token2");
+      fail("Expected an expired token to be rejected");
+    } catch (JwtException e) {
+      assertEquals("Token expired", e.getMessage());
+    }
+
+    Mockito.verify(jwtGenerator, Mockito.times(2)).validateToken(Mockito.any(byte[].class), Mockito.eq("token2"));
+  }
+
+  @Test
+  public void unknownUserReloadIsThrottled() throws Exception {
+    stubToken("token2", "TestUser2", NOW + TimeUnit.HOURS.toMillis(1));
+    stubToken("token3", "TestUser3", NOW + TimeUnit.HOURS.toMillis(1));
+
+    // The snapshot was just loaded, so the settings are not reloaded
+    Mockito.doReturn(NOW + 1000).when(clock).getAsLong();
+    assertUnknownUser("token2");
+    Mockito.verify(settingsService, Mockito.never()).getSettings(ApiSecuritySettings.class);
+
+    // Once the snapshot is older than the reload interval, a login added elsewhere is picked up
+    ApiSecuritySettings reloadedSettings = createSettings(2);
+    Mockito.doReturn(reloadedSettings).when(settingsService).getSettings(ApiSecuritySettings.class);
+    Mockito.doReturn(NOW + TimeUnit.SECONDS.toMillis(10)).when(clock).getAsLong();
+    assertEquals("TestUser2", apiSecurityCache.verifyToken("token2").getSubject());
+    Mockito.verify(settingsService, Mockito.times(1)).getSettings(ApiSecuritySettings.class);
+
+    // The reloaded snapshot is throttled again
+    Mockito.doReturn(NOW + TimeUnit.SECONDS.toMillis(11)).when(clock).getAsLong();
+    assertUnknownUser("token3");
+    Mockito.verify(settingsService, Mockito.times(1)).getSettings(ApiSecuritySettings.class);
+  }
+
+  private void assertUnknownUser(String token) {
+    try {
+      apiSecurityCache.verifyToken(token);
+      fail("Expected a token for an unknown user to be rejected");
+    } catch (JwtException e) {
+      assertEquals(JwtException.class, e.getClass());
+    }
+  }
+
+  private void stubToken(String token, String subject, long expiresAt) {
+    Claims claims = new DefaultClaims();
+    claims.setSubject(subject);
+    claims.setExpiration(new Date(expiresAt));
+    Mockito.doReturn(claims).when(jwtGenerator).validateToken(Mockito.any(byte[].class), Mockito.eq(token));
+  }
+
+  private ApiSecuritySettings createSettings(int loginCount) {
+    Set<ApiLogin> logins = new HashSet<>();
+    for (int i = 1; i <= loginCount; i++) {
+      logins.add(createLogin(i));
+    }
+
+    // Every instance gets a new secret
+    ApiSecuritySettings settings = Mockito.mock(ApiSecuritySettings.class);
+    Mockito.doReturn(new byte[]{(byte) ++secretCount}).when(settings).getSecret();
+    Mockito.doReturn(logins).when(settings).getLogins();
+    return settings;
+  }
+
+  private static ApiLogin createLogin(int i) {
+    ApiLogin login = new ApiLogin();
+    login.setUser(new TestUser(i));
+    return login;
+  }
+}
@@ -0,0 +1,68 @@
+package nl.juraji.biliomi.utility.types;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+public class CompiledTemplateTest {
+
+  @Test
+  public void applyMatchesTemplater() throws Exception {
+    String[] templates = new String[]{
+        "{{value}}{{value2}}{{value3}}",
+        "Hello {{value}}, you have {{value2}}!",
+        "{{value}} and {{value}} again",
+        "No keys at all",
+        "{{unknown}} stays, {{value}} does not",
+        "Unclosed {{value",
+        "",
+    };
+
+    for (String template : templates) {
+      Templater templater = Templater.template(template)
+          .add("value", "1")
+          .add("value2", Arrays.asList("a", "b"))
+          .add("value3", () -> null);
+
+      Map<String, Supplier<Object>> replacements = new HashMap<>();
+      replacements.put("value", () -> "1");
+      replacements.put("value2", () -> Arrays.asList("a", "b"));
+      replacements.put("value3", () -> null);
+
+      assertEquals("Result did not match Templater for \"" + template + "\"",
+          templater.apply(), CompiledTemplate.compile(template).apply(replacements));
+    }
+  }
+
+  @Test
+  public void replacementsAreEvaluatedOnlyWhenUsed() throws Exception {
+    AtomicInteger evaluations = new AtomicInteger();
+    Map<String, Supplier<Object>> replacements = new HashMap<>();
+    replacements.put("used", evaluations::incrementAndGet);
+    replacements.put("unused", () -> {
+      throw new IllegalStateException("Should not be evaluated");
+    });
+
+    CompiledTemplate template = CompiledTemplate.compile("{{used}} {{used}}");
+    assertEquals("1 1", template.apply(replacements));
+    assertEquals(1, evaluations.get());
+  }
+
+  @Test
+  public void containsKey() throws Exception {
+    CompiledTemplate template = CompiledTemplate.compile("Hello {{callername}}");
+    assertTrue(template.containsKey("callername"));
+    assertFalse(template.containsKey("callerpoints"));
+    assertEquals("", CompiledTemplate.compile(null).apply(new HashMap<>()));
+  }
+}
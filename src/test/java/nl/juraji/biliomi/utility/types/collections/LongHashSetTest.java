@@ -0,0 +1,82 @@
+package nl.juraji.biliomi.utility.types.collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created by Juraji on 23-10-2017.
+ * Biliomi v3
+ */
+public class LongHashSetTest {
+
+  private LongHashSet set;
+
+  @Before
+  public void setUp() throws Exception {
+    set = new LongHashSet();
+    set.add(1);
+    set.add(0);
+    set.add(-42);
+  }
+
+  @Test
+  public void add() throws Exception {
+    assertTrue(set.add(2));
+    assertFalse(set.add(2));
+    assertFalse(set.add(0));
+    assertEquals(4, set.size());
+  }
+
+  @Test
+  public void contains() throws Exception {
+    assertTrue(set.contains(0));
+    assertTrue(set.contains(1));
+    assertTrue(set.contains(-42));
+    assertFalse(set.contains(2));
+  }
+
+  @Test
+  public void remove() throws Exception {
+    assertTrue(set.remove(0));
+    assertTrue(set.remove(1));
+    assertFalse(set.remove(1));
+    assertFalse(set.contains(0));
+    assertTrue(set.contains(-42));
+    assertEquals(1, set.size());
+  }
+
+  @Test
+  public void toArray() throws Exception {
+    long[] values = set.toArray();
+    Arrays.sort(values);
+    assertArrayEquals(new long[]{-42, 0, 1}, values);
+  }
+
+  @Test
+  public void behavesLikeHashSet() throws Exception {
+    Random random = new Random(1337);
+    Set<Long> expected = new HashSet<>();
+    LongHashSet actual = new LongHashSet();
+
+    // A small range of values forces collisions, resizes and removals in probe sequences
+    for (int i = 0; i < 100000; i++) {
+      long value = random.nextInt(5000);
+      if (random.nextBoolean()) {
+        assertEquals(expected.add(value), actual.add(value));
+      } else {
+        assertEquals(expected.remove(value), actual.remove(value));
+      }
+    }
+
+    assertEquals(expected.size(), actual.size());
+    actual.forEach(value -> assertTrue(expected.contains(value)));
+    expected.forEach(value -> assertTrue(actual.contains(value)));
+  }
+}